@@ -1,33 +1,36 @@
 package com.ajua.Dromed.config;
 
-import com.ajua.Dromed.services.impl.BatteryCheckServiceImpl;
+import com.ajua.Dromed.enums.OverflowPolicy;
 import com.ajua.Dromed.services.impl.BatteryLoggerImpl;
-import org.springframework.context.annotation.Bean;
+import com.ajua.Dromed.services.interfaces.BatteryEventBus;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
 /**
- * Configuration class responsible for defining beans that are essential for the application's functionality.
- * Specifically, it configures the {@link BatteryCheckServiceImpl} bean and automatically adds a {@link BatteryLoggerImpl} as an observer.
+ * Configuration class responsible for wiring the beans that are essential for the application's functionality.
+ * Specifically, it subscribes a {@link BatteryLoggerImpl} to the battery events published by the battery check service.
  */
 @Configuration
 public class AppConfig {
 
+    private final BatteryEventBus batteryEventBus;
     private final BatteryLoggerImpl batteryLogger;
+    private final OverflowPolicy batteryLoggerOverflowPolicy;
 
-    public AppConfig(BatteryLoggerImpl batteryLogger) {
+    public AppConfig(BatteryEventBus batteryEventBus, BatteryLoggerImpl batteryLogger,
+                     @Value("${dromed.battery.events.logger.overflow-policy:COALESCE}") OverflowPolicy batteryLoggerOverflowPolicy) {
+        this.batteryEventBus = batteryEventBus;
         this.batteryLogger = batteryLogger;
+        this.batteryLoggerOverflowPolicy = batteryLoggerOverflowPolicy;
     }
 
     /**
-     * Defines and initializes the {@link BatteryCheckServiceImpl} bean.
-     * Automatically registers a {@link BatteryLoggerImpl} as an observer to receive battery level updates.
-     *
-     * @return An instance of {@link BatteryCheckServiceImpl} configured with a {@link BatteryLoggerImpl}.
+     * Registers a {@link BatteryLoggerImpl} as an observer to receive battery level updates.
+     * The logger only needs the latest level of each drone, so by default pending events for the same drone are coalesced.
      */
-    @Bean
-    public BatteryCheckServiceImpl batteryCheckService() {
-        BatteryCheckServiceImpl batteryCheckService = new BatteryCheckServiceImpl();
-        batteryCheckService.addObserver(batteryLogger);
-        return batteryCheckService;
+    @PostConstruct
+    public void registerBatteryObservers() {
+        batteryEventBus.subscribe(batteryLogger, batteryLoggerOverflowPolicy);
     }
 }
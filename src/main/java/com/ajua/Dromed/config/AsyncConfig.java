@@ -0,0 +1,28 @@
+package com.ajua.Dromed.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration class for the executor of the asynchronous drone service.
+ */
+@Configuration
+public class AsyncConfig {
+
+    public static final String DRONE_SERVICE_EXECUTOR = "droneServiceExecutor";
+
+    /**
+     * Defines the executor running the calls of the asynchronous drone service, one virtual thread per call.
+     * The calls block on JDBC, so parking a virtual thread is cheaper than holding a pooled one; the bulkheads,
+     * not the executor, bound how many run at once. Calls still running at shutdown are waited for.
+     *
+     * @return The executor.
+     */
+    @Bean(name = DRONE_SERVICE_EXECUTOR, destroyMethod = "close")
+    public ExecutorService droneServiceExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("drone-service-", 0).factory());
+    }
+}
@@ -0,0 +1,43 @@
+package com.ajua.Dromed.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Configuration class for the query result caches.
+ * Each cached query gets its own bounded Caffeine cache with its own size and TTL, and records hit/miss statistics,
+ * which actuator publishes as the {@code cache.*} metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String AVAILABLE_DRONES = "availableDrones";
+    public static final String DRONE_MEDICATIONS = "droneMedications";
+
+    /**
+     * Defines the cache manager holding one cache per query.
+     * Only the caches registered here exist, so a misspelt cache name fails instead of creating an unbounded cache.
+     *
+     * @param availableDronesSpec The Caffeine spec of the available drones cache.
+     * @param droneMedicationsSpec The Caffeine spec of the medications by drone cache.
+     * @return The cache manager.
+     */
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${dromed.cache.available-drones.spec:maximumSize=256,expireAfterWrite=10s}") String availableDronesSpec,
+            @Value("${dromed.cache.drone-medications.spec:maximumSize=10000,expireAfterWrite=10m}") String droneMedicationsSpec) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(List.of());
+        cacheManager.registerCustomCache(AVAILABLE_DRONES, Caffeine.from(availableDronesSpec).recordStats().build());
+        cacheManager.registerCustomCache(DRONE_MEDICATIONS, Caffeine.from(droneMedicationsSpec).recordStats().build());
+        return cacheManager;
+    }
+}
@@ -11,6 +11,7 @@ import com.ajua.Dromed.models.DroneMedication;
 import com.ajua.Dromed.repository.DroneRepository;
 import com.ajua.Dromed.repository.MedicationRepository;
 import com.ajua.Dromed.repository.DroneMedicationRepository;
+import com.ajua.Dromed.services.interfaces.FleetJournal;
 import com.ajua.Dromed.enums.Model;
 import com.ajua.Dromed.enums.State;
 
@@ -28,12 +29,24 @@ public class DataLoader implements CommandLineRunner {
     @Autowired
     private DroneMedicationRepository droneMedicationRepository;
 
+    @Autowired
+    private FleetJournal fleetJournal;
+
     @Override
     public void run(String... args) throws Exception {
+        // A journaled fleet is brought back as it was, instead of starting over from the initial data
+        if (fleetJournal.restore()) {
+            return;
+        }
         try {
             // Load Drones
             Drone drone1 = new Drone(null, "SN123456", Model.LIGHTWEIGHT, 300, 100, State.IDLE);
             Drone drone2 = new Drone(null, "SN123457", Model.MIDDLEWEIGHT, 400, 100, State.IDLE);
+            // Keep the payload counters in line with the drone medications loaded below
+            drone1.setLoadedWeight(100);
+            drone1.setLoadedItems(1);
+            drone2.setLoadedWeight(200);
+            drone2.setLoadedItems(1);
             droneRepository.save(drone1);
             droneRepository.save(drone2);
 
@@ -56,5 +69,6 @@ public class DataLoader implements CommandLineRunner {
         } catch (Exception e) {
             logger.error("Error loading initial data: {}", e.getMessage(), e);
         }
+        fleetJournal.snapshot();
     }
 }
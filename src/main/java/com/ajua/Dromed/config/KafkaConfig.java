@@ -0,0 +1,24 @@
+package com.ajua.Dromed.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+/**
+ * Declares the drone event topic when publishing to Kafka is enabled, so it is created on startup if it is missing.
+ */
+@Configuration
+@ConditionalOnProperty(name = "dromed.events.kafka.enabled", havingValue = "true")
+public class KafkaConfig {
+
+    @Bean
+    public NewTopic droneEventsTopic(@Value("${dromed.events.kafka.topic:drone-events}") String topic,
+                                     @Value("${dromed.events.kafka.partitions:6}") int partitions) {
+        return TopicBuilder.name(topic)
+                .partitions(partitions)
+                .build();
+    }
+}
@@ -55,7 +55,7 @@ public class SwaggerConfig {
     public GroupedOpenApi publicApi() {
         return GroupedOpenApi.builder()
                 .group("com.ajua")
-                .pathsToMatch("/api/v1/drones/**")
+                .pathsToMatch("/api/v1/drones/**", "/api/v1/medications/**")
                 .build();
     }
 
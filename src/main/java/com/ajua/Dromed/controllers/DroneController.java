@@ -1,44 +1,82 @@
 package com.ajua.Dromed.controllers;
 
 import com.ajua.Dromed.dtos.*;
-//import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.Resolution;
 import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.enums.TransitionOutcome;
+import com.ajua.Dromed.services.interfaces.AsyncDroneService;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryService;
 import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
+import com.ajua.Dromed.services.interfaces.IdempotencyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/drones")
 @Tag(name = "Drones", description = "Drone Dispatch System for Medication Transport")
 public class DroneController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     @Autowired
     private DroneService droneService;
 
+    @Autowired
+    private AsyncDroneService asyncDroneService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private BatteryHistoryService batteryHistoryService;
+
+    @Autowired
+    private BatteryDischargeEstimator batteryDischargeEstimator;
+
+    @Autowired
+    private FleetStatusStream fleetStatusStream;
+
     @PostMapping
     @Operation(
             summary = "Register a new drone",
+            description = "Send an Idempotency-Key header to make retries safe: a request with the key of a request that " +
+                    "succeeded gets the same response without registering the drone again.",
             responses = {
                     @ApiResponse(responseCode = "201", description = "Drone registered successfully",
                             content = @Content(schema = @Schema(implementation = ApiResponseWithDrone.class))),
-                    @ApiResponse(responseCode = "400", description = "Invalid input")
+                    @ApiResponse(responseCode = "400", description = "Invalid input"),
+                    @ApiResponse(responseCode = "422", description = "Idempotency-Key already used with a different request"),
+                    @ApiResponse(responseCode = "503", description = "Timed out, or rejected while the service is overloaded or failing")
             }
     )
-    public ResponseEntity<ApiResponseWithDrone> registerDrone(
-            @RequestBody DroneDTO droneRegisterDTO) {
-        DroneDTO droneDTO = droneService.registerDrone(droneRegisterDTO.getSerialNumber(), droneRegisterDTO.getModel(),
-                droneRegisterDTO.getWeightLimit(), droneRegisterDTO.getBatteryCapacity(), droneRegisterDTO.getState());
-        ApiResponseWithDrone response = new ApiResponseWithDrone(true, "Drone registered successfully", droneDTO);
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<ApiResponseWithDrone>> registerDrone(
+            @RequestBody DroneDTO droneRegisterDTO,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotencyService.execute("registerDrone", idempotencyKey, droneRegisterDTO, DroneDTO.class,
+                        () -> asyncDroneService.registerDrone(droneRegisterDTO.getSerialNumber(), droneRegisterDTO.getModel(),
+                                droneRegisterDTO.getWeightLimit(), droneRegisterDTO.getBatteryCapacity(), droneRegisterDTO.getState()))
+                .thenApply(droneDTO -> {
+                    ApiResponseWithDrone response = new ApiResponseWithDrone(true, "Drone registered successfully", droneDTO);
+                    return new ResponseEntity<>(response, HttpStatus.CREATED);
+                });
     }
 
     @PatchMapping("/{id}/state")
@@ -46,6 +84,7 @@ public class DroneController {
             summary = "Update drone state",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Drone state updated successfully"),
+                    @ApiResponse(responseCode = "400", description = "State missing"),
                     @ApiResponse(responseCode = "404", description = "Drone not found"),
                     @ApiResponse(responseCode = "409", description = "Invalid drone state transition")
             }
@@ -57,31 +96,82 @@ public class DroneController {
     @PostMapping("/{id}/medications")
     @Operation(
             summary = "Load a drone with medication",
+            description = "Send an Idempotency-Key header to make retries safe: a request with the key of a request that " +
+                    "succeeded gets the same response without loading the medication again.",
             responses = {
                     @ApiResponse(responseCode = "201", description = "Medication loaded successfully",
                             content = @Content(schema = @Schema(implementation = ApiResponseWithDroneMedication.class))),
-                    @ApiResponse(responseCode = "400", description = "Invalid input or weight limit exceeded")
+                    @ApiResponse(responseCode = "400", description = "Invalid input or weight limit exceeded"),
+                    @ApiResponse(responseCode = "422", description = "Idempotency-Key already used with a different request"),
+                    @ApiResponse(responseCode = "503", description = "Timed out, or rejected while the service is overloaded or failing")
             }
     )
-    public ResponseEntity<ApiResponseWithDroneMedication> loadDroneWithMedication(@PathVariable Long id, @RequestBody MedicationDTO medicationDTO) {
-        DroneMedicationDTO droneMedicationDTO = droneService.loadDroneWithMedication(id, medicationDTO);
-        ApiResponseWithDroneMedication response = new ApiResponseWithDroneMedication(true, "Medication loaded successfully", droneMedicationDTO);
-        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<ApiResponseWithDroneMedication>> loadDroneWithMedication(@PathVariable Long id, @RequestBody MedicationDTO medicationDTO,
+                                                                                                     @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotencyService.execute("loadDroneWithMedication", idempotencyKey, List.of(id, medicationDTO), DroneMedicationDTO.class,
+                        () -> asyncDroneService.loadDroneWithMedication(id, medicationDTO))
+                .thenApply(droneMedicationDTO -> {
+                    ApiResponseWithDroneMedication response = new ApiResponseWithDroneMedication(true, "Medication loaded successfully", droneMedicationDTO);
+                    return new ResponseEntity<>(response, HttpStatus.CREATED);
+                });
+    }
+
+    @PostMapping("/{id}/manifest")
+    @Operation(
+            summary = "Load a drone with a manifest of medications",
+            description = "Send an Idempotency-Key header to make retries safe: a request with the key of a request that " +
+                    "succeeded gets the same response without loading the manifest again.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Manifest loaded successfully",
+                            content = @Content(schema = @Schema(implementation = ApiResponseWithDroneManifest.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid input or weight limit exceeded"),
+                    @ApiResponse(responseCode = "422", description = "Idempotency-Key already used with a different request"),
+                    @ApiResponse(responseCode = "503", description = "Timed out, or rejected while the service is overloaded or failing")
+            }
+    )
+    public CompletableFuture<ResponseEntity<ApiResponseWithDroneManifest>> loadDroneWithManifest(@PathVariable Long id, @RequestBody List<MedicationDTO> medications,
+                                                                                                 @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return idempotencyService.execute("loadDroneWithManifest", idempotencyKey, List.of(id, medications), DroneManifestDTO.class,
+                        () -> asyncDroneService.loadDroneWithManifest(id, medications))
+                .thenApply(droneManifestDTO -> {
+                    ApiResponseWithDroneManifest response = new ApiResponseWithDroneManifest(true, "Manifest loaded successfully", droneManifestDTO);
+                    return new ResponseEntity<>(response, HttpStatus.CREATED);
+                });
     }
 
     @GetMapping
     @Operation(
-            summary = "Get all drones or select based on drone state",
+            summary = "Get drones, optionally filtered by state and model",
+            description = "Drones are returned in pages ordered by ID. Pass the nextCursor of a page as the cursor to get " +
+                    "the next page; nextCursor is null on the last page. Pages hold at most 500 drones.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "List of drones",
                             content = @Content(schema = @Schema(implementation = ApiResponseWithDrones.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid page size")
             }
     )
-    public ResponseEntity<ApiResponseWithDrones> getAvailableDrones(@RequestParam(required = false) State state) {
-        List<DroneDTO> availableDrones = droneService.getAvailableDrones(state);
-        ApiResponseWithDrones response = new ApiResponseWithDrones(true, "List of available drones", availableDrones);
+    public ResponseEntity<ApiResponseWithDrones> getAvailableDrones(@RequestParam(required = false) State state,
+                                                                    @RequestParam(required = false) Model model,
+                                                                    @RequestParam(required = false) Long cursor,
+                                                                    @RequestParam(defaultValue = "50") int limit) {
+        DronePageDTO page = droneService.getDrones(state, model, cursor, limit);
+        ApiResponseWithDrones response = new ApiResponseWithDrones(true, "List of available drones", page.getDrones(), page.getNextCursor());
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+            summary = "Stream the status of the fleet",
+            description = "Server-Sent Events: 'snapshot' events listing every drone a page at a time, then a 'drone' event with the new state " +
+                    "and battery level of a drone whenever either changes. A client that falls behind only receives the latest " +
+                    "change of each drone.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Stream opened")
+            }
+    )
+    public SseEmitter streamFleetStatus() {
+        return fleetStatusStream.subscribe();
+    }
 //
     @GetMapping("/{droneId}/battery-level")
     @Operation(
@@ -98,6 +188,95 @@ public class DroneController {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    @GetMapping("/battery-levels")
+    @Operation(
+            summary = "Check the battery levels of several drones",
+            description = "Returns the latest battery level of the requested drones, or of the drones in a state, keyed by " +
+                    "drone ID. Pass either droneIds (at most 1000) or state. Unknown drones are left out. Drones in a state " +
+                    "are returned in pages ordered by ID, like the drone list: pass the nextCursor of a page as the cursor " +
+                    "to get the next page. Pages hold at most 500 drones.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Battery levels retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ApiResponseWithBatteryLevels.class))),
+                    @ApiResponse(responseCode = "400", description = "Neither or both of droneIds and state, too many drone IDs or invalid page size")
+            }
+    )
+    public ResponseEntity<ApiResponseWithBatteryLevels> checkDroneBatteryLevels(@RequestParam(required = false) List<Long> droneIds,
+                                                                                @RequestParam(required = false) State state,
+                                                                                @RequestParam(required = false) Long cursor,
+                                                                                @RequestParam(defaultValue = "50") int limit) {
+        if ((droneIds == null) == (state == null)) {
+            throw new IllegalArgumentException("Either droneIds or state is required, but not both");
+        }
+        ApiResponseWithBatteryLevels response;
+        if (droneIds != null) {
+            response = new ApiResponseWithBatteryLevels(true, "Battery levels retrieved successfully",
+                    droneService.checkDroneBatteryLevels(droneIds), null);
+        } else {
+            BatteryLevelPageDTO page = droneService.checkDroneBatteryLevels(state, cursor, limit);
+            response = new ApiResponseWithBatteryLevels(true, "Battery levels retrieved successfully",
+                    page.getBatteryLevels(), page.getNextCursor());
+        }
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @GetMapping("/{droneId}/battery-history")
+    @Operation(
+            summary = "Get the battery history of a drone",
+            description = "Returns the readings taken in [from, to) at RAW resolution, or one min/max/average/last rollup " +
+                    "per MINUTE, HOUR or DAY. Defaults to the last 24 hours.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Battery history retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ApiResponseWithBatteryHistory.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid time range"),
+                    @ApiResponse(responseCode = "404", description = "Drone not found")
+            }
+    )
+    public ResponseEntity<ApiResponseWithBatteryHistory> getBatteryHistory(
+            @PathVariable Long droneId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "RAW") Resolution resolution) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        List<BatteryHistoryPointDTO> history = batteryHistoryService.getBatteryHistory(droneId, start, end, resolution);
+        ApiResponseWithBatteryHistory response = new ApiResponseWithBatteryHistory(true, "Battery history retrieved successfully", history);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @GetMapping("/battery-predictions")
+    @Operation(
+            summary = "Get the predicted discharge of the drones",
+            description = "Returns, for every drone read since startup, its smoothed discharge rate, the predicted minutes " +
+                    "until it drops below 25% and whether it is expected to last a trip.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Battery predictions retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ApiResponseWithBatteryPredictions.class)))
+            }
+    )
+    public ResponseEntity<ApiResponseWithBatteryPredictions> getBatteryPredictions() {
+        List<BatteryPredictionDTO> predictions = batteryDischargeEstimator.getPredictions();
+        ApiResponseWithBatteryPredictions response = new ApiResponseWithBatteryPredictions(true, "Battery predictions retrieved successfully", predictions);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @GetMapping("/medications")
+    @Operation(
+            summary = "Get the medications loaded on several drones",
+            description = "Returns the medications of every requested drone, keyed by drone ID. Drones without " +
+                    "medications map to an empty list. At most 1000 drones can be requested at once.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Medications retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ApiResponseWithDroneMedications.class))),
+                    @ApiResponse(responseCode = "400", description = "No drone IDs, or too many drone IDs")
+            }
+    )
+    public ResponseEntity<ApiResponseWithDroneMedications> getMedicationsByDrones(@RequestParam List<Long> droneIds) {
+        Map<Long, List<MedicationDTO>> medications = droneService.getMedicationsByDrones(droneIds);
+        ApiResponseWithDroneMedications response = new ApiResponseWithDroneMedications(true, "Medications retrieved successfully", medications);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @GetMapping("/{droneId}/medications")
     @Operation(
             summary = "Get medications loaded on a drone",
@@ -155,4 +334,22 @@ public class DroneController {
         ApiResponseSuccess response = new ApiResponseSuccess(true, "Drone return process started");
         return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
     }
+
+    @PostMapping("/transitions")
+    @Operation(
+            summary = "Move several drones to a state",
+            description = "Moves up to 1000 drones to DELIVERING, DELIVERED, RETURNING or IDLE at once, for example to send out " +
+                    "or recall a shift. Each drone is moved only if its state allows it; the outcome of each drone is " +
+                    "returned as MOVED, CONFLICT or NOT_FOUND.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Outcome of each drone",
+                            content = @Content(schema = @Schema(implementation = ApiResponseWithTransitions.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid state, or no or too many drone IDs")
+            }
+    )
+    public ResponseEntity<ApiResponseWithTransitions> transitionDrones(@RequestBody DroneTransitionDTO droneTransitionDTO) {
+        Map<Long, TransitionOutcome> outcomes = droneService.transitionDrones(droneTransitionDTO.getDroneIds(), droneTransitionDTO.getState());
+        ApiResponseWithTransitions response = new ApiResponseWithTransitions(true, "Drone states updated", outcomes);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
 }
@@ -0,0 +1,54 @@
+package com.ajua.Dromed.controllers;
+
+import com.ajua.Dromed.dtos.ApiResponseWithMedication;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import com.ajua.Dromed.utils.DTOConverter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/medications")
+@Tag(name = "Medications", description = "Catalog of the medications that can be loaded onto drones")
+public class MedicationController {
+
+    @Autowired
+    private MedicationCatalog medicationCatalog;
+
+    @PostMapping
+    @Operation(
+            summary = "Register a medication in the catalog, or update the one with the same code",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Medication registered successfully",
+                            content = @Content(schema = @Schema(implementation = ApiResponseWithMedication.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid input")
+            }
+    )
+    public ResponseEntity<ApiResponseWithMedication> registerMedication(@RequestBody MedicationDTO medicationDTO) {
+        MedicationDTO registered = medicationCatalog.register(medicationDTO);
+        ApiResponseWithMedication response = new ApiResponseWithMedication(true, "Medication registered successfully", registered);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    @GetMapping("/{code}")
+    @Operation(
+            summary = "Get a medication from the catalog by its code",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Medication retrieved successfully",
+                            content = @Content(schema = @Schema(implementation = ApiResponseWithMedication.class))),
+                    @ApiResponse(responseCode = "404", description = "Medication not found")
+            }
+    )
+    public ResponseEntity<ApiResponseWithMedication> getMedication(@PathVariable String code) {
+        MedicationDTO medication = DTOConverter.toMedicationDTO(medicationCatalog.getByCode(code));
+        ApiResponseWithMedication response = new ApiResponseWithMedication(true, "Medication retrieved successfully", medication);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,16 @@
+package com.ajua.Dromed.dtos;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiResponseWithDroneMedications {
+    private boolean success;
+    private String message;
+    private Map<Long, List<MedicationDTO>> data;
+}
@@ -12,4 +12,5 @@ public class ApiResponseWithDrones {
     private boolean success;
     private String message;
     private List<DroneDTO> data;
+    private Long nextCursor;
 }
\ No newline at end of file
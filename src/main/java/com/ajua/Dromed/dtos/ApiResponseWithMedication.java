@@ -0,0 +1,14 @@
+package com.ajua.Dromed.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiResponseWithMedication {
+    private boolean success;
+    private String message;
+    private MedicationDTO data;
+}
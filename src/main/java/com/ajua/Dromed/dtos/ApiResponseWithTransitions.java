@@ -0,0 +1,16 @@
+package com.ajua.Dromed.dtos;
+import com.ajua.Dromed.enums.TransitionOutcome;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiResponseWithTransitions {
+    private boolean success;
+    private String message;
+    private Map<Long, TransitionOutcome> data;
+}
@@ -0,0 +1,20 @@
+package com.ajua.Dromed.dtos;
+
+import com.ajua.Dromed.enums.State;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change in the battery level of a drone, as delivered to the battery observers.
+ * A snapshot taken when the reading was persisted, so observers never touch a live entity.
+ *
+ * @param droneId The ID of the drone.
+ * @param serialNumber The serial number of the drone.
+ * @param state The state of the drone when it was read.
+ * @param previousBatteryLevel The last battery level persisted before this one.
+ * @param batteryLevel The new battery level as a percentage (0-100).
+ * @param timestamp When the level was read.
+ */
+public record BatteryEvent(Long droneId, String serialNumber, State state, int previousBatteryLevel, int batteryLevel,
+                           LocalDateTime timestamp) {
+}
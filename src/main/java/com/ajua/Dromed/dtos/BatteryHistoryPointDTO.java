@@ -0,0 +1,23 @@
+package com.ajua.Dromed.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One point of the battery history of a drone: a single reading at {@code RAW} resolution, otherwise the rollup of the
+ * readings taken in the bucket starting at {@code timestamp}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatteryHistoryPointDTO {
+    private LocalDateTime timestamp;
+    private int minLevel;
+    private int maxLevel;
+    private double averageLevel;
+    private int lastLevel;
+    private int readings;
+}
@@ -0,0 +1,19 @@
+package com.ajua.Dromed.dtos;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * One page of battery levels, keyed by drone ID in ID order.
+ * {@code nextCursor} is the ID of the last drone on the page, to be passed as the cursor for the next page,
+ * or null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatteryLevelPageDTO {
+    private Map<Long, Integer> batteryLevels;
+    private Long nextCursor;
+}
@@ -0,0 +1,20 @@
+package com.ajua.Dromed.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Predicted discharge of a drone, from its recent battery readings.
+ * {@code minutesToMinimum} is null while the drone is not discharging, or before there are two readings to compare.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatteryPredictionDTO {
+    private Long droneId;
+    private int batteryLevel;
+    private double dischargeRatePerHour;
+    private Double minutesToMinimum;
+    private boolean canCompleteTrip;
+}
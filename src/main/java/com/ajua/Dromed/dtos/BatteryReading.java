@@ -0,0 +1,13 @@
+package com.ajua.Dromed.dtos;
+
+import java.time.LocalDateTime;
+
+/**
+ * A battery level read from a drone at a point in time.
+ *
+ * @param droneId The ID of the drone.
+ * @param batteryLevel The battery level as a percentage (0-100).
+ * @param timestamp When the level was read.
+ */
+public record BatteryReading(Long droneId, int batteryLevel, LocalDateTime timestamp) {
+}
@@ -0,0 +1,10 @@
+package com.ajua.Dromed.dtos;
+
+/**
+ * The stored battery level of a drone, as read by the bulk battery level fallback.
+ *
+ * @param droneId The ID of the drone.
+ * @param batteryLevel The battery level as a percentage (0-100).
+ */
+public record DroneBatteryLevel(Long droneId, int batteryLevel) {
+}
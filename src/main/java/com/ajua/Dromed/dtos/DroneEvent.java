@@ -0,0 +1,24 @@
+package com.ajua.Dromed.dtos;
+
+import com.ajua.Dromed.enums.State;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Change to a drone, as published to downstream systems.
+ * State changes carry the previous state; battery updates carry only the battery level, as the state the poll read
+ * may already have been changed.
+ *
+ * @param type What changed.
+ * @param droneId The ID of the drone.
+ * @param state The state of the drone after the change, for state changes.
+ * @param previousState The state before the change, for state changes of an existing drone.
+ * @param batteryLevel The battery level of the drone as a percentage (0-100).
+ * @param timestamp When the change happened, in epoch milliseconds.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record DroneEvent(Type type, Long droneId, State state, State previousState, int batteryLevel, long timestamp) {
+
+    public enum Type {
+        STATE_CHANGED, BATTERY_UPDATED
+    }
+}
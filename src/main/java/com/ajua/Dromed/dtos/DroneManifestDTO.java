@@ -0,0 +1,15 @@
+package com.ajua.Dromed.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DroneManifestDTO {
+    private DroneDTO drone;
+    private List<MedicationDTO> medications;
+}
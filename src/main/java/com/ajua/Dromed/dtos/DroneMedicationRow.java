@@ -0,0 +1,17 @@
+package com.ajua.Dromed.dtos;
+
+/**
+ * A medication loaded on a drone, as read by the bulk medications lookup.
+ *
+ * @param droneId The ID of the drone.
+ * @param medication The medication loaded on it.
+ */
+public record DroneMedicationRow(Long droneId, MedicationDTO medication) {
+
+    /**
+     * Builds a row from the selected columns; used by the constructor expression of the query.
+     */
+    public DroneMedicationRow(Long droneId, Long id, String name, int weight, String code, String imageUrl) {
+        this(droneId, new MedicationDTO(id, name, weight, code, imageUrl));
+    }
+}
@@ -0,0 +1,19 @@
+package com.ajua.Dromed.dtos;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of drones, ordered by ID.
+ * {@code nextCursor} is the ID of the last drone on the page, to be passed as the cursor for the next page,
+ * or null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DronePageDTO {
+    private List<DroneDTO> drones;
+    private Long nextCursor;
+}
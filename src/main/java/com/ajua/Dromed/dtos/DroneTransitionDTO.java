@@ -0,0 +1,16 @@
+package com.ajua.Dromed.dtos;
+
+import com.ajua.Dromed.enums.State;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DroneTransitionDTO {
+    private List<Long> droneIds;
+    private State state;
+}
@@ -0,0 +1,26 @@
+package com.ajua.Dromed.dtos;
+
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+
+/**
+ * Full image of a fleet row, as written to the fleet journal.
+ * Replaying an image overwrites the row, so applying the same image twice has no further effect.
+ */
+public sealed interface FleetRecord {
+
+    /**
+     * @return The ID of the row.
+     */
+    long id();
+
+    record MedicationImage(long id, String name, int weight, String code, String imageUrl) implements FleetRecord {
+    }
+
+    record DroneImage(long id, String serialNumber, Model model, int weightLimit, int batteryCapacity, State state,
+                      int loadedWeight, int loadedItems) implements FleetRecord {
+    }
+
+    record DroneMedicationImage(long id, long droneId, long medicationId, boolean delivered) implements FleetRecord {
+    }
+}
@@ -0,0 +1,11 @@
+package com.ajua.Dromed.enums;
+
+/**
+ * What the battery event bus does when the buffer of an observer is full.
+ * {@code BLOCK} makes the publisher wait for room, {@code DROP_OLDEST} discards the oldest pending event, and
+ * {@code COALESCE} replaces the pending event of the same drone, falling back to dropping the oldest event when the
+ * buffer is full of other drones.
+ */
+public enum OverflowPolicy {
+    BLOCK, DROP_OLDEST, COALESCE
+}
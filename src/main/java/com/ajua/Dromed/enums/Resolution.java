@@ -0,0 +1,25 @@
+package com.ajua.Dromed.enums;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Resolution at which the battery history of a drone is read.
+ * {@code RAW} returns every reading, the others return one rollup per minute, hour or day.
+ */
+public enum Resolution {
+    RAW(null), MINUTE(ChronoUnit.MINUTES), HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    Resolution(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Gets the start of the bucket a point in time falls into.
+     */
+    public LocalDateTime bucketStart(LocalDateTime timestamp) {
+        return unit == null ? timestamp : timestamp.truncatedTo(unit);
+    }
+}
@@ -1,4 +1,61 @@
 package com.ajua.Dromed.enums;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 public enum State {
-    IDLE, LOADING, LOADED, DELIVERING, DELIVERED, RETURNING
-}
\ No newline at end of file
+    IDLE, LOADING, LOADED, DELIVERING, DELIVERED, RETURNING;
+
+    /**
+     * The states a drone may move to each state from, following its delivery cycle.
+     * A delivered drone that is sent back to base lands idle straight away, without stopping at RETURNING.
+     * A drone left in LOADING, for example one registered or restored in that state, can be aborted back to IDLE; a load in
+     * progress holds the drone's row until it reaches LOADED, so the abort cannot interleave with it.
+     */
+    private static final Map<State, Set<State>> SOURCES = new EnumMap<>(State.class);
+
+    static {
+        SOURCES.put(IDLE, EnumSet.of(LOADING, DELIVERED, RETURNING));
+        SOURCES.put(LOADING, EnumSet.of(IDLE));
+        SOURCES.put(LOADED, EnumSet.of(LOADING));
+        SOURCES.put(DELIVERING, EnumSet.of(LOADED));
+        SOURCES.put(DELIVERED, EnumSet.of(DELIVERING));
+        SOURCES.put(RETURNING, EnumSet.of(DELIVERED));
+    }
+
+    /**
+     * @return The states a drone may move to this state from.
+     */
+    public Set<State> sources() {
+        return Collections.unmodifiableSet(SOURCES.get(this));
+    }
+
+    /**
+     * @param target The state to move to.
+     * @return Whether a drone in this state may move to the target state.
+     */
+    public boolean canMoveTo(State target) {
+        return SOURCES.get(target).contains(this);
+    }
+
+    /**
+     * LOADING and LOADED are only reached by loading a drone, which claims it through the dispatch index and checks its
+     * payload and battery; every other state may be set directly.
+     *
+     * @return Whether a drone may be moved to this state outside the load flow.
+     */
+    public boolean isDirectTarget() {
+        return this != LOADING && this != LOADED;
+    }
+
+    /**
+     * @param target The state to move to.
+     * @return Whether a drone in this state may be moved to the target state outside the load flow.
+     */
+    public boolean canMoveDirectlyTo(State target) {
+        return target.isDirectTarget() && canMoveTo(target);
+    }
+}
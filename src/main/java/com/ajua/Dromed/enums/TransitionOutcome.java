@@ -0,0 +1,13 @@
+package com.ajua.Dromed.enums;
+
+/**
+ * What happened to one drone of a bulk state transition.
+ */
+public enum TransitionOutcome {
+    /** The drone was moved to the requested state. */
+    MOVED,
+    /** The drone is in a state it cannot move to the requested state from, and was left as it is. */
+    CONFLICT,
+    /** There is no drone with this ID. */
+    NOT_FOUND
+}
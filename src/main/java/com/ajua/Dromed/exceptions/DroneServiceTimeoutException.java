@@ -0,0 +1,20 @@
+package com.ajua.Dromed.exceptions;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The drone service did not answer in time. The call may still be running, and may still be applied:
+ * {@link #outcome()} completes with its response, or fails, once it has finished.
+ */
+public class DroneServiceTimeoutException extends DroneServiceException {
+    private final CompletableFuture<?> outcome;
+
+    public DroneServiceTimeoutException(String message, CompletableFuture<?> outcome) {
+        super(message);
+        this.outcome = outcome;
+    }
+
+    public CompletableFuture<?> outcome() {
+        return outcome;
+    }
+}
@@ -28,6 +28,18 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ApiResponseDTO<Object>> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        ApiResponseDTO<Object> response = new ApiResponseDTO<>(false, ex.getMessage(), null);
+        return new ResponseEntity<>(response, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler(DroneServiceException.class)
+    public ResponseEntity<ApiResponseDTO<Object>> handleDroneServiceException(DroneServiceException ex) {
+        ApiResponseDTO<Object> response = new ApiResponseDTO<>(false, ex.getMessage(), null);
+        return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponseDTO<Object>> handleException(Exception ex) {
         ApiResponseDTO<Object> response = new ApiResponseDTO<>(false, ex.getMessage(), null);
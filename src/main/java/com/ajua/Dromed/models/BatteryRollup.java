@@ -0,0 +1,43 @@
+package com.ajua.Dromed.models;
+import com.ajua.Dromed.enums.Resolution;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rollup of the battery readings of one drone over one minute, hour or day.
+ * Rows are written with plain JDBC by the battery history service; the entity only describes the table.
+ */
+@Data
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_battery_rollup_bucket",
+        columnNames = {"drone_id", "resolution", "bucket_start"}))
+public class BatteryRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "drone_id", nullable = false)
+    private Long droneId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Resolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    private int minLevel;
+
+    private int maxLevel;
+
+    private long levelSum;
+
+    private int readingCount;
+
+    private int lastLevel;
+
+    private LocalDateTime lastTimestamp;
+}
@@ -6,8 +6,15 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.DynamicUpdate;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_drone_state_id", columnList = "state, id"),
+        @Index(name = "idx_drone_model_id", columnList = "model, id"),
+        @Index(name = "idx_drone_state_model_id", columnList = "state, model, id")
+})
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,6 +40,29 @@ public class Drone {
     @Column(nullable = false)
     private State state;
 
+    /**
+     * Total weight of the medications loaded for the current trip, maintained on every load and reset on delivery.
+     */
+    @Column(nullable = false)
+    private int loadedWeight;
+
+    /**
+     * Number of medications loaded for the current trip.
+     */
+    @Column(nullable = false)
+    private int loadedItems;
+
+    public Drone(Long id, String serialNumber, Model model, int weightLimit, int batteryCapacity, State state) {
+        this(id, serialNumber, model, weightLimit, batteryCapacity, state, 0, 0);
+    }
+
+    /**
+     * @return The weight the drone can still take on its current trip.
+     */
+    public int getRemainingCapacity() {
+        return weightLimit - loadedWeight;
+    }
+
     public static class Builder {
         private Long id;
         private String serialNumber;
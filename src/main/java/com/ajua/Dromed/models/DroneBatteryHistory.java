@@ -6,6 +6,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@Table(indexes = @Index(name = "idx_battery_history_drone_time", columnList = "drone_id, timestamp"))
 public class DroneBatteryHistory {
 
     // Getters and setters
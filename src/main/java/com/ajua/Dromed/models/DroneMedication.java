@@ -12,8 +12,10 @@ import java.util.Objects;
 @NoArgsConstructor
 @AllArgsConstructor
 public class DroneMedication {
+    // Sequence ids (rather than identity columns) let Hibernate batch the inserts of a whole manifest
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "drone_medication_seq")
+    @SequenceGenerator(name = "drone_medication_seq", sequenceName = "drone_medication_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -24,6 +26,10 @@ public class DroneMedication {
     @JoinColumn(name = "medication_id", nullable = false)
     private Medication medication;
 
+    // Set when the drone is unloaded, so its current payload is the medications not delivered yet
+    @Column(nullable = false)
+    private boolean delivered;
+
     public DroneMedication(Drone drone, Medication medication) {
         this.drone = drone;
         this.medication = medication;
@@ -0,0 +1,38 @@
+package com.ajua.Dromed.models;
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.State;
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Drone event waiting in the outbox to be relayed.
+ * Rows are written with plain JDBC in the transaction of the change they describe, and deleted once relayed;
+ * the entity only describes the table.
+ */
+@Data
+@Entity
+@Table(name = "drone_outbox_event")
+public class DroneOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false)
+    private DroneEvent.Type type;
+
+    @Column(name = "drone_id", nullable = false)
+    private Long droneId;
+
+    @Enumerated(EnumType.STRING)
+    private State state;
+
+    @Enumerated(EnumType.STRING)
+    private State previousState;
+
+    private int batteryLevel;
+
+    @Column(name = "event_timestamp", nullable = false)
+    private long timestamp;
+}
@@ -0,0 +1,42 @@
+package com.ajua.Dromed.models;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Completed response of a mutating request, stored under its idempotency key so a retry after a restart,
+ * or once the in-memory copy has been evicted, is answered with the original response.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_idempotency_record_created_at", columnList = "created_at"))
+public class IdempotencyRecord {
+
+    /**
+     * The operation and the client key, as {@code operation:key}.
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 320)
+    private String key;
+
+    /**
+     * SHA-256 of the request the key was first used with.
+     */
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    /**
+     * The response, as JSON.
+     */
+    @Lob
+    @Column(nullable = false)
+    private String response;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
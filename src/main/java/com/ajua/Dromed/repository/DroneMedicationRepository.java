@@ -1,12 +1,55 @@
 package com.ajua.Dromed.repository;
+import com.ajua.Dromed.dtos.DroneMedicationRow;
+import com.ajua.Dromed.dtos.MedicationDTO;
 import com.ajua.Dromed.models.Drone;
 import com.ajua.Dromed.models.DroneMedication;
 import com.ajua.Dromed.models.Medication;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
 import java.util.List;
 public interface DroneMedicationRepository extends JpaRepository<DroneMedication, Long> {
     List<DroneMedication> findByDroneId(Long droneId);
 
+    /**
+     * Reads the medications loaded on a drone and not delivered yet in one joined query, in the order they were loaded.
+     * The DTOs are selected straight from the columns, so neither the links nor their lazy medications are loaded.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.ajua.Dromed.dtos.MedicationDTO(m.id, m.name, m.weight, m.code, m.imageUrl) " +
+            "from DroneMedication dm join dm.medication m where dm.drone.id = :droneId and dm.delivered = false order by dm.id")
+    List<MedicationDTO> findMedicationsByDroneId(@Param("droneId") Long droneId);
+
+    /**
+     * Reads the medications loaded on several drones and not delivered yet in one joined query, ordered by drone and
+     * then by loading order. Callers keep the ID list bounded; see {@code DroneServiceImpl#getMedicationsByDrones}.
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.ajua.Dromed.dtos.DroneMedicationRow(dm.drone.id, m.id, m.name, m.weight, m.code, m.imageUrl) " +
+            "from DroneMedication dm join dm.medication m where dm.drone.id in :droneIds and dm.delivered = false " +
+            "order by dm.drone.id, dm.id")
+    List<DroneMedicationRow> findMedicationsByDroneIdIn(@Param("droneIds") Collection<Long> droneIds);
+
+    /**
+     * Reads the IDs of the medications loaded on several drones and not delivered yet.
+     */
+    @Query("select dm.id from DroneMedication dm where dm.drone.id in :droneIds and dm.delivered = false")
+    List<Long> findUndeliveredIdsByDroneIdIn(@Param("droneIds") Collection<Long> droneIds);
+
+    /**
+     * Marks drone medications as delivered, which takes them off the payload of their drones.
+     *
+     * @return The number of rows updated.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update DroneMedication dm set dm.delivered = true where dm.id in :ids")
+    int markDelivered(@Param("ids") Collection<Long> ids);
+
     Object findByDrone(Drone drone);
 
     //ScopedValue<Object> findByDroneAndMedication(Drone drone, Medication medication);
@@ -1,11 +1,127 @@
 package com.ajua.Dromed.repository;
 
+import com.ajua.Dromed.dtos.DroneBatteryLevel;
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.enums.Model;
 import com.ajua.Dromed.enums.State;
 import com.ajua.Dromed.models.Drone;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
 public interface DroneRepository extends JpaRepository<Drone, Long> {
+    String DRONE_DTO = "select new com.ajua.Dromed.dtos.DroneDTO(d.id, d.serialNumber, d.model, d.weightLimit, " +
+            "d.batteryCapacity, d.state) from Drone d ";
+
     List<Drone> findByState(State state);
 
+    /*
+     * Keyset pagination: each page starts after the ID of the last drone of the previous page, so reading a page
+     * is an index range scan of its own length, however deep the client has paged.
+     * Each filter combination has its own query so that it can use its own index of Drone, and the queries are
+     * written out rather than derived, so Hibernate reuses their plan instead of building a criteria query per call.
+     * They select DTOs straight from the columns, so no entity is hydrated, snapshotted or dirty-checked to serve a page.
+     */
+
+    @Transactional(readOnly = true)
+    @Query(DRONE_DTO + "where d.id > :cursor order by d.id")
+    List<DroneDTO> findPage(@Param("cursor") Long cursor, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(DRONE_DTO + "where d.state = :state and d.id > :cursor order by d.id")
+    List<DroneDTO> findPageByState(@Param("state") State state, @Param("cursor") Long cursor, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(DRONE_DTO + "where d.model = :model and d.id > :cursor order by d.id")
+    List<DroneDTO> findPageByModel(@Param("model") Model model, @Param("cursor") Long cursor, Limit limit);
+
+    @Transactional(readOnly = true)
+    @Query(DRONE_DTO + "where d.state = :state and d.model = :model and d.id > :cursor order by d.id")
+    List<DroneDTO> findPageByStateAndModel(@Param("state") State state, @Param("model") Model model,
+                                           @Param("cursor") Long cursor, Limit limit);
+
+    /*
+     * Stored battery levels, read by the bulk battery level lookup for drones that have not been polled since startup.
+     */
+
+    @Transactional(readOnly = true)
+    @Query("select new com.ajua.Dromed.dtos.DroneBatteryLevel(d.id, d.batteryCapacity) from Drone d where d.id in :ids")
+    List<DroneBatteryLevel> findBatteryLevelsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.ajua.Dromed.dtos.DroneBatteryLevel(d.id, d.batteryCapacity) from Drone d " +
+            "where d.state = :state and d.id > :cursor order by d.id")
+    List<DroneBatteryLevel> findBatteryLevelsByState(@Param("state") State state, @Param("cursor") Long cursor, Limit limit);
+
+    /**
+     * Moves a drone to a new state only if it is still in the expected state.
+     *
+     * @return 1 if the transition was applied, 0 if the drone was not in the expected state.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Drone d set d.state = :target where d.id = :id and d.state = :expected")
+    int transitionState(@Param("id") Long id, @Param("expected") State expected, @Param("target") State target);
+
+    /**
+     * Reads a drone for a single state transition. The drone is returned detached, so changing it has no effect on the
+     * database; the transition itself is made with a conditional update on the state read here.
+     */
+    @Query("select new com.ajua.Dromed.models.Drone(d.id, d.serialNumber, d.model, d.weightLimit, d.batteryCapacity, " +
+            "d.state, d.loadedWeight, d.loadedItems) from Drone d where d.id = :id")
+    Optional<Drone> findForTransitionById(@Param("id") Long id);
+
+    /**
+     * Reads drones for a bulk state transition, locking their rows until the transaction ends so that the
+     * conditional updates that follow move exactly the drones read here.
+     * The drones are returned detached, so changing them has no effect on the database.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.ajua.Dromed.models.Drone(d.id, d.serialNumber, d.model, d.weightLimit, d.batteryCapacity, " +
+            "d.state, d.loadedWeight, d.loadedItems) from Drone d where d.id in :ids")
+    List<Drone> findForTransitionByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Moves the drones among the given ones that are still in the expected state to a new state.
+     *
+     * @return The number of drones moved.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Drone d set d.state = :target where d.id in :ids and d.state = :expected")
+    int transitionStates(@Param("ids") Collection<Long> ids, @Param("expected") State expected, @Param("target") State target);
+
+    /**
+     * Moves the drones among the given ones that are still in the expected state to a new state, and empties their payload.
+     *
+     * @return The number of drones moved.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Drone d set d.state = :target, d.loadedWeight = 0, d.loadedItems = 0 " +
+            "where d.id in :ids and d.state = :expected")
+    int transitionStatesAndUnload(@Param("ids") Collection<Long> ids, @Param("expected") State expected, @Param("target") State target);
+
+    /**
+     * Adds to the payload of a drone only if the result stays within its weight limit.
+     * The check and the increment happen in one statement, so concurrent loads onto the same drone cannot overshoot.
+     *
+     * @return 1 if the payload was added, 0 if it would exceed the weight limit.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Drone d set d.loadedWeight = d.loadedWeight + :weight, d.loadedItems = d.loadedItems + :items " +
+            "where d.id = :id and d.loadedWeight + :weight <= d.weightLimit")
+    int addPayload(@Param("id") Long id, @Param("weight") int weight, @Param("items") int items);
+
    // ScopedValue<Object> findBySerialNumber(String sn126);
 }
@@ -1,5 +1,8 @@
 package com.ajua.Dromed.repository;
 import com.ajua.Dromed.models.Medication;
 import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
 public interface MedicationRepository extends JpaRepository<Medication, Long> {
+    Optional<Medication> findByCode(String code);
 }
@@ -5,6 +5,12 @@ import com.ajua.Dromed.exceptions.DroneNotAvailableException;
 import com.ajua.Dromed.exceptions.OverweightException;
 import com.ajua.Dromed.models.Drone;
 import com.ajua.Dromed.models.Medication;
+import com.ajua.Dromed.utils.MedicationValidator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 /**
  * Abstract service class for drone-related operations.
@@ -13,6 +19,9 @@ import com.ajua.Dromed.models.Medication;
 public abstract class AbstractDroneService {
     public static final int MAX_WEIGHT_LIMIT = 500;
     protected static final int MIN_BATTERY_LEVEL = 25;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BULK_DRONES = 1_000;
+    protected static final int IN_LIST_CHUNK_SIZE = 250;
 
     /**
      * Validates the loading conditions of a drone for a given medication.
@@ -23,11 +32,23 @@ public abstract class AbstractDroneService {
      * @throws DroneNotAvailableException if the drone is not available for loading.
      */
     protected void validateLoadingConditions(Drone drone, Medication medication) {
+        validateLoadingConditions(drone, List.of(medication));
+    }
+
+    /**
+     * Validates the loading conditions of a drone for a whole manifest of medications.
+     * The cumulative weight of the manifest is checked against the remaining capacity of the drone.
+     *
+     * @param drone The drone to be validated.
+     * @param medications The medications to be loaded onto the drone.
+     * @throws OverweightException if the weight limit is exceeded.
+     * @throws DroneNotAvailableException if the drone is not available for loading.
+     */
+    protected void validateLoadingConditions(Drone drone, List<Medication> medications) {
         validateBatteryLevel(drone.getBatteryCapacity());
-        validateMedication(medication);
+        medications.forEach(this::validateMedication);
 
-        int totalWeight = getTotalLoadedWeight(drone.getId());
-        if (totalWeight + medication.getWeight() > drone.getWeightLimit()) {
+        if (getTotalWeight(medications) > drone.getRemainingCapacity()) {
             throw new OverweightException("Weight limit exceeded");
         }
 
@@ -55,23 +76,34 @@ public abstract class AbstractDroneService {
      * @throws IllegalArgumentException if the medication's name or code contains invalid characters.
      */
     protected void validateMedication(Medication medication) {
-        String namePattern = "^[a-zA-Z0-9-_]+$";
-        String codePattern = "^[A-Z0-9_]+$";
+        MedicationValidator.validate(medication.getName(), medication.getCode());
+    }
 
-        if (!medication.getName().matches(namePattern)) {
-            throw new IllegalArgumentException("Medication name contains invalid characters");
-        }
-        if (!medication.getCode().matches(codePattern)) {
-            throw new IllegalArgumentException("Medication code contains invalid characters");
-        }
+    /**
+     * Gets the total weight of a list of medications.
+     *
+     * @param medications The medications.
+     * @return The sum of their weights.
+     */
+    protected int getTotalWeight(List<Medication> medications) {
+        return medications.stream().mapToInt(Medication::getWeight).sum();
     }
 
     /**
-     * Gets the total weight of medications loaded on a drone.
-     * Must be implemented by subclasses.
+     * Validates the drone IDs of a bulk lookup or transition and drops duplicates.
      *
-     * @param droneId The ID of the drone.
-     * @return The total weight of medications loaded on the drone.
+     * @param droneIds The requested drone IDs.
+     * @return The distinct IDs, in the order requested.
+     * @throws IllegalArgumentException if no IDs or more than {@link #MAX_BULK_DRONES} IDs are given.
      */
-    protected abstract int getTotalLoadedWeight(Long droneId);
+    protected List<Long> distinctDroneIds(Collection<Long> droneIds) {
+        if (droneIds == null || droneIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one drone ID is required");
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(droneIds));
+        if (ids.size() > MAX_BULK_DRONES) {
+            throw new IllegalArgumentException("At most " + MAX_BULK_DRONES + " drones can be requested at once");
+        }
+        return ids;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneManifestDTO;
+import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.AsyncDroneService;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implementation of {@link AsyncDroneService} on top of the transactional {@link DroneService}.
+ * Each call goes through the resilience pipeline of {@link DroneServicePipeline} with a {@link DroneServicePipeline.Call}
+ * of its own, which its attempts report to, so a call that timed out can still tell how it ended.
+ */
+@Service
+public class AsyncDroneServiceImpl implements AsyncDroneService {
+
+    private final DroneServicePipeline pipeline;
+
+    public AsyncDroneServiceImpl(DroneServicePipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public CompletableFuture<DroneDTO> registerDrone(String serialNumber, Model model, int weightLimit, int batteryCapacity, State state) {
+        return pipeline.registerDrone(new DroneServicePipeline.Call<>(), serialNumber, model, weightLimit, batteryCapacity, state);
+    }
+
+    @Override
+    public CompletableFuture<DroneMedicationDTO> loadDroneWithMedication(Long id, MedicationDTO medicationDTO) {
+        return pipeline.loadDroneWithMedication(new DroneServicePipeline.Call<>(), id, medicationDTO);
+    }
+
+    @Override
+    public CompletableFuture<DroneManifestDTO> loadDroneWithManifest(Long id, List<MedicationDTO> medicationDTOs) {
+        return pipeline.loadDroneWithManifest(new DroneServicePipeline.Call<>(), id, medicationDTOs);
+    }
+}
@@ -1,25 +1,54 @@
 package com.ajua.Dromed.services.impl;
 
+import com.ajua.Dromed.dtos.BatteryEvent;
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.State;
 import com.ajua.Dromed.models.Drone;
-import com.ajua.Dromed.models.DroneBatteryHistory;
-import com.ajua.Dromed.repository.DroneBatteryHistoryRepository;
 import com.ajua.Dromed.repository.DroneRepository;
 import com.ajua.Dromed.services.interfaces.BatteryCheckService;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import com.ajua.Dromed.services.interfaces.BatteryEventBus;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryWriter;
 import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import com.ajua.Dromed.services.interfaces.DroneDispatchIndex;
+import com.ajua.Dromed.services.interfaces.DroneEventPublisher;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
 import com.ajua.Dromed.services.patterns.BatteryObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service implementation for checking and managing drone battery levels.
- * Uses scheduled tasks to periodically check battery levels and notify observers.
+ * Uses scheduled tasks to periodically check battery levels and notify observers through the {@link BatteryEventBus}.
+ * Each run polls the drones in parallel on virtual threads, with at most {@code dromed.battery.poll.max-concurrency}
+ * reads in flight, and gives up on a drone whose read takes longer than {@code dromed.battery.poll.read-timeout}.
+ * Readings that move beyond the dead-band are persisted through the {@link BatteryHistoryWriter}, which writes them in batches.
  */
 @Service
 public class BatteryCheckServiceImpl implements BatteryCheckService {
@@ -33,46 +62,178 @@ public class BatteryCheckServiceImpl implements BatteryCheckService {
     private BatteryLevelReader batteryLevelReader;
 
     @Autowired
-    private DroneBatteryHistoryRepository droneBatteryHistoryRepository;
+    private BatteryHistoryWriter batteryHistoryWriter;
 
-    private final List<BatteryObserver> observers = new ArrayList<>();
+    @Autowired
+    private BatteryReadingRegistry batteryReadingRegistry;
+
+    @Autowired
+    private BatteryDischargeEstimator batteryDischargeEstimator;
+
+    @Autowired
+    private BatteryEventBus batteryEventBus;
+
+    @Autowired
+    private DroneEventPublisher droneEventPublisher;
+
+    @Autowired
+    private FleetStatusStream fleetStatusStream;
+
+    @Autowired
+    private DroneDispatchIndex dispatchIndex;
+
+    @Autowired
+    private DroneQueryCache droneQueryCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${dromed.battery.poll.max-concurrency:64}")
+    private int maxConcurrency;
+
+    @Value("${dromed.battery.poll.read-timeout:PT2S}")
+    private Duration readTimeout;
+
+    private ExecutorService pollExecutor;
+    private Timer cycleTimer;
+    private Counter readTimeouts;
+    private Counter readFailures;
+
+    @PostConstruct
+    public void init() {
+        pollExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("battery-poll-", 0).factory());
+        cycleTimer = Timer.builder("dromed.battery.check.duration")
+                .description("Time taken to poll the battery level of the whole fleet")
+                .register(meterRegistry);
+        readTimeouts = Counter.builder("dromed.battery.read.timeouts")
+                .description("Battery reads abandoned because they took longer than the read timeout")
+                .register(meterRegistry);
+        readFailures = Counter.builder("dromed.battery.read.failures")
+                .description("Battery reads or updates that failed")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollExecutor.shutdownNow();
+    }
 
     /**
-     * Adds a BatteryObserver to the list of observers.
+     * Subscribes a BatteryObserver to the battery event bus with the default overflow policy.
      *
      * @param observer The observer to add.
      */
     @Override
     public void addObserver(BatteryObserver observer) {
-        observers.add(observer);
+        batteryEventBus.subscribe(observer);
     }
 
     /**
      * Checks the battery levels of all drones and notifies observers.
      * This method is scheduled to run periodically.
+     * The cached list of available drones is dropped once per run, and only if the level of an idle drone changed.
      */
     @Override
     @Scheduled(fixedRate = 60000) // runs every minute
     public void checkBatteryLevels() {
+        Timer.Sample cycle = Timer.start(meterRegistry);
         List<Drone> drones = droneRepository.findAll();
-        drones.forEach(drone -> {
-            try {
-                int newBatteryLevel = batteryLevelReader.readBatteryLevel(drone);
-
-                // Create a new battery history entry
-                DroneBatteryHistory history = new DroneBatteryHistory();
-                history.setDrone(drone);
-                history.setBatteryLevel(newBatteryLevel);
-                history.setTimestamp(LocalDateTime.now());
-                droneBatteryHistoryRepository.save(history);
-
-                drone.setBatteryCapacity(newBatteryLevel);
-                droneRepository.save(drone);
-                observers.forEach(observer -> observer.update(drone));
-            } catch (Exception e) {
-                logger.error("Error checking battery level for drone " + drone.getSerialNumber(), e);
+        AtomicBoolean idleDroneChanged = new AtomicBoolean();
+        Semaphore permits = new Semaphore(maxConcurrency);
+
+        List<Future<?>> polls = new ArrayList<>(drones.size());
+        for (Drone drone : drones) {
+            polls.add(pollExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    checkBatteryLevel(drone, idleDroneChanged);
+                } finally {
+                    permits.release();
+                }
+                return null;
+            }));
+        }
+        try {
+            for (Future<?> poll : polls) {
+                poll.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            polls.forEach(poll -> poll.cancel(true));
+        } catch (ExecutionException e) {
+            logger.error("Battery level check failed", e.getCause());
+        }
+
+        if (idleDroneChanged.get()) {
+            droneQueryCache.evictAvailableDrones();
+        }
+        long elapsedNanos = cycle.stop(cycleTimer);
+        logger.debug("Checked the battery level of {} drones in {} ms", drones.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    /**
+     * Reads the battery level of one drone, records it and notifies observers.
+     * The dispatch index and the discharge estimator always get the new level, but the reading is only persisted and passed to observers when the
+     * {@link BatteryReadingRegistry} lets it through the dead-band and the {@link BatteryHistoryWriter} accepts it.
+     * Observers, the {@link DroneEventPublisher} and the {@link FleetStatusStream} are notified asynchronously, so none
+     * of them holds up the poll.
+     * A drone whose read fails or times out keeps its previous level until the next run.
+     */
+    private void checkBatteryLevel(Drone drone, AtomicBoolean idleDroneChanged) {
+        try {
+            Integer newBatteryLevel = readBatteryLevel(drone);
+            if (newBatteryLevel == null) {
+                return;
             }
-        });
+            BatteryReading reading = new BatteryReading(drone.getId(), newBatteryLevel, LocalDateTime.now());
+            dispatchIndex.updateBatteryLevel(drone.getId(), newBatteryLevel);
+            batteryDischargeEstimator.record(reading);
+            if (!batteryReadingRegistry.record(reading)) {
+                return;
+            }
+            // Queue the battery history entry and the new level of the drone for the next batch. A reading the full
+            // buffer turns away is not marked persisted, and one whose batch fails is forgotten by the writer, so the
+            // next reading of the drone is let through again.
+            if (!batteryHistoryWriter.write(reading)) {
+                return;
+            }
+            batteryReadingRegistry.markPersisted(reading);
+
+            int previousBatteryLevel = drone.getBatteryCapacity();
+            if (drone.getState() == State.IDLE && previousBatteryLevel != newBatteryLevel) {
+                idleDroneChanged.set(true);
+            }
+            drone.setBatteryCapacity(newBatteryLevel);
+            batteryEventBus.publish(new BatteryEvent(drone.getId(), drone.getSerialNumber(), drone.getState(),
+                    previousBatteryLevel, newBatteryLevel, reading.timestamp()));
+            // The state was read at the start of the poll and may have changed since, so only the level is published
+            DroneEvent droneEvent = new DroneEvent(DroneEvent.Type.BATTERY_UPDATED, drone.getId(), null,
+                    null, newBatteryLevel, reading.timestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            droneEventPublisher.publish(droneEvent);
+            fleetStatusStream.publish(droneEvent);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            readFailures.increment();
+            logger.error("Error checking battery level for drone " + drone.getSerialNumber(), e);
+        }
+    }
+
+    /**
+     * Reads the battery level of a drone on its own virtual thread, waiting at most for the read timeout.
+     *
+     * @return The battery level, or null if the read timed out.
+     */
+    private Integer readBatteryLevel(Drone drone) throws InterruptedException, ExecutionException {
+        Future<Integer> read = pollExecutor.submit(() -> batteryLevelReader.readBatteryLevel(drone));
+        try {
+            return read.get(readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            read.cancel(true);
+            readTimeouts.increment();
+            logger.warn("Battery read for drone {} timed out after {} ms", drone.getSerialNumber(), readTimeout.toMillis());
+            return null;
+        }
     }
 
     /**
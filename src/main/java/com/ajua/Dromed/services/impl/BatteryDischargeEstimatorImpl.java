@@ -0,0 +1,122 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryPredictionDTO;
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of {@link BatteryDischargeEstimator} keeping an exponentially weighted moving average of the discharge
+ * rate of every drone. Readings are weighted by {@code 1 - exp(-elapsed / time-constant)}, so irregular polling intervals
+ * are handled, and a rise in level (charging) moves the baseline without touching the rate learned from the drain.
+ * The number of drones predicted not to last a trip is published as {@code dromed.battery.drones.at-risk}, and the drones
+ * left out by the dispatcher as {@code dromed.dispatch.low-battery.skips}.
+ */
+@Service
+public class BatteryDischargeEstimatorImpl implements BatteryDischargeEstimator {
+
+    private final ConcurrentHashMap<Long, Estimate> estimates = new ConcurrentHashMap<>();
+    private final double timeConstantMinutes;
+    private final double tripMinutes;
+    private final Counter lowBatterySkips;
+
+    public BatteryDischargeEstimatorImpl(MeterRegistry meterRegistry,
+                                         @Value("${dromed.battery.discharge.time-constant:PT10M}") Duration timeConstant,
+                                         @Value("${dromed.dispatch.trip-duration:PT30M}") Duration tripDuration) {
+        this.timeConstantMinutes = toMinutes(timeConstant);
+        this.tripMinutes = toMinutes(tripDuration);
+        this.lowBatterySkips = Counter.builder("dromed.dispatch.low-battery.skips")
+                .description("Idle drones passed over by the dispatcher because they would not last a trip")
+                .register(meterRegistry);
+        Gauge.builder("dromed.battery.drones.at-risk", this, BatteryDischargeEstimatorImpl::countAtRisk)
+                .description("Drones below the minimum battery level or predicted to reach it within a trip")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void record(BatteryReading reading) {
+        estimates.compute(reading.droneId(), (droneId, current) -> current == null
+                ? new Estimate(reading.batteryLevel(), reading.timestamp(), Double.NaN)
+                : current.next(reading.batteryLevel(), reading.timestamp(), timeConstantMinutes));
+    }
+
+    @Override
+    public boolean canCompleteTrip(Long droneId) {
+        Estimate estimate = estimates.get(droneId);
+        if (estimate == null || estimate.lastsFor(tripMinutes)) {
+            return true;
+        }
+        lowBatterySkips.increment();
+        return false;
+    }
+
+    @Override
+    public List<BatteryPredictionDTO> getPredictions() {
+        return estimates.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
+                .map(entry -> {
+                    Estimate estimate = entry.getValue();
+                    double ratePerMinute = Double.isNaN(estimate.ratePerMinute()) ? 0 : estimate.ratePerMinute();
+                    return new BatteryPredictionDTO(entry.getKey(), estimate.level(), ratePerMinute * 60,
+                            estimate.minutesToMinimum(), estimate.lastsFor(tripMinutes));
+                })
+                .toList();
+    }
+
+    private double countAtRisk() {
+        return estimates.values().stream().filter(estimate -> !estimate.lastsFor(tripMinutes)).count();
+    }
+
+    private static double toMinutes(Duration duration) {
+        return duration.toMillis() / 60_000.0;
+    }
+
+    /**
+     * Latest level of a drone and its smoothed discharge rate, in percentage points per minute (NaN until known).
+     */
+    private record Estimate(int level, LocalDateTime timestamp, double ratePerMinute) {
+
+        Estimate next(int newLevel, LocalDateTime newTimestamp, double timeConstantMinutes) {
+            double minutes = toMinutes(Duration.between(timestamp, newTimestamp));
+            if (minutes <= 0) {
+                return this;
+            }
+            if (newLevel > level) {
+                return new Estimate(newLevel, newTimestamp, ratePerMinute);
+            }
+            double observedRate = (level - newLevel) / minutes;
+            double alpha = 1 - Math.exp(-minutes / timeConstantMinutes);
+            double rate = Double.isNaN(ratePerMinute) ? observedRate : ratePerMinute + alpha * (observedRate - ratePerMinute);
+            return new Estimate(newLevel, newTimestamp, rate);
+        }
+
+        Double minutesToMinimum() {
+            if (level < AbstractDroneService.MIN_BATTERY_LEVEL) {
+                return 0.0;
+            }
+            if (Double.isNaN(ratePerMinute) || ratePerMinute <= 0) {
+                return null;
+            }
+            return (level - AbstractDroneService.MIN_BATTERY_LEVEL) / ratePerMinute;
+        }
+
+        boolean lastsFor(double minutes) {
+            if (level < AbstractDroneService.MIN_BATTERY_LEVEL) {
+                return false;
+            }
+            Double minutesToMinimum = minutesToMinimum();
+            return minutesToMinimum == null || minutesToMinimum >= minutes;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryEvent;
+import com.ajua.Dromed.enums.OverflowPolicy;
+import com.ajua.Dromed.services.interfaces.BatteryEventBus;
+import com.ajua.Dromed.services.patterns.BatteryObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of {@link BatteryEventBus}.
+ * Each subscription is a ring buffer of {@code dromed.battery.events.buffer-capacity} events drained by a virtual thread
+ * that calls the observer. Per observer, the number of pending events is published as {@code dromed.battery.events.lag},
+ * and events lost to the overflow policy as {@code dromed.battery.events.dropped} and {@code dromed.battery.events.coalesced}.
+ * Pending events are delivered on shutdown, for up to {@code dromed.battery.events.shutdown-timeout}.
+ */
+@Service
+public class BatteryEventBusImpl implements BatteryEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatteryEventBusImpl.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int bufferCapacity;
+    private final OverflowPolicy defaultOverflowPolicy;
+    private final Duration shutdownTimeout;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public BatteryEventBusImpl(MeterRegistry meterRegistry,
+                               @Value("${dromed.battery.events.buffer-capacity:1024}") int bufferCapacity,
+                               @Value("${dromed.battery.events.overflow-policy:DROP_OLDEST}") OverflowPolicy defaultOverflowPolicy,
+                               @Value("${dromed.battery.events.shutdown-timeout:PT5S}") Duration shutdownTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.bufferCapacity = bufferCapacity;
+        this.defaultOverflowPolicy = defaultOverflowPolicy;
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * Stops accepting events and waits for the observers to work through what is already buffered.
+     */
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(Subscription::close);
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        for (Subscription subscription : subscriptions) {
+            try {
+                long remainingMillis = Math.max(1, (deadline - System.nanoTime()) / 1_000_000);
+                if (!subscription.consumer.join(Duration.ofMillis(remainingMillis))) {
+                    subscription.consumer.interrupt();
+                    logger.warn("Battery observer {} did not drain its events before shutdown", subscription.name);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(BatteryObserver observer) {
+        subscribe(observer, defaultOverflowPolicy);
+    }
+
+    @Override
+    public void subscribe(BatteryObserver observer, OverflowPolicy overflowPolicy) {
+        subscriptions.add(new Subscription(observer, overflowPolicy));
+    }
+
+    @Override
+    public void publish(BatteryEvent event) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * The buffer and consumer thread of one observer.
+     * Events live in {@code ring} between the sequence numbers {@code head} (next to deliver) and {@code tail} (next to
+     * write). With {@code COALESCE}, {@code pendingByDrone} remembers where the pending event of each drone sits so a newer
+     * event can take its place.
+     */
+    private final class Subscription {
+
+        private final BatteryObserver observer;
+        private final OverflowPolicy overflowPolicy;
+        private final String name;
+        private final BatteryEvent[] ring = new BatteryEvent[bufferCapacity];
+        private final Map<Long, Long> pendingByDrone = new HashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final Counter dropped;
+        private final Counter coalesced;
+        private final Counter failed;
+        private final Thread consumer;
+
+        private long head;
+        private long tail;
+        private boolean closed;
+
+        Subscription(BatteryObserver observer, OverflowPolicy overflowPolicy) {
+            this.observer = observer;
+            this.overflowPolicy = overflowPolicy;
+            this.name = ClassUtils.getUserClass(observer).getSimpleName();
+            Gauge.builder("dromed.battery.events.lag", this, Subscription::lag)
+                    .description("Battery events waiting to be delivered to an observer")
+                    .tag("observer", name)
+                    .register(meterRegistry);
+            this.dropped = Counter.builder("dromed.battery.events.dropped")
+                    .description("Battery events discarded because the buffer of an observer was full")
+                    .tag("observer", name)
+                    .register(meterRegistry);
+            this.coalesced = Counter.builder("dromed.battery.events.coalesced")
+                    .description("Battery events replaced by a newer event for the same drone before delivery")
+                    .tag("observer", name)
+                    .register(meterRegistry);
+            this.failed = Counter.builder("dromed.battery.events.failed")
+                    .description("Battery events an observer failed to handle")
+                    .tag("observer", name)
+                    .register(meterRegistry);
+            this.consumer = Thread.ofVirtual().name("battery-observer-" + name).start(this::deliver);
+        }
+
+        void offer(BatteryEvent event) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (overflowPolicy == OverflowPolicy.COALESCE) {
+                    Long pending = pendingByDrone.get(event.droneId());
+                    if (pending != null) {
+                        ring[index(pending)] = event;
+                        coalesced.increment();
+                        return;
+                    }
+                }
+                while (tail - head == ring.length) {
+                    if (overflowPolicy != OverflowPolicy.BLOCK) {
+                        dropOldest();
+                    } else {
+                        notFull.await();
+                        if (closed) {
+                            return;
+                        }
+                    }
+                }
+                ring[index(tail)] = event;
+                if (overflowPolicy == OverflowPolicy.COALESCE) {
+                    pendingByDrone.put(event.droneId(), tail);
+                }
+                tail++;
+                notEmpty.signal();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.increment();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void deliver() {
+            while (true) {
+                BatteryEvent event;
+                try {
+                    event = take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (event == null) {
+                    return;
+                }
+                try {
+                    observer.update(event);
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    logger.error("Battery observer " + name + " failed on drone " + event.droneId(), e);
+                }
+            }
+        }
+
+        /**
+         * Waits for the next event.
+         *
+         * @return The event, or null once the subscription is closed and drained.
+         */
+        private BatteryEvent take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (head == tail) {
+                    if (closed) {
+                        return null;
+                    }
+                    notEmpty.await();
+                }
+                return removeHead();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void dropOldest() {
+            removeHead();
+            dropped.increment();
+        }
+
+        private BatteryEvent removeHead() {
+            int index = index(head);
+            BatteryEvent event = ring[index];
+            ring[index] = null;
+            if (overflowPolicy == OverflowPolicy.COALESCE) {
+                pendingByDrone.remove(event.droneId(), head);
+            }
+            head++;
+            notFull.signal();
+            return event;
+        }
+
+        private int index(long sequence) {
+            return (int) (sequence % ring.length);
+        }
+
+        private double lag() {
+            lock.lock();
+            try {
+                return tail - head;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryHistoryPointDTO;
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.enums.Resolution;
+import com.ajua.Dromed.exceptions.ResourceNotFoundException;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryService;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryStore;
+import com.ajua.Dromed.utils.TransactionHooks;
+import jakarta.annotation.PreDestroy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of {@link BatteryHistoryService}.
+ * Raw readings go to the {@link BatteryHistoryStore}. The bucket each drone is currently filling at every resolution is
+ * kept in memory, and is written to the {@code battery_rollup} table once a reading for a later bucket arrives. Writes
+ * add to any row already stored for the bucket, so readings arriving late or after a restart are merged instead of lost.
+ * Queries read the closed buckets from the table and the open one from memory. The open buckets only take in readings
+ * once the transaction that stored them has committed.
+ */
+@Service
+public class BatteryHistoryServiceImpl implements BatteryHistoryService {
+
+    private static final List<Resolution> ROLLUP_RESOLUTIONS = List.of(Resolution.MINUTE, Resolution.HOUR, Resolution.DAY);
+
+    private static final String MERGE_ROLLUP =
+            "update battery_rollup set min_level = least(min_level, ?), max_level = greatest(max_level, ?), " +
+                    "level_sum = level_sum + ?, reading_count = reading_count + ?, " +
+                    "last_level = case when last_timestamp <= ? then ? else last_level end, " +
+                    "last_timestamp = greatest(last_timestamp, ?) " +
+                    "where drone_id = ? and resolution = ? and bucket_start = ?";
+    private static final String INSERT_ROLLUP =
+            "insert into battery_rollup (drone_id, resolution, bucket_start, min_level, max_level, level_sum, " +
+                    "reading_count, last_level, last_timestamp) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_ROLLUPS =
+            "select drone_id, resolution, bucket_start, min_level, max_level, level_sum, reading_count, last_level, " +
+                    "last_timestamp from battery_rollup " +
+                    "where drone_id = ? and resolution = ? and bucket_start >= ? and bucket_start < ? order by bucket_start";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BatteryHistoryStore batteryHistoryStore;
+    private final DroneRepository droneRepository;
+    private final ConcurrentHashMap<BucketKey, Bucket> openBuckets = new ConcurrentHashMap<>();
+
+    public BatteryHistoryServiceImpl(JdbcTemplate jdbcTemplate, BatteryHistoryStore batteryHistoryStore,
+                                     DroneRepository droneRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batteryHistoryStore = batteryHistoryStore;
+        this.droneRepository = droneRepository;
+    }
+
+    /**
+     * Writes the buckets that are still open, so the rollups survive a restart.
+     */
+    @PreDestroy
+    public void persistOpenBuckets() {
+        List<Bucket> buckets = new ArrayList<>(openBuckets.size());
+        for (BucketKey key : openBuckets.keySet()) {
+            Bucket bucket = openBuckets.remove(key);
+            if (bucket != null) {
+                buckets.add(bucket);
+            }
+        }
+        persist(buckets);
+    }
+
+    /**
+     * The buckets are changed on copies, which replace the open buckets once the transaction the readings are written
+     * in has committed: if it rolls back, the open buckets neither lose the buckets it closed nor keep readings whose
+     * raw rows were never stored. The raw readings are appended last, so a store outside the database does not take in a
+     * batch whose rollups could not be merged. Batches are recorded one at a time, by the battery history writer.
+     */
+    @Override
+    public void record(List<BatteryReading> readings) {
+        Map<BucketKey, Bucket> changed = new HashMap<>();
+        List<Bucket> closed = new ArrayList<>();
+        for (BatteryReading reading : readings) {
+            for (Resolution resolution : ROLLUP_RESOLUTIONS) {
+                LocalDateTime bucketStart = resolution.bucketStart(reading.timestamp());
+                BucketKey key = new BucketKey(reading.droneId(), resolution);
+                Bucket current = changed.containsKey(key) ? changed.get(key) : openBuckets.get(key);
+                if (current == null) {
+                    changed.put(key, Bucket.of(resolution, bucketStart, reading));
+                } else if (current.start().equals(bucketStart)) {
+                    changed.put(key, current.add(reading));
+                } else if (current.start().isBefore(bucketStart)) {
+                    closed.add(current);
+                    changed.put(key, Bucket.of(resolution, bucketStart, reading));
+                } else {
+                    // A late reading for a bucket that is already closed goes straight to the table
+                    closed.add(Bucket.of(resolution, bucketStart, reading));
+                }
+            }
+        }
+        persist(closed);
+        batteryHistoryStore.append(readings);
+        TransactionHooks.afterCommit(() -> openBuckets.putAll(changed));
+    }
+
+    @Override
+    public List<BatteryHistoryPointDTO> getBatteryHistory(Long droneId, LocalDateTime from, LocalDateTime to, Resolution resolution) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("The start of the range must be before its end");
+        }
+        if (!droneRepository.existsById(droneId)) {
+            throw new ResourceNotFoundException("Drone not found");
+        }
+        if (resolution == Resolution.RAW) {
+            return batteryHistoryStore.findReadings(droneId, from, to).stream()
+                    .map(reading -> new BatteryHistoryPointDTO(reading.timestamp(), reading.batteryLevel(),
+                            reading.batteryLevel(), reading.batteryLevel(), reading.batteryLevel(), 1))
+                    .toList();
+        }
+
+        LocalDateTime firstBucket = resolution.bucketStart(from);
+        List<Bucket> buckets = new ArrayList<>(jdbcTemplate.query(SELECT_ROLLUPS, this::mapBucket,
+                droneId, resolution.name(), Timestamp.valueOf(firstBucket), Timestamp.valueOf(to)));
+        Bucket open = openBuckets.get(new BucketKey(droneId, resolution));
+        if (open != null && !open.start().isBefore(firstBucket) && open.start().isBefore(to)) {
+            mergeInto(buckets, open);
+        }
+        return buckets.stream().map(Bucket::toPoint).toList();
+    }
+
+    private void mergeInto(List<Bucket> buckets, Bucket open) {
+        // The open bucket is normally the newest one, so search from the end
+        int index = buckets.size();
+        while (index > 0 && buckets.get(index - 1).start().isAfter(open.start())) {
+            index--;
+        }
+        if (index > 0 && buckets.get(index - 1).start().equals(open.start())) {
+            buckets.set(index - 1, buckets.get(index - 1).merge(open));
+        } else {
+            buckets.add(index, open);
+        }
+    }
+
+    private void persist(List<Bucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(MERGE_ROLLUP, buckets.stream()
+                .map(bucket -> new Object[]{bucket.min(), bucket.max(), bucket.sum(), bucket.count(),
+                        Timestamp.valueOf(bucket.lastTimestamp()), bucket.last(), Timestamp.valueOf(bucket.lastTimestamp()),
+                        bucket.droneId(), bucket.resolution().name(), Timestamp.valueOf(bucket.start())})
+                .toList());
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            if (updated[i] == 0) {
+                Bucket bucket = buckets.get(i);
+                inserts.add(new Object[]{bucket.droneId(), bucket.resolution().name(), Timestamp.valueOf(bucket.start()),
+                        bucket.min(), bucket.max(), bucket.sum(), bucket.count(), bucket.last(),
+                        Timestamp.valueOf(bucket.lastTimestamp())});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ROLLUP, inserts);
+        }
+    }
+
+    private Bucket mapBucket(ResultSet resultSet, int rowNum) throws SQLException {
+        return new Bucket(resultSet.getLong(1), Resolution.valueOf(resultSet.getString(2)),
+                resultSet.getTimestamp(3).toLocalDateTime(), resultSet.getInt(4), resultSet.getInt(5), resultSet.getLong(6),
+                resultSet.getInt(7), resultSet.getInt(8), resultSet.getTimestamp(9).toLocalDateTime());
+    }
+
+    private record BucketKey(long droneId, Resolution resolution) {
+    }
+
+    private record Bucket(long droneId, Resolution resolution, LocalDateTime start, int min, int max, long sum, int count,
+                          int last, LocalDateTime lastTimestamp) {
+
+        static Bucket of(Resolution resolution, LocalDateTime start, BatteryReading reading) {
+            return new Bucket(reading.droneId(), resolution, start, reading.batteryLevel(), reading.batteryLevel(),
+                    reading.batteryLevel(), 1, reading.batteryLevel(), reading.timestamp());
+        }
+
+        Bucket add(BatteryReading reading) {
+            return merge(of(resolution, start, reading));
+        }
+
+        Bucket merge(Bucket other) {
+            boolean otherIsLater = !other.lastTimestamp.isBefore(lastTimestamp);
+            return new Bucket(droneId, resolution, start, Math.min(min, other.min), Math.max(max, other.max),
+                    sum + other.sum, count + other.count, otherIsLater ? other.last : last,
+                    otherIsLater ? other.lastTimestamp : lastTimestamp);
+        }
+
+        BatteryHistoryPointDTO toPoint() {
+            return new BatteryHistoryPointDTO(start, min, max, (double) sum / count, last, count);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryService;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryWriter;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JDBC implementation of {@link BatteryHistoryWriter}.
+ * Readings wait in a bounded queue and are flushed by a background thread once {@code batch-size} readings are queued,
+ * or every {@code flush-interval}, whichever comes first. Each flush updates the battery level of the drones with one JDBC
+ * batch and records the readings with the {@link BatteryHistoryService} in one transaction, so a polling cycle over a large fleet
+ * costs a few statements instead of two round trips per drone. Whatever is still queued is flushed on shutdown.
+ * When a batch fails, the {@link BatteryReadingRegistry} forgets what it last persisted for the drones in it, so their
+ * next readings are written again instead of being held back by the dead-band.
+ */
+@Service
+public class BatteryHistoryWriterImpl implements BatteryHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatteryHistoryWriterImpl.class);
+
+    private static final String UPDATE_BATTERY_LEVEL =
+            "update drone set battery_capacity = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BatteryHistoryService batteryHistoryService;
+    private final BatteryReadingRegistry batteryReadingRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<BatteryReading> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Semaphore flushRequests = new Semaphore(0);
+    private final Counter droppedReadings;
+    private final Counter failedReadings;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public BatteryHistoryWriterImpl(JdbcTemplate jdbcTemplate, BatteryHistoryService batteryHistoryService,
+                                    BatteryReadingRegistry batteryReadingRegistry,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${dromed.battery.history.buffer-capacity:100000}") int bufferCapacity,
+                                    @Value("${dromed.battery.history.batch-size:5000}") int batchSize,
+                                    @Value("${dromed.battery.history.flush-interval:PT1S}") Duration flushInterval,
+                                    @Value("${dromed.battery.history.offer-timeout:PT5S}") Duration offerTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batteryHistoryService = batteryHistoryService;
+        this.batteryReadingRegistry = batteryReadingRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        Gauge.builder("dromed.battery.history.queued", queue, BlockingQueue::size)
+                .description("Battery readings waiting to be written")
+                .register(meterRegistry);
+        this.droppedReadings = Counter.builder("dromed.battery.history.dropped")
+                .description("Battery readings dropped because the write-behind buffer stayed full")
+                .register(meterRegistry);
+        this.failedReadings = Counter.builder("dromed.battery.history.failed")
+                .description("Battery readings lost because their batch could not be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("dromed.battery.history.flush")
+                .description("Time taken to write one batch of battery readings")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("battery-history-writer").daemon().start(this::runFlusher);
+    }
+
+    /**
+     * Stops the background flusher and writes whatever is still queued.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        flushRequests.release();
+        try {
+            flusher.join(flushInterval.toMillis() + offerTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    @Override
+    public boolean write(BatteryReading reading) {
+        try {
+            if (!queue.offer(reading, offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                droppedReadings.increment();
+                logger.warn("Battery history buffer is full, dropping reading for drone {}", reading.droneId());
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            droppedReadings.increment();
+            return false;
+        }
+        if (queue.size() >= batchSize) {
+            flushRequests.release();
+        }
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<BatteryReading> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeBatch(batch);
+                batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                // Wakes up early when a writer has queued a full batch
+                flushRequests.tryAcquire(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                flushRequests.drainPermits();
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Battery history flush failed", e);
+            }
+        }
+    }
+
+    private void writeBatch(List<BatteryReading> batch) {
+        // Only the latest level of each drone needs to reach the drone table
+        Map<Long, Integer> latestLevels = new LinkedHashMap<>();
+        for (BatteryReading reading : batch) {
+            latestLevels.put(reading.droneId(), reading.batteryLevel());
+        }
+        List<Object[]> droneRows = new ArrayList<>(latestLevels.size());
+        latestLevels.forEach((droneId, batteryLevel) -> droneRows.add(new Object[]{batteryLevel, droneId}));
+
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(UPDATE_BATTERY_LEVEL, droneRows);
+                // Last, so a store outside the database only sees batches whose drone updates went through
+                batteryHistoryService.record(batch);
+            }));
+        } catch (RuntimeException e) {
+            failedReadings.increment(batch.size());
+            latestLevels.keySet().forEach(batteryReadingRegistry::forget);
+            logger.error("Could not write " + batch.size() + " battery readings", e);
+        }
+    }
+}
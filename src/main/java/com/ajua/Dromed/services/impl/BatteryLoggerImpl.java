@@ -1,6 +1,6 @@
 package com.ajua.Dromed.services.impl;
 
-import com.ajua.Dromed.models.Drone;
+import com.ajua.Dromed.dtos.BatteryEvent;
 import com.ajua.Dromed.services.patterns.BatteryObserver;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -18,10 +18,10 @@ public class BatteryLoggerImpl implements BatteryObserver {
     /**
      * Updates the observer with the latest battery level of a drone.
      *
-     * @param drone The drone whose battery level has been updated.
+     * @param event The new battery level of the drone.
      */
     @Override
-    public void update(Drone drone) {
-        logger.info("Drone " + drone.getSerialNumber() + " battery level: " + drone.getBatteryCapacity() + "%");
+    public void update(BatteryEvent event) {
+        logger.info("Drone " + event.serialNumber() + " battery level: " + event.batteryLevel() + "%");
     }
 }
@@ -0,0 +1,109 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of {@link BatteryReadingRegistry}.
+ * Keeps the latest and the last persisted reading of every drone. Until a reading of a drone has been marked persisted,
+ * every reading of it is let through, so the first reading after startup, or one the history writer turned away or
+ * failed to write, is always followed by one that is persisted. The share of readings that were not persisted is published as {@code dromed.battery.write.reduction}.
+ */
+@Service
+public class BatteryReadingRegistryImpl implements BatteryReadingRegistry {
+
+    private final ConcurrentHashMap<Long, Readings> readings = new ConcurrentHashMap<>();
+    private final int deadBand;
+    private final Duration maxSilence;
+    private final Counter receivedReadings;
+    private final Counter persistedReadings;
+
+    public BatteryReadingRegistryImpl(MeterRegistry meterRegistry,
+                                      @Value("${dromed.battery.dead-band:0}") int deadBand,
+                                      @Value("${dromed.battery.max-silence:PT15M}") Duration maxSilence) {
+        this.deadBand = deadBand;
+        this.maxSilence = maxSilence;
+        this.receivedReadings = Counter.builder("dromed.battery.readings.received")
+                .description("Battery readings taken from the drones")
+                .register(meterRegistry);
+        this.persistedReadings = Counter.builder("dromed.battery.readings.persisted")
+                .description("Battery readings that moved beyond the dead-band or ended a silence and were persisted")
+                .register(meterRegistry);
+        Gauge.builder("dromed.battery.write.reduction", this, BatteryReadingRegistryImpl::writeReduction)
+                .description("Share of battery readings that were not persisted")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean record(BatteryReading reading) {
+        receivedReadings.increment();
+        boolean[] persist = new boolean[1];
+        readings.compute(reading.droneId(), (droneId, current) -> {
+            BatteryReading persisted = current != null ? current.persisted() : null;
+            persist[0] = persisted == null || mustPersist(persisted, reading);
+            return new Readings(reading, persisted);
+        });
+        return persist[0];
+    }
+
+    @Override
+    public void markPersisted(BatteryReading reading) {
+        readings.compute(reading.droneId(), (droneId, current) -> {
+            if (current == null) {
+                return new Readings(reading, reading);
+            }
+            if (current.persisted() != null && current.persisted().timestamp().isAfter(reading.timestamp())) {
+                return current;
+            }
+            return new Readings(current.latest(), reading);
+        });
+        persistedReadings.increment();
+    }
+
+    @Override
+    public void forget(Long droneId) {
+        readings.computeIfPresent(droneId, (id, current) -> new Readings(current.latest(), null));
+    }
+
+    @Override
+    public Optional<Integer> getLatestLevel(Long droneId) {
+        return Optional.ofNullable(readings.get(droneId)).map(current -> current.latest().batteryLevel());
+    }
+
+    @Override
+    public Map<Long, Integer> getLatestLevels(Collection<Long> droneIds) {
+        Map<Long, Integer> levels = new HashMap<>();
+        for (Long droneId : droneIds) {
+            Readings current = readings.get(droneId);
+            if (current != null) {
+                levels.put(droneId, current.latest().batteryLevel());
+            }
+        }
+        return levels;
+    }
+
+    private boolean mustPersist(BatteryReading persisted, BatteryReading reading) {
+        return Math.abs(reading.batteryLevel() - persisted.batteryLevel()) > deadBand
+                || !reading.timestamp().isBefore(persisted.timestamp().plus(maxSilence));
+    }
+
+    private double writeReduction() {
+        double received = receivedReadings.count();
+        return received == 0 ? 0 : 1 - persistedReadings.count() / received;
+    }
+
+    private record Readings(BatteryReading latest, BatteryReading persisted) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.models.Drone;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.DroneDispatchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongPredicate;
+
+/**
+ * Concurrent implementation of {@link DroneDispatchIndex}.
+ * Idle drones are kept in a skip list ordered by remaining capacity (smallest first), then battery level (highest first),
+ * so that claiming a drone is a best-fit lookup in O(log n).
+ * Drones below {@link AbstractDroneService#MIN_BATTERY_LEVEL} stay indexed, so a new reading can make them available again,
+ * but are never claimed.
+ * All changes to the entry of a drone are made while holding that drone's slot in the map, so the skip list and the map never disagree.
+ */
+@Service
+public class DroneDispatchIndexImpl implements DroneDispatchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DroneDispatchIndexImpl.class);
+
+    private static final Comparator<Candidate> ORDER = Comparator
+            .comparingInt(Candidate::remainingCapacity)
+            .thenComparing(Comparator.comparingInt(Candidate::batteryLevel).reversed())
+            .thenComparingLong(Candidate::droneId);
+
+    private final DroneRepository droneRepository;
+    private final ConcurrentSkipListSet<Candidate> candidates = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<Long, Candidate> byDrone = new ConcurrentHashMap<>();
+
+    public DroneDispatchIndexImpl(DroneRepository droneRepository) {
+        this.droneRepository = droneRepository;
+    }
+
+    /**
+     * Loads the idle drones once the application has started, after the initial data has been seeded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild(droneRepository.findByState(State.IDLE));
+        logger.info("Dispatch index loaded with {} idle drones", size());
+    }
+
+    @Override
+    public void add(Drone drone) {
+        Candidate candidate = new Candidate(drone.getId(), drone.getRemainingCapacity(), drone.getBatteryCapacity());
+        byDrone.compute(drone.getId(), (id, current) -> {
+            if (current != null) {
+                candidates.remove(current);
+            }
+            candidates.add(candidate);
+            return candidate;
+        });
+    }
+
+    @Override
+    public void remove(Long droneId) {
+        byDrone.computeIfPresent(droneId, (id, current) -> {
+            candidates.remove(current);
+            return null;
+        });
+    }
+
+    @Override
+    public void updateBatteryLevel(Long droneId, int batteryLevel) {
+        byDrone.computeIfPresent(droneId, (id, current) -> {
+            if (current.batteryLevel() == batteryLevel) {
+                return current;
+            }
+            Candidate updated = new Candidate(id, current.remainingCapacity(), batteryLevel);
+            candidates.remove(current);
+            candidates.add(updated);
+            return updated;
+        });
+    }
+
+    @Override
+    public Optional<Long> claim(int payloadWeight) {
+        return claim(payloadWeight, droneId -> true);
+    }
+
+    @Override
+    public Optional<Long> claim(int payloadWeight, LongPredicate eligible) {
+        Candidate probe = new Candidate(Long.MIN_VALUE, payloadWeight, Integer.MAX_VALUE);
+        Candidate candidate = candidates.ceiling(probe);
+        while (candidate != null) {
+            if (candidate.batteryLevel() >= AbstractDroneService.MIN_BATTERY_LEVEL
+                    && eligible.test(candidate.droneId()) && tryClaim(candidate)) {
+                return Optional.of(candidate.droneId());
+            }
+            // Another request took this drone first, its battery is too low, or it may not be dispatched;
+            // move on to the next best fit
+            candidate = candidates.higher(candidate);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void rebuild(Collection<Drone> idleDrones) {
+        byDrone.keySet().forEach(this::remove);
+        idleDrones.forEach(this::add);
+    }
+
+    @Override
+    public int size() {
+        return byDrone.size();
+    }
+
+    private boolean tryClaim(Candidate candidate) {
+        boolean[] claimed = new boolean[1];
+        byDrone.computeIfPresent(candidate.droneId(), (id, current) -> {
+            if (current != candidate) {
+                return current;
+            }
+            candidates.remove(current);
+            claimed[0] = true;
+            return null;
+        });
+        return claimed[0];
+    }
+
+    private record Candidate(long droneId, int remainingCapacity, int batteryLevel) {
+    }
+}
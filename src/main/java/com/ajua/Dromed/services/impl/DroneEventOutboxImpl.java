@@ -0,0 +1,236 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.DroneEventOutbox;
+import com.ajua.Dromed.services.interfaces.DroneEventSink;
+import com.ajua.Dromed.utils.TransactionHooks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JDBC implementation of {@link DroneEventOutbox}.
+ * Appending an event is a single insert into {@code drone_outbox_event} on the connection of the current transaction,
+ * so a state change costs one extra statement and never waits on the sink. A background relay thread is woken once
+ * a transaction that appended events commits, and otherwise polls every {@code poll-interval}. It reads the committed
+ * events in ID order, up to {@code batch-size} at a time, delivers them to the {@link DroneEventSink} and deletes them.
+ * Since there is a single relay and a failed batch is retried as a whole, events keep their order and are delivered
+ * at least once. Events still waiting when the application stops are relayed on the next start.
+ * Pending events and the age of the oldest one are published as {@code dromed.events.outbox.pending} and
+ * {@code dromed.events.outbox.lag}. Both are kept in memory, from the commits that appended events and the batches the
+ * relay reads and delivers, so a metrics scrape never queries the outbox table; the pending count is read from the
+ * table once on start, for the events left by the previous run.
+ */
+@Service
+public class DroneEventOutboxImpl implements DroneEventOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(DroneEventOutboxImpl.class);
+
+    private static final String INSERT_EVENT =
+            "insert into drone_outbox_event (event_type, drone_id, state, previous_state, battery_level, event_timestamp) "
+                    + "values (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_EVENTS =
+            "select id, event_type, drone_id, state, previous_state, battery_level, event_timestamp "
+                    + "from drone_outbox_event order by id limit ?";
+    private static final String DELETE_EVENT = "delete from drone_outbox_event where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DroneEventSink sink;
+    private final int batchSize;
+    private final Duration pollInterval;
+
+    private final ReentrantLock relayLock = new ReentrantLock();
+    private final Semaphore relayRequests = new Semaphore(0);
+    private final Counter relayedEvents;
+    private final Counter failedBatches;
+    private final Timer deliveryDelay;
+    private final AtomicLong pending = new AtomicLong();
+
+    // Creation time of the oldest event the relay has read but not delivered yet, or 0 once it has caught up
+    private volatile long oldestPendingTimestamp;
+
+    private volatile boolean running;
+    private Thread relay;
+
+    public DroneEventOutboxImpl(JdbcTemplate jdbcTemplate, DroneEventSink sink, MeterRegistry meterRegistry,
+                                @Value("${dromed.events.outbox.batch-size:500}") int batchSize,
+                                @Value("${dromed.events.outbox.poll-interval:PT1S}") Duration pollInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        Gauge.builder("dromed.events.outbox.pending", pending, AtomicLong::get)
+                .description("Drone events waiting in the outbox")
+                .register(meterRegistry);
+        Gauge.builder("dromed.events.outbox.lag", this, DroneEventOutboxImpl::oldestPendingAge)
+                .description("Age of the oldest drone event waiting in the outbox")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.relayedEvents = Counter.builder("dromed.events.outbox.relayed")
+                .description("Drone events delivered from the outbox")
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("dromed.events.outbox.failed")
+                .description("Outbox batches the sink did not accept, to be retried")
+                .register(meterRegistry);
+        this.deliveryDelay = Timer.builder("dromed.events.outbox.delay")
+                .description("Time from a drone event being created to its delivery")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        Long left = jdbcTemplate.queryForObject("select count(*) from drone_outbox_event", Long.class);
+        pending.set(left == null ? 0 : left);
+        running = true;
+        relay = Thread.ofPlatform().name("drone-outbox-relay").daemon().start(this::runRelay);
+    }
+
+    /**
+     * Stops the relay thread and makes a last attempt to deliver what has been committed.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        relayRequests.release();
+        try {
+            relay.join(pollInterval.toMillis() * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            while (relay() == batchSize) {
+                // Keep going until the outbox is empty
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Drone events left in the outbox on shutdown", e);
+        }
+    }
+
+    @Override
+    public void append(DroneEvent event) {
+        appendAll(List.of(event));
+    }
+
+    @Override
+    public void appendAll(List<DroneEvent> events) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Drone events can only be appended within a transaction");
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.type().name());
+            ps.setLong(2, event.droneId());
+            ps.setString(3, name(event.state()));
+            ps.setString(4, name(event.previousState()));
+            ps.setInt(5, event.batteryLevel());
+            ps.setLong(6, event.timestamp());
+        });
+        TransactionHooks.afterCommit(() -> {
+            pending.addAndGet(events.size());
+            relayRequests.release();
+        });
+    }
+
+    @Override
+    public int relay() {
+        relayLock.lock();
+        try {
+            List<Long> ids = new ArrayList<>(batchSize);
+            List<DroneEvent> events = jdbcTemplate.query(SELECT_EVENTS, (rs, rowNum) -> {
+                ids.add(rs.getLong("id"));
+                return toEvent(rs);
+            }, batchSize);
+            if (events.isEmpty()) {
+                oldestPendingTimestamp = 0;
+                return 0;
+            }
+            oldestPendingTimestamp = events.getFirst().timestamp();
+            sink.deliver(events);
+            // Deleted by ID, since an event with a lower ID may have been committed after this batch was read
+            jdbcTemplate.batchUpdate(DELETE_EVENT, ids.stream().map(id -> new Object[]{id}).toList());
+            pending.updateAndGet(count -> Math.max(0, count - events.size()));
+            if (events.size() < batchSize) {
+                oldestPendingTimestamp = 0;
+            }
+
+            long now = System.currentTimeMillis();
+            events.forEach(event -> deliveryDelay.record(now - event.timestamp(), TimeUnit.MILLISECONDS));
+            relayedEvents.increment(events.size());
+            return events.size();
+        } finally {
+            relayLock.unlock();
+        }
+    }
+
+    private void runRelay() {
+        while (running) {
+            try {
+                relayRequests.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                relayRequests.drainPermits();
+                while (running && relay() == batchSize) {
+                    // A full batch means more events are probably waiting
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                failedBatches.increment();
+                logger.error("Could not relay drone events, retrying in {}", pollInterval, e);
+                pause();
+            }
+        }
+    }
+
+    /**
+     * Waits for one poll interval after a failure, then asks for the batch to be retried straight away.
+     */
+    private void pause() {
+        try {
+            Thread.sleep(pollInterval);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        relayRequests.release();
+    }
+
+    private double oldestPendingAge() {
+        long oldest = oldestPendingTimestamp;
+        return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    private static DroneEvent toEvent(ResultSet rs) throws SQLException {
+        return new DroneEvent(DroneEvent.Type.valueOf(rs.getString("event_type")), rs.getLong("drone_id"),
+                state(rs.getString("state")), state(rs.getString("previous_state")), rs.getInt("battery_level"),
+                rs.getLong("event_timestamp"));
+    }
+
+    private static String name(State state) {
+        return state == null ? null : state.name();
+    }
+
+    private static State state(String name) {
+        return name == null ? null : State.valueOf(name);
+    }
+}
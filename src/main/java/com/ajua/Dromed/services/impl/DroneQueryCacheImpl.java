@@ -0,0 +1,47 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.config.CacheConfig;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
+import com.ajua.Dromed.utils.TransactionHooks;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Consumer;
+
+/**
+ * {@link DroneQueryCache} working on the caches of {@link CacheConfig}.
+ */
+@Service
+public class DroneQueryCacheImpl implements DroneQueryCache {
+
+    private final CacheManager cacheManager;
+
+    public DroneQueryCacheImpl(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void evictAvailableDrones() {
+        evict(CacheConfig.AVAILABLE_DRONES, Cache::clear);
+    }
+
+    @Override
+    public void evictMedicationsByDrone(Long droneId) {
+        evict(CacheConfig.DRONE_MEDICATIONS, cache -> cache.evict(droneId));
+    }
+
+    @Override
+    public void evictAllMedicationsByDrone() {
+        evict(CacheConfig.DRONE_MEDICATIONS, Cache::clear);
+    }
+
+    private void evict(String cacheName, Consumer<Cache> eviction) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return;
+        }
+        eviction.accept(cache);
+        TransactionHooks.afterCommit(() -> eviction.accept(cache));
+    }
+}
@@ -1,32 +1,54 @@
 package com.ajua.Dromed.services.impl;
 
+import com.ajua.Dromed.config.CacheConfig;
+import com.ajua.Dromed.dtos.DroneBatteryLevel;
 import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.dtos.DroneManifestDTO;
 import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.BatteryLevelPageDTO;
+import com.ajua.Dromed.dtos.DronePageDTO;
 import com.ajua.Dromed.dtos.MedicationDTO;
 import com.ajua.Dromed.enums.Model;
 import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.enums.TransitionOutcome;
 import com.ajua.Dromed.exceptions.DroneNotAvailableException;
+import com.ajua.Dromed.exceptions.OverweightException;
 import com.ajua.Dromed.exceptions.ResourceNotFoundException;
 import com.ajua.Dromed.models.Drone;
 import com.ajua.Dromed.models.DroneMedication;
 import com.ajua.Dromed.models.Medication;
 import com.ajua.Dromed.repository.DroneMedicationRepository;
 import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import com.ajua.Dromed.services.interfaces.DroneDispatchIndex;
+import com.ajua.Dromed.services.interfaces.DroneEventOutbox;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
 import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.FleetJournal;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
 import com.ajua.Dromed.services.patterns.DroneFactory;
 import com.ajua.Dromed.utils.DTOConverter;
-import io.github.resilience4j.bulkhead.annotation.Bulkhead;
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
-import io.github.resilience4j.retry.annotation.Retry;
-import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
+import com.ajua.Dromed.utils.TransactionHooks;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
 
 import java.util.stream.Collectors;
 
@@ -38,16 +60,44 @@ import java.util.stream.Collectors;
 public class DroneServiceImpl extends AbstractDroneService implements DroneService {
     private final DroneRepository droneRepository;
     private final DroneMedicationRepository droneMedicationRepository;
+    private final MedicationCatalog medicationCatalog;
+    private final DroneDispatchIndex dispatchIndex;
+    private final DroneQueryCache droneQueryCache;
+    private final BatteryReadingRegistry batteryReadingRegistry;
+    private final BatteryDischargeEstimator batteryDischargeEstimator;
+    private final DroneEventOutbox droneEventOutbox;
+    private final FleetStatusStream fleetStatusStream;
+    private final FleetJournal fleetJournal;
 
     /**
      * Constructor for DroneServiceImpl.
      *
      * @param droneRepository The drone repository.
      * @param droneMedicationRepository The drone medication repository.
+     * @param medicationCatalog The catalog the loaded medications are resolved from.
+     * @param dispatchIndex The index of idle drones used to pick a drone for loading.
+     * @param droneQueryCache The cached query results to invalidate when drones change.
+     * @param batteryReadingRegistry The latest battery readings, including those that were not persisted.
+     * @param batteryDischargeEstimator The predicted discharge of the drones, to leave out those that would not last a trip.
+     * @param droneEventOutbox Records the state changes of the drones for downstream systems, in the transaction of the change.
+     * @param fleetStatusStream Pushes the state changes to the clients following the fleet.
+     * @param fleetJournal Records the changed drones and loaded medications so the fleet survives a restart.
      */
-    public DroneServiceImpl(DroneRepository droneRepository, DroneMedicationRepository droneMedicationRepository) {
+    public DroneServiceImpl(DroneRepository droneRepository, DroneMedicationRepository droneMedicationRepository,
+                            MedicationCatalog medicationCatalog, DroneDispatchIndex dispatchIndex,
+                            DroneQueryCache droneQueryCache, BatteryReadingRegistry batteryReadingRegistry,
+                            BatteryDischargeEstimator batteryDischargeEstimator, DroneEventOutbox droneEventOutbox,
+                            FleetStatusStream fleetStatusStream, FleetJournal fleetJournal) {
         this.droneRepository = droneRepository;
         this.droneMedicationRepository = droneMedicationRepository;
+        this.medicationCatalog = medicationCatalog;
+        this.dispatchIndex = dispatchIndex;
+        this.droneQueryCache = droneQueryCache;
+        this.batteryReadingRegistry = batteryReadingRegistry;
+        this.batteryDischargeEstimator = batteryDischargeEstimator;
+        this.droneEventOutbox = droneEventOutbox;
+        this.fleetStatusStream = fleetStatusStream;
+        this.fleetJournal = fleetJournal;
     }
 
     /**
@@ -62,23 +112,19 @@ public class DroneServiceImpl extends AbstractDroneService implements DroneServi
      */
     @Override
     @Transactional
-    @Retry(name = "registerDrone", fallbackMethod = "registerDroneFallback")
-    @CircuitBreaker(name = "registerDrone", fallbackMethod = "registerDroneFallback")
-    @RateLimiter(name = "registerDrone", fallbackMethod = "registerDroneFallback")
-    @Bulkhead(name = "registerDrone", fallbackMethod = "registerDroneFallback")
-    @TimeLimiter(name = "default", fallbackMethod = "registerDroneFallback")
     public DroneDTO registerDrone(String serialNumber, Model model, int weightLimit, int batteryCapacity, State state) {
         Drone drone = DroneFactory.createDrone(serialNumber, model, weightLimit, batteryCapacity, state);
-        droneRepository.save(drone);
-        return DTOConverter.toDroneDTO(drone);
-    }
-
-    public DroneDTO registerDroneFallback(String serialNumber, Model model, int weightLimit, int batteryCapacity, State state, Throwable t) {
-        return new DroneDTO(0L, "defaultSerial", model, weightLimit, batteryCapacity, State.IDLE);
+        Drone savedDrone = droneRepository.save(drone);
+        syncDispatchIndex(savedDrone, null);
+        return DTOConverter.toDroneDTO(savedDrone);
     }
 
     /**
      * Loads a drone with medication.
+     * The drone is claimed from the dispatch index, which picks the idle drone with the smallest remaining capacity
+     * that can still carry the medication, and then moved from IDLE to LOADING with a conditional update,
+     * so two concurrent requests can never load the same drone.
+     * The medication is referenced by its code and resolved from the medication catalog.
      *
      * @param id
      * @param medicationDTO The medication DTO.
@@ -86,51 +132,138 @@ public class DroneServiceImpl extends AbstractDroneService implements DroneServi
      */
     @Override
     @Transactional
-    @Retry(name = "loadDroneWithMedication", fallbackMethod = "loadDroneWithMedicationFallback")
-    @CircuitBreaker(name = "loadDroneWithMedication", fallbackMethod = "loadDroneWithMedicationFallback")
-    @RateLimiter(name = "loadDroneWithMedication", fallbackMethod = "loadDroneWithMedicationFallback")
-    @Bulkhead(name = "loadDroneWithMedication", fallbackMethod = "loadDroneWithMedicationFallback")
-    @TimeLimiter(name = "default", fallbackMethod = "loadDroneWithMedicationFallback")
     public DroneMedicationDTO loadDroneWithMedication(Long id, MedicationDTO medicationDTO) {
-        Medication medication = new Medication.Builder()
-                .id(medicationDTO.getId())
-                .name(medicationDTO.getName())
-                .weight(medicationDTO.getWeight())
-                .code(medicationDTO.getCode())
-                .imageUrl(medicationDTO.getImageUrl())
-                .build();
-
-        List<Drone> availableDrones = droneRepository.findByState(State.IDLE);
-
-        if (availableDrones.isEmpty()) {
-            throw new DroneNotAvailableException("No available drones for loading");
+        Medication medication = toMedication(medicationDTO);
+
+        DroneMedication droneMedication = loadOntoIdleDrone(List.of(medication), drone -> {
+            DroneMedication loaded = new DroneMedication(drone, medication);
+            droneMedicationRepository.save(loaded);
+            return List.of(loaded);
+        }).getFirst();
+
+        return DTOConverter.toDroneMedicationDTO(droneMedication);
+    }
+
+    /**
+     * Loads a drone with a whole manifest of medications in one transaction.
+     * The manifest is validated once, its cumulative weight is checked against the drone's remaining capacity,
+     * and all drone medication rows are inserted as a single JDBC batch.
+     * Medications are referenced by their code and resolved from the medication catalog.
+     *
+     * @param id
+     * @param medicationDTOs The medications of the manifest.
+     * @return The loaded drone together with the medications of the manifest.
+     * @throws IllegalArgumentException if the manifest is empty.
+     */
+    @Override
+    @Transactional
+    public DroneManifestDTO loadDroneWithManifest(Long id, List<MedicationDTO> medicationDTOs) {
+        if (medicationDTOs == null || medicationDTOs.isEmpty()) {
+            throw new IllegalArgumentException("Manifest must contain at least one medication");
         }
+        List<Medication> medications = medicationDTOs.stream()
+                .map(this::toMedication)
+                .collect(Collectors.toList());
 
-        Drone drone = availableDrones.getFirst();
+        List<DroneMedication> droneMedications = loadOntoIdleDrone(medications, drone ->
+                droneMedicationRepository.saveAll(medications.stream()
+                        .map(medication -> new DroneMedication(drone, medication))
+                        .collect(Collectors.toList())));
 
-        validateLoadingConditions(drone, medication);
+        return new DroneManifestDTO(DTOConverter.toDroneDTO(droneMedications.getFirst().getDrone()),
+                medications.stream().map(DTOConverter::toMedicationDTO).collect(Collectors.toList()));
+    }
 
-        drone.setState(State.LOADING);
-        droneRepository.save(drone);
+    /**
+     * Claims an idle drone for the given medications, validates the load and attaches the medications to it.
+     * If the transaction rolls back, the claim puts the drone back into the dispatch index.
+     *
+     * @param medications The medications to load.
+     * @param attach Creates the drone medication rows for the claimed drone.
+     * @return The drone medication rows created by {@code attach}.
+     */
+    private List<DroneMedication> loadOntoIdleDrone(List<Medication> medications,
+                                                    Function<Drone, List<DroneMedication>> attach) {
+        int payloadWeight = getTotalWeight(medications);
+        Drone drone = claimDrone(payloadWeight);
+        int loadedWeight = drone.getLoadedWeight();
+        int loadedItems = drone.getLoadedItems();
+
+        validateLoadingConditions(drone, medications);
+
+        if (droneRepository.addPayload(drone.getId(), payloadWeight, medications.size()) == 0) {
+            throw new OverweightException("Weight limit exceeded");
+        }
+        drone.setLoadedWeight(loadedWeight + payloadWeight);
+        drone.setLoadedItems(loadedItems + medications.size());
 
-        DroneMedication droneMedication = new DroneMedication(drone, medication);
-        droneMedicationRepository.save(droneMedication);
+        List<DroneMedication> droneMedications = attach.apply(drone);
+        fleetJournal.droneMedicationsChanged(droneMedications.stream().map(DroneMedication::getId).toList());
+        droneQueryCache.evictMedicationsByDrone(drone.getId());
 
         drone.setState(State.LOADED);
         droneRepository.save(drone);
+        publishStateChange(drone, State.LOADING);
 
-        return DTOConverter.toDroneMedicationDTO(droneMedication);
+        return droneMedications;
     }
 
     /**
-     * Fallback method for loadDroneWithMedication in case of failure.
+     * Resolves the medication of a request from the catalog by its code.
+     * Name, weight and image always come from the catalog entry, whatever the client sent.
+     */
+    private Medication toMedication(MedicationDTO medicationDTO) {
+        return medicationCatalog.getByCode(medicationDTO.getCode());
+    }
+
+    /**
+     * Claims an idle drone able to carry the given payload and moves it to LOADING.
+     * Candidates come from the dispatch index, which hands a different drone to each concurrent caller;
+     * the conditional update then makes the claim safe against other instances or a stale index entry.
+     * Drones already below the minimum battery level, or predicted to drop below it during a trip, are passed over.
+     * Once the transaction rolls back, including when the commit itself fails, the drone goes back into the index.
+     * A claim made outside a transaction is never returned to the index, so callers must run inside one.
      *
-     * @param medicationDTO The medication DTO.
-     * @param t The throwable that caused the fallback.
-     * @return A default DroneMedicationDTO.
+     * @param payloadWeight The weight that has to be carried.
+     * @return The claimed drone, in the LOADING state.
+     * @throws OverweightException if no idle drone can carry the payload.
+     * @throws DroneNotAvailableException if there are no idle drones, or none with enough battery for a trip.
      */
-    public DroneMedicationDTO loadDroneWithMedicationFallback(MedicationDTO medicationDTO, Throwable t) {
-        return new DroneMedicationDTO();
+    private Drone claimDrone(int payloadWeight) {
+        boolean[] lowBattery = new boolean[1];
+        LongPredicate lastsTrip = droneId -> {
+            boolean lasts = batteryDischargeEstimator.canCompleteTrip(droneId);
+            lowBattery[0] |= !lasts;
+            return lasts;
+        };
+        Optional<Long> candidate;
+        while ((candidate = dispatchIndex.claim(payloadWeight, lastsTrip)).isPresent()) {
+            Long droneId = candidate.get();
+            if (droneRepository.transitionState(droneId, State.IDLE, State.LOADING) == 1) {
+                Drone drone = droneRepository.findById(droneId)
+                        .orElseThrow(() -> new DroneNotAvailableException("No available drones for loading"));
+                int loadedWeight = drone.getLoadedWeight();
+                int loadedItems = drone.getLoadedItems();
+                TransactionHooks.afterRollback(() -> {
+                    drone.setState(State.IDLE);
+                    drone.setLoadedWeight(loadedWeight);
+                    drone.setLoadedItems(loadedItems);
+                    dispatchIndex.add(drone);
+                });
+                drone.setState(State.LOADING);
+                droneQueryCache.evictAvailableDrones();
+                publishStateChange(drone, State.IDLE);
+                return drone;
+            }
+            // The drone is no longer idle, so its index entry was stale; try the next best fit
+        }
+        if (lowBattery[0]) {
+            throw new DroneNotAvailableException("No available drones with enough battery for the trip");
+        }
+        if (dispatchIndex.size() > 0) {
+            throw new OverweightException("Weight limit exceeded");
+        }
+        throw new DroneNotAvailableException("No available drones for loading");
     }
 
     /**
@@ -140,30 +273,78 @@ public class DroneServiceImpl extends AbstractDroneService implements DroneServi
      * @return A list of MedicationDTOs loaded on the drone.
      */
     @Override
-    @Cacheable(cacheNames = "getAvailableDrones")
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.DRONE_MEDICATIONS, key = "#droneId")
     public List<MedicationDTO> getMedicationsByDrone(Long droneId) {
-        return droneMedicationRepository.findByDroneId(droneId)
-                .stream()
-                .map(dm -> DTOConverter.toMedicationDTO(dm.getMedication()))
-                .collect(Collectors.toList());
+        return droneMedicationRepository.findMedicationsByDroneId(droneId);
     }
 
     /**
-     * Gets all available drones.
+     * Gets the medications loaded on each of several drones.
+     * The drones are read with one joined query per {@link #IN_LIST_CHUNK_SIZE} IDs, so the IN list stays bounded
+     * however many drones the dashboard asks for, and Hibernate pads the lists so that few query plans are cached.
      *
-     * @return A list of available DroneDTOs.
+     * @param droneIds The IDs of the drones. Duplicates are ignored.
+     * @return The medications of each drone, keyed by drone ID in the order requested; empty for drones without medications.
+     * @throws IllegalArgumentException if no IDs or more than {@link #MAX_BULK_DRONES} IDs are given.
      */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, List<MedicationDTO>> getMedicationsByDrones(Collection<Long> droneIds) {
+        List<Long> ids = distinctDroneIds(droneIds);
+        Map<Long, List<MedicationDTO>> medications = new LinkedHashMap<>();
+        ids.forEach(id -> medications.put(id, new ArrayList<>()));
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size()));
+            droneMedicationRepository.findMedicationsByDroneIdIn(chunk)
+                    .forEach(row -> medications.get(row.droneId()).add(row.medication()));
+        }
+        return medications;
+    }
 
+    /**
+     * Gets one page of drones, optionally filtered by state and model, ordered by ID.
+     * One row more than the page is read, to tell whether another page follows without a count query.
+     * Pages of idle drones are cached, since the control room polls them; they are evicted whenever an idle drone changes.
+     *
+     * @param state Only drones in this state, or null for any state.
+     * @param model Only drones of this model, or null for any model.
+     * @param cursor The ID of the last drone of the previous page, or null for the first page.
+     * @param limit The number of drones per page. Larger values are capped at {@link #MAX_PAGE_SIZE}.
+     * @return The page.
+     * @throws IllegalArgumentException if the limit is not positive.
+     */
     @Override
-    @Cacheable(cacheNames = "getAvailableDrones")
-    public List<DroneDTO> getAvailableDrones(State state) {
-        return droneRepository.findByState(State.IDLE)
-                .stream()
-                .map(DTOConverter::toDroneDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.AVAILABLE_DRONES, key = "{#model, #cursor, #limit}",
+            condition = "#state == T(com.ajua.Dromed.enums.State).IDLE")
+    public DronePageDTO getDrones(State state, Model model, Long cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        long after = cursor != null ? cursor : 0L;
+        Limit fetch = Limit.of(pageSize + 1);
+
+        List<DroneDTO> drones;
+        if (state != null && model != null) {
+            drones = droneRepository.findPageByStateAndModel(state, model, after, fetch);
+        } else if (state != null) {
+            drones = droneRepository.findPageByState(state, after, fetch);
+        } else if (model != null) {
+            drones = droneRepository.findPageByModel(model, after, fetch);
+        } else {
+            drones = droneRepository.findPage(after, fetch);
+        }
+
+        boolean hasMore = drones.size() > pageSize;
+        List<DroneDTO> page = hasMore ? drones.subList(0, pageSize) : drones;
+        return new DronePageDTO(page, hasMore ? page.getLast().getId() : null);
     }
+
     /**
      * Checks the battery level of a specific drone.
+     * Returns the latest reading, even if it was within the dead-band and not persisted.
      *
      * @param droneId The ID of the drone.
      * @return The battery level of the drone.
@@ -171,23 +352,75 @@ public class DroneServiceImpl extends AbstractDroneService implements DroneServi
      */
     @Override
     public int checkDroneBatteryLevel(Long droneId) {
+        Optional<Integer> latestLevel = batteryReadingRegistry.getLatestLevel(droneId);
+        if (latestLevel.isPresent()) {
+            return latestLevel.get();
+        }
         return droneRepository.findById(droneId)
                 .map(Drone::getBatteryCapacity)
                 .orElseThrow(() -> new ResourceNotFoundException("Drone not found"));
     }
 
     /**
-     * Gets the total loaded weight on a specific drone.
+     * Checks the battery levels of several drones.
+     * Levels are answered from the latest readings kept in memory; only drones that have not been read since startup
+     * are looked up in the database, with one query per {@link #IN_LIST_CHUNK_SIZE} of them.
      *
-     * @param droneId The ID of the drone.
-     * @return The total loaded weight.
+     * @param droneIds The IDs of the drones. Duplicates are ignored.
+     * @return The battery level of each known drone, keyed by drone ID in the order requested. Unknown drones are left out.
+     * @throws IllegalArgumentException if no IDs or more than {@link #MAX_BULK_DRONES} IDs are given.
      */
     @Override
-    public int getTotalLoadedWeight(Long droneId) {
-        return droneMedicationRepository.findByDroneId(droneId)
-                .stream()
-                .mapToInt(dm -> dm.getMedication().getWeight())
-                .sum();
+    public Map<Long, Integer> checkDroneBatteryLevels(Collection<Long> droneIds) {
+        List<Long> ids = distinctDroneIds(droneIds);
+        Map<Long, Integer> latestLevels = batteryReadingRegistry.getLatestLevels(ids);
+
+        Map<Long, Integer> storedLevels = new HashMap<>();
+        List<Long> unread = ids.stream().filter(id -> !latestLevels.containsKey(id)).toList();
+        for (int from = 0; from < unread.size(); from += IN_LIST_CHUNK_SIZE) {
+            droneRepository.findBatteryLevelsByIdIn(unread.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, unread.size())))
+                    .forEach(level -> storedLevels.put(level.droneId(), level.batteryLevel()));
+        }
+
+        Map<Long, Integer> levels = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Integer level = latestLevels.containsKey(id) ? latestLevels.get(id) : storedLevels.get(id);
+            if (level != null) {
+                levels.put(id, level);
+            }
+        }
+        return levels;
+    }
+
+    /**
+     * Checks the battery levels of the drones in a state, one keyset page at a time like {@link #getDrones}.
+     * The drones of the page are read from the database in one query, together with their stored levels,
+     * and the latest readings kept in memory take precedence over the stored levels.
+     *
+     * @param state The state of the drones.
+     * @param cursor The ID of the last drone of the previous page, or null for the first page.
+     * @param limit The number of drones per page. Larger values are capped at {@link #MAX_PAGE_SIZE}.
+     * @return The page, with the battery level of each drone keyed by drone ID in ID order.
+     * @throws IllegalArgumentException if the limit is not positive.
+     */
+    @Override
+    public BatteryLevelPageDTO checkDroneBatteryLevels(State state, Long cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        List<DroneBatteryLevel> storedLevels = droneRepository.findBatteryLevelsByState(state,
+                cursor != null ? cursor : 0L, Limit.of(pageSize + 1));
+        boolean hasMore = storedLevels.size() > pageSize;
+        List<DroneBatteryLevel> page = hasMore ? storedLevels.subList(0, pageSize) : storedLevels;
+        Map<Long, Integer> latestLevels = batteryReadingRegistry.getLatestLevels(
+                page.stream().map(DroneBatteryLevel::droneId).toList());
+
+        Map<Long, Integer> levels = new LinkedHashMap<>();
+        for (DroneBatteryLevel stored : page) {
+            levels.put(stored.droneId(), latestLevels.getOrDefault(stored.droneId(), stored.batteryLevel()));
+        }
+        return new BatteryLevelPageDTO(levels, hasMore ? page.getLast().droneId() : null);
     }
 
     /**
@@ -200,15 +433,11 @@ public class DroneServiceImpl extends AbstractDroneService implements DroneServi
     @Override
     @Transactional
     public void startDelivery(Long droneId) {
-        Drone drone = droneRepository.findById(droneId)
-                .orElseThrow(() -> new ResourceNotFoundException("Drone not found"));
+        Drone drone = findForTransition(droneId);
 
-        if (!drone.getState().equals(State.LOADED)) {
+        if (!drone.getState().canMoveTo(State.DELIVERING) || !moveDrone(drone, State.DELIVERING)) {
             throw new IllegalStateException("Drone is not ready for delivery");
         }
-
-        drone.setState(State.DELIVERING);
-        droneRepository.save(drone);
     }
 
     /**
@@ -221,19 +450,16 @@ public class DroneServiceImpl extends AbstractDroneService implements DroneServi
     @Override
     @Transactional
     public void completeDelivery(Long droneId) {
-        Drone drone = droneRepository.findById(droneId)
-                .orElseThrow(() -> new ResourceNotFoundException("Drone not found"));
+        Drone drone = findForTransition(droneId);
 
-        if (!drone.getState().equals(State.DELIVERING)) {
+        // The medications have been handed over, so the next trip starts with an empty payload
+        if (!drone.getState().canMoveTo(State.DELIVERED) || !moveDrone(drone, State.DELIVERED)) {
             throw new IllegalStateException("Drone is not delivering");
         }
-
-        drone.setState(State.DELIVERED);
-        droneRepository.save(drone);
     }
 
     /**
-     * Returns a specific drone to its base.
+     * Returns a specific drone to its base, where it is idle and can be dispatched again.
      *
      * @param droneId The ID of the drone.
      * @throws ResourceNotFoundException if the drone is not found.
@@ -242,38 +468,209 @@ public class DroneServiceImpl extends AbstractDroneService implements DroneServi
     @Override
     @Transactional
     public void returnToBase(Long droneId) {
-        Drone drone = droneRepository.findById(droneId)
-                .orElseThrow(() -> new ResourceNotFoundException("Drone not found"));
+        Drone drone = findForTransition(droneId);
 
-        if (!drone.getState().equals(State.DELIVERED)) {
+        if (!drone.getState().canMoveTo(State.IDLE) || !moveDrone(drone, State.IDLE)) {
             throw new IllegalStateException("Drone is not in a state to return");
         }
-
-        drone.setState(State.RETURNING);
-        droneRepository.save(drone);
-
-        drone.setState(State.IDLE);
-        droneRepository.save(drone);
     }
 
     /**
-     * Marks a drone as idle if it is returning to base.
+     * Moves a drone to a state, if {@link State} allows the transition from its current state outside the load flow.
      *
      * @param droneId The ID of the drone.
-     * @return ResponseEntity indicating the result of the operation.
+     * @return ResponseEntity indicating the result of the operation: 409 Conflict if the transition is not allowed,
+     *         which includes any move to LOADING or LOADED, or if the drone changed state while it was being moved.
      */
     @Transactional
     public ResponseEntity<Object> updateDroneState(Long droneId, State state) {
-        return droneRepository.findById(droneId)
+        if (state == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return droneRepository.findForTransitionById(droneId)
                 .map(drone -> {
-                    if (state == State.IDLE && drone.getState() != State.RETURNING) {
+                    if (!drone.getState().canMoveDirectlyTo(state) || !moveDrone(drone, state)) {
                         return ResponseEntity.status(HttpStatus.CONFLICT).build();
                     }
-                    drone.setState(state);
-                    droneRepository.save(drone);
                     return ResponseEntity.ok().build();
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Moves several drones to a state at once.
+     * The drones are read and locked with one query per {@link #IN_LIST_CHUNK_SIZE} IDs, and checked against the
+     * transitions allowed by {@link State}. The movable drones are then moved with one conditional update per source
+     * state and chunk, whatever their number, and their state changes are appended to the outbox in one batch.
+     *
+     * @param droneIds The IDs of the drones. Duplicates are ignored.
+     * @param state The state to move the drones to.
+     * @return What happened to each drone, keyed by drone ID in the order requested.
+     * @throws IllegalArgumentException if the state is missing, LOADING or LOADED, or if no IDs or more than
+     *         {@link #MAX_BULK_DRONES} IDs are given.
+     */
+    @Override
+    @Transactional
+    public Map<Long, TransitionOutcome> transitionDrones(Collection<Long> droneIds, State state) {
+        if (state == null || !state.isDirectTarget()) {
+            throw new IllegalArgumentException("Drones can only be moved to DELIVERING, DELIVERED, RETURNING or IDLE");
+        }
+        List<Long> ids = distinctDroneIds(droneIds);
+        Map<Long, TransitionOutcome> outcomes = new LinkedHashMap<>();
+        ids.forEach(id -> outcomes.put(id, TransitionOutcome.NOT_FOUND));
+
+        Map<State, List<Drone>> movableBySource = new EnumMap<>(State.class);
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            for (Drone drone : droneRepository.findForTransitionByIdIn(ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size())))) {
+                if (drone.getState().canMoveDirectlyTo(state)) {
+                    movableBySource.computeIfAbsent(drone.getState(), source -> new ArrayList<>()).add(drone);
+                } else {
+                    outcomes.put(drone.getId(), TransitionOutcome.CONFLICT);
+                }
+            }
+        }
+
+        List<DroneEvent> events = new ArrayList<>();
+        long timestamp = System.currentTimeMillis();
+        movableBySource.forEach((source, drones) -> {
+            for (int from = 0; from < drones.size(); from += IN_LIST_CHUNK_SIZE) {
+                List<Long> chunk = drones.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, drones.size())).stream()
+                        .map(Drone::getId)
+                        .toList();
+                // The drones were locked when read, so every one of them is still in the source state
+                int moved = state == State.DELIVERED
+                        ? droneRepository.transitionStatesAndUnload(chunk, source, state)
+                        : droneRepository.transitionStates(chunk, source, state);
+                if (moved != chunk.size()) {
+                    throw new IllegalStateException("Drones changed state during a bulk transition");
+                }
+                if (state == State.DELIVERED) {
+                    markMedicationsDelivered(chunk);
+                }
+            }
+            for (Drone drone : drones) {
+                drone.setState(state);
+                if (state == State.DELIVERED) {
+                    drone.setLoadedWeight(0);
+                    drone.setLoadedItems(0);
+                }
+                outcomes.put(drone.getId(), TransitionOutcome.MOVED);
+                events.add(new DroneEvent(DroneEvent.Type.STATE_CHANGED, drone.getId(), state, source,
+                        drone.getBatteryCapacity(), timestamp));
+                updateDispatchIndex(drone);
+            }
+        });
+
+        if (!events.isEmpty()) {
+            droneEventOutbox.appendAll(events);
+            fleetJournal.dronesChanged(events.stream().map(DroneEvent::droneId).toList());
+            TransactionHooks.afterCommit(() -> events.forEach(fleetStatusStream::publish));
+            if (state == State.IDLE) {
+                droneQueryCache.evictAvailableDrones();
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Reads a drone for a single-drone transition.
+     *
+     * @param droneId The ID of the drone.
+     * @return The drone, detached.
+     * @throws ResourceNotFoundException if the drone is not found.
+     */
+    private Drone findForTransition(Long droneId) {
+        return droneRepository.findForTransitionById(droneId)
+                .orElseThrow(() -> new ResourceNotFoundException("Drone not found"));
+    }
+
+    /**
+     * Moves a drone from the state it was read in to a new state with a conditional update, like a bulk transition does,
+     * so that a change committed by another transaction since the drone was read is never overwritten.
+     * Moving to DELIVERED also empties the payload and marks its medications delivered.
+     *
+     * @param drone The drone, as read by {@link #findForTransition}.
+     * @param target The state to move to.
+     * @return Whether the drone was still in the state it was read in, and has been moved.
+     */
+    private boolean moveDrone(Drone drone, State target) {
+        State previousState = drone.getState();
+        int moved = target == State.DELIVERED
+                ? droneRepository.transitionStatesAndUnload(List.of(drone.getId()), previousState, target)
+                : droneRepository.transitionState(drone.getId(), previousState, target);
+        if (moved == 0) {
+            return false;
+        }
+        drone.setState(target);
+        if (target == State.DELIVERED) {
+            drone.setLoadedWeight(0);
+            drone.setLoadedItems(0);
+            markMedicationsDelivered(List.of(drone.getId()));
+        }
+        syncDispatchIndex(drone, previousState);
+        return true;
+    }
+
+    /**
+     * Marks the medications loaded on unloaded drones as delivered, so the medication lookups describe the same,
+     * empty payload as the counters that were reset with them. The rows are kept as the record of past trips.
+     *
+     * @param droneIds The IDs of the drones, at most {@link #IN_LIST_CHUNK_SIZE}.
+     */
+    private void markMedicationsDelivered(List<Long> droneIds) {
+        List<Long> ids = droneMedicationRepository.findUndeliveredIdsByDroneIdIn(droneIds);
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+            droneMedicationRepository.markDelivered(ids.subList(from, Math.min(from + IN_LIST_CHUNK_SIZE, ids.size())));
+        }
+        if (!ids.isEmpty()) {
+            fleetJournal.droneMedicationsChanged(ids);
+        }
+        droneIds.forEach(droneQueryCache::evictMedicationsByDrone);
+    }
+
+    /**
+     * Keeps the dispatch index and the available drones cache in line with the state of a drone, and publishes the change.
+     *
+     * @param drone The drone whose state has changed.
+     * @param previousState The state the drone was in before, or null for a new drone.
+     */
+    private void syncDispatchIndex(Drone drone, State previousState) {
+        publishStateChange(drone, previousState);
+        if (drone.getState() == State.IDLE || previousState == State.IDLE) {
+            droneQueryCache.evictAvailableDrones();
+        }
+        updateDispatchIndex(drone);
+    }
+
+    /**
+     * Keeps the dispatch index in line with the state of a drone.
+     * A drone that stops being idle is removed straight away so it cannot be claimed any more,
+     * while a drone that becomes idle is only offered once the change has been committed.
+     *
+     * @param drone The drone whose state has changed.
+     */
+    private void updateDispatchIndex(Drone drone) {
+        if (drone.getState() == State.IDLE) {
+            TransactionHooks.afterCommit(() -> dispatchIndex.add(drone));
+        } else {
+            dispatchIndex.remove(drone.getId());
+        }
+    }
+
+    /**
+     * Records a state change in the outbox, so it is published if and only if the transaction commits,
+     * and pushes it to the fleet status stream once committed.
+     * Every change to a drone goes with a state change, so this is also where the drone is recorded in the fleet journal.
+     *
+     * @param drone The drone whose state has changed.
+     * @param previousState The state the drone was in before, or null for a new drone.
+     */
+    private void publishStateChange(Drone drone, State previousState) {
+        DroneEvent event = new DroneEvent(DroneEvent.Type.STATE_CHANGED, drone.getId(), drone.getState(), previousState,
+                drone.getBatteryCapacity(), System.currentTimeMillis());
+        droneEventOutbox.append(event);
+        fleetJournal.dronesChanged(List.of(drone.getId()));
+        TransactionHooks.afterCommit(() -> fleetStatusStream.publish(event));
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.config.AsyncConfig;
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneManifestDTO;
+import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.exceptions.DroneServiceException;
+import com.ajua.Dromed.exceptions.DroneServiceTimeoutException;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.ratelimiter.RequestNotPermitted;
+import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
+import io.github.resilience4j.retry.annotation.Retry;
+import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * The resilience pipeline of {@link AsyncDroneServiceImpl}, one attempt of a {@link DroneService} call per invocation.
+ * Resilience4j composes the annotations as Retry(CircuitBreaker(RateLimiter(TimeLimiter(Bulkhead(call))))), so every
+ * attempt has its own deadline and bulkhead permit, and only the outermost retry has a fallback: the inner aspects see
+ * the real outcome of each attempt. Which failures are retried, and which count against the circuit breaker,
+ * is configured under {@code resilience4j.*} in application.properties.
+ * <p>
+ * Every invocation carries a {@link Call}, which each attempt registers the outcome of its {@link DroneService} call
+ * with. The time limiter gives up on an attempt while that call may still be running, and may still commit, so the
+ * timeout is reported as a {@link DroneServiceTimeoutException} that completes with the outcome of the call.
+ */
+@Component
+class DroneServicePipeline {
+
+    private final DroneService droneService;
+    private final ExecutorService executor;
+
+    DroneServicePipeline(DroneService droneService,
+                         @Qualifier(AsyncConfig.DRONE_SERVICE_EXECUTOR) ExecutorService executor) {
+        this.droneService = droneService;
+        this.executor = executor;
+    }
+
+    @Retry(name = "registerDrone", fallbackMethod = "registerDroneFallback")
+    @CircuitBreaker(name = "registerDrone")
+    @RateLimiter(name = "registerDrone")
+    @TimeLimiter(name = "registerDrone")
+    @Bulkhead(name = "registerDrone")
+    public CompletableFuture<DroneDTO> registerDrone(Call<DroneDTO> call, String serialNumber, Model model,
+                                                     int weightLimit, int batteryCapacity, State state) {
+        return supply(call, () -> droneService.registerDrone(serialNumber, model, weightLimit, batteryCapacity, state));
+    }
+
+    @Retry(name = "loadDroneWithMedication", fallbackMethod = "loadDroneWithMedicationFallback")
+    @CircuitBreaker(name = "loadDroneWithMedication")
+    @RateLimiter(name = "loadDroneWithMedication")
+    @TimeLimiter(name = "loadDroneWithMedication")
+    @Bulkhead(name = "loadDroneWithMedication")
+    public CompletableFuture<DroneMedicationDTO> loadDroneWithMedication(Call<DroneMedicationDTO> call, Long id,
+                                                                         MedicationDTO medicationDTO) {
+        return supply(call, () -> droneService.loadDroneWithMedication(id, medicationDTO));
+    }
+
+    @Retry(name = "loadDroneWithManifest", fallbackMethod = "loadDroneWithManifestFallback")
+    @CircuitBreaker(name = "loadDroneWithManifest")
+    @RateLimiter(name = "loadDroneWithManifest")
+    @TimeLimiter(name = "loadDroneWithManifest")
+    @Bulkhead(name = "loadDroneWithManifest")
+    public CompletableFuture<DroneManifestDTO> loadDroneWithManifest(Call<DroneManifestDTO> call, Long id,
+                                                                     List<MedicationDTO> medicationDTOs) {
+        return supply(call, () -> droneService.loadDroneWithManifest(id, medicationDTOs));
+    }
+
+    private CompletableFuture<DroneDTO> registerDroneFallback(Call<DroneDTO> call, String serialNumber, Model model,
+                                                              int weightLimit, int batteryCapacity, State state, Throwable t) {
+        return CompletableFuture.failedFuture(unavailable(call, t));
+    }
+
+    private CompletableFuture<DroneMedicationDTO> loadDroneWithMedicationFallback(Call<DroneMedicationDTO> call, Long id,
+                                                                                  MedicationDTO medicationDTO, Throwable t) {
+        return CompletableFuture.failedFuture(unavailable(call, t));
+    }
+
+    private CompletableFuture<DroneManifestDTO> loadDroneWithManifestFallback(Call<DroneManifestDTO> call, Long id,
+                                                                              List<MedicationDTO> medicationDTOs, Throwable t) {
+        return CompletableFuture.failedFuture(unavailable(call, t));
+    }
+
+    /**
+     * Runs a call on the executor. The future is completed with the exception of the call itself, not a
+     * {@link java.util.concurrent.CompletionException} around it, so the resilience aspects can classify it.
+     * A call whose attempt was given up by the time limiter before it started is skipped.
+     */
+    private <T> CompletableFuture<T> supply(Call<T> call, Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> outcome = new CompletableFuture<>();
+        call.outcome = outcome;
+        executor.execute(() -> {
+            if (call.timedOut) {
+                outcome.completeExceptionally(new DroneServiceException("Drone service timed out"));
+                return;
+            }
+            try {
+                T response = supplier.get();
+                outcome.complete(response);
+                future.complete(response);
+            } catch (Throwable e) {
+                outcome.completeExceptionally(e);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Replaces a rejection by the resilience pipeline, or a timeout, with a {@link DroneServiceException};
+     * other failures are the outcome of the call and are passed on unchanged.
+     */
+    private static Throwable unavailable(Call<?> call, Throwable t) {
+        if (t instanceof TimeoutException) {
+            // Timeouts are not retried, so the attempt that timed out was the last one
+            call.timedOut = true;
+            return new DroneServiceTimeoutException("Drone service timed out", call.outcome);
+        }
+        if (t instanceof CallNotPermittedException || t instanceof BulkheadFullException || t instanceof RequestNotPermitted) {
+            return new DroneServiceException("Drone service is temporarily unavailable");
+        }
+        return t;
+    }
+
+    /**
+     * One call through the pipeline, across its attempts.
+     */
+    static final class Call<T> {
+        /**
+         * The outcome of the {@link DroneService} call of the latest attempt.
+         */
+        private volatile CompletableFuture<T> outcome;
+        private volatile boolean timedOut;
+    }
+}
@@ -0,0 +1,452 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.FleetRecord;
+import com.ajua.Dromed.utils.FleetRecordCodec;
+import com.ajua.Dromed.utils.VarIntCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log of the fleet journal.
+ * <p>
+ * The log is a series of segment files named after the sequence number of their first frame. Each frame is the payload
+ * length, the CRC32C of the payload and the payload: the sequence number, the frame kind, and either the records of
+ * one transaction or the sequence number of a frame whose transaction was rolled back after it had been logged.
+ * <p>
+ * Frames are numbered when they are appended and written by a single writer thread. The writer takes every frame
+ * that is waiting, writes them with one gathering write and forces the segment once, so transactions that commit
+ * together share a single fsync (group commit). A frame is acknowledged only once it has been forced, and frames are
+ * always written in sequence order, so after a crash the log holds a prefix of the acknowledged frames.
+ */
+final class FleetLog implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetLog.class);
+
+    static final String SEGMENT_PREFIX = "wal-";
+    static final String SEGMENT_SUFFIX = ".log";
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final byte RECORDS = 0;
+    private static final byte CANCEL = 1;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong syncs = new AtomicLong();
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private long lastSequence;
+    private boolean closed;
+    private volatile IOException failure;
+    private FileChannel channel;
+    private Thread writer;
+
+    FleetLog(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Replays the log and starts the writer.
+     * A torn or corrupted frame at the end of the last segment, left by a crash, is cut off together with
+     * everything after it. Records of frames that were cancelled later in the log are skipped.
+     *
+     * @param afterSequence The sequence number up to which the changes are already in the snapshot.
+     * @param replay Receives the records of the frames after {@code afterSequence}, in log order.
+     * @return The number of frames replayed.
+     * @throws IllegalStateException if a segment other than the last one is corrupted.
+     */
+    long open(long afterSequence, Consumer<FleetRecord> replay) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(FleetLog::isSegment).forEach(file -> segments.put(firstSequenceOf(file), file));
+        }
+
+        Set<Long> cancelled = new HashSet<>();
+        long last = afterSequence;
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            boolean isLast = segment.getKey().equals(segments.lastKey());
+            last = Math.max(last, scan(segment.getValue(), isLast, (sequence, payload) -> {
+                if (payload.get() == CANCEL) {
+                    cancelled.add(VarIntCodec.readVarLong(payload));
+                }
+            }));
+        }
+
+        long[] replayed = new long[1];
+        for (Path segment : segments.values()) {
+            scan(segment, false, (sequence, payload) -> {
+                if (sequence <= afterSequence || payload.get() != RECORDS || cancelled.contains(sequence)) {
+                    return;
+                }
+                long count = VarIntCodec.readVarLong(payload);
+                for (long i = 0; i < count; i++) {
+                    replay.accept(FleetRecordCodec.read(payload));
+                }
+                replayed[0]++;
+            });
+        }
+
+        lastSequence = last;
+        Path current = segments.isEmpty() ? newSegment(last + 1) : segments.lastEntry().getValue();
+        channel = FileChannel.open(current, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        writer = Thread.ofPlatform().name("fleet-log-writer").daemon().start(this::write);
+        return replayed[0];
+    }
+
+    /**
+     * Appends the records of a transaction.
+     *
+     * @param records The row images written by the transaction.
+     * @return The sequence number of the frame, and a future completed once the frame is durable.
+     */
+    Append append(List<FleetRecord> records) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(records.size() * 32 + 8);
+        VarIntCodec.writeVarLong(body, records.size());
+        records.forEach(record -> FleetRecordCodec.write(body, record));
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        long sequence = enqueue(RECORDS, body.toByteArray(), written);
+        return new Append(sequence, written);
+    }
+
+    /**
+     * Marks a frame as rolled back, so it is skipped on replay.
+     *
+     * @param sequence The sequence number of the frame.
+     */
+    void cancel(long sequence) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(10);
+        VarIntCodec.writeVarLong(body, sequence);
+        enqueue(CANCEL, body.toByteArray(), new CompletableFuture<>());
+    }
+
+    /**
+     * Waits until every frame appended so far is durable.
+     */
+    void sync() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        appendLock.lock();
+        try {
+            checkOpen();
+            queue.add(new Marker(Marker.SYNC, lastSequence, done));
+        } finally {
+            appendLock.unlock();
+        }
+        done.join();
+    }
+
+    /**
+     * Starts a new segment. Frames appended from now on go to the new segment.
+     *
+     * @return The sequence number of the last frame of the previous segments.
+     */
+    long rotate() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        long sequence;
+        appendLock.lock();
+        try {
+            checkOpen();
+            sequence = lastSequence;
+            queue.add(new Marker(Marker.ROTATE, sequence, done));
+        } finally {
+            appendLock.unlock();
+        }
+        done.join();
+        return sequence;
+    }
+
+    /**
+     * Deletes the segments that only hold frames up to a sequence number. The current segment is kept.
+     *
+     * @param sequence The sequence number of the last frame that is no longer needed.
+     */
+    void deleteUpTo(long sequence) {
+        for (Map.Entry<Long, Path> segment : segments.headMap(segments.lastKey()).entrySet()) {
+            Long next = segments.higherKey(segment.getKey());
+            if (next == null || next - 1 > sequence) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(segment.getValue());
+                segments.remove(segment.getKey());
+            } catch (IOException e) {
+                logger.warn("Could not delete fleet log segment {}", segment.getValue(), e);
+            }
+        }
+    }
+
+    /**
+     * @return The sequence number of the last frame appended.
+     */
+    long lastSequence() {
+        appendLock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of times the log has been forced, which is less than the number of frames when commits are grouped.
+     */
+    long syncs() {
+        return syncs.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(new Marker(Marker.CLOSE, lastSequence, done));
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private long enqueue(byte kind, byte[] body, CompletableFuture<Void> written) {
+        appendLock.lock();
+        try {
+            checkOpen();
+            long sequence = ++lastSequence;
+            queue.add(new Frame(sequence, kind, body, written));
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The fleet log is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("The fleet log could not be written", failure);
+        }
+    }
+
+    /**
+     * Writer loop: writes and forces everything waiting in the queue at once, then acknowledges it.
+     * Once a write has failed nothing more is written, since the log could otherwise have a gap.
+     */
+    private void write() {
+        List<Entry> batch = new ArrayList<>();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch);
+            for (Entry entry : batch) {
+                if (failure != null) {
+                    running &= !(entry instanceof Marker marker && marker.kind() == Marker.CLOSE);
+                    entry.future().completeExceptionally(failure);
+                    continue;
+                }
+                try {
+                    if (entry instanceof Frame frame) {
+                        buffers.add(frame.encode());
+                        pending.add(frame.written());
+                        continue;
+                    }
+                    Marker marker = (Marker) entry;
+                    flush(buffers, pending);
+                    if (marker.kind() == Marker.ROTATE) {
+                        channel.close();
+                        channel = FileChannel.open(newSegment(marker.sequence() + 1), StandardOpenOption.WRITE);
+                    } else if (marker.kind() == Marker.CLOSE) {
+                        running = false;
+                    }
+                    marker.done().complete(null);
+                } catch (IOException e) {
+                    logger.error("Could not write the fleet log", e);
+                    failure = e;
+                    pending.forEach(future -> future.completeExceptionally(e));
+                    entry.future().completeExceptionally(e);
+                    pending.clear();
+                    buffers.clear();
+                }
+            }
+            try {
+                flush(buffers, pending);
+            } catch (IOException e) {
+                logger.error("Could not write the fleet log", e);
+                failure = e;
+                pending.forEach(future -> future.completeExceptionally(e));
+                pending.clear();
+                buffers.clear();
+            }
+            batch.clear();
+        }
+    }
+
+    private void flush(List<ByteBuffer> buffers, List<CompletableFuture<Void>> pending) throws IOException {
+        if (buffers.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] frames = buffers.toArray(ByteBuffer[]::new);
+        long remaining = buffers.stream().mapToLong(ByteBuffer::remaining).sum();
+        while (remaining > 0) {
+            remaining -= channel.write(frames);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        syncs.incrementAndGet();
+        pending.forEach(future -> future.complete(null));
+        buffers.clear();
+        pending.clear();
+    }
+
+    private Path newSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        Files.deleteIfExists(file);
+        Files.createFile(file);
+        segments.put(firstSequence, file);
+        return file;
+    }
+
+    /**
+     * Reads the valid frames of a segment, stopping at the first torn or corrupted frame.
+     * That frame and everything after it is cut off from the last segment; in any other segment it is an error.
+     *
+     * @return The sequence number of the last valid frame, or 0 if there is none.
+     */
+    private long scan(Path file, boolean truncate, FrameVisitor visitor) throws IOException {
+        try (FileChannel segment = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = segment.size();
+            ByteBuffer log = size == 0 ? ByteBuffer.allocate(0) : segment.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long last = 0;
+            long validSize = 0;
+            while (log.remaining() >= FRAME_HEADER_SIZE) {
+                int length = log.getInt();
+                int checksum = log.getInt();
+                if (length <= 0 || length > log.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = log.slice(log.position(), length);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                last = VarIntCodec.readVarLong(payload);
+                visitor.visit(last, payload);
+                log.position(log.position() + length);
+                validSize = log.position();
+            }
+            if (validSize < size) {
+                if (!truncate) {
+                    throw new IllegalStateException("Fleet log segment " + file + " is corrupted at offset " + validSize);
+                }
+                logger.warn("Discarding {} bytes of incomplete fleet log at the end of {}", size - validSize, file.getFileName());
+                segment.truncate(validSize);
+                segment.force(true);
+            }
+            return last;
+        }
+    }
+
+    private static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long firstSequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @param sequence The sequence number of the frame.
+     * @param written Completed once the frame is durable.
+     */
+    record Append(long sequence, CompletableFuture<Void> written) {
+    }
+
+    @FunctionalInterface
+    private interface FrameVisitor {
+        void visit(long sequence, ByteBuffer payload);
+    }
+
+    private sealed interface Entry permits Frame, Marker {
+        CompletableFuture<Void> future();
+    }
+
+    private record Frame(long sequence, byte kind, byte[] body, CompletableFuture<Void> written) implements Entry {
+
+        ByteBuffer encode() {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(body.length + 11);
+            VarIntCodec.writeVarLong(payload, sequence);
+            payload.write(kind);
+            payload.writeBytes(body);
+            byte[] bytes = payload.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+            return ByteBuffer.allocate(FRAME_HEADER_SIZE + bytes.length)
+                    .putInt(bytes.length)
+                    .putInt((int) crc.getValue())
+                    .put(bytes)
+                    .flip();
+        }
+
+        @Override
+        public CompletableFuture<Void> future() {
+            return written;
+        }
+    }
+
+    /**
+     * @param sequence The sequence number of the last frame appended before the marker.
+     */
+    private record Marker(int kind, long sequence, CompletableFuture<Void> done) implements Entry {
+        static final int SYNC = 0;
+        static final int ROTATE = 1;
+        static final int CLOSE = 2;
+
+        @Override
+        public CompletableFuture<Void> future() {
+            return done;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.FleetRecord;
+import com.ajua.Dromed.utils.FleetRecordCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot of the fleet tables, written by the fleet journal so the log can be cut.
+ * <p>
+ * The file starts with a header (magic, version, the sequence number of the last log frame the snapshot covers and
+ * the number of records), followed by the records in type order, so medications and drones come before the drone
+ * medications that reference them, and ends with a trailer holding the CRC32C of the records and the magic again.
+ * Snapshots are written to a temporary file and renamed once forced, so a crash never leaves a partial snapshot
+ * under its final name. Reading a snapshot maps the whole file and decodes the records straight from the mapping.
+ */
+final class FleetSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetSnapshot.class);
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int MAGIC = 0x464C5331; // "FLS1"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int TRAILER_SIZE = 8;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final long sequence;
+    private final long count;
+
+    private FleetSnapshot(Path file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        int trailer = buffer.capacity() - TRAILER_SIZE;
+        if (buffer.capacity() < HEADER_SIZE + TRAILER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(trailer + 4) != MAGIC) {
+            throw new IllegalStateException("Not a fleet snapshot: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException("Unsupported fleet snapshot version " + buffer.getInt(4) + ": " + file);
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(HEADER_SIZE, trailer - HEADER_SIZE));
+        if ((int) crc.getValue() != buffer.getInt(trailer)) {
+            throw new IllegalStateException("Fleet snapshot is corrupted: " + file);
+        }
+        this.sequence = buffer.getLong(8);
+        this.count = buffer.getLong(16);
+    }
+
+    static FleetSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new FleetSnapshot(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Opens the newest valid snapshot of a directory. Snapshots that cannot be read are skipped with a warning.
+     *
+     * @param directory The directory of the journal.
+     * @return The newest valid snapshot, if there is one.
+     */
+    static Optional<FleetSnapshot> latest(Path directory) throws IOException {
+        for (Path file : list(directory).reversed()) {
+            try {
+                return Optional.of(open(file));
+            } catch (IllegalStateException e) {
+                logger.warn("Skipping fleet snapshot {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return The snapshot files of a directory, oldest first.
+     */
+    static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .toList();
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * @return The sequence number of the last log frame whose changes are in the snapshot.
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Decodes the records of the snapshot, in the order they were written.
+     *
+     * @param consumer Receives the records.
+     */
+    void forEach(Consumer<FleetRecord> consumer) {
+        ByteBuffer records = buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE - TRAILER_SIZE);
+        for (long i = 0; i < count; i++) {
+            consumer.accept(FleetRecordCodec.read(records));
+        }
+    }
+
+    /**
+     * Writes a snapshot file. Records must be added in type order.
+     */
+    static final class Writer implements AutoCloseable {
+        private final Path file;
+        private final Path temporary;
+        private final long sequence;
+        private final FileChannel channel;
+        private final ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_SIZE + 1024);
+        private final CRC32C crc = new CRC32C();
+        private long count;
+        private int lastType;
+        private boolean committed;
+
+        /**
+         * @param directory The directory of the journal.
+         * @param sequence The sequence number of the last log frame whose changes are in the snapshot.
+         */
+        Writer(Path directory, long sequence) throws IOException {
+            this.file = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+            this.temporary = directory.resolve(file.getFileName() + ".tmp");
+            this.sequence = sequence;
+            this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.position(HEADER_SIZE);
+        }
+
+        void add(FleetRecord record) throws IOException {
+            int type = FleetRecordCodec.typeOf(record);
+            if (type < lastType) {
+                throw new IllegalStateException("Fleet snapshot records must be added in type order");
+            }
+            lastType = type;
+            FleetRecordCodec.write(chunk, record);
+            count++;
+            if (chunk.size() >= CHUNK_SIZE) {
+                writeChunk();
+            }
+        }
+
+        /**
+         * Completes the file, forces it and renames it to its final name.
+         *
+         * @return The snapshot file.
+         */
+        Path commit() throws IOException {
+            writeChunk();
+            write(ByteBuffer.allocate(TRAILER_SIZE).putInt((int) crc.getValue()).putInt(MAGIC).flip());
+            channel.position(0);
+            write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(count).flip());
+            channel.force(true);
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            return file;
+        }
+
+        /**
+         * Discards the temporary file unless the snapshot was committed.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        private void writeChunk() throws IOException {
+            byte[] bytes = chunk.toByteArray();
+            crc.update(bytes);
+            write(ByteBuffer.wrap(bytes));
+            chunk.reset();
+        }
+
+        private void write(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+}
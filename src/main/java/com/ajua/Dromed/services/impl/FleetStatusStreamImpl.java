@@ -0,0 +1,301 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of {@link FleetStatusStream}.
+ * Publishing only hands the change to a dispatcher thread, which passes batches of changes on to the clients, so a state
+ * change or a battery poll never pays for the number of clients. Each client has its own virtual thread writing to the
+ * connection, so thousands of clients cost little more than their sockets, and a client that reads slowly only ever holds
+ * up its own thread. Changes waiting for a client are kept per drone and merged: the newest state change gives the state,
+ * and the newest battery update the battery level, so what is buffered for a client is bounded by the size of the fleet,
+ * and a slow client skips intermediate changes but always ends up with the latest status. Merged changes are counted as
+ * {@code dromed.fleet.stream.coalesced}, and open streams are published as {@code dromed.fleet.stream.subscribers}.
+ * The snapshot is read and sent by the writer thread one keyset page at a time, so a client never holds more than one
+ * page of the fleet, however large the fleet or however many clients connect at once.
+ * An idle stream gets a comment every {@code dromed.fleet.stream.heartbeat}, which also detects clients that went away.
+ */
+@Service
+public class FleetStatusStreamImpl implements FleetStatusStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetStatusStreamImpl.class);
+
+    private final DroneRepository droneRepository;
+    private final BatteryReadingRegistry batteryReadingRegistry;
+    private final Duration timeout;
+    private final Duration heartbeat;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Counter coalescedEvents;
+    private final PendingChanges published;
+
+    public FleetStatusStreamImpl(DroneRepository droneRepository, BatteryReadingRegistry batteryReadingRegistry,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${dromed.fleet.stream.timeout:PT30M}") Duration timeout,
+                                 @Value("${dromed.fleet.stream.heartbeat:PT15S}") Duration heartbeat) {
+        this.droneRepository = droneRepository;
+        this.batteryReadingRegistry = batteryReadingRegistry;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+        Gauge.builder("dromed.fleet.stream.subscribers", subscriptions, Set::size)
+                .description("Open fleet status streams")
+                .register(meterRegistry);
+        this.coalescedEvents = Counter.builder("dromed.fleet.stream.coalesced")
+                .description("Drone changes replaced by a newer change before a client received them")
+                .register(meterRegistry);
+        this.published = new PendingChanges();
+        Thread.ofVirtual().name("fleet-status-dispatcher").start(this::dispatch);
+    }
+
+    /**
+     * Ends every open stream; clients reconnect and get a fresh snapshot.
+     */
+    @PreDestroy
+    public void shutdown() {
+        published.close();
+        subscriptions.forEach(subscription -> subscription.changes.close());
+    }
+
+    @Override
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeout.toMillis()));
+    }
+
+    /**
+     * Streams to the given emitter. The subscription is registered before the snapshot is read, so no change made
+     * in between is missed; such a change may arrive after a snapshot that already contains it.
+     */
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscription subscription = new Subscription(emitter);
+        subscriptions.add(subscription);
+        emitter.onCompletion(subscription.changes::close);
+        emitter.onTimeout(subscription.changes::close);
+        emitter.onError(e -> subscription.changes.close());
+        subscription.start();
+        return emitter;
+    }
+
+    @Override
+    public void publish(DroneEvent event) {
+        published.offer(List.of(event));
+    }
+
+    private void dispatch() {
+        try {
+            List<DroneEvent> events;
+            while ((events = published.take(Long.MAX_VALUE)) != null) {
+                for (Subscription subscription : subscriptions) {
+                    subscription.changes.offer(events);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends the fleet as one {@code snapshot} event per page, read through the keyset projection so no drone entity is
+     * loaded. An empty fleet is sent as one empty page.
+     */
+    private void sendSnapshot(SseEmitter emitter) throws IOException {
+        List<DroneDTO> page;
+        long cursor = 0L;
+        do {
+            page = droneRepository.findPage(cursor, Limit.of(AbstractDroneService.MAX_PAGE_SIZE));
+            for (DroneDTO droneDTO : page) {
+                // The drone table may lag behind the latest reading by one battery history flush
+                batteryReadingRegistry.getLatestLevel(droneDTO.getId()).ifPresent(droneDTO::setBatteryCapacity);
+            }
+            if (!page.isEmpty() || cursor == 0L) {
+                emitter.send(SseEmitter.event().name("snapshot").data(page));
+            }
+            if (!page.isEmpty()) {
+                cursor = page.getLast().getId();
+            }
+        } while (page.size() == AbstractDroneService.MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Changes waiting to be passed on, at most one per drone.
+     */
+    private final class PendingChanges {
+
+        private final Map<Long, Change> byDrone = new LinkedHashMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+
+        private boolean closed;
+
+        void offer(List<DroneEvent> events) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                // Only an empty buffer can have a thread waiting on it
+                boolean wasEmpty = byDrone.isEmpty();
+                for (DroneEvent event : events) {
+                    Change change = byDrone.get(event.droneId());
+                    if (change == null) {
+                        byDrone.put(event.droneId(), new Change(event));
+                    } else {
+                        change.merge(event);
+                        coalescedEvents.increment();
+                    }
+                }
+                if (wasEmpty) {
+                    notEmpty.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits for changes.
+         *
+         * @param timeoutNanos How long to wait.
+         * @return The pending changes, oldest drone first; an empty list if none came in time; or null once closed.
+         */
+        List<DroneEvent> take(long timeoutNanos) throws InterruptedException {
+            lock.lock();
+            try {
+                long remainingNanos = timeoutNanos;
+                while (byDrone.isEmpty() && !closed) {
+                    if (remainingNanos <= 0) {
+                        return List.of();
+                    }
+                    remainingNanos = notEmpty.awaitNanos(remainingNanos);
+                }
+                if (closed) {
+                    return null;
+                }
+                List<DroneEvent> events = new ArrayList<>(byDrone.size());
+                byDrone.values().forEach(change -> events.add(change.toEvent()));
+                byDrone.clear();
+                return events;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The pending change of one drone. A state change says what state the drone is in, and a battery update only what
+     * its battery level is, so each replaces its own part, and a battery update read before a state change cannot
+     * take the state back.
+     */
+    private static final class Change {
+
+        private DroneEvent stateChange;
+        private DroneEvent batteryUpdate;
+
+        Change(DroneEvent event) {
+            merge(event);
+        }
+
+        void merge(DroneEvent event) {
+            if (event.type() == DroneEvent.Type.BATTERY_UPDATED) {
+                batteryUpdate = event;
+            } else if (stateChange == null) {
+                stateChange = event;
+            } else {
+                // Skipping the intermediate states, the drone moved on from the state before the first change
+                stateChange = new DroneEvent(event.type(), event.droneId(), event.state(), stateChange.previousState(),
+                        event.batteryLevel(), event.timestamp());
+            }
+        }
+
+        DroneEvent toEvent() {
+            if (stateChange == null) {
+                return new DroneEvent(batteryUpdate.type(), batteryUpdate.droneId(), null, null,
+                        batteryUpdate.batteryLevel(), batteryUpdate.timestamp());
+            }
+            if (batteryUpdate == null) {
+                return stateChange;
+            }
+            return new DroneEvent(stateChange.type(), stateChange.droneId(), stateChange.state(),
+                    stateChange.previousState(), batteryUpdate.batteryLevel(),
+                    Math.max(stateChange.timestamp(), batteryUpdate.timestamp()));
+        }
+    }
+
+    /**
+     * The pending changes and writer thread of one client.
+     */
+    private final class Subscription {
+
+        private final SseEmitter emitter;
+        private final PendingChanges changes = new PendingChanges();
+
+        Subscription(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void start() {
+            Thread.ofVirtual().name("fleet-status-stream").start(this::stream);
+        }
+
+        private void stream() {
+            try {
+                sendSnapshot(emitter);
+                List<DroneEvent> events;
+                while ((events = changes.take(heartbeat.toNanos())) != null) {
+                    if (events.isEmpty()) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                    for (DroneEvent event : events) {
+                        emitter.send(SseEmitter.event().name("drone").data(event));
+                    }
+                }
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone away, or the emitter has already completed
+                logger.debug("Fleet status stream closed: {}", e.getMessage());
+            } catch (DataAccessException e) {
+                logger.warn("Could not read the fleet status snapshot", e);
+                emitter.completeWithError(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                changes.close();
+                subscriptions.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.exceptions.DroneServiceTimeoutException;
+import com.ajua.Dromed.exceptions.IdempotencyKeyReusedException;
+import com.ajua.Dromed.models.IdempotencyRecord;
+import com.ajua.Dromed.repository.IdempotencyRecordRepository;
+import com.ajua.Dromed.services.interfaces.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of {@link IdempotencyService}.
+ * Completed responses are kept in a bounded Caffeine cache that expires them after the TTL, and are also stored in the
+ * {@code idempotency_record} table, which is only read when the cache misses. Requests that are still running are
+ * tracked in a map, so a duplicate that arrives meanwhile is handed the future of the first one.
+ * A response is put in the cache before its request leaves the map, so a duplicate always finds one or the other.
+ * A request that timed out stays in the map until the drone service has actually finished it.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Cache<String, Completed> completed;
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository idempotencyRecordRepository, ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${dromed.idempotency.max-size:10000}") long maxSize,
+                                  @Value("${dromed.idempotency.ttl:PT24H}") Duration ttl) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency");
+    }
+
+    @Override
+    public <T> CompletableFuture<T> execute(String operation, String key, Object request, Class<T> responseType,
+                                            Supplier<CompletableFuture<T>> call) {
+        if (key == null) {
+            return call.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String recordKey = operation + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        Completed done = completed.getIfPresent(recordKey);
+        if (done != null) {
+            return CompletableFuture.completedFuture(replay(done, fingerprint, responseType));
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        InFlight running = inFlight.putIfAbsent(recordKey, new InFlight(fingerprint, future));
+        if (running != null) {
+            checkFingerprint(running.fingerprint(), fingerprint);
+            // A copy, so that the duplicate cannot complete or cancel the future of the first request
+            return running.future().thenApply(responseType::cast);
+        }
+
+        try {
+            // The first request may have completed between the cache lookup and claiming the key
+            done = completed.getIfPresent(recordKey);
+            if (done == null) {
+                done = loadStored(recordKey, responseType);
+            }
+            if (done != null) {
+                future.complete(replay(done, fingerprint, responseType));
+                inFlight.remove(recordKey);
+                return future;
+            }
+            call.get().whenComplete((response, error) -> {
+                if (error == null) {
+                    store(recordKey, fingerprint, response);
+                    inFlight.remove(recordKey);
+                    future.complete(response);
+                } else {
+                    release(recordKey, fingerprint, responseType, error);
+                    future.completeExceptionally(error);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(recordKey);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Releases the key of a call that failed. A call that timed out may still be running and may still be applied,
+     * so its key stays claimed by the outcome of the call: duplicates wait for it, and a late response is kept.
+     */
+    private <T> void release(String recordKey, String fingerprint, Class<T> responseType, Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (!(cause instanceof DroneServiceTimeoutException timeout)) {
+            inFlight.remove(recordKey);
+            return;
+        }
+        CompletableFuture<T> outcome = timeout.outcome().thenApply(responseType::cast);
+        inFlight.put(recordKey, new InFlight(fingerprint, outcome));
+        outcome.whenComplete((response, lateError) -> {
+            if (lateError == null) {
+                store(recordKey, fingerprint, response);
+            }
+            inFlight.remove(recordKey);
+        });
+    }
+
+    /**
+     * Deletes the stored responses that have outlived the TTL.
+     */
+    @Scheduled(fixedDelayString = "${dromed.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (deleted > 0) {
+            logger.debug("Purged {} expired idempotency records", deleted);
+        }
+    }
+
+    private <T> T replay(Completed done, String fingerprint, Class<T> responseType) {
+        checkFingerprint(done.fingerprint(), fingerprint);
+        return responseType.cast(done.response());
+    }
+
+    private static void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key was already used with a different request");
+        }
+    }
+
+    private Completed loadStored(String recordKey, Class<?> responseType) {
+        IdempotencyRecord record = idempotencyRecordRepository.findById(recordKey).orElse(null);
+        if (record == null || record.getCreatedAt().isBefore(Instant.now().minus(ttl))) {
+            return null;
+        }
+        try {
+            Completed done = new Completed(record.getFingerprint(), objectMapper.readValue(record.getResponse(), responseType));
+            completed.put(recordKey, done);
+            return done;
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring unreadable idempotency record {}", recordKey, e);
+            return null;
+        }
+    }
+
+    /**
+     * Keeps a response in memory, then stores it. The request has already been applied, so a response that
+     * cannot be stored is only logged: retries are still answered from memory until it is evicted.
+     */
+    private void store(String recordKey, String fingerprint, Object response) {
+        completed.put(recordKey, new Completed(fingerprint, response));
+        try {
+            idempotencyRecordRepository.save(new IdempotencyRecord(recordKey, fingerprint,
+                    objectMapper.writeValueAsString(response), Instant.now()));
+        } catch (Exception e) {
+            logger.warn("Could not store the response for idempotency key {}", recordKey, e);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint the request", e);
+        }
+    }
+
+    private record Completed(String fingerprint, Object response) {
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<?> future) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * {@link BatteryHistoryStore} keeping the history in the {@code drone_battery_history} table.
+ * Appends are a single JDBC batch, so they join the transaction of the caller.
+ */
+@Service
+@ConditionalOnProperty(name = "dromed.battery.history.backend", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcBatteryHistoryStore implements BatteryHistoryStore {
+
+    private static final String INSERT_HISTORY =
+            "insert into drone_battery_history (drone_id, battery_level, timestamp) values (?, ?, ?)";
+    private static final String SELECT_HISTORY =
+            "select drone_id, battery_level, timestamp from drone_battery_history " +
+                    "where drone_id = ? and timestamp >= ? and timestamp < ? order by timestamp";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcBatteryHistoryStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void append(List<BatteryReading> readings) {
+        jdbcTemplate.batchUpdate(INSERT_HISTORY, readings.stream()
+                .map(reading -> new Object[]{reading.droneId(), reading.batteryLevel(), Timestamp.valueOf(reading.timestamp())})
+                .toList());
+    }
+
+    @Override
+    public List<BatteryReading> findReadings(Long droneId, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(SELECT_HISTORY,
+                (resultSet, rowNum) -> new BatteryReading(resultSet.getLong(1), resultSet.getInt(2),
+                        resultSet.getTimestamp(3).toLocalDateTime()),
+                droneId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+}
@@ -0,0 +1,110 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.services.interfaces.DroneEventPublisher;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DroneEventPublisher} sending the events as JSON to a Kafka topic, keyed by drone ID so the events of a drone
+ * stay in order. Callers only enqueue the event; a single sender thread serializes it and hands it to the producer,
+ * which batches and compresses according to {@code spring.kafka.producer.*}. When the queue of
+ * {@code dromed.events.kafka.buffer-capacity} events is full, new events are dropped rather than blocking the caller.
+ * Published, dropped and failed events are counted as {@code dromed.events.published}, {@code dromed.events.dropped}
+ * and {@code dromed.events.failed}.
+ */
+@Service
+@ConditionalOnProperty(name = "dromed.events.kafka.enabled", havingValue = "true")
+public class KafkaDroneEventPublisher implements DroneEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaDroneEventPublisher.class);
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String topic;
+    private final Duration shutdownTimeout;
+    private final ThreadPoolExecutor sender;
+    private final Counter publishedEvents;
+    private final Counter droppedEvents;
+    private final Counter failedEvents;
+
+    public KafkaDroneEventPublisher(KafkaTemplate<String, byte[]> kafkaTemplate, ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${dromed.events.kafka.topic:drone-events}") String topic,
+                                    @Value("${dromed.events.kafka.buffer-capacity:10000}") int bufferCapacity,
+                                    @Value("${dromed.events.kafka.shutdown-timeout:PT5S}") Duration shutdownTimeout) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.topic = topic;
+        this.shutdownTimeout = shutdownTimeout;
+        this.sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(bufferCapacity),
+                Thread.ofPlatform().name("drone-event-sender").daemon().factory(), new ThreadPoolExecutor.AbortPolicy());
+        this.publishedEvents = Counter.builder("dromed.events.published")
+                .description("Drone events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("dromed.events.dropped")
+                .description("Drone events dropped because the send queue was full")
+                .register(meterRegistry);
+        this.failedEvents = Counter.builder("dromed.events.failed")
+                .description("Drone events Kafka could not accept")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends what is still queued and flushes the producer.
+     */
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+        try {
+            if (!sender.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("{} drone events were not sent before shutdown", sender.getQueue().size());
+                sender.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        kafkaTemplate.flush();
+    }
+
+    @Override
+    public void publish(DroneEvent event) {
+        try {
+            sender.execute(() -> send(event));
+        } catch (RejectedExecutionException e) {
+            droppedEvents.increment();
+        }
+    }
+
+    private void send(DroneEvent event) {
+        try {
+            kafkaTemplate.send(topic, String.valueOf(event.droneId()), objectMapper.writeValueAsBytes(event))
+                    .whenComplete((result, ex) -> {
+                        if (ex == null) {
+                            publishedEvents.increment();
+                        } else {
+                            failedEvents.increment();
+                            logger.warn("Could not publish {} event for drone {}", event.type(), event.droneId(), ex);
+                        }
+                    });
+        } catch (JsonProcessingException | RuntimeException e) {
+            failedEvents.increment();
+            logger.warn("Could not publish {} event for drone {}", event.type(), event.droneId(), e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.services.interfaces.DroneEventSink;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link DroneEventSink} sending the events as JSON to the drone event topic, keyed by drone ID so the events of a drone
+ * land on the same partition in order. The whole batch is handed to the producer before waiting, so it goes out in as few
+ * compressed producer batches as possible.
+ */
+@Service
+@ConditionalOnProperty(name = "dromed.events.kafka.enabled", havingValue = "true")
+public class KafkaDroneEventSink implements DroneEventSink {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final String topic;
+    private final Duration sendTimeout;
+
+    public KafkaDroneEventSink(KafkaTemplate<String, byte[]> kafkaTemplate, ObjectMapper objectMapper,
+                               @Value("${dromed.events.kafka.topic:drone-events}") String topic,
+                               @Value("${dromed.events.kafka.send-timeout:PT10S}") Duration sendTimeout) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.topic = topic;
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Override
+    public void deliver(List<DroneEvent> events) {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[events.size()];
+        try {
+            for (int i = 0; i < sends.length; i++) {
+                DroneEvent event = events.get(i);
+                sends[i] = kafkaTemplate.send(topic, String.valueOf(event.droneId()), objectMapper.writeValueAsBytes(event));
+            }
+            CompletableFuture.allOf(sends).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (JsonProcessingException | ExecutionException | TimeoutException e) {
+            throw new KafkaException("Could not deliver " + events.size() + " drone events", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while delivering drone events", e);
+        }
+    }
+}
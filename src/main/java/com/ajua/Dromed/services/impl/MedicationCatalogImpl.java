@@ -0,0 +1,98 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.exceptions.ResourceNotFoundException;
+import com.ajua.Dromed.models.Medication;
+import com.ajua.Dromed.repository.MedicationRepository;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
+import com.ajua.Dromed.services.interfaces.FleetJournal;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import com.ajua.Dromed.utils.DTOConverter;
+import com.ajua.Dromed.utils.MedicationValidator;
+import com.ajua.Dromed.utils.TransactionHooks;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+
+/**
+ * Medication catalog backed by the database with a bounded in-memory near-cache in front of it.
+ * Loads resolve medications through the near-cache, so the hot path does not query the medication table.
+ * Hits, misses and evictions are published as the "medicationCatalog" cache metrics.
+ */
+@Service
+public class MedicationCatalogImpl implements MedicationCatalog {
+
+    private final MedicationRepository medicationRepository;
+    private final DroneQueryCache droneQueryCache;
+    private final FleetJournal fleetJournal;
+    private final Cache<String, Medication> nearCache;
+
+    public MedicationCatalogImpl(MedicationRepository medicationRepository, DroneQueryCache droneQueryCache,
+                                 FleetJournal fleetJournal, MeterRegistry meterRegistry,
+                                 @Value("${dromed.catalog.near-cache.max-size:10000}") long maxSize,
+                                 @Value("${dromed.catalog.near-cache.ttl:PT10M}") Duration ttl) {
+        this.medicationRepository = medicationRepository;
+        this.droneQueryCache = droneQueryCache;
+        this.fleetJournal = fleetJournal;
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "medicationCatalog");
+    }
+
+    @Override
+    public Medication getByCode(String code) {
+        if (code == null) {
+            throw new IllegalArgumentException("Medication code is required");
+        }
+        // Unknown codes are not cached, so a medication registered later is found straight away
+        Medication medication = nearCache.get(code, key -> medicationRepository.findByCode(key).orElse(null));
+        if (medication == null) {
+            throw new ResourceNotFoundException("Medication not found: " + code);
+        }
+        return medication;
+    }
+
+    @Override
+    @Transactional
+    public MedicationDTO register(MedicationDTO medicationDTO) {
+        MedicationValidator.validate(medicationDTO.getName(), medicationDTO.getCode());
+        if (medicationDTO.getWeight() <= 0 || medicationDTO.getWeight() > AbstractDroneService.MAX_WEIGHT_LIMIT) {
+            throw new IllegalArgumentException("Medication weight must be greater than 0 and up to 500 grams");
+        }
+
+        Medication medication = medicationRepository.findByCode(medicationDTO.getCode())
+                .orElseGet(Medication::new);
+        boolean existing = medication.getId() != null;
+        medication.setName(medicationDTO.getName());
+        medication.setWeight(medicationDTO.getWeight());
+        medication.setCode(medicationDTO.getCode());
+        medication.setImageUrl(medicationDTO.getImageUrl());
+        Medication savedMedication = medicationRepository.save(medication);
+        fleetJournal.medicationChanged(savedMedication.getId());
+
+        invalidate(medicationDTO.getCode());
+        if (existing) {
+            // An existing entry may already be loaded on drones, whose cached medication lists now show old values
+            droneQueryCache.evictAllMedicationsByDrone();
+        }
+        return DTOConverter.toMedicationDTO(savedMedication);
+    }
+
+    /**
+     * Drops a code from the near-cache now, and again once the transaction has committed,
+     * so a concurrent lookup cannot put the old row back in between.
+     */
+    private void invalidate(String code) {
+        nearCache.invalidate(code);
+        TransactionHooks.afterCommit(() -> nearCache.invalidate(code));
+    }
+}
@@ -0,0 +1,18 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.services.interfaces.DroneEventPublisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link DroneEventPublisher} used when no event stream is configured.
+ */
+@Service
+@ConditionalOnProperty(name = "dromed.events.kafka.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpDroneEventPublisher implements DroneEventPublisher {
+
+    @Override
+    public void publish(DroneEvent event) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.services.interfaces.DroneEventSink;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * {@link DroneEventSink} used when no event stream is configured.
+ */
+@Service
+@ConditionalOnProperty(name = "dromed.events.kafka.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpDroneEventSink implements DroneEventSink {
+
+    @Override
+    public void deliver(List<DroneEvent> events) {
+    }
+}
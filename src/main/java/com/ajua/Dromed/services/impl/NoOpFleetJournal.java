@@ -0,0 +1,36 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.services.interfaces.FleetJournal;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+
+/**
+ * {@link FleetJournal} used when the fleet is not journaled; the fleet then lives only in the database.
+ */
+@Service
+@ConditionalOnProperty(name = "dromed.fleet.journal.enabled", havingValue = "false", matchIfMissing = true)
+public class NoOpFleetJournal implements FleetJournal {
+
+    @Override
+    public void dronesChanged(Collection<Long> droneIds) {
+    }
+
+    @Override
+    public void medicationChanged(Long medicationId) {
+    }
+
+    @Override
+    public void droneMedicationsChanged(Collection<Long> droneMedicationIds) {
+    }
+
+    @Override
+    public boolean restore() {
+        return false;
+    }
+
+    @Override
+    public void snapshot() {
+    }
+}
@@ -0,0 +1,507 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryStore;
+import com.ajua.Dromed.utils.VarIntCodec;
+import com.github.luben.zstd.Zstd;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * {@link BatteryHistoryStore} keeping the history in append-only, compressed segment files.
+ * <p>
+ * New readings are appended to {@code active.log}, a CRC-checked log replayed on startup, and kept in memory per drone.
+ * Once the active readings span {@code segment-duration} they are sealed into an immutable segment file:
+ * the readings of each drone are delta-of-delta/varint encoded, packed into blocks of about {@code block-size} bytes,
+ * and each block is compressed with zstd. A footer index sorted by drone ID points at the block and offset of each drone,
+ * so a range query maps the segment, binary-searches the index and decompresses a single block.
+ * Segments older than {@code retention} are deleted when a new segment is sealed.
+ * <p>
+ * Timestamps are stored as UTC epoch milliseconds.
+ */
+@Service
+@ConditionalOnProperty(name = "dromed.battery.history.backend", havingValue = "segment")
+public class SegmentBatteryHistoryStore implements BatteryHistoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentBatteryHistoryStore.class);
+
+    private static final String ACTIVE_LOG = "active.log";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int MAGIC = 0x42485331; // "BHS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int BLOCK_ENTRY_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 36;
+    private static final int TRAILER_SIZE = 44;
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private final Path directory;
+    private final Duration segmentDuration;
+    private final Duration retention;
+    private final int blockSize;
+    private final int compressionLevel;
+    private final boolean fsync;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Series> active = new HashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private long activeMinTimestamp = Long.MAX_VALUE;
+    private long activeMaxTimestamp = Long.MIN_VALUE;
+    private FileChannel activeLog;
+
+    public SegmentBatteryHistoryStore(@Value("${dromed.battery.history.segment.directory:data/battery-history}") Path directory,
+                                      @Value("${dromed.battery.history.segment.segment-duration:PT1H}") Duration segmentDuration,
+                                      @Value("${dromed.battery.history.segment.retention:P90D}") Duration retention,
+                                      @Value("${dromed.battery.history.segment.block-size:16384}") int blockSize,
+                                      @Value("${dromed.battery.history.segment.compression-level:3}") int compressionLevel,
+                                      @Value("${dromed.battery.history.segment.fsync:false}") boolean fsync) {
+        this.directory = directory;
+        this.segmentDuration = segmentDuration;
+        this.retention = retention;
+        this.blockSize = blockSize;
+        this.compressionLevel = compressionLevel;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Maps the sealed segments and replays the readings of the active log.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(SEGMENT_SUFFIX)).sorted().toList()) {
+                segments.add(Segment.open(file));
+            }
+        }
+        activeLog = FileChannel.open(directory.resolve(ACTIVE_LOG),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayActiveLog();
+        logger.info("Battery history opened with {} segments and {} active drones", segments.size(), active.size());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            activeLog.force(false);
+            activeLog.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void append(List<BatteryReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            writeFrame(readings);
+            for (BatteryReading reading : readings) {
+                addToActive(reading.droneId(), toMillis(reading.timestamp()), reading.batteryLevel());
+            }
+            if (activeMaxTimestamp - activeMinTimestamp >= segmentDuration.toMillis()) {
+                seal();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the battery history", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<BatteryReading> findReadings(Long droneId, LocalDateTime from, LocalDateTime to) {
+        long fromMillis = toMillis(from);
+        long toMillis = toMillis(to);
+        List<BatteryReading> readings = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                if (segment.maxTimestamp >= fromMillis && segment.minTimestamp < toMillis) {
+                    segment.read(droneId, fromMillis, toMillis, readings);
+                }
+            }
+            Series series = active.get(droneId);
+            if (series != null) {
+                series.read(droneId, fromMillis, toMillis, readings);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return readings;
+    }
+
+    /**
+     * Seals the active readings into a new segment file, empties the active log and applies the retention.
+     * Must be called with the write lock held.
+     */
+    private void seal() throws IOException {
+        if (active.isEmpty()) {
+            return;
+        }
+        Path file = directory.resolve(String.format("segment-%020d%s", activeMinTimestamp, SEGMENT_SUFFIX));
+        Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        writeSegment(temporary, new TreeMap<>(active));
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        segments.add(Segment.open(file));
+
+        active.clear();
+        activeMinTimestamp = Long.MAX_VALUE;
+        long newest = activeMaxTimestamp;
+        activeMaxTimestamp = Long.MIN_VALUE;
+        activeLog.truncate(0);
+        activeLog.force(false);
+
+        long cutoff = newest - retention.toMillis();
+        segments.removeIf(segment -> {
+            if (segment.maxTimestamp >= cutoff) {
+                return false;
+            }
+            try {
+                Files.deleteIfExists(segment.file);
+            } catch (IOException e) {
+                logger.warn("Could not delete expired battery history segment {}", segment.file, e);
+            }
+            return true;
+        });
+    }
+
+    private void writeSegment(Path file, TreeMap<Long, Series> seriesByDrone) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize + 1024);
+        ByteBuffer index = ByteBuffer.allocate(seriesByDrone.size() * INDEX_ENTRY_SIZE);
+        List<long[]> blockTable = new ArrayList<>();
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header);
+
+            for (Map.Entry<Long, Series> entry : seriesByDrone.entrySet()) {
+                Series series = entry.getValue();
+                series.sort();
+                index.putLong(entry.getKey())
+                        .putInt(blockTable.size())
+                        .putInt(block.size())
+                        .putInt(series.size)
+                        .putLong(series.timestamps[0])
+                        .putLong(series.timestamps[series.size - 1]);
+                series.encode(block);
+                minTimestamp = Math.min(minTimestamp, series.timestamps[0]);
+                maxTimestamp = Math.max(maxTimestamp, series.timestamps[series.size - 1]);
+                if (block.size() >= blockSize) {
+                    blockTable.add(writeBlock(channel, block));
+                }
+            }
+            if (block.size() > 0) {
+                blockTable.add(writeBlock(channel, block));
+            }
+
+            long blockTableOffset = channel.position();
+            ByteBuffer table = ByteBuffer.allocate(blockTable.size() * BLOCK_ENTRY_SIZE);
+            blockTable.forEach(entry -> table.putLong(entry[0]).putInt((int) entry[1]).putInt((int) entry[2]));
+            channel.write(table.flip());
+
+            long indexOffset = channel.position();
+            channel.write(index.flip());
+
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE)
+                    .putLong(blockTableOffset).putInt(blockTable.size())
+                    .putLong(indexOffset).putInt(seriesByDrone.size())
+                    .putLong(minTimestamp).putLong(maxTimestamp)
+                    .putInt(MAGIC)
+                    .flip();
+            channel.write(trailer);
+            channel.force(true);
+        }
+    }
+
+    private long[] writeBlock(FileChannel channel, ByteArrayOutputStream block) throws IOException {
+        byte[] raw = block.toByteArray();
+        byte[] compressed = Zstd.compress(raw, compressionLevel);
+        long offset = channel.position();
+        channel.write(ByteBuffer.wrap(compressed));
+        block.reset();
+        return new long[]{offset, compressed.length, raw.length};
+    }
+
+    /**
+     * Appends a batch to the active log as one frame: payload length, CRC32C of the payload, then the payload.
+     */
+    private void writeFrame(List<BatteryReading> readings) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(readings.size() * 8);
+        VarIntCodec.writeVarLong(payload, readings.size());
+        for (BatteryReading reading : readings) {
+            VarIntCodec.writeVarLong(payload, reading.droneId());
+            VarIntCodec.writeVarLong(payload, toMillis(reading.timestamp()));
+            VarIntCodec.writeVarLong(payload, reading.batteryLevel());
+        }
+        byte[] bytes = payload.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + bytes.length)
+                .putInt(bytes.length)
+                .putInt((int) crc.getValue())
+                .put(bytes)
+                .flip();
+        activeLog.position(activeLog.size());
+        while (frame.hasRemaining()) {
+            activeLog.write(frame);
+        }
+        if (fsync) {
+            activeLog.force(false);
+        }
+    }
+
+    /**
+     * Loads the frames of the active log back into memory.
+     * A torn or corrupted frame at the end, left by a crash, is cut off.
+     * Readings already sealed into the latest segment, left by a crash between sealing and truncating the log, are skipped.
+     */
+    private void replayActiveLog() throws IOException {
+        long size = activeLog.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer log = activeLog.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        Segment latest = segments.isEmpty() ? null : segments.getLast();
+        long validSize = 0;
+        while (log.remaining() >= FRAME_HEADER_SIZE) {
+            int length = log.getInt();
+            int checksum = log.getInt();
+            if (length < 0 || length > log.remaining()) {
+                break;
+            }
+            ByteBuffer payload = log.slice(log.position(), length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            long count = VarIntCodec.readVarLong(payload);
+            for (long i = 0; i < count; i++) {
+                long droneId = VarIntCodec.readVarLong(payload);
+                long timestamp = VarIntCodec.readVarLong(payload);
+                int batteryLevel = (int) VarIntCodec.readVarLong(payload);
+                if (latest == null || timestamp > latest.maxTimestamp(droneId)) {
+                    addToActive(droneId, timestamp, batteryLevel);
+                }
+            }
+            log.position(log.position() + length);
+            validSize = log.position();
+        }
+        if (validSize < size) {
+            logger.warn("Discarding {} bytes of incomplete battery history at the end of {}", size - validSize, ACTIVE_LOG);
+            activeLog.truncate(validSize);
+        }
+    }
+
+    private void addToActive(long droneId, long timestamp, int batteryLevel) {
+        active.computeIfAbsent(droneId, id -> new Series()).add(timestamp, batteryLevel);
+        activeMinTimestamp = Math.min(activeMinTimestamp, timestamp);
+        activeMaxTimestamp = Math.max(activeMaxTimestamp, timestamp);
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    /**
+     * The readings of one drone, as parallel arrays of timestamps and battery levels.
+     */
+    private static final class Series {
+        private long[] timestamps = new long[16];
+        private int[] levels = new int[16];
+        private int size;
+
+        void add(long timestamp, int batteryLevel) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                levels = Arrays.copyOf(levels, size * 2);
+            }
+            timestamps[size] = timestamp;
+            levels[size] = batteryLevel;
+            size++;
+        }
+
+        /**
+         * Orders the readings by time. They nearly always arrive in order, so this is an insertion sort.
+         */
+        void sort() {
+            for (int i = 1; i < size; i++) {
+                long timestamp = timestamps[i];
+                int level = levels[i];
+                int j = i - 1;
+                while (j >= 0 && timestamps[j] > timestamp) {
+                    timestamps[j + 1] = timestamps[j];
+                    levels[j + 1] = levels[j];
+                    j--;
+                }
+                timestamps[j + 1] = timestamp;
+                levels[j + 1] = level;
+            }
+        }
+
+        /**
+         * Encodes the readings as the first timestamp and level, then for each following reading
+         * the change of the interval between readings and the change of level.
+         * With a steady polling rate both are usually zero or close to it, so a reading takes about two bytes.
+         */
+        void encode(ByteArrayOutputStream out) {
+            VarIntCodec.writeVarLong(out, size);
+            VarIntCodec.writeVarLong(out, timestamps[0]);
+            VarIntCodec.writeVarLong(out, levels[0]);
+            long previousDelta = 0;
+            for (int i = 1; i < size; i++) {
+                long delta = timestamps[i] - timestamps[i - 1];
+                VarIntCodec.writeSignedVarLong(out, delta - previousDelta);
+                VarIntCodec.writeSignedVarLong(out, levels[i] - levels[i - 1]);
+                previousDelta = delta;
+            }
+        }
+
+        void read(long droneId, long from, long to, List<BatteryReading> readings) {
+            for (int i = 0; i < size; i++) {
+                if (timestamps[i] >= from && timestamps[i] < to) {
+                    readings.add(new BatteryReading(droneId, levels[i], fromMillis(timestamps[i])));
+                }
+            }
+        }
+    }
+
+    /**
+     * A sealed, memory-mapped segment file.
+     */
+    private static final class Segment {
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private final long blockTableOffset;
+        private final long indexOffset;
+        private final int indexCount;
+        private final long minTimestamp;
+        private final long maxTimestamp;
+
+        private Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+            int trailer = buffer.capacity() - TRAILER_SIZE;
+            if (buffer.capacity() < HEADER_SIZE + TRAILER_SIZE || buffer.getInt(0) != MAGIC
+                    || buffer.getInt(trailer + TRAILER_SIZE - 4) != MAGIC) {
+                throw new IllegalStateException("Not a battery history segment: " + file);
+            }
+            this.blockTableOffset = buffer.getLong(trailer);
+            this.indexOffset = buffer.getLong(trailer + 12);
+            this.indexCount = buffer.getInt(trailer + 20);
+            this.minTimestamp = buffer.getLong(trailer + 24);
+            this.maxTimestamp = buffer.getLong(trailer + 32);
+        }
+
+        static Segment open(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return new Segment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+
+        /**
+         * @return The position of the index entry of the drone, or -1 if the drone has no readings in this segment.
+         */
+        private int find(long droneId) {
+            int low = 0;
+            int high = indexCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long id = buffer.getLong(entry(middle));
+                if (id < droneId) {
+                    low = middle + 1;
+                } else if (id > droneId) {
+                    high = middle - 1;
+                } else {
+                    return entry(middle);
+                }
+            }
+            return -1;
+        }
+
+        private int entry(int position) {
+            return (int) indexOffset + position * INDEX_ENTRY_SIZE;
+        }
+
+        long maxTimestamp(long droneId) {
+            int entry = find(droneId);
+            return entry < 0 ? Long.MIN_VALUE : buffer.getLong(entry + 28);
+        }
+
+        void read(long droneId, long from, long to, List<BatteryReading> readings) {
+            int entry = find(droneId);
+            if (entry < 0 || buffer.getLong(entry + 28) < from || buffer.getLong(entry + 20) >= to) {
+                return;
+            }
+            int blockNumber = buffer.getInt(entry + 8);
+            int offsetInBlock = buffer.getInt(entry + 12);
+
+            int blockEntry = (int) blockTableOffset + blockNumber * BLOCK_ENTRY_SIZE;
+            long blockOffset = buffer.getLong(blockEntry);
+            byte[] compressed = new byte[buffer.getInt(blockEntry + 8)];
+            buffer.get((int) blockOffset, compressed);
+            ByteBuffer block = ByteBuffer.wrap(Zstd.decompress(compressed, buffer.getInt(blockEntry + 12)));
+            block.position(offsetInBlock);
+
+            long count = VarIntCodec.readVarLong(block);
+            long timestamp = VarIntCodec.readVarLong(block);
+            long level = VarIntCodec.readVarLong(block);
+            long delta = 0;
+            for (long i = 0; ; i++) {
+                if (timestamp >= to) {
+                    return;
+                }
+                if (timestamp >= from) {
+                    readings.add(new BatteryReading(droneId, (int) level, fromMillis(timestamp)));
+                }
+                if (i + 1 == count) {
+                    return;
+                }
+                delta += VarIntCodec.readSignedVarLong(block);
+                timestamp += delta;
+                level += VarIntCodec.readSignedVarLong(block);
+            }
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.FleetRecord;
+import com.ajua.Dromed.dtos.FleetRecord.DroneImage;
+import com.ajua.Dromed.dtos.FleetRecord.DroneMedicationImage;
+import com.ajua.Dromed.dtos.FleetRecord.MedicationImage;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.FleetJournal;
+import com.ajua.Dromed.utils.FleetRecordCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link FleetJournal} keeping a snapshot of the fleet plus a write-ahead log of the changes made since, in {@code directory}.
+ * <p>
+ * The IDs changed by a transaction are collected as it runs. Just before it commits, while it still holds its row locks,
+ * the pending JPA changes are flushed, the full rows are read back on the connection of the transaction and appended
+ * to the {@link FleetLog} as one frame; after the commit the transaction waits for that frame to be forced, which the
+ * log does for all waiting transactions at once. Since two transactions changing the same row are serialized by its
+ * lock, the later one always has the later frame. A transaction that fails after its frame was appended cancels it.
+ * <p>
+ * Every {@code snapshot-interval}, if anything changed, the log is rotated, the transactions with frames in the old
+ * segments are waited for, and the tables are copied to a {@link FleetSnapshot} page by page. The copy is not a
+ * consistent read, but every row changed while it runs is also in a frame after the snapshot, and replaying a frame
+ * overwrites whole rows, so snapshot plus log tail always ends at the committed state. The older snapshots and log
+ * segments are then deleted.
+ * <p>
+ * On startup the newest snapshot is mapped and its records are inserted with batched statements in one transaction,
+ * except rows that the log tail changed later, whose last image is inserted instead; the identity columns and the drone
+ * medication sequence are then moved past the restored IDs. A restore that fails removes what it inserted. Battery levels written by the battery poll are not journaled:
+ * a restored drone has the level of its last journaled change until it is polled again.
+ */
+@Service
+@ConditionalOnProperty(name = "dromed.fleet.journal.enabled", havingValue = "true")
+public class WalFleetJournal implements FleetJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalFleetJournal.class);
+
+    private static final String SELECT_MEDICATIONS = "select id, name, weight, code, image_url from medication";
+    private static final String SELECT_DRONES =
+            "select id, serial_number, model, weight_limit, battery_capacity, state, loaded_weight, loaded_items from drone";
+    private static final String SELECT_DRONE_MEDICATIONS = "select id, drone_id, medication_id, delivered from drone_medication";
+    private static final String INSERT_MEDICATION =
+            "insert into medication (id, name, weight, code, image_url) values (?, ?, ?, ?, ?)";
+    private static final String INSERT_DRONE =
+            "insert into drone (id, serial_number, model, weight_limit, battery_capacity, state, loaded_weight, loaded_items) "
+                    + "values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_DRONE_MEDICATION =
+            "insert into drone_medication (id, drone_id, medication_id, delivered) values (?, ?, ?, ?)";
+    private static final int CHUNK_SIZE = 250;
+    private static final int PAGE_SIZE = 10_000;
+    private static final int BATCH_SIZE = 1_000;
+    // Allocation size of drone_medication_seq, see DroneMedication
+    private static final int DRONE_MEDICATION_ALLOCATION = 50;
+
+    private static final RowMapper<FleetRecord> MEDICATION_MAPPER = (rs, rowNum) -> new MedicationImage(
+            rs.getLong(1), rs.getString(2), rs.getInt(3), rs.getString(4), rs.getString(5));
+    private static final RowMapper<FleetRecord> DRONE_MAPPER = (rs, rowNum) -> new DroneImage(
+            rs.getLong(1), rs.getString(2), Model.valueOf(rs.getString(3)), rs.getInt(4), rs.getInt(5),
+            State.valueOf(rs.getString(6)), rs.getInt(7), rs.getInt(8));
+    private static final RowMapper<FleetRecord> DRONE_MEDICATION_MAPPER = (rs, rowNum) -> new DroneMedicationImage(
+            rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getBoolean(4));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Path directory;
+    private final Duration snapshotTimeout;
+    private final FleetLog log;
+
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final ReentrantLock restoreLock = new ReentrantLock();
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    private FleetSnapshot restoredSnapshot;
+    private Tail tail;
+    private volatile boolean ready;
+    private volatile long snapshotSequence = -1;
+
+    public WalFleetJournal(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                           @Value("${dromed.fleet.journal.directory:data/fleet}") Path directory,
+                           @Value("${dromed.fleet.journal.fsync:true}") boolean fsync,
+                           @Value("${dromed.fleet.journal.snapshot-timeout:PT30S}") Duration snapshotTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.directory = directory;
+        this.snapshotTimeout = snapshotTimeout;
+        this.log = new FleetLog(directory, fsync);
+    }
+
+    /**
+     * Maps the newest snapshot, replays the log after it into memory and opens the log for appending.
+     * The fleet is loaded into the database by {@link #restore()}.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        restoredSnapshot = FleetSnapshot.latest(directory).orElse(null);
+        long afterSequence = restoredSnapshot == null ? 0 : restoredSnapshot.sequence();
+        tail = new Tail();
+        long frames = log.open(afterSequence, tail::put);
+        if (restoredSnapshot != null) {
+            snapshotSequence = restoredSnapshot.sequence();
+        }
+        logger.info("Fleet journal opened with {} and {} log frames to replay",
+                restoredSnapshot == null ? "no snapshot" : "snapshot " + restoredSnapshot.file().getFileName(), frames);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        log.close();
+    }
+
+    @Override
+    public void dronesChanged(Collection<Long> droneIds) {
+        changes().droneIds.addAll(droneIds);
+    }
+
+    @Override
+    public void medicationChanged(Long medicationId) {
+        changes().medicationIds.add(medicationId);
+    }
+
+    @Override
+    public void droneMedicationsChanged(Collection<Long> droneMedicationIds) {
+        changes().droneMedicationIds.addAll(droneMedicationIds);
+    }
+
+    @Override
+    public boolean restore() {
+        restoreLock.lock();
+        try {
+            if (ready) {
+                return false;
+            }
+            if (restoredSnapshot == null && tail.isEmpty()) {
+                ready = true;
+                return false;
+            }
+            Integer drones = jdbcTemplate.queryForObject("select count(*) from drone", Integer.class);
+            if (drones != null && drones > 0) {
+                throw new IllegalStateException("The fleet can only be restored into an empty database");
+            }
+            long start = System.nanoTime();
+            long[] counts = jdbcTemplate.execute((ConnectionCallback<long[]>) this::load);
+            logger.info("Restored {} medications, {} drones and {} drone medications from the fleet journal in {} ms",
+                    counts[FleetRecordCodec.MEDICATION], counts[FleetRecordCodec.DRONE],
+                    counts[FleetRecordCodec.DRONE_MEDICATION], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            restoredSnapshot = null;
+            tail = null;
+            ready = true;
+            return true;
+        } finally {
+            // A failed restore leaves the journal as it is, and snapshots off, so the fleet is not overwritten
+            restoreLock.unlock();
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${dromed.fleet.journal.snapshot-interval:PT10M}",
+            initialDelayString = "${dromed.fleet.journal.snapshot-interval:PT10M}")
+    public void snapshot() {
+        // Until the fleet is restored the tables do not hold it, so a snapshot would lose it
+        if (!ready) {
+            return;
+        }
+        snapshotLock.lock();
+        try {
+            if (snapshotSequence >= 0 && snapshotSequence == log.lastSequence()) {
+                return;
+            }
+            long start = System.nanoTime();
+            long sequence;
+            rotationLock.writeLock().lock();
+            try {
+                sequence = log.rotate();
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+            awaitTransactionsUpTo(sequence);
+
+            Path file;
+            long count;
+            try (FleetSnapshot.Writer writer = new FleetSnapshot.Writer(directory, sequence)) {
+                count = copyTable(SELECT_MEDICATIONS, MEDICATION_MAPPER, writer)
+                        + copyTable(SELECT_DRONES, DRONE_MAPPER, writer)
+                        + copyTable(SELECT_DRONE_MEDICATIONS, DRONE_MEDICATION_MAPPER, writer);
+                // Rows read by the copy may come from transactions after the sequence; their frames must be durable first
+                log.sync();
+                file = writer.commit();
+            }
+            snapshotSequence = sequence;
+
+            for (Path older : FleetSnapshot.list(directory)) {
+                if (!older.equals(file)) {
+                    Files.deleteIfExists(older);
+                }
+            }
+            log.deleteUpTo(sequence);
+            logger.info("Wrote fleet snapshot {} with {} records in {} ms", file.getFileName(), count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write a fleet snapshot", e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * @return The changes of the current transaction, registering them with the transaction on first use.
+     */
+    private Changes changes() {
+        Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+        if (changes != null) {
+            return changes;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Fleet changes can only be recorded in a transaction");
+        }
+        changes = new Changes();
+        TransactionSynchronizationManager.bindResource(this, changes);
+        TransactionSynchronizationManager.registerSynchronization(changes);
+        return changes;
+    }
+
+    private void awaitTransactionsUpTo(long sequence) {
+        long deadline = System.nanoTime() + snapshotTimeout.toNanos();
+        Long oldest;
+        while ((oldest = inFlight.ceiling(Long.MIN_VALUE)) != null && oldest <= sequence) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("Transactions did not complete in time for a fleet snapshot");
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a fleet snapshot", e);
+            }
+        }
+    }
+
+    /**
+     * Copies a table to the snapshot with keyset pagination, so the database never has to hold a large result.
+     *
+     * @return The number of rows copied.
+     */
+    private long copyTable(String select, RowMapper<FleetRecord> mapper, FleetSnapshot.Writer writer) throws IOException {
+        long count = 0;
+        long after = 0;
+        List<FleetRecord> page;
+        do {
+            page = jdbcTemplate.query(select + " where id > ? order by id limit ?", mapper, after, PAGE_SIZE);
+            for (FleetRecord record : page) {
+                writer.add(record);
+            }
+            count += page.size();
+            if (!page.isEmpty()) {
+                after = page.getLast().id();
+            }
+        } while (page.size() == PAGE_SIZE);
+        return count;
+    }
+
+    /**
+     * Reads the current images of the changed rows on the connection of the transaction.
+     */
+    private List<FleetRecord> readImages(Changes changes) {
+        List<FleetRecord> records = new ArrayList<>();
+        readImages(SELECT_MEDICATIONS, MEDICATION_MAPPER, changes.medicationIds, records);
+        readImages(SELECT_DRONES, DRONE_MAPPER, changes.droneIds, records);
+        readImages(SELECT_DRONE_MEDICATIONS, DRONE_MEDICATION_MAPPER, changes.droneMedicationIds, records);
+        return records;
+    }
+
+    private void readImages(String select, RowMapper<FleetRecord> mapper, Set<Long> ids, List<FleetRecord> records) {
+        List<Long> idList = new ArrayList<>(ids);
+        idList.remove(null);
+        for (int from = 0; from < idList.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = idList.subList(from, Math.min(from + CHUNK_SIZE, idList.size()));
+            records.addAll(jdbcTemplate.query(select + " where id in (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")",
+                    mapper, chunk.toArray()));
+        }
+    }
+
+    /**
+     * Inserts the snapshot and the log tail, one table at a time in foreign key order, in a single transaction.
+     * Rows of the snapshot that the tail changed later are skipped, and the tail rows of a table are inserted after it.
+     * If the restore fails, whatever it inserted is deleted again, so it never leaves part of the fleet behind.
+     *
+     * @return The number of rows inserted, indexed by record type.
+     */
+    private long[] load(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Loader loader = new Loader(connection)) {
+            if (restoredSnapshot != null) {
+                restoredSnapshot.forEach(record -> {
+                    loader.advanceTo(FleetRecordCodec.typeOf(record));
+                    if (!tail.contains(record)) {
+                        loader.add(record);
+                    }
+                });
+            }
+            loader.advanceTo(FleetRecordCodec.DRONE_MEDICATION + 1);
+            restartIdentities(connection, loader.maxIds);
+            connection.commit();
+            return loader.counts;
+        } catch (RuntimeException | SQLException e) {
+            connection.rollback();
+            // Restarting the identity columns commits, so the rollback alone may not undo the inserts
+            clear(connection, e);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Deletes every row of the fleet tables, which were empty before the restore.
+     */
+    private static void clear(Connection connection, Exception failure) {
+        try (var statement = connection.createStatement()) {
+            statement.execute("delete from drone_medication");
+            statement.execute("delete from drone");
+            statement.execute("delete from medication");
+            connection.commit();
+        } catch (SQLException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static void restartIdentities(Connection connection, long[] maxIds) throws SQLException {
+        try (var statement = connection.createStatement()) {
+            statement.execute("alter table medication alter column id restart with " + (maxIds[FleetRecordCodec.MEDICATION] + 1));
+            statement.execute("alter table drone alter column id restart with " + (maxIds[FleetRecordCodec.DRONE] + 1));
+            // Hibernate hands out the block below each sequence value, so the next value must be a whole block past the restored IDs
+            statement.execute("alter sequence drone_medication_seq restart with "
+                    + (maxIds[FleetRecordCodec.DRONE_MEDICATION] + DRONE_MEDICATION_ALLOCATION + 1));
+        }
+    }
+
+    /**
+     * The IDs changed by one transaction, and the frame they were logged in.
+     */
+    private final class Changes implements TransactionSynchronization {
+        private final Set<Long> droneIds = new LinkedHashSet<>();
+        private final Set<Long> medicationIds = new LinkedHashSet<>();
+        private final Set<Long> droneMedicationIds = new LinkedHashSet<>();
+        private FleetLog.Append append;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            if (entityManager != null) {
+                entityManager.flush();
+            }
+            List<FleetRecord> records = readImages(this);
+            if (records.isEmpty()) {
+                return;
+            }
+            rotationLock.readLock().lock();
+            try {
+                append = log.append(records);
+                inFlight.add(append.sequence());
+            } finally {
+                rotationLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            if (append == null) {
+                return;
+            }
+            try {
+                append.written().join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("The change was committed but could not be written to the fleet journal",
+                        e.getCause());
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(WalFleetJournal.this);
+            if (append == null) {
+                return;
+            }
+            if (status != STATUS_COMMITTED) {
+                log.cancel(append.sequence());
+            }
+            inFlight.remove(append.sequence());
+        }
+    }
+
+    /**
+     * The last image of every row changed in the log after the snapshot, by record type and ID.
+     */
+    private static final class Tail {
+        private final List<Map<Long, FleetRecord>> rows = List.of(
+                new LinkedHashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>());
+
+        void put(FleetRecord record) {
+            rows.get(FleetRecordCodec.typeOf(record)).put(record.id(), record);
+        }
+
+        boolean contains(FleetRecord record) {
+            return rows.get(FleetRecordCodec.typeOf(record)).containsKey(record.id());
+        }
+
+        Collection<FleetRecord> ofType(int type) {
+            return rows.get(type).values();
+        }
+
+        boolean isEmpty() {
+            return rows.stream().allMatch(Map::isEmpty);
+        }
+    }
+
+    /**
+     * Inserts records with one batched statement per table, executing the batch every {@link #BATCH_SIZE} rows.
+     */
+    private final class Loader implements AutoCloseable {
+        private final PreparedStatement[] statements = new PreparedStatement[FleetRecordCodec.DRONE_MEDICATION + 1];
+        private final int[] batched = new int[FleetRecordCodec.DRONE_MEDICATION + 1];
+        private final long[] counts = new long[FleetRecordCodec.DRONE_MEDICATION + 1];
+        private final long[] maxIds = new long[FleetRecordCodec.DRONE_MEDICATION + 1];
+        private int section = FleetRecordCodec.MEDICATION;
+
+        Loader(Connection connection) throws SQLException {
+            statements[FleetRecordCodec.MEDICATION] = connection.prepareStatement(INSERT_MEDICATION);
+            statements[FleetRecordCodec.DRONE] = connection.prepareStatement(INSERT_DRONE);
+            statements[FleetRecordCodec.DRONE_MEDICATION] = connection.prepareStatement(INSERT_DRONE_MEDICATION);
+        }
+
+        /**
+         * Finishes the tables before the given record type: inserts their tail rows and executes what is left of their batch.
+         */
+        void advanceTo(int type) {
+            while (section < type) {
+                tail.ofType(section).forEach(this::add);
+                execute(section);
+                section++;
+            }
+        }
+
+        void add(FleetRecord record) {
+            int type = FleetRecordCodec.typeOf(record);
+            PreparedStatement statement = statements[type];
+            try {
+                switch (record) {
+                    case MedicationImage medication -> {
+                        statement.setLong(1, medication.id());
+                        statement.setString(2, medication.name());
+                        statement.setInt(3, medication.weight());
+                        statement.setString(4, medication.code());
+                        statement.setString(5, medication.imageUrl());
+                    }
+                    case DroneImage drone -> {
+                        statement.setLong(1, drone.id());
+                        statement.setString(2, drone.serialNumber());
+                        statement.setString(3, drone.model().name());
+                        statement.setInt(4, drone.weightLimit());
+                        statement.setInt(5, drone.batteryCapacity());
+                        statement.setString(6, drone.state().name());
+                        statement.setInt(7, drone.loadedWeight());
+                        statement.setInt(8, drone.loadedItems());
+                    }
+                    case DroneMedicationImage droneMedication -> {
+                        statement.setLong(1, droneMedication.id());
+                        statement.setLong(2, droneMedication.droneId());
+                        statement.setLong(3, droneMedication.medicationId());
+                        statement.setBoolean(4, droneMedication.delivered());
+                    }
+                }
+                statement.addBatch();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not restore the fleet", e);
+            }
+            counts[type]++;
+            maxIds[type] = Math.max(maxIds[type], record.id());
+            if (++batched[type] == BATCH_SIZE) {
+                execute(type);
+            }
+        }
+
+        private void execute(int type) {
+            if (batched[type] == 0) {
+                return;
+            }
+            try {
+                statements[type].executeBatch();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not restore the fleet", e);
+            }
+            batched[type] = 0;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (PreparedStatement statement : statements) {
+                if (statement != null) {
+                    statement.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneManifestDTO;
+import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variant of the writing operations of {@link DroneService}, used on the request path.
+ * Each call runs on the drone service executor behind a resilience pipeline: retry, circuit breaker, rate limiter,
+ * time limiter and bulkhead. When the pipeline rejects a call, or it times out, the future fails with a
+ * {@link com.ajua.Dromed.exceptions.DroneServiceException}; any other failure of the call is passed on unchanged.
+ * A call that timed out may still be applied, so its failure is a
+ * {@link com.ajua.Dromed.exceptions.DroneServiceTimeoutException} that tells when the call has finished.
+ */
+public interface AsyncDroneService {
+
+    CompletableFuture<DroneDTO> registerDrone(String serialNumber, Model model, int weightLimit, int batteryCapacity, State state);
+
+    CompletableFuture<DroneMedicationDTO> loadDroneWithMedication(Long id, MedicationDTO medicationDTO);
+
+    CompletableFuture<DroneManifestDTO> loadDroneWithManifest(Long id, List<MedicationDTO> medicationDTOs);
+}
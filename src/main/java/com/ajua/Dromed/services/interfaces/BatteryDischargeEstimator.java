@@ -0,0 +1,36 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.BatteryPredictionDTO;
+import com.ajua.Dromed.dtos.BatteryReading;
+
+import java.util.List;
+
+/**
+ * Streaming estimate of how fast each drone is discharging, and of how long it has until it drops below the minimum
+ * battery level for loading. Used by the dispatcher to leave out drones that would not last a typical trip.
+ */
+public interface BatteryDischargeEstimator {
+
+    /**
+     * Folds a reading into the estimate of its drone, in constant time.
+     *
+     * @param reading The reading.
+     */
+    void record(BatteryReading reading);
+
+    /**
+     * Tells whether a drone is expected to stay above the minimum battery level for a typical trip,
+     * {@code dromed.dispatch.trip-duration}. A drone without readings yet is given the benefit of the doubt.
+     *
+     * @param droneId The ID of the drone.
+     * @return false if the drone is already below the minimum or is predicted to reach it during the trip.
+     */
+    boolean canCompleteTrip(Long droneId);
+
+    /**
+     * Gets the prediction of every drone read since startup.
+     *
+     * @return The predictions, ordered by drone ID.
+     */
+    List<BatteryPredictionDTO> getPredictions();
+}
@@ -0,0 +1,34 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.BatteryEvent;
+import com.ajua.Dromed.enums.OverflowPolicy;
+import com.ajua.Dromed.services.patterns.BatteryObserver;
+
+/**
+ * Delivers battery events to the battery observers asynchronously.
+ * Every observer has its own bounded buffer and consumer thread, so a slow observer only delays itself.
+ */
+public interface BatteryEventBus {
+
+    /**
+     * Subscribes an observer with the default overflow policy, {@code dromed.battery.events.overflow-policy}.
+     *
+     * @param observer The observer.
+     */
+    void subscribe(BatteryObserver observer);
+
+    /**
+     * Subscribes an observer.
+     *
+     * @param observer The observer.
+     * @param overflowPolicy What to do when the observer falls a full buffer behind.
+     */
+    void subscribe(BatteryObserver observer, OverflowPolicy overflowPolicy);
+
+    /**
+     * Publishes an event to every observer. Only blocks if an observer with the {@code BLOCK} policy has a full buffer.
+     *
+     * @param event The event.
+     */
+    void publish(BatteryEvent event);
+}
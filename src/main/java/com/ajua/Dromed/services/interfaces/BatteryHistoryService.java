@@ -0,0 +1,33 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.BatteryHistoryPointDTO;
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.enums.Resolution;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Battery history of the drones, as raw readings and as per minute, hour and day rollups (min, max, average and last level).
+ * Rollups are maintained incrementally as readings are recorded, so reading a long range does not scan the raw history.
+ */
+public interface BatteryHistoryService {
+
+    /**
+     * Appends a batch of readings to the history and folds them into the rollups.
+     *
+     * @param readings The readings, in the order they were taken.
+     */
+    void record(List<BatteryReading> readings);
+
+    /**
+     * Gets the battery history of a drone over a time range.
+     *
+     * @param droneId The ID of the drone.
+     * @param from The start of the range, inclusive. Rollups start at the bucket containing it.
+     * @param to The end of the range, exclusive.
+     * @param resolution The resolution of the points.
+     * @return The points, oldest first.
+     */
+    List<BatteryHistoryPointDTO> getBatteryHistory(Long droneId, LocalDateTime from, LocalDateTime to, Resolution resolution);
+}
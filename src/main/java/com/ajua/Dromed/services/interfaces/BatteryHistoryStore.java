@@ -0,0 +1,31 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Storage backend for the battery history of the drones.
+ * The backend is picked with {@code dromed.battery.history.backend}: {@code jdbc} (default) keeps the history in the
+ * {@code drone_battery_history} table, {@code segment} keeps it in compressed segment files.
+ */
+public interface BatteryHistoryStore {
+
+    /**
+     * Appends a batch of readings to the history.
+     *
+     * @param readings The readings, in the order they were taken.
+     */
+    void append(List<BatteryReading> readings);
+
+    /**
+     * Gets the readings of one drone taken in a time range.
+     *
+     * @param droneId The ID of the drone.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return The readings, oldest first.
+     */
+    List<BatteryReading> findReadings(Long droneId, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,23 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+
+/**
+ * Write-behind buffer for battery readings.
+ * Readings are queued in memory and written to the battery history and the drone table in batches.
+ */
+public interface BatteryHistoryWriter {
+
+    /**
+     * Queues a reading to be written. Blocks while the buffer is full, up to the configured offer timeout.
+     *
+     * @param reading The reading to write.
+     * @return true if the reading was queued, false if the buffer stayed full and the reading was dropped.
+     */
+    boolean write(BatteryReading reading);
+
+    /**
+     * Writes every reading queued so far and returns once they have been committed.
+     */
+    void flush();
+}
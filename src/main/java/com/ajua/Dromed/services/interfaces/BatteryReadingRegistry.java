@@ -0,0 +1,54 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Latest battery reading of every drone, and the dead-band filter deciding which readings are worth persisting.
+ * A reading is persisted when its level differs from the last persisted level of the drone by more than
+ * {@code dromed.battery.dead-band}, or when nothing has been persisted for the drone for {@code dromed.battery.max-silence}.
+ */
+public interface BatteryReadingRegistry {
+
+    /**
+     * Records a reading as the latest one of its drone.
+     * A reading that should be persisted only counts as persisted once {@link #markPersisted} is called for it.
+     *
+     * @param reading The reading.
+     * @return true if the reading should be persisted and observers notified, false if it is within the dead-band.
+     */
+    boolean record(BatteryReading reading);
+
+    /**
+     * Marks a reading as the last persisted one of its drone, which later readings are measured against.
+     *
+     * @param reading The reading, once it has been handed to the battery history writer.
+     */
+    void markPersisted(BatteryReading reading);
+
+    /**
+     * Forgets the last persisted reading of a drone, so its next reading is persisted whatever its level.
+     *
+     * @param droneId The ID of the drone, whose readings could not be written after all.
+     */
+    void forget(Long droneId);
+
+    /**
+     * Gets the latest battery level read from a drone, whether or not it was persisted.
+     *
+     * @param droneId The ID of the drone.
+     * @return The battery level, or empty if the drone has not been read since startup.
+     */
+    Optional<Integer> getLatestLevel(Long droneId);
+
+    /**
+     * Gets the latest battery levels read from several drones.
+     *
+     * @param droneIds The IDs of the drones.
+     * @return The battery level of each drone that has been read since startup, keyed by drone ID.
+     */
+    Map<Long, Integer> getLatestLevels(Collection<Long> droneIds);
+}
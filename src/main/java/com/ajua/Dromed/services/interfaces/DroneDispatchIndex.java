@@ -0,0 +1,67 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.models.Drone;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory index of the drones that are idle and can be dispatched.
+ * Keeps candidates ordered so that picking a drone for a payload does not require a table scan.
+ */
+public interface DroneDispatchIndex {
+
+    /**
+     * Adds a drone to the index, or refreshes its entry if it is already indexed.
+     *
+     * @param drone The idle drone.
+     */
+    void add(Drone drone);
+
+    /**
+     * Removes a drone from the index. Does nothing if the drone is not indexed.
+     *
+     * @param droneId The ID of the drone.
+     */
+    void remove(Long droneId);
+
+    /**
+     * Updates the battery level of an indexed drone. Does nothing if the drone is not indexed.
+     *
+     * @param droneId The ID of the drone.
+     * @param batteryLevel The new battery level.
+     */
+    void updateBatteryLevel(Long droneId, int batteryLevel);
+
+    /**
+     * Atomically removes and returns the best idle drone able to carry the given payload.
+     * Drones whose battery is below the minimum level for loading are passed over and stay in the index.
+     *
+     * @param payloadWeight The weight that has to be carried, in grams.
+     * @return The ID of the claimed drone, or empty if no indexed drone can carry the payload.
+     */
+    Optional<Long> claim(int payloadWeight);
+
+    /**
+     * Atomically removes and returns the best idle drone able to carry the given payload, passing over the drones the
+     * filter rejects and those whose battery is below the minimum level for loading. Passed-over drones stay in the index.
+     *
+     * @param payloadWeight The weight that has to be carried, in grams.
+     * @param eligible Tells whether a drone, by ID, may be dispatched.
+     * @return The ID of the claimed drone, or empty if no eligible indexed drone can carry the payload.
+     */
+    Optional<Long> claim(int payloadWeight, LongPredicate eligible);
+
+    /**
+     * Replaces the content of the index with the given idle drones.
+     *
+     * @param idleDrones The drones that are currently idle.
+     */
+    void rebuild(Collection<Drone> idleDrones);
+
+    /**
+     * @return The number of indexed drones.
+     */
+    int size();
+}
@@ -0,0 +1,36 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+
+import java.util.List;
+
+/**
+ * Transactional outbox for drone events.
+ * Events are stored in the same transaction as the change they describe, so an event exists if and only if
+ * the change was committed, and are relayed to the {@link DroneEventSink} in the background.
+ */
+public interface DroneEventOutbox {
+
+    /**
+     * Stores an event in the current transaction. Nothing is sent until the transaction has committed.
+     *
+     * @param event The event.
+     * @throws IllegalStateException if no transaction is active.
+     */
+    void append(DroneEvent event);
+
+    /**
+     * Stores several events in the current transaction with one batched insert.
+     *
+     * @param events The events, in the order they happened.
+     * @throws IllegalStateException if no transaction is active.
+     */
+    void appendAll(List<DroneEvent> events);
+
+    /**
+     * Delivers one batch of committed events to the sink and removes them from the outbox.
+     *
+     * @return The number of events delivered.
+     */
+    int relay();
+}
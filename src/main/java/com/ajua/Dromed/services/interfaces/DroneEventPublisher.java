@@ -0,0 +1,18 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+
+/**
+ * Publishes battery updates to downstream systems, on a best-effort basis.
+ * State changes need to be durable and go through the {@link DroneEventOutbox} instead.
+ * Kafka is used when {@code dromed.events.kafka.enabled} is true; otherwise events are discarded.
+ */
+public interface DroneEventPublisher {
+
+    /**
+     * Hands an event over for publishing and returns straight away.
+     *
+     * @param event The event.
+     */
+    void publish(DroneEvent event);
+}
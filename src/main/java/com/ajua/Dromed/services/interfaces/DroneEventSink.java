@@ -0,0 +1,21 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the drone events relayed from the outbox.
+ * Kafka is used when {@code dromed.events.kafka.enabled} is true; otherwise events are discarded.
+ */
+public interface DroneEventSink {
+
+    /**
+     * Delivers a batch of events, in order, and returns once the destination has accepted all of them.
+     * A batch that fails is delivered again, so the destination may see an event more than once.
+     *
+     * @param events The events, oldest first.
+     * @throws RuntimeException if the batch could not be delivered.
+     */
+    void deliver(List<DroneEvent> events);
+}
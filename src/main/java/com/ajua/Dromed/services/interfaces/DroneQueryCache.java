@@ -0,0 +1,27 @@
+package com.ajua.Dromed.services.interfaces;
+
+/**
+ * Invalidates the cached results of the drone queries when the data behind them changes.
+ * Entries are dropped straight away and again once the current transaction has committed,
+ * so a read made while the change was still in flight cannot leave a stale entry behind.
+ */
+public interface DroneQueryCache {
+
+    /**
+     * Drops every cached page of available (idle) drones.
+     * To be called whenever a drone enters or leaves the IDLE state, or an idle drone changes.
+     */
+    void evictAvailableDrones();
+
+    /**
+     * Drops the cached medications of one drone.
+     *
+     * @param droneId The ID of the drone whose medications changed.
+     */
+    void evictMedicationsByDrone(Long droneId);
+
+    /**
+     * Drops the cached medications of every drone, for changes to a medication that may be loaded on any of them.
+     */
+    void evictAllMedicationsByDrone();
+}
@@ -1,36 +1,76 @@
 package com.ajua.Dromed.services.interfaces;
 
 import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneManifestDTO;
 import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.BatteryLevelPageDTO;
+import com.ajua.Dromed.dtos.DronePageDTO;
 import com.ajua.Dromed.dtos.MedicationDTO;
 import com.ajua.Dromed.enums.Model;
 import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.enums.TransitionOutcome;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.github.resilience4j.retry.annotation.Retry;
 import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface DroneService {
 
     DroneDTO registerDrone(String serialNumber, Model model, int weightLimit, int batteryCapacity, State state);
     DroneMedicationDTO loadDroneWithMedication(Long id, MedicationDTO medicationDTO);
 
-    @Cacheable(cacheNames = "getAvailableDrones")
+    DroneManifestDTO loadDroneWithManifest(Long id, List<MedicationDTO> medicationDTOs);
+
     List<MedicationDTO> getMedicationsByDrone(Long droneId);
 
+    /**
+     * Gets the medications loaded on each of several drones.
+     *
+     * @param droneIds The IDs of the drones, at most {@code AbstractDroneService.MAX_BULK_DRONES}.
+     * @return The medications of each drone, keyed by drone ID in the order requested.
+     *         Drones without medications, and unknown drones, map to an empty list.
+     */
+    Map<Long, List<MedicationDTO>> getMedicationsByDrones(Collection<Long> droneIds);
 
 
-    @Cacheable(cacheNames = "getAvailableDrones")
-    List<DroneDTO> getAvailableDrones(State state);
+    /**
+     * Gets one page of drones, optionally filtered by state and model, ordered by ID.
+     *
+     * @param state Only drones in this state, or null for any state.
+     * @param model Only drones of this model, or null for any model.
+     * @param cursor The {@code nextCursor} of the previous page, or null for the first page.
+     * @param limit The number of drones per page, at most {@code AbstractDroneService.MAX_PAGE_SIZE}.
+     * @return The page.
+     */
+    DronePageDTO getDrones(State state, Model model, Long cursor, int limit);
 
     int checkDroneBatteryLevel(Long droneId);
 
+    /**
+     * Gets the latest battery levels of several drones.
+     *
+     * @param droneIds The IDs of the drones, at most {@code AbstractDroneService.MAX_BULK_DRONES}.
+     * @return The battery level of each known drone, keyed by drone ID in the order requested. Unknown drones are left out.
+     */
+    Map<Long, Integer> checkDroneBatteryLevels(Collection<Long> droneIds);
+
+    /**
+     * Gets the latest battery levels of the drones in a state, one page at a time.
+     *
+     * @param state The state of the drones.
+     * @param cursor The ID of the last drone of the previous page, or null for the first page.
+     * @param limit The number of drones per page, at most {@code AbstractDroneService.MAX_PAGE_SIZE}.
+     * @return The page, with the battery level of each drone keyed by drone ID in ID order.
+     */
+    BatteryLevelPageDTO checkDroneBatteryLevels(State state, Long cursor, int limit);
+
     @Transactional
     void startDelivery(Long droneId);
 
@@ -41,4 +81,14 @@ public interface DroneService {
     void returnToBase(Long droneId);
 
     ResponseEntity<Object> updateDroneState(Long id, State state);
+
+    /**
+     * Moves several drones to a state at once, for example to send out or recall a whole shift.
+     * Each drone is moved only if its current state allows it; the others are left as they are.
+     *
+     * @param droneIds The IDs of the drones, at most {@code AbstractDroneService.MAX_BULK_DRONES}.
+     * @param state The state to move the drones to: DELIVERING, DELIVERED, RETURNING or IDLE.
+     * @return What happened to each drone, keyed by drone ID in the order requested.
+     */
+    Map<Long, TransitionOutcome> transitionDrones(Collection<Long> droneIds, State state);
 }
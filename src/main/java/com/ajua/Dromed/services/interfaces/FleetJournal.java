@@ -0,0 +1,51 @@
+package com.ajua.Dromed.services.interfaces;
+
+import java.util.Collection;
+
+/**
+ * Durable record of the fleet (drones, medications and the medications loaded on drones), kept outside the database
+ * so the fleet survives a restart. The journal is used when {@code dromed.fleet.journal.enabled} is true;
+ * otherwise changes are not recorded and the fleet starts from the initial data.
+ * <p>
+ * Changes are recorded in the transaction that makes them: once that transaction has committed, the rows are written
+ * to the journal as they were at commit time, and the commit only returns once they are durable.
+ */
+public interface FleetJournal {
+
+    /**
+     * Records that drones were registered or changed in the current transaction.
+     *
+     * @param droneIds The IDs of the drones.
+     * @throws IllegalStateException if no transaction is active.
+     */
+    void dronesChanged(Collection<Long> droneIds);
+
+    /**
+     * Records that a medication was registered or changed in the current transaction.
+     *
+     * @param medicationId The ID of the medication.
+     * @throws IllegalStateException if no transaction is active.
+     */
+    void medicationChanged(Long medicationId);
+
+    /**
+     * Records that medications were loaded on drones, or delivered, in the current transaction.
+     *
+     * @param droneMedicationIds The IDs of the drone medication rows.
+     * @throws IllegalStateException if no transaction is active.
+     */
+    void droneMedicationsChanged(Collection<Long> droneMedicationIds);
+
+    /**
+     * Loads the fleet recorded by the journal into the database. Must be called on startup, before any change.
+     *
+     * @return Whether a fleet was restored; false when the journal is empty.
+     * @throws IllegalStateException if the database already holds drones.
+     */
+    boolean restore();
+
+    /**
+     * Writes a snapshot of the fleet, after which the part of the journal it covers is dropped.
+     */
+    void snapshot();
+}
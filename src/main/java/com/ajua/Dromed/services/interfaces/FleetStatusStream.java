@@ -0,0 +1,27 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes the status of the fleet to clients as Server-Sent Events.
+ * A client first receives every drone in {@code snapshot} events, one per page of drones, then a {@code drone} event for
+ * each state or battery change. A state change carries the state and battery level of the drone, and a battery change only the battery level;
+ * a client applies the fields a change carries, so applying it twice is harmless.
+ */
+public interface FleetStatusStream {
+
+    /**
+     * Opens a stream for one client.
+     *
+     * @return The emitter to return from the controller.
+     */
+    SseEmitter subscribe();
+
+    /**
+     * Passes a change on to every open stream. Never blocks on a client.
+     *
+     * @param event The change.
+     */
+    void publish(DroneEvent event);
+}
@@ -0,0 +1,30 @@
+package com.ajua.Dromed.services.interfaces;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Runs mutating requests at most once per idempotency key.
+ * The response of a request that completed is kept for a while and returned to every retry with the same key;
+ * a retry that arrives while the first request is still running waits for it instead of running again.
+ */
+public interface IdempotencyService {
+
+    /**
+     * Runs a call once for an idempotency key.
+     * Only successful responses are kept: once a call has failed, the next request with the key runs it again.
+     * A call that timed out may still be applied, so its key stays claimed until the call has finished, and retries
+     * get its late response instead of running it again.
+     *
+     * @param operation The name of the operation, so the same key can be used with different operations.
+     * @param key The idempotency key sent by the client, or null to run the call without deduplication.
+     * @param request The parameters of the request. A key may not be reused with different parameters.
+     * @param responseType The type of the response, used to read a stored response back.
+     * @param call The call to run if there is no response for the key yet.
+     * @return The response of the call, which may have been produced by an earlier request with the same key.
+     * @throws IllegalArgumentException if the key is blank or too long.
+     * @throws com.ajua.Dromed.exceptions.IdempotencyKeyReusedException if the key was used with different parameters.
+     */
+    <T> CompletableFuture<T> execute(String operation, String key, Object request, Class<T> responseType,
+                                     Supplier<CompletableFuture<T>> call);
+}
@@ -0,0 +1,28 @@
+package com.ajua.Dromed.services.interfaces;
+
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.models.Medication;
+
+/**
+ * Catalog of the medications that can be loaded onto drones, looked up by their unique code.
+ */
+public interface MedicationCatalog {
+
+    /**
+     * Gets a catalog entry by its code.
+     * The returned medication is shared and must be treated as read-only.
+     *
+     * @param code The code of the medication.
+     * @return The medication registered under the code.
+     * @throws com.ajua.Dromed.exceptions.ResourceNotFoundException if no medication has this code.
+     */
+    Medication getByCode(String code);
+
+    /**
+     * Registers a medication, or updates the entry that already has the same code.
+     *
+     * @param medicationDTO The medication to register.
+     * @return The registered medication.
+     */
+    MedicationDTO register(MedicationDTO medicationDTO);
+}
@@ -1,17 +1,18 @@
 package com.ajua.Dromed.services.patterns;
 
-import com.ajua.Dromed.models.Drone;
+import com.ajua.Dromed.dtos.BatteryEvent;
 
 /**
  * Interface defining the contract for components interested in receiving updates about drone battery levels.
  * Implementations of this interface should define how they respond to updates regarding a drone's battery status.
+ * Events are delivered by the battery event bus, on a thread of the observer's own, one at a time and in order.
  */
 public interface BatteryObserver {
     /**
      * Called when there is an update to the battery level of a drone.
      * Implementations should contain the logic to handle the updated battery information.
      *
-     * @param drone The drone whose battery level has been updated.
+     * @param event The new battery level of the drone.
      */
-    void update(Drone drone);
+    void update(BatteryEvent event);
 }
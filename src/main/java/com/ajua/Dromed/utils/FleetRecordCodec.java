@@ -0,0 +1,116 @@
+package com.ajua.Dromed.utils;
+
+import com.ajua.Dromed.dtos.FleetRecord;
+import com.ajua.Dromed.dtos.FleetRecord.DroneImage;
+import com.ajua.Dromed.dtos.FleetRecord.DroneMedicationImage;
+import com.ajua.Dromed.dtos.FleetRecord.MedicationImage;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of {@link FleetRecord}s used by the fleet journal.
+ * Each record starts with a type byte, followed by its fields: numbers as variable-length integers,
+ * enums by ordinal, flags as one byte, and strings as their UTF-8 length plus one (zero for null) and their bytes.
+ * The types are numbered in foreign key order, so sorting records by type inserts referenced rows first.
+ */
+public class FleetRecordCodec {
+
+    public static final int MEDICATION = 1;
+    public static final int DRONE = 2;
+    public static final int DRONE_MEDICATION = 3;
+
+    private static final Model[] MODELS = Model.values();
+    private static final State[] STATES = State.values();
+
+    /**
+     * @param record The record.
+     * @return The type byte the record is written with.
+     */
+    public static int typeOf(FleetRecord record) {
+        return switch (record) {
+            case MedicationImage medication -> MEDICATION;
+            case DroneImage drone -> DRONE;
+            case DroneMedicationImage droneMedication -> DRONE_MEDICATION;
+        };
+    }
+
+    /**
+     * Writes a record.
+     *
+     * @param out The stream to write to.
+     * @param record The record.
+     */
+    public static void write(ByteArrayOutputStream out, FleetRecord record) {
+        out.write(typeOf(record));
+        VarIntCodec.writeVarLong(out, record.id());
+        switch (record) {
+            case MedicationImage medication -> {
+                writeString(out, medication.name());
+                VarIntCodec.writeSignedVarLong(out, medication.weight());
+                writeString(out, medication.code());
+                writeString(out, medication.imageUrl());
+            }
+            case DroneImage drone -> {
+                writeString(out, drone.serialNumber());
+                VarIntCodec.writeVarLong(out, drone.model().ordinal());
+                VarIntCodec.writeSignedVarLong(out, drone.weightLimit());
+                VarIntCodec.writeSignedVarLong(out, drone.batteryCapacity());
+                VarIntCodec.writeVarLong(out, drone.state().ordinal());
+                VarIntCodec.writeSignedVarLong(out, drone.loadedWeight());
+                VarIntCodec.writeSignedVarLong(out, drone.loadedItems());
+            }
+            case DroneMedicationImage droneMedication -> {
+                VarIntCodec.writeVarLong(out, droneMedication.droneId());
+                VarIntCodec.writeVarLong(out, droneMedication.medicationId());
+                out.write(droneMedication.delivered() ? 1 : 0);
+            }
+        }
+    }
+
+    /**
+     * Reads a record at the position of the buffer.
+     *
+     * @param in The buffer to read from.
+     * @return The record.
+     * @throws IllegalArgumentException if the type byte is unknown.
+     */
+    public static FleetRecord read(ByteBuffer in) {
+        int type = in.get();
+        long id = VarIntCodec.readVarLong(in);
+        return switch (type) {
+            case MEDICATION -> new MedicationImage(id, readString(in), (int) VarIntCodec.readSignedVarLong(in),
+                    readString(in), readString(in));
+            case DRONE -> new DroneImage(id, readString(in), MODELS[(int) VarIntCodec.readVarLong(in)],
+                    (int) VarIntCodec.readSignedVarLong(in), (int) VarIntCodec.readSignedVarLong(in),
+                    STATES[(int) VarIntCodec.readVarLong(in)],
+                    (int) VarIntCodec.readSignedVarLong(in), (int) VarIntCodec.readSignedVarLong(in));
+            case DRONE_MEDICATION -> new DroneMedicationImage(id, VarIntCodec.readVarLong(in), VarIntCodec.readVarLong(in),
+                    in.get() != 0);
+            default -> throw new IllegalArgumentException("Unknown fleet record type " + type);
+        };
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            VarIntCodec.writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        VarIntCodec.writeVarLong(out, bytes.length + 1L);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) VarIntCodec.readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,29 @@
+package com.ajua.Dromed.utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Validates the fields of a medication.
+ * The patterns are compiled once, as validation runs on every load.
+ */
+public class MedicationValidator {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9-_]+$");
+    private static final Pattern CODE_PATTERN = Pattern.compile("^[A-Z0-9_]+$");
+
+    /**
+     * Validates the name and code of a medication.
+     *
+     * @param name The name of the medication.
+     * @param code The code of the medication.
+     * @throws IllegalArgumentException if the name or code is missing or contains invalid characters.
+     */
+    public static void validate(String name, String code) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Medication name contains invalid characters");
+        }
+        if (code == null || !CODE_PATTERN.matcher(code).matches()) {
+            throw new IllegalArgumentException("Medication code contains invalid characters");
+        }
+    }
+}
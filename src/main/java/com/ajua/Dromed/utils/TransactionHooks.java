@@ -0,0 +1,52 @@
+package com.ajua.Dromed.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs actions at the end of the current transaction.
+ * Used to keep in-memory structures in line with what has actually been written to the database.
+ */
+public class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Runs an action once the current transaction has committed, or immediately when no transaction is active.
+     *
+     * @param action The action to run.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs an action once the current transaction has rolled back, including a rollback caused by a failure while
+     * committing. Does nothing when no transaction is active, as there is nothing to roll back.
+     *
+     * @param action The action to run.
+     */
+    public static void afterRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
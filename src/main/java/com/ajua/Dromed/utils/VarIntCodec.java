@@ -0,0 +1,66 @@
+package com.ajua.Dromed.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length integer encoding used by the battery history segment files.
+ * Values are written seven bits at a time, so small numbers take a single byte;
+ * signed values are zig-zag encoded first so that small negative numbers stay small too.
+ */
+public class VarIntCodec {
+
+    /**
+     * Writes an unsigned variable-length long.
+     *
+     * @param out The stream to write to.
+     * @param value The value, treated as unsigned.
+     */
+    public static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Writes a signed variable-length long.
+     *
+     * @param out The stream to write to.
+     * @param value The value.
+     */
+    public static void writeSignedVarLong(ByteArrayOutputStream out, long value) {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Reads an unsigned variable-length long at the position of the buffer.
+     *
+     * @param in The buffer to read from.
+     * @return The value.
+     * @throws IllegalArgumentException if the encoding is longer than ten bytes.
+     */
+    public static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /**
+     * Reads a signed variable-length long at the position of the buffer.
+     *
+     * @param in The buffer to read from.
+     * @return The value.
+     */
+    public static long readSignedVarLong(ByteBuffer in) {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,214 @@
+package com.ajua.Dromed;
+
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Load test of the drone list endpoint with Tomcat on platform threads and on virtual threads,
+ * at 1000, 5000 and 10000 concurrent clients. Every query waits {@link #QUERY_LATENCY} before it runs,
+ * as it would against a database across the network.
+ * The clients run in a separate JVM, so that their sockets do not count against the file limit of the server.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadBenchmarkTest {
+
+    private static final int[] CLIENTS = {1_000, 5_000, 10_000};
+    private static final Duration QUERY_LATENCY = Duration.ofMillis(5);
+    private static final Duration WARM_UP = Duration.ofSeconds(5);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+    private static final String PATH = "/api/v1/drones?state=DELIVERING&limit=20";
+
+    @Test
+    void testThroughputAndLatencyOfPlatformAndVirtualThreads() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            LongAdder pinned = new LongAdder();
+            try (RecordingStream recording = new RecordingStream()) {
+                recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(1)).withStackTrace();
+                recording.onEvent("jdk.VirtualThreadPinned", event -> {
+                    pinned.increment();
+                    System.out.println(event);
+                });
+                recording.startAsync();
+
+                ConfigurableApplicationContext context = new SpringApplicationBuilder(DromedApplication.class, SlowDatabase.class)
+                        .properties("server.port=0",
+                                "spring.threads.virtual.enabled=" + virtual,
+                                "server.tomcat.max-connections=" + (CLIENTS[CLIENTS.length - 1] + 1_000),
+                                "server.tomcat.accept-count=4096",
+                                "logging.level.org.springframework.web=WARN",
+                                "logging.level.org.springdoc=WARN")
+                        .run();
+                try {
+                    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                    for (int clients : CLIENTS) {
+                        String result = runClients("http://localhost:" + port + PATH, clients);
+                        lines.add(String.format("%-9s %s", virtual ? "virtual" : "platform", result));
+                    }
+                } finally {
+                    context.close();
+                }
+            }
+            if (virtual) {
+                assertEquals(0, pinned.sum(), "Virtual threads were pinned");
+            }
+        }
+
+        System.out.printf("%-9s %8s %12s %10s %10s %8s%n", "threads", "clients", "requests/s", "p50 ms", "p99 ms", "errors");
+        lines.forEach(System.out::println);
+    }
+
+    private static String runClients(String url, int clients) throws Exception {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-Xss256k", "-cp", System.getProperty("java.class.path"),
+                LoadClient.class.getName(), url, String.valueOf(clients),
+                String.valueOf(WARM_UP.toMillis()), String.valueOf(MEASUREMENT.toMillis()))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String result = output.readLine();
+            process.waitFor();
+            return result;
+        }
+    }
+
+    /**
+     * Delays every statement the application executes, to stand in for the round trip to a remote database.
+     */
+    @TestConfiguration
+    static class SlowDatabase {
+
+        @Bean
+        static BeanPostProcessor slowDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? delay(dataSource, DataSource.class) : bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T delay(T target, Class<T> type) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    Thread.sleep(QUERY_LATENCY);
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    if (result instanceof Connection connection) {
+                        return delay(connection, Connection.class);
+                    }
+                    if (result instanceof PreparedStatement statement) {
+                        return delay(statement, PreparedStatement.class);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs the clients: each one sends a request, waits for the response and sends the next, on its own virtual thread.
+     * Prints one line with the throughput, the median and 99th percentile latency and the number of failed requests,
+     * counting the requests that completed during the measurement.
+     */
+    public static class LoadClient {
+
+        public static void main(String[] args) throws Exception {
+            URI uri = URI.create(args[0]);
+            int clients = Integer.parseInt(args[1]);
+            long warmUpNanos = Duration.ofMillis(Long.parseLong(args[2])).toNanos();
+            long measurementNanos = Duration.ofMillis(Long.parseLong(args[3])).toNanos();
+
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build();
+            long start = System.nanoTime();
+            long measureFrom = start + warmUpNanos;
+            long measureUntil = measureFrom + measurementNanos;
+            AtomicLong errors = new AtomicLong();
+            long[][] latencies = new long[clients][];
+            CountDownLatch done = new CountDownLatch(clients);
+
+            for (int client = 0; client < clients; client++) {
+                int index = client;
+                Thread.ofVirtual().start(() -> {
+                    long[] own = new long[64];
+                    int count = 0;
+                    try {
+                        while (System.nanoTime() < measureUntil) {
+                            long sent = System.nanoTime();
+                            boolean ok;
+                            try {
+                                ok = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                            } catch (Exception e) {
+                                ok = false;
+                            }
+                            long received = System.nanoTime();
+                            if (received < measureFrom || received > measureUntil) {
+                                continue;
+                            }
+                            if (!ok) {
+                                errors.incrementAndGet();
+                            } else {
+                                if (count == own.length) {
+                                    own = Arrays.copyOf(own, count * 2);
+                                }
+                                own[count++] = received - sent;
+                            }
+                        }
+                    } finally {
+                        latencies[index] = Arrays.copyOf(own, count);
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+
+            long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+            double seconds = measurementNanos / 1e9;
+            System.out.printf("%8d %12.0f %10.1f %10.1f %8d%n", clients, all.length / seconds,
+                    percentile(all, 0.50), percentile(all, 0.99), errors.get());
+            System.exit(0);
+        }
+
+        private static double percentile(long[] sorted, double percentile) {
+            return sorted.length == 0 ? Double.NaN : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)] / 1e6;
+        }
+    }
+}
@@ -2,8 +2,17 @@ package com.ajua.Dromed.contollers;
 import com.ajua.Dromed.controllers.DroneController;
 import com.ajua.Dromed.dtos.*;
 import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.Resolution;
 import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.enums.TransitionOutcome;
+import com.ajua.Dromed.exceptions.DroneServiceException;
+import com.ajua.Dromed.exceptions.IdempotencyKeyReusedException;
+import com.ajua.Dromed.services.interfaces.AsyncDroneService;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryService;
 import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
+import com.ajua.Dromed.services.interfaces.IdempotencyService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,9 +22,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -30,6 +46,21 @@ public class DroneControllerTest {
     @MockBean
     private DroneService droneService;
 
+    @MockBean
+    private AsyncDroneService asyncDroneService;
+
+    @MockBean
+    private BatteryHistoryService batteryHistoryService;
+
+    @MockBean
+    private BatteryDischargeEstimator batteryDischargeEstimator;
+
+    @MockBean
+    private FleetStatusStream fleetStatusStream;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -40,15 +71,21 @@ public class DroneControllerTest {
     public void setup() {
         droneDTO = new DroneDTO(1L, "SN123", Model.LIGHTWEIGHT, 300, 75, State.IDLE);
         medicationDTO = new MedicationDTO(1L, "Med1", 100, "CODE1", "http://image.url");
+        Mockito.when(idempotencyService.execute(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(4).get());
     }
 
     @Test
     public void testRegisterDrone() throws Exception {
-        Mockito.when(droneService.registerDrone(any(), any(), anyInt(), anyInt(), any())).thenReturn(droneDTO);
+        Mockito.when(asyncDroneService.registerDrone(any(), any(), anyInt(), anyInt(), any()))
+                .thenReturn(CompletableFuture.completedFuture(droneDTO));
 
-        mockMvc.perform(post("/api/v1/drones")
+        MvcResult result = mockMvc.perform(post("/api/v1/drones")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(droneDTO)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").value("Drone registered successfully"))
@@ -68,29 +105,118 @@ public class DroneControllerTest {
     public void testLoadDroneWithMedication() throws Exception {
         DroneMedicationDTO droneMedicationDTO = new DroneMedicationDTO(1L, droneDTO, medicationDTO);
 
-        Mockito.when(droneService.loadDroneWithMedication(anyLong(), any(MedicationDTO.class))).thenReturn(droneMedicationDTO);
+        Mockito.when(asyncDroneService.loadDroneWithMedication(anyLong(), any(MedicationDTO.class)))
+                .thenReturn(CompletableFuture.completedFuture(droneMedicationDTO));
 
-        mockMvc.perform(post("/api/v1/drones/1/medications")
+        MvcResult result = mockMvc.perform(post("/api/v1/drones/1/medications")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(medicationDTO)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").value("Medication loaded successfully"))
                 .andExpect(jsonPath("$.data.drone.serialNumber").value("SN123"));
     }
 
+    @Test
+    public void testLoadDroneWithManifest() throws Exception {
+        List<MedicationDTO> medications = List.of(medicationDTO, new MedicationDTO(2L, "Med2", 50, "CODE2", null));
+        DroneManifestDTO droneManifestDTO = new DroneManifestDTO(droneDTO, medications);
+
+        Mockito.when(asyncDroneService.loadDroneWithManifest(anyLong(), anyList()))
+                .thenReturn(CompletableFuture.completedFuture(droneManifestDTO));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/drones/1/manifest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(medications)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Manifest loaded successfully"))
+                .andExpect(jsonPath("$.data.drone.serialNumber").value("SN123"))
+                .andExpect(jsonPath("$.data.medications[1].code").value("CODE2"));
+    }
+
+    @Test
+    public void testRegisterDroneWithIdempotencyKey() throws Exception {
+        Mockito.doReturn(CompletableFuture.completedFuture(droneDTO))
+                .doThrow(new IdempotencyKeyReusedException("Idempotency-Key was already used with a different request"))
+                .when(idempotencyService).execute(eq("registerDrone"), eq("key-1"), any(), eq(DroneDTO.class), any());
+
+        MvcResult result = mockMvc.perform(post("/api/v1/drones")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(droneDTO)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.data.serialNumber").value("SN123"));
+
+        mockMvc.perform(post("/api/v1/drones")
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(droneDTO)))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.success").value(false));
+        Mockito.verifyNoInteractions(asyncDroneService);
+    }
+
+    @Test
+    public void testLoadDroneWithMedicationFailures() throws Exception {
+        Mockito.when(asyncDroneService.loadDroneWithMedication(anyLong(), any(MedicationDTO.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalArgumentException("Invalid medication code")))
+                .thenReturn(CompletableFuture.failedFuture(new DroneServiceException("Drone service timed out")));
+
+        MvcResult rejected = mockMvc.perform(post("/api/v1/drones/1/medications")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(medicationDTO)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(rejected))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid medication code"));
+
+        MvcResult timedOut = mockMvc.perform(post("/api/v1/drones/1/medications")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(medicationDTO)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(timedOut))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("Drone service timed out"));
+    }
 
     @Test
     public void testGetAvailableDrones() throws Exception {
         List<DroneDTO> drones = Collections.singletonList(droneDTO);
 
-        Mockito.when(droneService.getAvailableDrones(any())).thenReturn(drones);
+        Mockito.when(droneService.getDrones(any(), any(), any(), anyInt())).thenReturn(new DronePageDTO(drones, null));
 
         mockMvc.perform(get("/api/v1/drones"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").value("List of available drones"))
                 .andExpect(jsonPath("$.data[0].serialNumber").value("SN123"));
+        Mockito.verify(droneService).getDrones(null, null, null, 50);
+    }
+
+    @Test
+    public void testGetDronesPage() throws Exception {
+        Mockito.when(droneService.getDrones(State.LOADED, Model.LIGHTWEIGHT, 10L, 1))
+                .thenReturn(new DronePageDTO(List.of(droneDTO), 1L));
+
+        mockMvc.perform(get("/api/v1/drones")
+                        .param("state", "LOADED")
+                        .param("model", "LIGHTWEIGHT")
+                        .param("cursor", "10")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].serialNumber").value("SN123"))
+                .andExpect(jsonPath("$.nextCursor").value(1));
     }
 
     @Test
@@ -104,6 +230,84 @@ public class DroneControllerTest {
                 .andExpect(jsonPath("$.data").value(75));
     }
 
+    @Test
+    public void testCheckBatteryLevels() throws Exception {
+        Map<Long, Integer> levels = new LinkedHashMap<>();
+        levels.put(1L, 75);
+        levels.put(2L, 40);
+        Mockito.when(droneService.checkDroneBatteryLevels(List.of(1L, 2L))).thenReturn(levels);
+        Mockito.when(droneService.checkDroneBatteryLevels(State.IDLE, null, 50)).thenReturn(new BatteryLevelPageDTO(Map.of(1L, 75), null));
+        Mockito.when(droneService.checkDroneBatteryLevels(State.IDLE, 1L, 1)).thenReturn(new BatteryLevelPageDTO(Map.of(2L, 40), 2L));
+
+        mockMvc.perform(get("/api/v1/drones/battery-levels").param("droneIds", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Battery levels retrieved successfully"))
+                .andExpect(jsonPath("$.data['1']").value(75))
+                .andExpect(jsonPath("$.data['2']").value(40));
+
+        mockMvc.perform(get("/api/v1/drones/battery-levels").param("state", "IDLE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data['1']").value(75))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/v1/drones/battery-levels").param("state", "IDLE").param("cursor", "1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data['2']").value(40))
+                .andExpect(jsonPath("$.nextCursor").value(2));
+
+        mockMvc.perform(get("/api/v1/drones/battery-levels"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    public void testGetBatteryHistory() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 7, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 7, 8, 0, 0);
+        BatteryHistoryPointDTO point = new BatteryHistoryPointDTO(from, 40, 90, 65.5, 42, 60);
+
+        Mockito.when(batteryHistoryService.getBatteryHistory(1L, from, to, Resolution.HOUR)).thenReturn(List.of(point));
+
+        mockMvc.perform(get("/api/v1/drones/1/battery-history")
+                        .param("from", "2024-07-01T00:00:00")
+                        .param("to", "2024-07-08T00:00:00")
+                        .param("resolution", "HOUR"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Battery history retrieved successfully"))
+                .andExpect(jsonPath("$.data[0].minLevel").value(40))
+                .andExpect(jsonPath("$.data[0].averageLevel").value(65.5))
+                .andExpect(jsonPath("$.data[0].lastLevel").value(42));
+    }
+
+    @Test
+    public void testGetBatteryHistoryDefaultsToLastDayOfRawReadings() throws Exception {
+        Mockito.when(batteryHistoryService.getBatteryHistory(eq(1L), any(), any(), eq(Resolution.RAW))).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/drones/1/battery-history"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").isEmpty());
+
+        Mockito.verify(batteryHistoryService).getBatteryHistory(eq(1L),
+                argThat(from -> from.isBefore(LocalDateTime.now().minusHours(23))), any(), eq(Resolution.RAW));
+    }
+
+    @Test
+    public void testGetBatteryPredictions() throws Exception {
+        Mockito.when(batteryDischargeEstimator.getPredictions()).thenReturn(List.of(
+                new BatteryPredictionDTO(1L, 40, 60.0, 15.0, false),
+                new BatteryPredictionDTO(2L, 90, 0.0, null, true)));
+
+        mockMvc.perform(get("/api/v1/drones/battery-predictions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Battery predictions retrieved successfully"))
+                .andExpect(jsonPath("$.data[0].minutesToMinimum").value(15.0))
+                .andExpect(jsonPath("$.data[0].canCompleteTrip").value(false))
+                .andExpect(jsonPath("$.data[1].minutesToMinimum").doesNotExist());
+    }
+
     @Test
     public void testGetMedicationsByDrone() throws Exception {
         List<MedicationDTO> medications = Collections.singletonList(medicationDTO);
@@ -117,6 +321,22 @@ public class DroneControllerTest {
                 .andExpect(jsonPath("$.data[0].name").value("Med1"));
     }
 
+    @Test
+    public void testGetMedicationsByDrones() throws Exception {
+        Map<Long, List<MedicationDTO>> medications = new LinkedHashMap<>();
+        medications.put(1L, List.of(medicationDTO));
+        medications.put(2L, List.of());
+
+        Mockito.when(droneService.getMedicationsByDrones(List.of(1L, 2L))).thenReturn(medications);
+
+        mockMvc.perform(get("/api/v1/drones/medications").param("droneIds", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Medications retrieved successfully"))
+                .andExpect(jsonPath("$.data['1'][0].name").value("Med1"))
+                .andExpect(jsonPath("$.data['2']").isEmpty());
+    }
+
     @Test
     public void testHandleDelivery() throws Exception {
         mockMvc.perform(post("/api/v1/drones/1/deliveries?action=start"))
@@ -137,4 +357,38 @@ public class DroneControllerTest {
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").value("Drone return process started"));
     }
+
+    @Test
+    public void testTransitionDrones() throws Exception {
+        Map<Long, TransitionOutcome> outcomes = new LinkedHashMap<>();
+        outcomes.put(1L, TransitionOutcome.MOVED);
+        outcomes.put(2L, TransitionOutcome.CONFLICT);
+        Mockito.when(droneService.transitionDrones(List.of(1L, 2L), State.DELIVERING)).thenReturn(outcomes);
+        Mockito.when(droneService.transitionDrones(List.of(1L), State.LOADING))
+                .thenThrow(new IllegalArgumentException("Drones can only be moved to DELIVERING, DELIVERED, RETURNING or IDLE"));
+
+        mockMvc.perform(post("/api/v1/drones/transitions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DroneTransitionDTO(List.of(1L, 2L), State.DELIVERING))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data['1']").value("MOVED"))
+                .andExpect(jsonPath("$.data['2']").value("CONFLICT"));
+
+        mockMvc.perform(post("/api/v1/drones/transitions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DroneTransitionDTO(List.of(1L), State.LOADING))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    public void testStreamFleetStatus() throws Exception {
+        Mockito.when(fleetStatusStream.subscribe()).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/v1/drones/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+    }
 }
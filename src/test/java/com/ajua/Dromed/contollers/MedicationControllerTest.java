@@ -0,0 +1,70 @@
+package com.ajua.Dromed.contollers;
+import com.ajua.Dromed.controllers.MedicationController;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.exceptions.ResourceNotFoundException;
+import com.ajua.Dromed.models.Medication;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MedicationController.class)
+public class MedicationControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MedicationCatalog medicationCatalog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MedicationDTO medicationDTO;
+
+    @BeforeEach
+    public void setup() {
+        medicationDTO = new MedicationDTO(1L, "Med1", 100, "CODE1", "http://image.url");
+    }
+
+    @Test
+    public void testRegisterMedication() throws Exception {
+        Mockito.when(medicationCatalog.register(any(MedicationDTO.class))).thenReturn(medicationDTO);
+
+        mockMvc.perform(post("/api/v1/medications")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(medicationDTO)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Medication registered successfully"))
+                .andExpect(jsonPath("$.data.code").value("CODE1"));
+    }
+
+    @Test
+    public void testGetMedication() throws Exception {
+        Mockito.when(medicationCatalog.getByCode("CODE1")).thenReturn(new Medication(1L, "Med1", 100, "CODE1", "http://image.url"));
+
+        mockMvc.perform(get("/api/v1/medications/CODE1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.weight").value(100));
+    }
+
+    @Test
+    public void testGetUnknownMedication() throws Exception {
+        Mockito.when(medicationCatalog.getByCode("NOPE")).thenThrow(new ResourceNotFoundException("Medication not found: NOPE"));
+
+        mockMvc.perform(get("/api/v1/medications/NOPE"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,148 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneManifestDTO;
+import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.exceptions.DroneNotAvailableException;
+import com.ajua.Dromed.exceptions.DroneServiceException;
+import com.ajua.Dromed.exceptions.DroneServiceTimeoutException;
+import com.ajua.Dromed.services.interfaces.AsyncDroneService;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.IdempotencyService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that the resilience pipeline is applied to the asynchronous drone service:
+ * transient failures are retried, rejected requests are not, and slow calls time out.
+ */
+@SpringBootTest(properties = {
+        "resilience4j.retry.configs.default.waitDuration=10ms",
+        "resilience4j.timelimiter.instances.loadDroneWithMedication.timeoutDuration=200ms",
+        "resilience4j.ratelimiter.instances.loadDroneWithManifest.limitForPeriod=1",
+        "resilience4j.ratelimiter.instances.loadDroneWithManifest.limitRefreshPeriod=1h"
+})
+@DirtiesContext
+class AsyncDroneServiceImplTest {
+
+    @Autowired
+    private AsyncDroneService asyncDroneService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private DroneService droneService;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @Test
+    void testTransientFailuresAreRetried() throws Exception {
+        DroneDTO droneDTO = new DroneDTO(1L, "RETRY1", Model.LIGHTWEIGHT, 100, 100, State.IDLE);
+        when(droneService.registerDrone(any(), any(), anyInt(), anyInt(), any()))
+                .thenThrow(new CannotCreateTransactionException("Connection refused"))
+                .thenReturn(droneDTO);
+
+        CompletableFuture<DroneDTO> result = asyncDroneService.registerDrone("RETRY1", Model.LIGHTWEIGHT, 100, 100, State.IDLE);
+
+        assertEquals(droneDTO, result.get(5, TimeUnit.SECONDS));
+        verify(droneService, times(2)).registerDrone(any(), any(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void testRejectedRequestsAreNotRetried() {
+        when(droneService.loadDroneWithMedication(any(), any()))
+                .thenThrow(new DroneNotAvailableException("No drone available"));
+
+        CompletableFuture<DroneMedicationDTO> result = asyncDroneService.loadDroneWithMedication(null, medication());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DroneNotAvailableException.class, e.getCause());
+        verify(droneService, times(1)).loadDroneWithMedication(any(), any());
+    }
+
+    @Test
+    void testSlowCallsTimeOut() {
+        when(droneService.loadDroneWithMedication(any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(2_000);
+            return null;
+        });
+
+        CompletableFuture<DroneMedicationDTO> result = asyncDroneService.loadDroneWithMedication(1L, medication());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DroneServiceException.class, e.getCause());
+        assertEquals("Drone service timed out", e.getCause().getMessage());
+    }
+
+    @Test
+    void testManifestLoadsAreRateLimited() throws Exception {
+        DroneManifestDTO manifest = new DroneManifestDTO();
+        when(droneService.loadDroneWithManifest(any(), any())).thenReturn(manifest);
+
+        assertSame(manifest, asyncDroneService.loadDroneWithManifest(null, List.of(medication())).get(5, TimeUnit.SECONDS));
+        CompletableFuture<DroneManifestDTO> limited = asyncDroneService.loadDroneWithManifest(null, List.of(medication()));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> limited.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DroneServiceException.class, e.getCause());
+        assertEquals("Drone service is temporarily unavailable", e.getCause().getMessage());
+        verify(droneService, times(1)).loadDroneWithManifest(any(), any());
+    }
+
+    /**
+     * The time limiter gives up on the call, which then commits: a retry with the same Idempotency-Key gets the
+     * late response instead of loading another drone.
+     */
+    @Test
+    void testRetryOfTimedOutCallDoesNotRunAgain() throws Exception {
+        DroneMedicationDTO loaded = new DroneMedicationDTO();
+        CountDownLatch committed = new CountDownLatch(1);
+        when(droneService.loadDroneWithMedication(any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            committed.countDown();
+            return loaded;
+        });
+        MedicationDTO medication = medication();
+
+        CompletableFuture<DroneMedicationDTO> first = load("late-commit", medication);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DroneServiceTimeoutException.class, e.getCause());
+        assertEquals(1, committed.getCount());
+
+        assertSame(loaded, load("late-commit", medication).get(5, TimeUnit.SECONDS));
+        assertTrue(committed.await(0, TimeUnit.SECONDS));
+        assertSame(loaded, load("late-commit", medication).get(5, TimeUnit.SECONDS));
+        verify(droneService, times(1)).loadDroneWithMedication(any(), any());
+    }
+
+    private CompletableFuture<DroneMedicationDTO> load(String idempotencyKey, MedicationDTO medication) {
+        return idempotencyService.execute("loadDroneWithMedication", idempotencyKey, List.of(1L, medication),
+                DroneMedicationDTO.class, () -> asyncDroneService.loadDroneWithMedication(1L, medication));
+    }
+
+    private static MedicationDTO medication() {
+        return new MedicationDTO(null, null, 0, "ASYNC", null);
+    }
+}
@@ -0,0 +1,212 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryEvent;
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.models.Drone;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import com.ajua.Dromed.services.interfaces.BatteryEventBus;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryWriter;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneDispatchIndex;
+import com.ajua.Dromed.services.interfaces.DroneEventPublisher;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatteryCheckServiceImplTest {
+
+    private static final int DRONES = 200;
+    private static final long READ_MILLIS = 50;
+    private static final int MAX_CONCURRENCY = 50;
+
+    @Mock
+    private DroneRepository droneRepository;
+
+    @Mock
+    private BatteryLevelReader batteryLevelReader;
+
+    @Mock
+    private BatteryHistoryWriter batteryHistoryWriter;
+
+    @Spy
+    private BatteryReadingRegistryImpl batteryReadingRegistry =
+            new BatteryReadingRegistryImpl(new SimpleMeterRegistry(), 0, Duration.ofMinutes(15));
+
+    @Mock
+    private BatteryDischargeEstimator batteryDischargeEstimator;
+
+    @Mock
+    private BatteryEventBus batteryEventBus;
+
+    @Mock
+    private DroneEventPublisher droneEventPublisher;
+
+    @Mock
+    private FleetStatusStream fleetStatusStream;
+
+    @Mock
+    private DroneDispatchIndex dispatchIndex;
+
+    @Mock
+    private DroneQueryCache droneQueryCache;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private BatteryCheckServiceImpl batteryCheckService;
+
+    private List<Drone> drones;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(batteryCheckService, "maxConcurrency", MAX_CONCURRENCY);
+        ReflectionTestUtils.setField(batteryCheckService, "readTimeout", Duration.ofMillis(500));
+        batteryCheckService.init();
+
+        drones = new ArrayList<>();
+        for (long id = 1; id <= DRONES; id++) {
+            drones.add(new Drone(id, "SN" + id, Model.LIGHTWEIGHT, 200, 90, State.IDLE));
+        }
+        when(droneRepository.findAll()).thenReturn(drones);
+        lenient().when(batteryHistoryWriter.write(any(BatteryReading.class))).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batteryCheckService.shutdown();
+    }
+
+    @Test
+    void testSlowReadsArePolledInParallel() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(batteryLevelReader.readBatteryLevel(any())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(READ_MILLIS);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return 80;
+        });
+
+        batteryCheckService.checkBatteryLevels();
+
+        // Reads overlap, but never more of them than the configured bound
+        assertTrue(peak.get() > 1, "At most " + peak.get() + " read at a time");
+        assertTrue(peak.get() <= MAX_CONCURRENCY, peak.get() + " reads at a time");
+        verify(batteryHistoryWriter, times(DRONES)).write(argThat(reading -> reading.batteryLevel() == 80));
+        drones.forEach(drone -> assertEquals(80, drone.getBatteryCapacity()));
+        verify(droneQueryCache).evictAvailableDrones();
+        assertEquals(1, meterRegistry.get("dromed.battery.check.duration").timer().count());
+    }
+
+    @Test
+    void testSlowDroneTimesOutWithoutStallingTheCycle() {
+        Drone stuck = drones.getFirst();
+        when(batteryLevelReader.readBatteryLevel(any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == stuck) {
+                Thread.sleep(10_000);
+            }
+            return 80;
+        });
+
+        long start = System.nanoTime();
+        batteryCheckService.checkBatteryLevels();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 5_000, "Cycle took " + elapsedMillis + " ms");
+        assertEquals(90, stuck.getBatteryCapacity());
+        verify(batteryHistoryWriter, never()).write(argThat(reading -> reading.droneId().equals(stuck.getId())));
+        verify(batteryHistoryWriter, times(DRONES - 1)).write(any(BatteryReading.class));
+        assertEquals(1.0, meterRegistry.get("dromed.battery.read.timeouts").counter().count());
+    }
+
+    @Test
+    void testFailedReadDoesNotStopOtherDrones() {
+        Drone broken = drones.getFirst();
+        when(batteryLevelReader.readBatteryLevel(any())).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == broken) {
+                throw new IllegalStateException("Sensor offline");
+            }
+            return 90;
+        });
+
+        batteryCheckService.checkBatteryLevels();
+
+        verify(batteryHistoryWriter, times(DRONES - 1)).write(argThat(reading -> reading.batteryLevel() == 90));
+        // No idle drone changed level, so the cached list of available drones is kept
+        verify(droneQueryCache, never()).evictAvailableDrones();
+        assertEquals(1.0, meterRegistry.get("dromed.battery.read.failures").counter().count());
+    }
+
+    @Test
+    void testUnchangedReadingsAreNotPersisted() {
+        when(batteryLevelReader.readBatteryLevel(any())).thenReturn(80);
+        batteryCheckService.checkBatteryLevels();
+        clearInvocations(batteryHistoryWriter, batteryEventBus, fleetStatusStream, droneQueryCache);
+
+        Drone moved = drones.getFirst();
+        when(batteryLevelReader.readBatteryLevel(any())).thenAnswer(invocation -> invocation.getArgument(0) == moved ? 79 : 80);
+        batteryCheckService.checkBatteryLevels();
+
+        verify(batteryHistoryWriter).write(argThat(reading -> reading.droneId().equals(moved.getId()) && reading.batteryLevel() == 79));
+        verifyNoMoreInteractions(batteryHistoryWriter);
+        verify(batteryEventBus).publish(argThat((BatteryEvent event) -> event.droneId().equals(moved.getId())
+                && event.previousBatteryLevel() == 80 && event.batteryLevel() == 79));
+        verifyNoMoreInteractions(batteryEventBus);
+        verify(fleetStatusStream).publish(argThat((DroneEvent event) -> event.droneId().equals(moved.getId())
+                && event.type() == DroneEvent.Type.BATTERY_UPDATED && event.state() == null && event.batteryLevel() == 79));
+        verifyNoMoreInteractions(fleetStatusStream);
+        // Routing still sees every reading
+        verify(dispatchIndex, times(2 * DRONES)).updateBatteryLevel(any(), anyInt());
+        verify(batteryDischargeEstimator, times(2 * DRONES)).record(any(BatteryReading.class));
+        assertEquals(80, batteryReadingRegistry.getLatestLevel(drones.getLast().getId()).orElseThrow());
+    }
+
+    @Test
+    void testReadingTurnedAwayByFullBufferIsNotMarkedPersisted() {
+        when(batteryLevelReader.readBatteryLevel(any())).thenReturn(80);
+        when(batteryHistoryWriter.write(any(BatteryReading.class))).thenReturn(false);
+        batteryCheckService.checkBatteryLevels();
+
+        verify(batteryReadingRegistry, never()).markPersisted(any());
+        verifyNoInteractions(batteryEventBus, fleetStatusStream);
+        drones.forEach(drone -> assertEquals(90, drone.getBatteryCapacity()));
+
+        // The same level is let through again, as nothing was persisted for it
+        clearInvocations(batteryHistoryWriter);
+        when(batteryHistoryWriter.write(any(BatteryReading.class))).thenReturn(true);
+        batteryCheckService.checkBatteryLevels();
+
+        verify(batteryHistoryWriter, times(DRONES)).write(argThat(reading -> reading.batteryLevel() == 80));
+        drones.forEach(drone -> assertEquals(80, drone.getBatteryCapacity()));
+    }
+}
@@ -0,0 +1,84 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryPredictionDTO;
+import com.ajua.Dromed.dtos.BatteryReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryDischargeEstimatorImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 7, 1, 10, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BatteryDischargeEstimatorImpl estimator =
+            new BatteryDischargeEstimatorImpl(meterRegistry, Duration.ofMinutes(10), Duration.ofMinutes(30));
+
+    @Test
+    void testUnknownDroneCanCompleteTrip() {
+        assertTrue(estimator.canCompleteTrip(1L));
+        estimator.record(reading(1L, 80, 0));
+        assertTrue(estimator.canCompleteTrip(1L));
+        assertNull(estimator.getPredictions().getFirst().getMinutesToMinimum());
+    }
+
+    @Test
+    void testLearnsSteadyDischargeRate() {
+        // 1% per minute, from 95%
+        for (int minute = 0; minute <= 30; minute++) {
+            estimator.record(reading(1L, 95 - minute, minute));
+        }
+
+        BatteryPredictionDTO prediction = estimator.getPredictions().getFirst();
+        assertEquals(65, prediction.getBatteryLevel());
+        assertEquals(60.0, prediction.getDischargeRatePerHour(), 1e-6);
+        assertEquals(40.0, prediction.getMinutesToMinimum(), 1e-6);
+        assertTrue(prediction.isCanCompleteTrip());
+
+        for (int minute = 31; minute <= 45; minute++) {
+            estimator.record(reading(1L, 95 - minute, minute));
+        }
+        assertFalse(estimator.canCompleteTrip(1L));
+        assertEquals(1.0, meterRegistry.get("dromed.dispatch.low-battery.skips").counter().count());
+        assertEquals(1.0, meterRegistry.get("dromed.battery.drones.at-risk").gauge().value());
+    }
+
+    @Test
+    void testSmoothsIrregularIntervalsAndIntegerSteps() {
+        // 0.25% per minute seen as whole percentage points, polled every 2 to 6 minutes
+        int[] minutes = {0, 4, 6, 12, 16, 20, 24, 28, 34, 40, 44, 48, 52, 56, 60};
+        for (int minute : minutes) {
+            estimator.record(reading(1L, 100 - minute / 4, minute));
+        }
+
+        double ratePerHour = estimator.getPredictions().getFirst().getDischargeRatePerHour();
+        assertEquals(15.0, ratePerHour, 3.0);
+    }
+
+    @Test
+    void testChargingKeepsLearnedRate() {
+        estimator.record(reading(1L, 50, 0));
+        estimator.record(reading(1L, 40, 10));
+        estimator.record(reading(1L, 90, 20));
+
+        BatteryPredictionDTO prediction = estimator.getPredictions().getFirst();
+        assertEquals(90, prediction.getBatteryLevel());
+        assertEquals(60.0, prediction.getDischargeRatePerHour(), 1e-6);
+    }
+
+    @Test
+    void testDroneBelowMinimumCannotCompleteTrip() {
+        estimator.record(reading(1L, 20, 0));
+
+        assertFalse(estimator.canCompleteTrip(1L));
+        assertEquals(0.0, estimator.getPredictions().getFirst().getMinutesToMinimum());
+    }
+
+    private BatteryReading reading(Long droneId, int batteryLevel, long minutes) {
+        return new BatteryReading(droneId, batteryLevel, START.plusMinutes(minutes));
+    }
+}
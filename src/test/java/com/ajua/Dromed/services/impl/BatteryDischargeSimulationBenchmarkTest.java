@@ -0,0 +1,152 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.exceptions.DroneNotAvailableException;
+import com.ajua.Dromed.models.Drone;
+import com.ajua.Dromed.models.DroneMedication;
+import com.ajua.Dromed.models.Medication;
+import com.ajua.Dromed.repository.DroneMedicationRepository;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import com.ajua.Dromed.services.interfaces.DroneEventOutbox;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Replays simulated discharge curves against the dispatcher, with and without the discharge estimator, and counts the
+ * loads that fail because the drone is already below 25% and the trips that end below 25%.
+ * Every drone drains at its own steady rate; a drone back from a trip gets a fresh battery.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class BatteryDischargeSimulationBenchmarkTest {
+
+    private static final int DRONES = 500;
+    private static final int MINUTES = 240;
+    private static final int LOADS_PER_MINUTE = 10;
+    private static final int TRIP_MINUTES = 30;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 7, 1, 8, 0);
+
+    @Test
+    void testPredictionReducesFailedLoads() {
+        BatteryDischargeEstimator optimistic = mock(BatteryDischargeEstimator.class, withSettings().stubOnly());
+        when(optimistic.canCompleteTrip(anyLong())).thenReturn(true);
+        Outcome baseline = simulate(optimistic);
+        Outcome predicted = simulate(new BatteryDischargeEstimatorImpl(new SimpleMeterRegistry(),
+                Duration.ofMinutes(10), Duration.ofMinutes(TRIP_MINUTES)));
+
+        System.out.printf("%-12s %10s %14s %16s %12s%n", "dispatcher", "loads", "failed loads", "trips below 25%", "no drone");
+        baseline.print("baseline");
+        predicted.print("predictive");
+
+        assertTrue(predicted.failedLoads + predicted.strandedTrips < (baseline.failedLoads + baseline.strandedTrips) / 2,
+                "Failures only went from " + (baseline.failedLoads + baseline.strandedTrips)
+                        + " to " + (predicted.failedLoads + predicted.strandedTrips));
+    }
+
+    private Outcome simulate(BatteryDischargeEstimator estimator) {
+        Random random = new Random(42);
+        Drone[] drones = new Drone[DRONES];
+        double[] levels = new double[DRONES];
+        double[] ratesPerMinute = new double[DRONES];
+        int[] returnsAt = new int[DRONES];
+        DroneDispatchIndexImpl dispatchIndex = new DroneDispatchIndexImpl(null);
+        for (int i = 0; i < DRONES; i++) {
+            levels[i] = 30 + random.nextInt(71);
+            ratesPerMinute[i] = 0.05 + random.nextDouble() * 1.45;
+            drones[i] = new Drone((long) i, "SIM" + i, Model.values()[i % Model.values().length],
+                    100 + random.nextInt(401), (int) levels[i], State.IDLE);
+            dispatchIndex.add(drones[i]);
+        }
+        DroneServiceImpl droneService = droneService(drones, dispatchIndex, estimator);
+        MedicationDTO medicationDTO = new MedicationDTO(null, null, 0, "SIM", null);
+
+        Outcome outcome = new Outcome();
+        for (int minute = 0; minute < MINUTES; minute++) {
+            LocalDateTime now = START.plusMinutes(minute);
+            for (int i = 0; i < DRONES; i++) {
+                levels[i] = Math.max(0, levels[i] - ratesPerMinute[i]);
+                Drone drone = drones[i];
+                if (drone.getState() == State.LOADED && returnsAt[i] == minute) {
+                    if (levels[i] < AbstractDroneService.MIN_BATTERY_LEVEL) {
+                        outcome.strandedTrips++;
+                    }
+                    levels[i] = 100;
+                    drone.setState(State.IDLE);
+                    drone.setLoadedWeight(0);
+                    drone.setLoadedItems(0);
+                    drone.setBatteryCapacity(100);
+                    dispatchIndex.add(drone);
+                }
+                // The battery poll
+                int reading = (int) levels[i];
+                drone.setBatteryCapacity(reading);
+                dispatchIndex.updateBatteryLevel(drone.getId(), reading);
+                estimator.record(new BatteryReading(drone.getId(), reading, now));
+            }
+            for (int load = 0; load < LOADS_PER_MINUTE; load++) {
+                outcome.loads++;
+                try {
+                    DroneMedicationDTO result = droneService.loadDroneWithMedication(null, medicationDTO);
+                    returnsAt[result.getDrone().getId().intValue()] = minute + TRIP_MINUTES;
+                } catch (IllegalStateException e) {
+                    outcome.failedLoads++;
+                } catch (DroneNotAvailableException e) {
+                    outcome.noDrone++;
+                }
+            }
+        }
+        return outcome;
+    }
+
+    private DroneServiceImpl droneService(Drone[] drones, DroneDispatchIndexImpl dispatchIndex,
+                                          BatteryDischargeEstimator estimator) {
+        DroneRepository droneRepository = mock(DroneRepository.class, withSettings().stubOnly());
+        DroneMedicationRepository droneMedicationRepository = mock(DroneMedicationRepository.class, withSettings().stubOnly());
+        when(droneRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(drones[((Long) invocation.getArgument(0)).intValue()]));
+        when(droneRepository.transitionState(anyLong(), any(State.class), any(State.class))).thenReturn(1);
+        when(droneRepository.save(any(Drone.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(droneRepository.addPayload(anyLong(), anyInt(), anyInt())).thenReturn(1);
+        when(droneMedicationRepository.save(any(DroneMedication.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        MedicationCatalog medicationCatalog = mock(MedicationCatalog.class, withSettings().stubOnly());
+        when(medicationCatalog.getByCode("SIM")).thenReturn(new Medication(1L, "Sim", 50, "SIM", null));
+        return new DroneServiceImpl(droneRepository, droneMedicationRepository, medicationCatalog, dispatchIndex,
+                mock(DroneQueryCache.class, withSettings().stubOnly()),
+                mock(BatteryReadingRegistry.class, withSettings().stubOnly()), estimator,
+                mock(DroneEventOutbox.class, withSettings().stubOnly()),
+                mock(FleetStatusStream.class, withSettings().stubOnly()), new NoOpFleetJournal());
+    }
+
+    private static class Outcome {
+        int loads;
+        int failedLoads;
+        int strandedTrips;
+        int noDrone;
+
+        void print(String dispatcher) {
+            System.out.printf("%-12s %10d %14d %16d %12d%n", dispatcher, loads, failedLoads, strandedTrips, noDrone);
+        }
+    }
+}
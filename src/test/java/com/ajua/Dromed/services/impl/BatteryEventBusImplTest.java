@@ -0,0 +1,192 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryEvent;
+import com.ajua.Dromed.enums.OverflowPolicy;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.patterns.BatteryObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryEventBusImplTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BatteryEventBusImpl eventBus = new BatteryEventBusImpl(meterRegistry, 4, OverflowPolicy.DROP_OLDEST,
+            Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        eventBus.shutdown();
+    }
+
+    @Test
+    void testSlowObserverDoesNotDelayPublisherOrOtherObservers() throws Exception {
+        GatedObserver slow = new GatedObserver();
+        RecordingObserver fast = new RecordingObserver();
+        eventBus.subscribe(slow, OverflowPolicy.DROP_OLDEST);
+        eventBus.subscribe(fast, OverflowPolicy.BLOCK);
+
+        try {
+            long start = System.nanoTime();
+            for (int level = 100; level > 90; level--) {
+                eventBus.publish(event(1L, level));
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsedMillis < 1_000, "Publishing took " + elapsedMillis + " ms");
+            fast.await(10);
+            assertEquals(levels(100, 91), fast.levels());
+            assertTrue(slow.levels().isEmpty());
+        } finally {
+            slow.release.countDown();
+        }
+    }
+
+    @Test
+    void testDropOldestKeepsNewestEvents() throws Exception {
+        GatedObserver observer = new GatedObserver();
+        eventBus.subscribe(observer, OverflowPolicy.DROP_OLDEST);
+
+        eventBus.publish(event(1L, 100));
+        observer.started.await();
+        // The first event is being handled, the next 6 compete for 4 slots
+        for (int level = 99; level > 93; level--) {
+            eventBus.publish(event(1L, level));
+        }
+        assertEquals(4.0, meterRegistry.get("dromed.battery.events.lag").gauge().value());
+        observer.release.countDown();
+
+        observer.await(5);
+        assertEquals(List.of(100, 97, 96, 95, 94), observer.levels());
+        assertEquals(2.0, meterRegistry.get("dromed.battery.events.dropped").counter().count());
+    }
+
+    @Test
+    void testCoalesceKeepsLatestEventPerDrone() throws Exception {
+        GatedObserver observer = new GatedObserver();
+        eventBus.subscribe(observer, OverflowPolicy.COALESCE);
+
+        eventBus.publish(event(1L, 100));
+        observer.started.await();
+        eventBus.publish(event(1L, 90));
+        eventBus.publish(event(2L, 80));
+        eventBus.publish(event(1L, 85));
+        eventBus.publish(event(2L, 75));
+        observer.release.countDown();
+
+        observer.await(3);
+        assertEquals(List.of(100, 85, 75), observer.levels());
+        assertEquals(2.0, meterRegistry.get("dromed.battery.events.coalesced").counter().count());
+        assertEquals(0.0, meterRegistry.get("dromed.battery.events.dropped").counter().count());
+    }
+
+    @Test
+    void testBlockMakesPublisherWaitForRoom() throws Exception {
+        GatedObserver observer = new GatedObserver();
+        eventBus.subscribe(observer, OverflowPolicy.BLOCK);
+        eventBus.publish(event(1L, 100));
+        observer.started.await();
+        for (int level = 99; level > 95; level--) {
+            eventBus.publish(event(1L, level));
+        }
+
+        Thread publisher = Thread.ofVirtual().start(() -> eventBus.publish(event(1L, 95)));
+        publisher.join(200);
+        assertTrue(publisher.isAlive());
+        observer.release.countDown();
+        publisher.join(5_000);
+
+        assertFalse(publisher.isAlive());
+        observer.await(6);
+        assertEquals(levels(100, 95), observer.levels());
+        assertEquals(0.0, meterRegistry.get("dromed.battery.events.dropped").counter().count());
+    }
+
+    @Test
+    void testFailingObserverKeepsReceivingEvents() throws Exception {
+        RecordingObserver observer = new RecordingObserver() {
+            @Override
+            public void update(BatteryEvent event) {
+                super.update(event);
+                throw new IllegalStateException("Observer failed");
+            }
+        };
+        eventBus.subscribe(observer);
+
+        eventBus.publish(event(1L, 100));
+        eventBus.publish(event(1L, 99));
+
+        observer.await(2);
+        assertEquals(List.of(100, 99), observer.levels());
+    }
+
+    @Test
+    void testPendingEventsAreDeliveredOnShutdown() {
+        RecordingObserver observer = new RecordingObserver();
+        eventBus.subscribe(observer, OverflowPolicy.BLOCK);
+        for (int level = 100; level > 90; level--) {
+            eventBus.publish(event(1L, level));
+        }
+
+        eventBus.shutdown();
+
+        assertEquals(levels(100, 91), observer.levels());
+    }
+
+    private static BatteryEvent event(Long droneId, int batteryLevel) {
+        return new BatteryEvent(droneId, "SN" + droneId, State.IDLE, batteryLevel + 1, batteryLevel, LocalDateTime.now());
+    }
+
+    private static List<Integer> levels(int from, int to) {
+        return IntStream.iterate(from, level -> level >= to, level -> level - 1).boxed().toList();
+    }
+
+    private static class RecordingObserver implements BatteryObserver {
+        private final List<BatteryEvent> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void update(BatteryEvent event) {
+            events.add(event);
+        }
+
+        void await(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+        }
+
+        List<Integer> levels() {
+            return events.stream().map(BatteryEvent::batteryLevel).toList();
+        }
+    }
+
+    /**
+     * Blocks on its first event until released, so events pile up behind it.
+     */
+    private static class GatedObserver extends RecordingObserver {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void update(BatteryEvent event) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.update(event);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryHistoryPointDTO;
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.Resolution;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.exceptions.ResourceNotFoundException;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the rollups against the raw readings they are built from, including buckets that are closed, still open,
+ * written on shutdown and then extended, and rolled back with the batch that was written.
+ */
+@SpringBootTest
+@DirtiesContext
+class BatteryHistoryServiceImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 7, 1, 10, 0);
+
+    @Autowired
+    private BatteryHistoryServiceImpl batteryHistoryService;
+
+    @Autowired
+    private DroneService droneService;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    private TransactionTemplate transactionTemplate;
+    private Long droneId;
+
+    @BeforeEach
+    void setUp(@Autowired PlatformTransactionManager transactionManager) {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        droneId = droneService.registerDrone("HIST" + System.nanoTime(), Model.LIGHTWEIGHT, 100, 100, State.IDLE).getId();
+    }
+
+    @Test
+    void testRollupsMatchRawReadings() {
+        // One reading every 10 minutes for three hours, draining from 100 to 83
+        List<BatteryReading> readings = new ArrayList<>();
+        for (int i = 0; i < 18; i++) {
+            readings.add(new BatteryReading(droneId, 100 - i, START.plusMinutes(10L * i)));
+        }
+        batteryHistoryService.record(readings.subList(0, 9));
+        batteryHistoryService.record(readings.subList(9, 18));
+
+        List<BatteryHistoryPointDTO> raw = history(Resolution.RAW);
+        assertEquals(18, raw.size());
+        assertEquals(100, raw.get(0).getLastLevel());
+
+        List<BatteryHistoryPointDTO> hours = history(Resolution.HOUR);
+        assertEquals(3, hours.size());
+        assertPoint(hours.get(0), START, 95, 100, 97.5, 95, 6);
+        assertPoint(hours.get(1), START.plusHours(1), 89, 94, 91.5, 89, 6);
+        // Still open, so it comes from memory
+        assertPoint(hours.get(2), START.plusHours(2), 83, 88, 85.5, 83, 6);
+
+        assertEquals(18, history(Resolution.MINUTE).size());
+        List<BatteryHistoryPointDTO> days = history(Resolution.DAY);
+        assertEquals(1, days.size());
+        assertPoint(days.get(0), START.withHour(0), 83, 100, 91.5, 83, 18);
+    }
+
+    @Test
+    void testRangeStartsAtTheBucketContainingFrom() {
+        List<BatteryReading> readings = new ArrayList<>();
+        for (int i = 0; i < 18; i++) {
+            readings.add(new BatteryReading(droneId, 100 - i, START.plusMinutes(10L * i)));
+        }
+        batteryHistoryService.record(readings);
+
+        List<BatteryHistoryPointDTO> hours = batteryHistoryService.getBatteryHistory(droneId, START.plusMinutes(90),
+                START.plusHours(2), Resolution.HOUR);
+
+        assertEquals(1, hours.size());
+        assertEquals(START.plusHours(1), hours.get(0).getTimestamp());
+        assertEquals(3, batteryHistoryService.getBatteryHistory(droneId, START.plusMinutes(90), START.plusHours(2),
+                Resolution.RAW).size());
+    }
+
+    @Test
+    void testOpenBucketsSurviveShutdownAndAreExtended() {
+        batteryHistoryService.record(List.of(
+                new BatteryReading(droneId, 80, START),
+                new BatteryReading(droneId, 70, START.plusMinutes(20))));
+
+        batteryHistoryService.persistOpenBuckets();
+        assertPoint(history(Resolution.HOUR).get(0), START, 70, 80, 75.0, 70, 2);
+
+        // After a restart the bucket is reopened in memory and merged with the stored row
+        batteryHistoryService.record(List.of(new BatteryReading(droneId, 90, START.plusMinutes(40))));
+        assertPoint(history(Resolution.HOUR).get(0), START, 70, 90, 80.0, 90, 3);
+
+        // Closing it adds to the stored row instead of replacing it
+        batteryHistoryService.record(List.of(new BatteryReading(droneId, 60, START.plusHours(1))));
+        List<BatteryHistoryPointDTO> hours = history(Resolution.HOUR);
+        assertEquals(2, hours.size());
+        assertPoint(hours.get(0), START, 70, 90, 80.0, 90, 3);
+        assertPoint(hours.get(1), START.plusHours(1), 60, 60, 60.0, 60, 1);
+    }
+
+    @Test
+    void testLateReadingIsMergedIntoClosedBucket() {
+        batteryHistoryService.record(List.of(
+                new BatteryReading(droneId, 80, START),
+                new BatteryReading(droneId, 70, START.plusHours(1))));
+
+        batteryHistoryService.record(List.of(new BatteryReading(droneId, 90, START.plusMinutes(30))));
+
+        assertPoint(history(Resolution.HOUR).get(0), START, 80, 90, 85.0, 90, 2);
+    }
+
+    @Test
+    void testRolledBackBatchLeavesRollupsUnchanged() {
+        batteryHistoryService.record(List.of(new BatteryReading(droneId, 80, START)));
+
+        // Closes the first hour and opens the next one, then rolls back
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            batteryHistoryService.record(List.of(
+                    new BatteryReading(droneId, 70, START.plusMinutes(20)),
+                    new BatteryReading(droneId, 60, START.plusHours(1))));
+            throw new IllegalStateException("Drone update failed");
+        }));
+
+        assertEquals(1, history(Resolution.RAW).size());
+        List<BatteryHistoryPointDTO> hours = history(Resolution.HOUR);
+        assertEquals(1, hours.size());
+        assertPoint(hours.get(0), START, 80, 80, 80.0, 80, 1);
+
+        transactionTemplate.executeWithoutResult(status ->
+                batteryHistoryService.record(List.of(new BatteryReading(droneId, 50, START.plusHours(1)))));
+        hours = history(Resolution.HOUR);
+        assertEquals(2, hours.size());
+        assertPoint(hours.get(0), START, 80, 80, 80.0, 80, 1);
+        assertPoint(hours.get(1), START.plusHours(1), 50, 50, 50.0, 50, 1);
+    }
+
+    @Test
+    void testRejectsUnknownDroneAndEmptyRange() {
+        assertThrows(ResourceNotFoundException.class,
+                () -> batteryHistoryService.getBatteryHistory(-1L, START, START.plusHours(1), Resolution.HOUR));
+        assertThrows(IllegalArgumentException.class,
+                () -> batteryHistoryService.getBatteryHistory(droneId, START, START, Resolution.HOUR));
+    }
+
+    private List<BatteryHistoryPointDTO> history(Resolution resolution) {
+        return batteryHistoryService.getBatteryHistory(droneId, START.minusDays(1), START.plusDays(1), resolution);
+    }
+
+    private void assertPoint(BatteryHistoryPointDTO point, LocalDateTime timestamp, int min, int max, double average,
+                             int last, int readings) {
+        assertEquals(timestamp, point.getTimestamp());
+        assertEquals(min, point.getMinLevel());
+        assertEquals(max, point.getMaxLevel());
+        assertEquals(average, point.getAverageLevel(), 1e-9);
+        assertEquals(last, point.getLastLevel());
+        assertEquals(readings, point.getReadings());
+    }
+}
@@ -0,0 +1,114 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the size and range query speed of the segment file store against the battery history table,
+ * for one day of readings taken every minute.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@DirtiesContext
+class BatteryHistoryStoreBenchmarkTest {
+
+    private static final int DRONES = 500;
+    private static final int MINUTES = 24 * 60;
+    private static final int QUERIES = 500;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 0, 0);
+
+    @Autowired
+    private BatteryHistoryStore jdbcStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSegmentStoreAgainstHistoryTable() throws Exception {
+        List<Object[]> drones = new ArrayList<>(DRONES);
+        for (int i = 0; i < DRONES; i++) {
+            drones.add(new Object[]{"HISTORY" + i, "LIGHTWEIGHT", 100, 100, "IDLE"});
+        }
+        jdbcTemplate.batchUpdate("insert into drone (serial_number, model, weight_limit, battery_capacity, state, " +
+                "loaded_weight, loaded_items) values (?, ?, ?, ?, ?, 0, 0)", drones);
+        List<Long> droneIds = jdbcTemplate.queryForList("select id from drone where serial_number like 'HISTORY%'", Long.class);
+
+        SegmentBatteryHistoryStore segmentStore = new SegmentBatteryHistoryStore(directory, Duration.ofHours(1),
+                Duration.ofDays(90), 16_384, 3, false);
+        segmentStore.open();
+
+        Random random = new Random(42);
+        long jdbcAppendNanos = 0;
+        long segmentAppendNanos = 0;
+        for (int minute = 0; minute < MINUTES; minute++) {
+            List<BatteryReading> batch = new ArrayList<>(DRONES);
+            for (Long droneId : droneIds) {
+                batch.add(new BatteryReading(droneId, 20 + random.nextInt(80), START.plusMinutes(minute).plusNanos(random.nextInt(1_000) * 1_000_000)));
+            }
+            long start = System.nanoTime();
+            jdbcStore.append(batch);
+            jdbcAppendNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            segmentStore.append(batch);
+            segmentAppendNanos += System.nanoTime() - start;
+        }
+
+        long jdbcQueryNanos = 0;
+        long segmentQueryNanos = 0;
+        for (int query = 0; query < QUERIES; query++) {
+            Long droneId = droneIds.get(random.nextInt(DRONES));
+            LocalDateTime from = START.plusMinutes(random.nextInt(MINUTES - 360));
+            LocalDateTime to = from.plusHours(6);
+
+            long start = System.nanoTime();
+            List<BatteryReading> fromTable = jdbcStore.findReadings(droneId, from, to);
+            jdbcQueryNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            List<BatteryReading> fromSegments = segmentStore.findReadings(droneId, from, to);
+            segmentQueryNanos += System.nanoTime() - start;
+
+            assertEquals(fromTable, fromSegments);
+        }
+
+        long readings = (long) DRONES * MINUTES;
+        // Lower bound for a row: 8 byte id, 8 byte drone ID, 4 byte level and 8 byte timestamp, before any index
+        long tableBytes = readings * 28;
+        long segmentBytes;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentBytes = files.mapToLong(file -> file.toFile().length()).sum();
+        }
+        segmentStore.close();
+
+        System.out.printf("%-8s %14s %16s %14s%n", "store", "bytes/reading", "append us/batch", "query us");
+        System.out.printf("%-8s %14.2f %16.1f %14.1f%n", "table", (double) tableBytes / readings,
+                jdbcAppendNanos / 1e3 / MINUTES, jdbcQueryNanos / 1e3 / QUERIES);
+        System.out.printf("%-8s %14.2f %16.1f %14.1f%n", "segment", (double) segmentBytes / readings,
+                segmentAppendNanos / 1e3 / MINUTES, segmentQueryNanos / 1e3 / QUERIES);
+
+        assertTrue(segmentBytes < tableBytes / 5);
+        assertTrue(segmentQueryNanos < jdbcQueryNanos);
+    }
+}
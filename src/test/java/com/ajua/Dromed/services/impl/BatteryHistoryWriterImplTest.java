@@ -0,0 +1,171 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryService;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatteryHistoryWriterImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private BatteryHistoryService batteryHistoryService;
+
+    @Mock
+    private BatteryReadingRegistry batteryReadingRegistry;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BatteryHistoryWriterImpl writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void testFlushesWhenBatchIsFull() {
+        writer = start(1_000, 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        for (long droneId = 1; droneId <= 250; droneId++) {
+            assertTrue(writer.write(reading(droneId, 80)));
+        }
+
+        // Two full batches are written straight away, the remaining 50 readings wait for the next trigger
+        verify(batteryHistoryService, timeout(2_000).times(2)).record(argThat(batch -> batch.size() == 100));
+    }
+
+    @Test
+    void testFlushesAfterInterval() {
+        writer = start(1_000, 1_000, Duration.ofMillis(100), Duration.ofSeconds(1));
+
+        for (long droneId = 1; droneId <= 10; droneId++) {
+            writer.write(reading(droneId, 80));
+        }
+
+        verify(batteryHistoryService, timeout(2_000)).record(argThat(batch -> batch.size() == 10));
+        verify(jdbcTemplate, timeout(2_000)).batchUpdate(startsWith("update"), argThat((List<Object[]> rows) -> rows.size() == 10));
+    }
+
+    @Test
+    void testFlushesOnShutdown() {
+        writer = start(1_000, 1_000, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        for (long droneId = 1; droneId <= 10; droneId++) {
+            writer.write(reading(droneId, 80));
+        }
+        verifyNoInteractions(batteryHistoryService);
+
+        writer.shutdown();
+        writer = null;
+
+        verify(batteryHistoryService).record(argThat(batch -> batch.size() == 10));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testOnlyLatestLevelOfEachDroneIsUpdated() {
+        writer = start(1_000, 1_000, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        writer.write(reading(1L, 80));
+        writer.write(reading(1L, 70));
+        writer.write(reading(2L, 60));
+
+        writer.flush();
+
+        ArgumentCaptor<List<Object[]>> droneRows = ArgumentCaptor.forClass(List.class);
+        verify(batteryHistoryService).record(argThat(batch -> batch.size() == 3));
+        verify(jdbcTemplate).batchUpdate(startsWith("update"), droneRows.capture());
+        assertEquals(2, droneRows.getValue().size());
+        assertArrayEquals(new Object[]{70, 1L}, droneRows.getValue().get(0));
+    }
+
+    @Test
+    void testLargeCycleIsWrittenInAFewBatches() {
+        // Not started, so the whole cycle is queued before it is flushed and the batch boundaries do not race the flusher
+        BatteryHistoryWriterImpl cycle = new BatteryHistoryWriterImpl(jdbcTemplate, batteryHistoryService, batteryReadingRegistry,
+                transactionManager, meterRegistry, 50_000, 5_000, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        for (long droneId = 1; droneId <= 50_000; droneId++) {
+            cycle.write(reading(droneId, 70));
+        }
+
+        cycle.flush();
+
+        // One polling cycle over 50k drones costs ten batched drone updates instead of 50k round trips
+        verify(batteryHistoryService, times(10)).record(argThat(batch -> batch.size() == 5_000));
+        verify(jdbcTemplate, times(10)).batchUpdate(startsWith("update"), argThat((List<Object[]> rows) -> rows.size() == 5_000));
+    }
+
+    @Test
+    void testDropsReadingsWhenBufferStaysFull() throws Exception {
+        writer = start(2, 1, Duration.ofMinutes(1), Duration.ofMillis(50));
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return null;
+        }).when(batteryHistoryService).record(anyList());
+
+        writer.write(reading(1L, 80));
+        flushing.await();
+        // The flusher is stuck on the first batch, so the buffer fills up and the next writer is pushed back
+        assertTrue(writer.write(reading(2L, 80)));
+        assertTrue(writer.write(reading(3L, 80)));
+        assertFalse(writer.write(reading(4L, 80)));
+        release.countDown();
+
+        assertEquals(1.0, meterRegistry.get("dromed.battery.history.dropped").counter().count());
+    }
+
+    @Test
+    void testFailedBatchIsForgottenByRegistry() {
+        writer = start(1_000, 1_000, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        doThrow(new IllegalStateException("Database unavailable")).when(batteryHistoryService).record(anyList());
+        writer.write(reading(1L, 80));
+        writer.write(reading(1L, 70));
+        writer.write(reading(2L, 60));
+
+        writer.flush();
+
+        // The registry must not hold back the next readings of these drones as if they were stored
+        verify(batteryReadingRegistry).forget(1L);
+        verify(batteryReadingRegistry).forget(2L);
+        assertEquals(3.0, meterRegistry.get("dromed.battery.history.failed").counter().count());
+    }
+
+    private BatteryHistoryWriterImpl start(int capacity, int batchSize, Duration flushInterval, Duration offerTimeout) {
+        BatteryHistoryWriterImpl writer = new BatteryHistoryWriterImpl(jdbcTemplate, batteryHistoryService, batteryReadingRegistry,
+                transactionManager, meterRegistry,
+                capacity, batchSize, flushInterval, offerTimeout);
+        writer.start();
+        return writer;
+    }
+
+    private BatteryReading reading(Long droneId, int batteryLevel) {
+        return new BatteryReading(droneId, batteryLevel, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,114 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatteryReadingRegistryImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 7, 1, 10, 0);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BatteryReadingRegistryImpl registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new BatteryReadingRegistryImpl(meterRegistry, 2, Duration.ofMinutes(15));
+    }
+
+    @Test
+    void testFirstReadingIsPersisted() {
+        assertTrue(registry.getLatestLevel(1L).isEmpty());
+        assertTrue(offer(reading(80, 0)));
+        assertEquals(80, registry.getLatestLevel(1L).orElseThrow());
+    }
+
+    @Test
+    void testReadingsWithinDeadBandAreSkipped() {
+        offer(reading(80, 0));
+
+        assertFalse(offer(reading(79, 1)));
+        assertFalse(offer(reading(78, 2)));
+        // The latest level is kept even though it was not persisted
+        assertEquals(78, registry.getLatestLevel(1L).orElseThrow());
+        // Drift is measured against the last persisted level, so slow drains are still caught
+        assertTrue(offer(reading(77, 3)));
+        assertFalse(offer(reading(79, 4)));
+    }
+
+    @Test
+    void testReadingIsPersistedAfterMaxSilence() {
+        offer(reading(80, 0));
+
+        assertFalse(offer(reading(80, 14)));
+        assertTrue(offer(reading(80, 15)));
+        assertFalse(offer(reading(80, 16)));
+    }
+
+    @Test
+    void testReadingCountsAsPersistedOnceMarked() {
+        assertTrue(registry.record(reading(80, 0)));
+        // The first reading was never handed on, so the next one is let through instead
+        assertTrue(registry.record(reading(80, 1)));
+
+        registry.markPersisted(reading(80, 1));
+        assertFalse(registry.record(reading(80, 2)));
+        assertEquals(1.0, meterRegistry.get("dromed.battery.readings.persisted").counter().count());
+    }
+
+    @Test
+    void testForgottenDroneIsPersistedAgain() {
+        offer(reading(80, 0));
+        assertFalse(registry.record(reading(80, 1)));
+
+        // The write of the persisted reading failed, so the same level has to be written again
+        registry.forget(1L);
+        assertTrue(registry.record(reading(80, 2)));
+        assertEquals(80, registry.getLatestLevel(1L).orElseThrow());
+    }
+
+    @Test
+    void testReportsWriteReduction() {
+        assertEquals(0.0, meterRegistry.get("dromed.battery.write.reduction").gauge().value());
+        offer(reading(80, 0));
+        offer(reading(80, 1));
+        offer(reading(80, 2));
+        offer(reading(80, 3));
+
+        assertEquals(4.0, meterRegistry.get("dromed.battery.readings.received").counter().count());
+        assertEquals(1.0, meterRegistry.get("dromed.battery.readings.persisted").counter().count());
+        assertEquals(0.75, meterRegistry.get("dromed.battery.write.reduction").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void testGetsLatestLevelsOfReadDrones() {
+        offer(reading(80, 0));
+        offer(reading(79, 1));
+        offer(new BatteryReading(2L, 60, START));
+
+        assertEquals(Map.of(1L, 79, 2L, 60), registry.getLatestLevels(List.of(1L, 2L, 3L)));
+    }
+
+    /**
+     * Records a reading, and marks it persisted when it is let through, as the battery check does.
+     */
+    private boolean offer(BatteryReading reading) {
+        boolean persist = registry.record(reading);
+        if (persist) {
+            registry.markPersisted(reading);
+        }
+        return persist;
+    }
+
+    private BatteryReading reading(int batteryLevel, long minutes) {
+        return new BatteryReading(1L, batteryLevel, START.plusMinutes(minutes));
+    }
+}
@@ -0,0 +1,111 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.models.Drone;
+import com.ajua.Dromed.models.DroneMedication;
+import com.ajua.Dromed.models.Medication;
+import com.ajua.Dromed.repository.DroneMedicationRepository;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import com.ajua.Dromed.services.interfaces.DroneEventOutbox;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measures the latency of loadDroneWithMedication for growing fleet sizes.
+ * Each loaded drone is put back into the dispatch index so the number of idle drones stays constant.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class DroneDispatchBenchmarkTest {
+
+    private static final int[] FLEET_SIZES = {100, 1_000, 10_000, 100_000};
+    private static final int WARMUP_LOADS = 20_000;
+    private static final int MEASURED_LOADS = 50_000;
+
+    @Test
+    void loadLatencyStaysFlatAsFleetGrows() {
+        double[] medians = new double[FLEET_SIZES.length];
+        System.out.printf("%-10s %12s %12s%n", "drones", "p50 (ns)", "p99 (ns)");
+        for (int i = 0; i < FLEET_SIZES.length; i++) {
+            long[] latencies = measure(FLEET_SIZES[i]);
+            Arrays.sort(latencies);
+            medians[i] = latencies[latencies.length / 2];
+            System.out.printf("%-10d %12d %12d%n", FLEET_SIZES[i], latencies[latencies.length / 2],
+                    latencies[(int) (latencies.length * 0.99)]);
+        }
+        assertTrue(medians[medians.length - 1] < medians[0] * 5,
+                "Load latency grew from " + medians[0] + " ns to " + medians[medians.length - 1] + " ns");
+    }
+
+    private long[] measure(int fleetSize) {
+        Random random = new Random(fleetSize);
+        Drone[] drones = new Drone[fleetSize];
+        DroneDispatchIndexImpl dispatchIndex = new DroneDispatchIndexImpl(null);
+        for (int i = 0; i < fleetSize; i++) {
+            drones[i] = new Drone((long) i, "SN" + i, Model.values()[i % Model.values().length],
+                    100 + random.nextInt(401), 30 + random.nextInt(71), State.IDLE);
+            dispatchIndex.add(drones[i]);
+        }
+
+        DroneRepository droneRepository = mock(DroneRepository.class, withSettings().stubOnly());
+        DroneMedicationRepository droneMedicationRepository = mock(DroneMedicationRepository.class, withSettings().stubOnly());
+        when(droneRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(drones[((Long) invocation.getArgument(0)).intValue()]));
+        when(droneRepository.transitionState(anyLong(), any(State.class), any(State.class))).thenReturn(1);
+        when(droneRepository.save(any(Drone.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(droneMedicationRepository.save(any(DroneMedication.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(droneRepository.addPayload(anyLong(), anyInt(), anyInt())).thenReturn(1);
+        MedicationCatalog medicationCatalog = mock(MedicationCatalog.class, withSettings().stubOnly());
+        when(medicationCatalog.getByCode("MED1")).thenReturn(new Medication(1L, "Med1", 80, "MED1", null));
+        BatteryDischargeEstimator batteryDischargeEstimator = mock(BatteryDischargeEstimator.class, withSettings().stubOnly());
+        when(batteryDischargeEstimator.canCompleteTrip(anyLong())).thenReturn(true);
+        DroneServiceImpl droneService = new DroneServiceImpl(droneRepository, droneMedicationRepository,
+                medicationCatalog, dispatchIndex, mock(DroneQueryCache.class, withSettings().stubOnly()),
+                mock(BatteryReadingRegistry.class, withSettings().stubOnly()), batteryDischargeEstimator,
+                mock(DroneEventOutbox.class, withSettings().stubOnly()),
+                mock(FleetStatusStream.class, withSettings().stubOnly()), new NoOpFleetJournal());
+
+        MedicationDTO medicationDTO = new MedicationDTO(1L, "Med1", 80, "MED1", null);
+        for (int i = 0; i < WARMUP_LOADS; i++) {
+            loadAndReturn(droneService, dispatchIndex, drones, medicationDTO);
+        }
+        long[] latencies = new long[MEASURED_LOADS];
+        for (int i = 0; i < MEASURED_LOADS; i++) {
+            latencies[i] = loadAndReturn(droneService, dispatchIndex, drones, medicationDTO);
+        }
+        return latencies;
+    }
+
+    private long loadAndReturn(DroneServiceImpl droneService, DroneDispatchIndexImpl dispatchIndex, Drone[] drones,
+                               MedicationDTO medicationDTO) {
+        long start = System.nanoTime();
+        DroneMedicationDTO result = droneService.loadDroneWithMedication(null, medicationDTO);
+        long elapsed = System.nanoTime() - start;
+
+        Drone drone = drones[result.getDrone().getId().intValue()];
+        drone.setState(State.IDLE);
+        drone.setLoadedWeight(0);
+        drone.setLoadedItems(0);
+        dispatchIndex.add(drone);
+        return elapsed;
+    }
+}
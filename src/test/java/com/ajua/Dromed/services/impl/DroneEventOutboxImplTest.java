@@ -0,0 +1,164 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneEventOutbox;
+import com.ajua.Dromed.services.interfaces.DroneEventSink;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "dromed.events.outbox.poll-interval=PT0.1S")
+@DirtiesContext
+class DroneEventOutboxImplTest {
+
+    @Autowired
+    private DroneEventOutbox outbox;
+
+    @Autowired
+    private RecordingSink sink;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @Test
+    void testCommittedEventsAreRelayedInOrder() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            outbox.append(event(1001L, State.LOADING, State.IDLE));
+            outbox.append(event(1001L, State.LOADED, State.LOADING));
+        });
+        transactionTemplate.executeWithoutResult(status -> outbox.append(event(1001L, State.DELIVERING, State.LOADED)));
+
+        List<DroneEvent> delivered = sink.await(1001L, 3);
+
+        assertEquals(List.of(State.LOADING, State.LOADED, State.DELIVERING),
+                delivered.stream().map(DroneEvent::state).toList());
+        assertEquals(0, countPending(1001L));
+    }
+
+    @Test
+    void testRolledBackEventsAreNeverRelayed() throws Exception {
+        transactionTemplate.executeWithoutResult(status -> {
+            outbox.append(event(1002L, State.LOADING, State.IDLE));
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> outbox.append(event(1003L, State.LOADING, State.IDLE)));
+
+        sink.await(1003L, 1);
+
+        assertTrue(sink.delivered(1002L).isEmpty());
+        assertEquals(0, countPending(1002L));
+    }
+
+    @Test
+    void testFailedBatchIsRetried() throws Exception {
+        sink.failures.set(2);
+        transactionTemplate.executeWithoutResult(status -> outbox.append(event(1004L, State.LOADING, State.IDLE)));
+
+        List<DroneEvent> delivered = sink.await(1004L, 1);
+
+        assertEquals(State.LOADING, delivered.getFirst().state());
+        assertEquals(0, sink.failures.get());
+    }
+
+    @Test
+    void testPendingAndLagFollowAppendsAndRelay() throws Exception {
+        sink.failures.set(Integer.MAX_VALUE);
+        transactionTemplate.executeWithoutResult(status -> outbox.append(event(1006L, State.LOADING, State.IDLE)));
+
+        // The sink keeps failing, so the event stays pending and grows older
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (gauge("dromed.events.outbox.lag") == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, gauge("dromed.events.outbox.pending"));
+        assertTrue(gauge("dromed.events.outbox.lag") > 0);
+
+        sink.failures.set(0);
+        sink.await(1006L, 1);
+        deadline = System.currentTimeMillis() + 5_000;
+        while (gauge("dromed.events.outbox.pending") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, gauge("dromed.events.outbox.pending"));
+        assertEquals(0, gauge("dromed.events.outbox.lag"));
+    }
+
+    @Test
+    void testAppendRequiresTransaction() {
+        assertThrows(IllegalStateException.class, () -> outbox.append(event(1005L, State.LOADING, State.IDLE)));
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private int countPending(Long droneId) {
+        return jdbcTemplate.queryForObject("select count(*) from drone_outbox_event where drone_id = ?", Integer.class, droneId);
+    }
+
+    private static DroneEvent event(Long droneId, State state, State previousState) {
+        return new DroneEvent(DroneEvent.Type.STATE_CHANGED, droneId, state, previousState, 100, System.currentTimeMillis());
+    }
+
+    @TestConfiguration
+    static class SinkConfig {
+
+        @Bean
+        @Primary
+        RecordingSink recordingSink() {
+            return new RecordingSink();
+        }
+    }
+
+    static class RecordingSink implements DroneEventSink {
+
+        private final List<DroneEvent> events = new CopyOnWriteArrayList<>();
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public void deliver(List<DroneEvent> batch) {
+            if (failures.getAndUpdate(remaining -> Math.max(0, remaining - 1)) > 0) {
+                throw new IllegalStateException("Sink unavailable");
+            }
+            events.addAll(batch);
+        }
+
+        List<DroneEvent> delivered(Long droneId) {
+            return events.stream().filter(event -> event.droneId().equals(droneId)).toList();
+        }
+
+        List<DroneEvent> await(Long droneId, int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (delivered(droneId).size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, delivered(droneId).size());
+            return delivered(droneId);
+        }
+    }
+}
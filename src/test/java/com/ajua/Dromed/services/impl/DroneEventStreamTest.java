@@ -0,0 +1,97 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Publishes the state changes of a drone to an embedded broker and reads them back.
+ */
+@SpringBootTest(properties = {
+        "dromed.events.kafka.enabled=true",
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}"
+})
+@EmbeddedKafka(topics = "drone-events", partitions = 1)
+@DirtiesContext
+class DroneEventStreamTest {
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private ProducerFactory<String, byte[]> producerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @Test
+    void testStateChangesArePublishedInOrder() throws Exception {
+        Long droneId = droneService.registerDrone("EVENTS1", Model.LIGHTWEIGHT, 100, 100, State.LOADED).getId();
+        droneService.startDelivery(droneId);
+        droneService.completeDelivery(droneId);
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("drone-event-test", "false", embeddedKafka);
+        consumerProps.put("auto.offset.reset", "earliest");
+        try (Consumer<String, byte[]> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, "drone-events");
+            List<DroneEvent> events = new ArrayList<>();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (events.size() < 3 && System.currentTimeMillis() < deadline) {
+                ConsumerRecords<String, byte[]> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1), 3);
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    // The scheduled battery poll may publish events for the seeded drones meanwhile
+                    if (String.valueOf(droneId).equals(record.key())) {
+                        events.add(objectMapper.readValue(record.value(), DroneEvent.class));
+                    }
+                }
+            }
+
+            assertEquals(List.of(State.LOADED, State.DELIVERING, State.DELIVERED),
+                    events.stream().map(DroneEvent::state).toList());
+            assertEquals(State.LOADED, events.get(1).previousState());
+            events.forEach(event -> assertEquals(DroneEvent.Type.STATE_CHANGED, event.type()));
+            events.forEach(event -> assertEquals(droneId, event.droneId()));
+        }
+    }
+
+    @Test
+    void testProducerBatchesAndCompresses() {
+        Map<String, Object> config = producerFactory.getConfigurationProperties();
+
+        assertEquals("lz4", config.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals("20", String.valueOf(config.get(ProducerConfig.LINGER_MS_CONFIG)));
+    }
+}
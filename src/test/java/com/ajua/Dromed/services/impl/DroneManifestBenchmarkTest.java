@@ -0,0 +1,123 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Compares loading a 20 item order through the per-item endpoint with loading it through the manifest endpoint.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@DirtiesContext
+class DroneManifestBenchmarkTest {
+
+    private static final int ORDERS = 50;
+    private static final int ITEMS_PER_ORDER = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private MedicationCatalog medicationCatalog;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @BeforeEach
+    void setUp() {
+        when(batteryLevelReader.readBatteryLevel(any())).thenReturn(100);
+    }
+
+    @Test
+    void testManifestIsCheaperThanPerItemLoads() throws Exception {
+        // The per-item path moves a drone to LOADED after one medication, so it needs a drone per item
+        for (int i = 0; i < ORDERS * ITEMS_PER_ORDER + ORDERS; i++) {
+            droneService.registerDrone("BENCH" + i, Model.HEAVYWEIGHT, 500, 100, State.IDLE);
+        }
+        for (int item = 0; item < ITEMS_PER_ORDER; item++) {
+            medicationCatalog.register(new MedicationDTO(null, "Bench-" + item, 10, "BENCH_" + item, null));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        long perItemStart = System.nanoTime();
+        for (int order = 0; order < ORDERS; order++) {
+            for (MedicationDTO medication : order()) {
+                MvcResult result = mockMvc.perform(post("/api/v1/drones/1/medications")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(medication)))
+                        .andReturn();
+                mockMvc.perform(asyncDispatch(result)).andExpect(status().isCreated());
+            }
+        }
+        long perItemNanos = System.nanoTime() - perItemStart;
+        long perItemStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        long manifestStart = System.nanoTime();
+        for (int order = 0; order < ORDERS; order++) {
+            MvcResult result = mockMvc.perform(post("/api/v1/drones/1/manifest")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(order())))
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isCreated());
+        }
+        long manifestNanos = System.nanoTime() - manifestStart;
+        long manifestStatements = statistics.getPrepareStatementCount();
+
+        System.out.printf("%-10s %18s %18s%n", "path", "ms per order", "statements/order");
+        System.out.printf("%-10s %18.2f %18.1f%n", "per-item", perItemNanos / 1e6 / ORDERS, (double) perItemStatements / ORDERS);
+        System.out.printf("%-10s %18.2f %18.1f%n", "manifest", manifestNanos / 1e6 / ORDERS, (double) manifestStatements / ORDERS);
+
+        assertTrue(manifestStatements < perItemStatements);
+        assertTrue(manifestNanos < perItemNanos);
+    }
+
+    private List<MedicationDTO> order() {
+        List<MedicationDTO> medications = new ArrayList<>();
+        for (int item = 0; item < ITEMS_PER_ORDER; item++) {
+            medications.add(new MedicationDTO(null, null, 0, "BENCH_" + item, null));
+        }
+        return medications;
+    }
+}
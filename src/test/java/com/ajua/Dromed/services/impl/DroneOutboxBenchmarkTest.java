@@ -0,0 +1,90 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneEventOutbox;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures what recording a state change in the outbox adds to the transaction of the change.
+ * Each transition is a conditional state update in its own transaction, with and without an outbox append.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@DirtiesContext
+class DroneOutboxBenchmarkTest {
+
+    private static final int TRANSITIONS = 20_000;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private DroneEventOutbox outbox;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @Test
+    void testOutboxAddsOnlyMicrosecondsPerTransition() {
+        Long droneId = droneService.registerDrone("OUTBOX1", Model.LIGHTWEIGHT, 100, 100, State.DELIVERING).getId();
+
+        // Warm up both paths before measuring
+        transitions(droneId, false);
+        transitions(droneId, true);
+
+        long withoutOutbox = Long.MAX_VALUE;
+        long withOutbox = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            withoutOutbox = Math.min(withoutOutbox, transitions(droneId, false));
+            withOutbox = Math.min(withOutbox, transitions(droneId, true));
+        }
+        double addedMicros = (withOutbox - withoutOutbox) / 1e3 / TRANSITIONS;
+
+        System.out.printf("%-16s %18s%n", "path", "us per transition");
+        System.out.printf("%-16s %18.2f%n", "state only", withoutOutbox / 1e3 / TRANSITIONS);
+        System.out.printf("%-16s %18.2f%n", "state + outbox", withOutbox / 1e3 / TRANSITIONS);
+        System.out.printf("%-16s %18.2f%n", "added", addedMicros);
+
+        assertTrue(addedMicros < 50, "Outbox added " + addedMicros + " us per transition");
+    }
+
+    /**
+     * Runs the transitions and returns the elapsed nanoseconds.
+     */
+    private long transitions(Long droneId, boolean withOutbox) {
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSITIONS; i++) {
+            State from = i % 2 == 0 ? State.DELIVERING : State.DELIVERED;
+            State to = i % 2 == 0 ? State.DELIVERED : State.DELIVERING;
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("update drone set state = ? where id = ? and state = ?", to.name(), droneId, from.name());
+                if (withOutbox) {
+                    outbox.append(new DroneEvent(DroneEvent.Type.STATE_CHANGED, droneId, to, from, 100,
+                            System.currentTimeMillis()));
+                }
+            });
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.models.Drone;
+import com.ajua.Dromed.repository.DroneMedicationRepository;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import com.ajua.Dromed.utils.DTOConverter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the read paths that load managed entities and convert them with {@link DTOConverter}
+ * with the projection queries that select the DTOs directly, in time and heap allocated per request.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@DirtiesContext
+class DroneProjectionBenchmarkTest {
+
+    private static final int DRONES = 1_000;
+    private static final int PAGE_SIZE = 50;
+    private static final int MEDICATIONS = 20;
+    private static final int RUNS = 2_000;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private MedicationCatalog medicationCatalog;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private DroneMedicationRepository droneMedicationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @Test
+    void testProjectionsAllocateLessThanEntities() {
+        List<Object[]> rows = new ArrayList<>(DRONES);
+        for (int i = 0; i < DRONES; i++) {
+            rows.add(new Object[]{"PROJ" + i, Model.HEAVYWEIGHT.name(), 500, 100, State.IDLE.name()});
+        }
+        jdbcTemplate.batchUpdate("insert into drone (serial_number, model, weight_limit, battery_capacity, state, "
+                + "loaded_weight, loaded_items) values (?, ?, ?, ?, ?, 0, 0)", rows);
+        List<MedicationDTO> manifest = new ArrayList<>();
+        for (int i = 0; i < MEDICATIONS; i++) {
+            medicationCatalog.register(new MedicationDTO(null, "Proj-" + i, 10, "PROJ_" + i, null));
+            manifest.add(new MedicationDTO(null, null, 0, "PROJ_" + i, null));
+        }
+        Long droneId = droneService.loadDroneWithManifest(null, manifest).getDrone().getId();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        double[][] page = {
+                measure(() -> readOnly.execute(status -> entityManager
+                        .createQuery("select d from Drone d where d.id > :cursor order by d.id", Drone.class)
+                        .setParameter("cursor", 0L)
+                        .setMaxResults(PAGE_SIZE + 1)
+                        .getResultStream()
+                        .map(DTOConverter::toDroneDTO)
+                        .collect(Collectors.toList())
+                        .size())),
+                measure(() -> readOnly.execute(status -> droneRepository.findPage(0L, Limit.of(PAGE_SIZE + 1)).size()))};
+        double[][] medications = {
+                measure(() -> readOnly.execute(status -> droneMedicationRepository.findByDroneId(droneId).stream()
+                        .map(dm -> DTOConverter.toMedicationDTO(dm.getMedication()))
+                        .collect(Collectors.toList())
+                        .size())),
+                measure(() -> readOnly.execute(status -> droneMedicationRepository.findMedicationsByDroneId(droneId).size()))};
+
+        // The seeded data may already have loaded medications onto the drone the manifest claimed
+        assertEquals(droneMedicationRepository.findByDroneId(droneId).size(),
+                droneMedicationRepository.findMedicationsByDroneId(droneId).size());
+        System.out.printf("%-22s %12s %12s %14s %14s%n", "per request", "entity us", "dto us", "entity bytes", "dto bytes");
+        print("drone page", page);
+        print("medications of drone", medications);
+
+        assertTrue(page[1][1] < page[0][1]);
+        assertTrue(medications[1][1] < medications[0][1]);
+        assertTrue(medications[1][0] < medications[0][0]);
+    }
+
+    private static void print(String name, double[][] result) {
+        System.out.printf("%-22s %12.1f %12.1f %14.0f %14.0f%n", name, result[0][0], result[1][0], result[0][1], result[1][1]);
+    }
+
+    /**
+     * Runs the request repeatedly after a warm-up, and returns the mean time in microseconds
+     * and the mean number of bytes allocated by the calling thread per request.
+     */
+    private static double[] measure(IntSupplier request) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < RUNS; i++) {
+            request.getAsInt();
+        }
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            request.getAsInt();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new double[]{elapsed / 1e3 / RUNS, (double) allocated / RUNS};
+    }
+}
@@ -0,0 +1,116 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.config.CacheConfig;
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.DronePageDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.BatteryCheckService;
+import com.ajua.Dromed.services.interfaces.BatteryHistoryWriter;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that the query caches serve repeated reads and are invalidated by the changes that affect them.
+ */
+@SpringBootTest
+@DirtiesContext
+class DroneServiceImplCacheTest {
+
+    private static final int PAGE_SIZE = 500;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private MedicationCatalog medicationCatalog;
+
+    @Autowired
+    private BatteryCheckService batteryCheckService;
+
+    @Autowired
+    private BatteryHistoryWriter batteryHistoryWriter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @BeforeEach
+    void setUp() {
+        when(batteryLevelReader.readBatteryLevel(any())).thenReturn(100);
+    }
+
+    @Test
+    void testAvailableDronesAreCachedAndEvictedOnStateChange() {
+        DronePageDTO before = droneService.getDrones(State.IDLE, null, null, PAGE_SIZE);
+        assertSame(before, droneService.getDrones(State.IDLE, null, null, PAGE_SIZE));
+        assertTrue(hits(CacheConfig.AVAILABLE_DRONES) >= 1);
+        // Only idle drones are cached
+        assertNotSame(droneService.getDrones(null, null, null, PAGE_SIZE), droneService.getDrones(null, null, null, PAGE_SIZE));
+
+        DroneDTO registered = droneService.registerDrone("CACHE1", Model.LIGHTWEIGHT, 100, 100, State.DELIVERED);
+        assertFalse(ids(idleDrones()).contains(registered.getId()));
+
+        droneService.updateDroneState(registered.getId(), State.IDLE);
+        assertTrue(ids(idleDrones()).contains(registered.getId()));
+    }
+
+    @Test
+    void testMedicationsByDroneAreEvictedOnLoad() {
+        medicationCatalog.register(new MedicationDTO(null, "Cached", 10, "CACHED", null));
+        DroneDTO registered = droneService.registerDrone("CACHE2", Model.LIGHTWEIGHT, 10, 100, State.IDLE);
+        assertTrue(droneService.getMedicationsByDrone(registered.getId()).isEmpty());
+
+        DroneMedicationDTO loaded = droneService.loadDroneWithMedication(null, new MedicationDTO(null, null, 0, "CACHED", null));
+
+        assertEquals(registered.getId(), loaded.getDrone().getId());
+        assertEquals(1, droneService.getMedicationsByDrone(registered.getId()).size());
+        assertFalse(ids(idleDrones()).contains(registered.getId()));
+    }
+
+    @Test
+    void testAvailableDronesAreEvictedWhenBatteryOfIdleDroneChanges() {
+        DroneDTO registered = droneService.registerDrone("CACHE3", Model.LIGHTWEIGHT, 100, 100, State.IDLE);
+        idleDrones();
+
+        when(batteryLevelReader.readBatteryLevel(any())).thenReturn(60);
+        batteryCheckService.checkBatteryLevels();
+        batteryHistoryWriter.flush();
+
+        DroneDTO cached = idleDrones().stream()
+                .filter(drone -> drone.getId().equals(registered.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(60, cached.getBatteryCapacity());
+    }
+
+    private double hits(String cacheName) {
+        return meterRegistry.get("cache.gets").tag("cache", cacheName).tag("result", "hit").functionCounter().count();
+    }
+
+    private List<DroneDTO> idleDrones() {
+        return droneService.getDrones(State.IDLE, null, null, PAGE_SIZE).getDrones();
+    }
+
+    private List<Long> ids(List<DroneDTO> drones) {
+        return drones.stream().map(DroneDTO::getId).toList();
+    }
+}
@@ -0,0 +1,119 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.exceptions.DroneNotAvailableException;
+import com.ajua.Dromed.repository.DroneMedicationRepository;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fires thousands of parallel loads against the real service and database
+ * and checks that no drone is ever handed to more than one request.
+ */
+@SpringBootTest
+@DirtiesContext
+class DroneServiceImplConcurrencyTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(DroneServiceImplConcurrencyTest.class);
+
+    private static final int DRONES = 200;
+    private static final int LOADS = 4_000;
+    private static final int THREADS = 64;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private MedicationCatalog medicationCatalog;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private DroneMedicationRepository droneMedicationRepository;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @BeforeEach
+    void setUp() {
+        when(batteryLevelReader.readBatteryLevel(any())).thenReturn(100);
+    }
+
+    @Test
+    void testConcurrentLoadsNeverShareADrone() throws Exception {
+        medicationCatalog.register(new MedicationDTO(null, "Stress", 10, "STRESS", null));
+        List<Long> droneIds = new ArrayList<>();
+        for (int i = 0; i < DRONES; i++) {
+            // Smaller than the seeded drones, so these are the best fit and are claimed first
+            droneIds.add(droneService.registerDrone("STRESS" + i, Model.LIGHTWEIGHT, 100, 100, State.IDLE).getId());
+        }
+
+        Map<Long, AtomicInteger> loadsPerDrone = new ConcurrentHashMap<>();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < LOADS; i++) {
+            MedicationDTO medicationDTO = new MedicationDTO(null, null, 0, "STRESS", null);
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    DroneMedicationDTO result = droneService.loadDroneWithMedication(null, medicationDTO);
+                    loadsPerDrone.computeIfAbsent(result.getDrone().getId(), id -> new AtomicInteger()).incrementAndGet();
+                } catch (DroneNotAvailableException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        int loaded = loadsPerDrone.values().stream().mapToInt(AtomicInteger::get).sum();
+        logger.info("{} loads on {} threads: {} loaded, {} rejected, {} requests/s",
+                LOADS, THREADS, loaded, rejected.get(), Math.round(LOADS / (elapsedNanos / 1e9)));
+
+        assertEquals(LOADS, loaded + rejected.get());
+        loadsPerDrone.forEach((droneId, count) -> assertEquals(1, count.get(), "Drone " + droneId + " was loaded twice"));
+        for (Long droneId : droneIds) {
+            assertTrue(loadsPerDrone.containsKey(droneId), "Drone " + droneId + " was never loaded");
+            assertEquals(State.LOADED, droneRepository.findById(droneId).orElseThrow().getState());
+            assertEquals(1, droneMedicationRepository.findByDroneId(droneId).size());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.config.CacheConfig;
+import com.ajua.Dromed.dtos.BatteryReading;
+import com.ajua.Dromed.dtos.DronePageDTO;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.enums.TransitionOutcome;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the statements Hibernate prepares for the service's reads, so that a change that turns a single query into one
+ * per page or per drone fails here rather than only showing up as latency.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@DirtiesContext
+class DroneServiceImplStatementTest {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private MedicationCatalog medicationCatalog;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private BatteryReadingRegistry batteryReadingRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        when(batteryLevelReader.readBatteryLevel(any())).thenReturn(100);
+    }
+
+    @Test
+    void testDeepKeysetPagePreparesOneStatementLikeTheFirst() {
+        List<Long> ids = insertDrones("PAGE", 2_000, State.DELIVERING);
+        long deepCursor = ids.get(ids.size() - PAGE_SIZE - 10);
+
+        statistics.clear();
+        DronePageDTO first = droneService.getDrones(State.DELIVERING, null, null, PAGE_SIZE);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        DronePageDTO deep = droneService.getDrones(State.DELIVERING, null, deepCursor, PAGE_SIZE);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertEquals(PAGE_SIZE, first.getDrones().size());
+        assertEquals(PAGE_SIZE, deep.getDrones().size());
+        assertEquals(deepCursor + 1, deep.getDrones().getFirst().getId());
+        // The page seeks into the state index at the cursor instead of skipping the rows before it
+        String plan = jdbcTemplate.queryForObject(
+                "explain select id from drone where state = 'DELIVERING' and id > ? order by id limit 51", String.class, deepCursor);
+        assertTrue(plan.toUpperCase().contains("IDX_DRONE_STATE_ID"), plan);
+    }
+
+    @Test
+    void testBulkMedicationsLookupPreparesOneStatementPerChunk() {
+        List<MedicationDTO> manifest = new ArrayList<>();
+        for (int item = 0; item < 2; item++) {
+            medicationCatalog.register(new MedicationDTO(null, "Bulk-" + item, 10, "BULK_" + item, null));
+            manifest.add(new MedicationDTO(null, null, 0, "BULK_" + item, null));
+        }
+        List<Long> droneIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            droneService.registerDrone("BULK" + i, Model.HEAVYWEIGHT, 500, 100, State.IDLE);
+            droneIds.add(droneService.loadDroneWithManifest(null, manifest).getDrone().getId());
+        }
+
+        statistics.clear();
+        Map<Long, List<MedicationDTO>> bulk = droneService.getMedicationsByDrones(droneIds);
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        cacheManager.getCache(CacheConfig.DRONE_MEDICATIONS).clear();
+        statistics.clear();
+        for (Long droneId : droneIds) {
+            assertEquals(droneService.getMedicationsByDrone(droneId), bulk.get(droneId));
+        }
+        assertEquals(droneIds.size(), statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testBulkBatteryLevelsAreAnsweredFromMemoryOnceRead() {
+        List<Long> droneIds = insertDrones("LEVEL", 600, State.IDLE);
+
+        statistics.clear();
+        droneIds.forEach(droneService::checkDroneBatteryLevel);
+        assertEquals(droneIds.size(), statistics.getPrepareStatementCount());
+
+        // Drones not read since startup fall back to one query per chunk of IDs
+        statistics.clear();
+        assertEquals(droneIds.size(), droneService.checkDroneBatteryLevels(droneIds).size());
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        LocalDateTime now = LocalDateTime.now();
+        droneIds.forEach(id -> batteryReadingRegistry.record(new BatteryReading(id, 90, now)));
+        statistics.clear();
+        assertEquals(droneIds.size(), droneService.checkDroneBatteryLevels(droneIds).size());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testBulkShiftPreparesAsManyStatementsForTenDronesAsForAHundred() {
+        List<Long> small = registerLoaded("SHIFT", 10);
+        List<Long> large = registerLoaded("FLEET", 100);
+
+        long smallStatements = shiftStatements(small);
+        long largeStatements = shiftStatements(large);
+
+        // Each bulk transition costs a fixed number of statements per source state and chunk, not per drone
+        assertEquals(smallStatements, largeStatements);
+        assertTrue(largeStatements < large.size(), "Shift prepared " + largeStatements + " statements");
+    }
+
+    /**
+     * Runs the drones through delivery and back to base with bulk transitions, and returns the statements prepared.
+     */
+    private long shiftStatements(List<Long> droneIds) {
+        statistics.clear();
+        for (State state : List.of(State.DELIVERING, State.DELIVERED, State.IDLE)) {
+            droneService.transitionDrones(droneIds, state)
+                    .forEach((id, outcome) -> assertEquals(TransitionOutcome.MOVED, outcome));
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<Long> registerLoaded(String prefix, int count) {
+        List<Long> droneIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            droneIds.add(droneService.registerDrone(prefix + i, Model.MIDDLEWEIGHT, 300, 100, State.LOADED).getId());
+        }
+        return droneIds;
+    }
+
+    /**
+     * Inserts drones straight through JDBC, so that setting up the fleet does not count towards the statistics.
+     */
+    private List<Long> insertDrones(String prefix, int count, State state) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new Object[]{prefix + i, Model.LIGHTWEIGHT.name(), 500, 100, state.name()});
+        }
+        jdbcTemplate.batchUpdate("insert into drone (serial_number, model, weight_limit, battery_capacity, state, "
+                + "loaded_weight, loaded_items) values (?, ?, ?, ?, ?, 0, 0)", rows);
+        return jdbcTemplate.queryForList("select id from drone where serial_number like ? order by id", Long.class, prefix + "%");
+    }
+}
@@ -1,16 +1,32 @@
 package com.ajua.Dromed.services.impl;
 
+import com.ajua.Dromed.dtos.BatteryLevelPageDTO;
+import com.ajua.Dromed.dtos.DroneBatteryLevel;
 import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneManifestDTO;
+import com.ajua.Dromed.dtos.DroneEvent;
 import com.ajua.Dromed.dtos.DroneMedicationDTO;
+import com.ajua.Dromed.dtos.DroneMedicationRow;
+import com.ajua.Dromed.dtos.DronePageDTO;
 import com.ajua.Dromed.dtos.MedicationDTO;
 import com.ajua.Dromed.enums.Model;
 import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.enums.TransitionOutcome;
 import com.ajua.Dromed.exceptions.*;
 import com.ajua.Dromed.models.Drone;
 import com.ajua.Dromed.models.DroneMedication;
 import com.ajua.Dromed.models.Medication;
 import com.ajua.Dromed.repository.DroneMedicationRepository;
 import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.DroneDispatchIndex;
+import com.ajua.Dromed.services.interfaces.BatteryDischargeEstimator;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import com.ajua.Dromed.services.interfaces.DroneEventOutbox;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
+import com.ajua.Dromed.services.interfaces.FleetJournal;
+import com.ajua.Dromed.services.interfaces.FleetStatusStream;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import com.ajua.Dromed.utils.DTOConverter;
 
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
@@ -21,20 +37,27 @@ import io.vavr.control.Try;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,6 +69,30 @@ class DroneServiceImplTest {
     @Mock
     private DroneMedicationRepository droneMedicationRepository;
 
+    @Mock
+    private MedicationCatalog medicationCatalog;
+
+    @Mock
+    private DroneQueryCache droneQueryCache;
+
+    @Mock
+    private BatteryReadingRegistry batteryReadingRegistry;
+
+    @Mock
+    private BatteryDischargeEstimator batteryDischargeEstimator;
+
+    @Mock
+    private DroneEventOutbox droneEventOutbox;
+
+    @Mock
+    private FleetStatusStream fleetStatusStream;
+
+    @Mock
+    private FleetJournal fleetJournal;
+
+    @Spy
+    private DroneDispatchIndex dispatchIndex = new DroneDispatchIndexImpl(null);
+
     @InjectMocks
     private DroneServiceImpl droneService;
 
@@ -74,6 +121,8 @@ class DroneServiceImplTest {
         medication.setImageUrl("http://example.com/image.jpg");
 
         droneMedication = new DroneMedication(drone, medication);
+        lenient().when(medicationCatalog.getByCode(medication.getCode())).thenReturn(medication);
+        lenient().when(batteryDischargeEstimator.canCompleteTrip(anyLong())).thenReturn(true);
 
         // Configure CircuitBreaker
         CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
@@ -122,11 +171,14 @@ class DroneServiceImplTest {
 
     @Test
     void testLoadDroneWithMedication() {
-        // Mock the necessary repository methods with CircuitBreaker
-        when(droneRepository.findByState(State.IDLE))
-                .thenReturn(List.of(drone))
+        // Make the drone available for dispatch and mock the necessary repository methods with CircuitBreaker
+        dispatchIndex.add(drone);
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.addPayload(drone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneRepository.findById(drone.getId()))
+                .thenReturn(Optional.of(drone))
                 .thenThrow(new RuntimeException("Database unavailable"))
-                .thenReturn(List.of(drone));
+                .thenReturn(Optional.of(drone));
 
         // Mock the save method of droneMedicationRepository with Retry
         when(droneMedicationRepository.save(any(DroneMedication.class)))
@@ -148,15 +200,333 @@ class DroneServiceImplTest {
         assertNotNull(result);
         assertEquals(medication.getId(), result.getMedication().getId());
         assertEquals(drone.getId(), result.getDrone().getId());
+        assertEquals(0, dispatchIndex.size());
+        verify(droneQueryCache).evictAvailableDrones();
+        verify(droneQueryCache).evictMedicationsByDrone(drone.getId());
     }
 
     @Test
-    void testLoadDroneWithMedicationThrowsDroneNotAvailableException() {
-        // Mock the repository method to return an empty list with CircuitBreaker
-        when(droneRepository.findByState(State.IDLE))
-                .thenReturn(new ArrayList<>())
-                .thenThrow(new RuntimeException("Database unavailable"));
+    void testUpdateDroneStateRejectsIllegalTransitions() {
+        when(droneRepository.findForTransitionById(drone.getId())).thenReturn(Optional.of(drone));
+
+        assertEquals(HttpStatus.CONFLICT, droneService.updateDroneState(drone.getId(), State.LOADED).getStatusCode());
+        // Allowed by the delivery cycle, but a drone is only loaded through the dispatch claim and the payload checks
+        assertEquals(HttpStatus.CONFLICT, droneService.updateDroneState(drone.getId(), State.LOADING).getStatusCode());
+        drone.setState(State.LOADING);
+        assertEquals(HttpStatus.CONFLICT, droneService.updateDroneState(drone.getId(), State.LOADED).getStatusCode());
+        drone.setState(State.DELIVERED);
+        assertEquals(HttpStatus.CONFLICT, droneService.updateDroneState(drone.getId(), State.LOADING).getStatusCode());
+
+        assertEquals(State.DELIVERED, drone.getState());
+        verify(droneRepository, never()).transitionState(anyLong(), any(), any());
+        verifyNoInteractions(droneEventOutbox);
+    }
+
+    @Test
+    void testLoadDroneWithMedicationPicksSmallestDroneThatFits() {
+        Drone largeDrone = new Drone(2L, "67890", Model.HEAVYWEIGHT, 500, 90, State.IDLE);
+        Drone smallDrone = new Drone(3L, "13579", Model.LIGHTWEIGHT, 50, 90, State.IDLE);
+        dispatchIndex.add(largeDrone);
+        dispatchIndex.add(drone);
+        dispatchIndex.add(smallDrone);
+
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.addPayload(drone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneRepository.findById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneMedicationRepository.save(any(DroneMedication.class))).thenReturn(droneMedication);
+
+        DroneMedicationDTO result = droneService.loadDroneWithMedication(drone.getId(), DTOConverter.toMedicationDTO(medication));
+
+        assertEquals(drone.getId(), result.getDrone().getId());
+        assertEquals(State.LOADED, drone.getState());
+        assertEquals(2, dispatchIndex.size());
+    }
+
+    @Test
+    void testLoadDroneWithMedicationSkipsBestFitWithLowBattery() {
+        Drone otherDrone = new Drone(2L, "67890", Model.HEAVYWEIGHT, 500, 90, State.IDLE);
+        drone.setBatteryCapacity(10);
+        dispatchIndex.add(drone);
+        dispatchIndex.add(otherDrone);
+        when(droneRepository.transitionState(otherDrone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.findById(otherDrone.getId())).thenReturn(Optional.of(otherDrone));
+        when(droneRepository.addPayload(otherDrone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneMedicationRepository.save(any(DroneMedication.class))).thenReturn(droneMedication);
+
+        DroneMedicationDTO result = droneService.loadDroneWithMedication(null, DTOConverter.toMedicationDTO(medication));
+
+        // The tightest fit has too little battery, so the load goes to the next fit instead of failing on it
+        assertEquals(otherDrone.getId(), result.getDrone().getId());
+        verify(droneRepository, never()).transitionState(drone.getId(), State.IDLE, State.LOADING);
+        assertEquals(1, dispatchIndex.size());
+    }
+
+    @Test
+    void testStateChangesAreRecordedInOutbox() {
+        dispatchIndex.add(drone);
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.addPayload(drone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneRepository.findById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneMedicationRepository.save(any(DroneMedication.class))).thenReturn(droneMedication);
+
+        when(droneRepository.findForTransitionById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneRepository.transitionState(drone.getId(), State.LOADED, State.DELIVERING)).thenReturn(1);
+
+        droneService.loadDroneWithMedication(null, DTOConverter.toMedicationDTO(medication));
+        droneService.startDelivery(drone.getId());
+
+        ArgumentCaptor<DroneEvent> events = ArgumentCaptor.forClass(DroneEvent.class);
+        verify(droneEventOutbox, times(3)).append(events.capture());
+        assertEquals(List.of(State.IDLE, State.LOADING, State.LOADED),
+                events.getAllValues().stream().map(DroneEvent::previousState).toList());
+        assertEquals(List.of(State.LOADING, State.LOADED, State.DELIVERING),
+                events.getAllValues().stream().map(DroneEvent::state).toList());
+        events.getAllValues().forEach(event -> {
+            assertEquals(DroneEvent.Type.STATE_CHANGED, event.type());
+            assertEquals(drone.getId(), event.droneId());
+        });
+        // No transaction is active here, so the committed changes are pushed straight away
+        events.getAllValues().forEach(event -> verify(fleetStatusStream).publish(event));
+    }
+
+    @Test
+    void testLoadDroneWithMedicationSkipsDroneThatWouldNotLastTrip() {
+        Drone otherDrone = new Drone(2L, "67890", Model.HEAVYWEIGHT, 500, 90, State.IDLE);
+        dispatchIndex.add(drone);
+        dispatchIndex.add(otherDrone);
+        // The best fit is draining fast and is predicted to drop below 25% mid-trip
+        when(batteryDischargeEstimator.canCompleteTrip(drone.getId())).thenReturn(false);
+        when(droneRepository.transitionState(otherDrone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.findById(otherDrone.getId())).thenReturn(Optional.of(otherDrone));
+        when(droneRepository.addPayload(otherDrone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneMedicationRepository.save(any(DroneMedication.class))).thenReturn(droneMedication);
+
+        DroneMedicationDTO result = droneService.loadDroneWithMedication(null, DTOConverter.toMedicationDTO(medication));
+
+        assertEquals(otherDrone.getId(), result.getDrone().getId());
+        verify(droneRepository, never()).transitionState(drone.getId(), State.IDLE, State.LOADING);
+        // The skipped drone is still idle and stays available for later
+        assertEquals(1, dispatchIndex.size());
+    }
+
+    @Test
+    void testLoadDroneWithMedicationRejectsWhenNoDroneWouldLastTrip() {
+        dispatchIndex.add(drone);
+        when(batteryDischargeEstimator.canCompleteTrip(drone.getId())).thenReturn(false);
+
+        DroneNotAvailableException exception = assertThrows(DroneNotAvailableException.class, () ->
+                droneService.loadDroneWithMedication(null, DTOConverter.toMedicationDTO(medication)));
+
+        assertEquals("No available drones with enough battery for the trip", exception.getMessage());
+        verify(droneRepository, never()).transitionState(anyLong(), any(), any());
+        assertEquals(1, dispatchIndex.size());
+    }
+
+    @Test
+    void testLoadDroneWithMedicationSkipsDroneClaimedElsewhere() {
+        Drone otherDrone = new Drone(2L, "67890", Model.HEAVYWEIGHT, 500, 90, State.IDLE);
+        dispatchIndex.add(drone);
+        dispatchIndex.add(otherDrone);
+
+        // The best fit was already moved out of IDLE by another instance
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(0);
+        when(droneRepository.transitionState(otherDrone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.findById(otherDrone.getId())).thenReturn(Optional.of(otherDrone));
+        when(droneRepository.addPayload(otherDrone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneMedicationRepository.save(any(DroneMedication.class))).thenReturn(droneMedication);
+
+        DroneMedicationDTO result = droneService.loadDroneWithMedication(otherDrone.getId(), DTOConverter.toMedicationDTO(medication));
+
+        assertEquals(otherDrone.getId(), result.getDrone().getId());
+        assertEquals(0, dispatchIndex.size());
+    }
+
+    @Test
+    void testLoadDroneWithMedicationUpdatesPayloadCounter() {
+        drone.setLoadedWeight(200);
+        drone.setLoadedItems(2);
+        dispatchIndex.add(drone);
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.addPayload(drone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneRepository.findById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneMedicationRepository.save(any(DroneMedication.class))).thenReturn(droneMedication);
+
+        droneService.loadDroneWithMedication(drone.getId(), DTOConverter.toMedicationDTO(medication));
+
+        assertEquals(300, drone.getLoadedWeight());
+        assertEquals(3, drone.getLoadedItems());
+        verify(droneMedicationRepository, never()).findByDroneId(any());
+    }
+
+    @Test
+    void testLoadDroneWithMedicationRejectsPayloadAddedConcurrently() {
+        dispatchIndex.add(drone);
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.findById(drone.getId())).thenReturn(Optional.of(drone));
+        // Another load filled the drone between the read and the conditional increment
+        when(droneRepository.addPayload(drone.getId(), medication.getWeight(), 1)).thenReturn(0);
+
+        inRolledBackTransaction(() -> assertThrows(OverweightException.class, () ->
+                droneService.loadDroneWithMedication(drone.getId(), DTOConverter.toMedicationDTO(medication))));
+
+        assertEquals(0, drone.getLoadedWeight());
+        assertEquals(1, dispatchIndex.size());
+        verify(droneMedicationRepository, never()).save(any(DroneMedication.class));
+    }
+
+    @Test
+    void testLoadDroneWithManifest() {
+        Medication otherMedication = new Medication(2L, "Med2", 150, "MED456", null);
+        when(medicationCatalog.getByCode(otherMedication.getCode())).thenReturn(otherMedication);
+        dispatchIndex.add(drone);
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.addPayload(drone.getId(), 250, 2)).thenReturn(1);
+        when(droneRepository.findById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneMedicationRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        DroneManifestDTO result = droneService.loadDroneWithManifest(drone.getId(),
+                List.of(DTOConverter.toMedicationDTO(medication), DTOConverter.toMedicationDTO(otherMedication)));
+
+        assertEquals(drone.getId(), result.getDrone().getId());
+        assertEquals(State.LOADED, result.getDrone().getState());
+        assertEquals(2, result.getMedications().size());
+        assertEquals(250, drone.getLoadedWeight());
+        assertEquals(2, drone.getLoadedItems());
+        verify(droneMedicationRepository, never()).save(any(DroneMedication.class));
+    }
+
+    @Test
+    void testChangesAreRecordedInFleetJournal() {
+        dispatchIndex.add(drone);
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.addPayload(drone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneRepository.findById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneMedicationRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<DroneMedication> saved = invocation.getArgument(0);
+            saved.getFirst().setId(7L);
+            return saved;
+        });
+
+        when(droneRepository.findForTransitionById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneRepository.transitionState(drone.getId(), State.LOADED, State.DELIVERING)).thenReturn(1);
+
+        droneService.loadDroneWithManifest(null, List.of(DTOConverter.toMedicationDTO(medication)));
+        droneService.startDelivery(drone.getId());
+
+        verify(fleetJournal).droneMedicationsChanged(List.of(7L));
+        // Claimed, loaded and sent out for delivery
+        verify(fleetJournal, times(3)).dronesChanged(List.of(drone.getId()));
+    }
+
+    @Test
+    void testLoadDroneWithManifestRejectsCumulativeOverweight() {
+        // Each medication fits on its own, but not the whole manifest
+        when(medicationCatalog.getByCode("MED1")).thenReturn(new Medication(1L, "Med1", 250, "MED1", null));
+        when(medicationCatalog.getByCode("MED2")).thenReturn(new Medication(2L, "Med2", 250, "MED2", null));
+        List<MedicationDTO> manifest = List.of(new MedicationDTO(null, null, 0, "MED1", null),
+                new MedicationDTO(null, null, 0, "MED2", null));
+        dispatchIndex.add(drone);
+
+        assertThrows(OverweightException.class, () -> droneService.loadDroneWithManifest(drone.getId(), manifest));
+        assertEquals(1, dispatchIndex.size());
+        verify(droneMedicationRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testLoadDroneWithMedicationUsesCatalogEntry() {
+        dispatchIndex.add(drone);
+        when(droneRepository.transitionState(drone.getId(), State.IDLE, State.LOADING)).thenReturn(1);
+        when(droneRepository.addPayload(drone.getId(), medication.getWeight(), 1)).thenReturn(1);
+        when(droneRepository.findById(drone.getId())).thenReturn(Optional.of(drone));
+
+        // The client only sends the code; weight and name come from the catalog
+        DroneMedicationDTO result = droneService.loadDroneWithMedication(drone.getId(),
+                new MedicationDTO(null, null, 0, medication.getCode(), null));
+
+        assertEquals(medication.getName(), result.getMedication().getName());
+        assertEquals(medication.getWeight(), drone.getLoadedWeight());
+    }
+
+    @Test
+    void testLoadDroneWithUnknownMedication() {
+        dispatchIndex.add(drone);
+        when(medicationCatalog.getByCode("UNKNOWN")).thenThrow(new ResourceNotFoundException("Medication not found: UNKNOWN"));
+
+        assertThrows(ResourceNotFoundException.class, () ->
+                droneService.loadDroneWithMedication(drone.getId(), new MedicationDTO(null, null, 0, "UNKNOWN", null)));
+        assertEquals(1, dispatchIndex.size());
+    }
 
+    @Test
+    void testLoadDroneWithEmptyManifest() {
+        assertThrows(IllegalArgumentException.class, () -> droneService.loadDroneWithManifest(drone.getId(), List.of()));
+    }
+
+    @Test
+    void testCompleteDeliveryResetsPayload() {
+        drone.setState(State.DELIVERING);
+        drone.setLoadedWeight(300);
+        drone.setLoadedItems(3);
+        when(droneRepository.findForTransitionById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneRepository.transitionStatesAndUnload(List.of(drone.getId()), State.DELIVERING, State.DELIVERED)).thenReturn(1);
+        when(droneMedicationRepository.findUndeliveredIdsByDroneIdIn(List.of(drone.getId()))).thenReturn(List.of(7L, 8L, 9L));
+
+        droneService.completeDelivery(drone.getId());
+
+        assertEquals(State.DELIVERED, drone.getState());
+        assertEquals(0, drone.getLoadedWeight());
+        assertEquals(0, drone.getLoadedItems());
+        // The medication rows leave the payload together with the counters
+        verify(droneMedicationRepository).markDelivered(List.of(7L, 8L, 9L));
+        verify(fleetJournal).droneMedicationsChanged(List.of(7L, 8L, 9L));
+        verify(droneQueryCache).evictMedicationsByDrone(drone.getId());
+        verify(droneQueryCache, never()).evictAvailableDrones();
+    }
+
+    @Test
+    void testUpdateDroneStateAbortsLoadingDrone() {
+        // Registered, or restored from the journal, as LOADING without a load in progress
+        drone.setState(State.LOADING);
+        when(droneRepository.findForTransitionById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneRepository.transitionState(drone.getId(), State.LOADING, State.IDLE)).thenReturn(1);
+
+        assertEquals(HttpStatus.OK, droneService.updateDroneState(drone.getId(), State.IDLE).getStatusCode());
+
+        assertEquals(State.IDLE, drone.getState());
+        assertEquals(Optional.of(drone.getId()), dispatchIndex.claim(medication.getWeight()));
+    }
+
+    @Test
+    void testSingleDroneTransitionsDoNotOverwriteConcurrentChange() {
+        drone.setState(State.DELIVERING);
+        when(droneRepository.findForTransitionById(drone.getId())).thenReturn(Optional.of(drone));
+        // A bulk transition moved the drone on after it was read, so the conditional updates match no row
+
+        assertThrows(IllegalStateException.class, () -> droneService.completeDelivery(drone.getId()));
+        assertEquals(HttpStatus.CONFLICT, droneService.updateDroneState(drone.getId(), State.DELIVERED).getStatusCode());
+
+        assertEquals(State.DELIVERING, drone.getState());
+        verify(droneRepository, times(2)).transitionStatesAndUnload(List.of(drone.getId()), State.DELIVERING, State.DELIVERED);
+        verify(droneRepository, never()).save(any(Drone.class));
+        verifyNoInteractions(droneMedicationRepository, droneEventOutbox);
+    }
+
+    @Test
+    void testReturnToBaseMakesDroneAvailableForDispatch() {
+        drone.setState(State.DELIVERED);
+        when(droneRepository.findForTransitionById(drone.getId())).thenReturn(Optional.of(drone));
+        when(droneRepository.transitionState(drone.getId(), State.DELIVERED, State.IDLE)).thenReturn(1);
+
+        droneService.returnToBase(drone.getId());
+
+        assertEquals(State.IDLE, drone.getState());
+        assertEquals(Optional.of(drone.getId()), dispatchIndex.claim(medication.getWeight()));
+        verify(droneQueryCache).evictAvailableDrones();
+    }
+
+    @Test
+    void testLoadDroneWithMedicationThrowsDroneNotAvailableException() {
+        // No drone has been added to the dispatch index
         // Use the CircuitBreaker for loadDroneWithMedication method directly
         assertThrows(DroneNotAvailableException.class, () ->
                 CircuitBreaker.decorateCallable(circuitBreaker, () ->
@@ -168,11 +538,8 @@ class DroneServiceImplTest {
         // Set the drone's weight limit to a value less than the medication weight
         drone.setWeightLimit(50);
 
-        // Mock the repository method to return the drone with CircuitBreaker
-        when(droneRepository.findByState(State.IDLE))
-                .thenReturn(List.of(drone))
-                .thenThrow(new RuntimeException("Database unavailable"))
-                .thenReturn(List.of(drone));
+        // The only idle drone cannot carry the medication
+        dispatchIndex.add(drone);
 
         // Use the CircuitBreaker for loadDroneWithMedication method directly
         assertThrows(OverweightException.class, () ->
@@ -183,10 +550,10 @@ class DroneServiceImplTest {
     @Test
     void testGetMedicationsByDrone() throws Exception {
         // Mock the repository method to return the drone medication with CircuitBreaker
-        when(droneMedicationRepository.findByDroneId(drone.getId()))
-                .thenReturn(List.of(droneMedication))
+        when(droneMedicationRepository.findMedicationsByDroneId(drone.getId()))
+                .thenReturn(List.of(DTOConverter.toMedicationDTO(medication)))
                 .thenThrow(new RuntimeException("Database unavailable"))
-                .thenReturn(List.of(droneMedication));
+                .thenReturn(List.of(DTOConverter.toMedicationDTO(medication)));
 
         // Use the CircuitBreaker for getMedicationsByDrone method directly
         List<MedicationDTO> result = CircuitBreaker.decorateCallable(circuitBreaker, () ->
@@ -198,20 +565,76 @@ class DroneServiceImplTest {
     }
 
     @Test
-    void testGetAvailableDrones() throws Exception {
+    void testGetMedicationsByDronesGroupsByDrone() {
+        MedicationDTO medicationDTO = DTOConverter.toMedicationDTO(medication);
+        when(droneMedicationRepository.findMedicationsByDroneIdIn(List.of(3L, 1L, 2L)))
+                .thenReturn(List.of(new DroneMedicationRow(1L, medicationDTO), new DroneMedicationRow(1L, medicationDTO),
+                        new DroneMedicationRow(3L, medicationDTO)));
+
+        Map<Long, List<MedicationDTO>> result = droneService.getMedicationsByDrones(List.of(3L, 1L, 2L, 1L));
+
+        assertEquals(List.of(3L, 1L, 2L), List.copyOf(result.keySet()));
+        assertEquals(1, result.get(3L).size());
+        assertEquals(2, result.get(1L).size());
+        assertTrue(result.get(2L).isEmpty());
+    }
+
+    @Test
+    void testGetMedicationsByDronesChunksTheInList() {
+        List<Long> droneIds = LongStream.rangeClosed(1, AbstractDroneService.MAX_BULK_DRONES).boxed().toList();
+        when(droneMedicationRepository.findMedicationsByDroneIdIn(anyList())).thenReturn(List.of());
+
+        assertEquals(droneIds.size(), droneService.getMedicationsByDrones(droneIds).size());
+
+        ArgumentCaptor<List<Long>> chunks = ArgumentCaptor.captor();
+        verify(droneMedicationRepository, times(4)).findMedicationsByDroneIdIn(chunks.capture());
+        chunks.getAllValues().forEach(chunk -> assertEquals(AbstractDroneService.IN_LIST_CHUNK_SIZE, chunk.size()));
+        assertThrows(IllegalArgumentException.class, () -> droneService.getMedicationsByDrones(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> droneService.getMedicationsByDrones(
+                LongStream.rangeClosed(0, AbstractDroneService.MAX_BULK_DRONES).boxed().toList()));
+    }
+
+    @Test
+    void testGetDrones() throws Exception {
         // Mock the repository method to return the drone with CircuitBreaker
-        when(droneRepository.findByState(State.IDLE))
-                .thenReturn(List.of(drone))
+        when(droneRepository.findPageByState(State.IDLE, 0L, Limit.of(51)))
+                .thenReturn(List.of(DTOConverter.toDroneDTO(drone)))
                 .thenThrow(new RuntimeException("Database unavailable"))
-                .thenReturn(List.of(drone));
+                .thenReturn(List.of(DTOConverter.toDroneDTO(drone)));
 
-        // Use the CircuitBreaker for getAvailableDrones method directly
-        List<DroneDTO> result = CircuitBreaker.decorateCallable(circuitBreaker, () ->
-                droneService.getAvailableDrones(State.IDLE)).call();
+        // Use the CircuitBreaker for getDrones method directly
+        DronePageDTO result = CircuitBreaker.decorateCallable(circuitBreaker, () ->
+                droneService.getDrones(State.IDLE, null, null, 50)).call();
 
         // Verify the results
-        assertEquals(1, result.size());
-        assertEquals(drone.getId(), result.get(0).getId());
+        assertEquals(1, result.getDrones().size());
+        assertEquals(drone.getId(), result.getDrones().get(0).getId());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void testGetDronesFiltersByStateAndModelFromCursor() {
+        DroneDTO next = new DroneDTO(2L, "67890", Model.LIGHTWEIGHT, 400, 80, State.LOADED);
+        DroneDTO beyond = new DroneDTO(3L, "67891", Model.LIGHTWEIGHT, 400, 80, State.LOADED);
+        when(droneRepository.findPageByStateAndModel(State.LOADED, Model.LIGHTWEIGHT, 1L, Limit.of(2)))
+                .thenReturn(List.of(next, beyond));
+
+        DronePageDTO page = droneService.getDrones(State.LOADED, Model.LIGHTWEIGHT, 1L, 1);
+
+        assertEquals(List.of(2L), page.getDrones().stream().map(DroneDTO::getId).toList());
+        assertEquals(2L, page.getNextCursor());
+    }
+
+    @Test
+    void testGetDronesCapsPageSize() {
+        when(droneRepository.findPageByModel(Model.HEAVYWEIGHT, 0L, Limit.of(AbstractDroneService.MAX_PAGE_SIZE + 1)))
+                .thenReturn(List.of());
+
+        DronePageDTO page = droneService.getDrones(null, Model.HEAVYWEIGHT, null, 10_000);
+
+        assertTrue(page.getDrones().isEmpty());
+        assertNull(page.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> droneService.getDrones(null, null, null, 0));
     }
 
     @Test
@@ -233,17 +656,128 @@ class DroneServiceImplTest {
         assertEquals(drone.getBatteryCapacity(), batteryLevel);
     }
 
+    @Test
+    void testCheckBatteryLevelPrefersLatestReading() {
+        when(batteryReadingRegistry.getLatestLevel(drone.getId())).thenReturn(Optional.of(42));
+
+        assertEquals(42, droneService.checkDroneBatteryLevel(drone.getId()));
+        verifyNoInteractions(droneRepository);
+    }
+
+    @Test
+    void testCheckBatteryLevelsFallsBackToDatabaseForUnreadDrones() {
+        when(batteryReadingRegistry.getLatestLevels(List.of(3L, 1L, 2L, 4L))).thenReturn(Map.of(1L, 42, 2L, 17));
+        when(droneRepository.findBatteryLevelsByIdIn(List.of(3L, 4L))).thenReturn(List.of(new DroneBatteryLevel(3L, 90)));
+
+        Map<Long, Integer> levels = droneService.checkDroneBatteryLevels(List.of(3L, 1L, 2L, 4L));
+
+        // Drone 4 is unknown and left out
+        assertEquals(List.of(3L, 1L, 2L), List.copyOf(levels.keySet()));
+        assertEquals(List.of(90, 42, 17), List.copyOf(levels.values()));
+    }
+
+    @Test
+    void testCheckBatteryLevelsReadsOnlyMemoryWhenAllDronesWereRead() {
+        when(batteryReadingRegistry.getLatestLevels(List.of(1L, 2L))).thenReturn(Map.of(1L, 42, 2L, 17));
+
+        assertEquals(Map.of(1L, 42, 2L, 17), droneService.checkDroneBatteryLevels(List.of(1L, 2L)));
+        verifyNoInteractions(droneRepository);
+    }
+
+    @Test
+    void testCheckBatteryLevelsOfState() {
+        when(droneRepository.findBatteryLevelsByState(State.IDLE, 0L, Limit.of(3)))
+                .thenReturn(List.of(new DroneBatteryLevel(1L, 80), new DroneBatteryLevel(2L, 70)));
+        when(batteryReadingRegistry.getLatestLevels(List.of(1L, 2L))).thenReturn(Map.of(2L, 55));
+
+        BatteryLevelPageDTO page = droneService.checkDroneBatteryLevels(State.IDLE, null, 2);
+
+        assertEquals(List.of(1L, 2L), List.copyOf(page.getBatteryLevels().keySet()));
+        assertEquals(List.of(80, 55), List.copyOf(page.getBatteryLevels().values()));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testCheckBatteryLevelsOfStateReadsOnePage() {
+        // One drone past the page is read to tell whether there is a next page
+        when(droneRepository.findBatteryLevelsByState(State.IDLE, 1L, Limit.of(AbstractDroneService.MAX_PAGE_SIZE + 1)))
+                .thenReturn(LongStream.rangeClosed(2, AbstractDroneService.MAX_PAGE_SIZE + 2)
+                        .mapToObj(id -> new DroneBatteryLevel(id, 80)).toList());
+
+        BatteryLevelPageDTO page = droneService.checkDroneBatteryLevels(State.IDLE, 1L, 100_000);
+
+        assertEquals(AbstractDroneService.MAX_PAGE_SIZE, page.getBatteryLevels().size());
+        assertEquals(AbstractDroneService.MAX_PAGE_SIZE + 1L, page.getNextCursor());
+        verify(batteryReadingRegistry).getLatestLevels(argThat(ids -> ids.size() == AbstractDroneService.MAX_PAGE_SIZE));
+        assertThrows(IllegalArgumentException.class, () -> droneService.checkDroneBatteryLevels(State.IDLE, null, 0));
+    }
+
+    @Test
+    void testTransitionDronesMovesEachSourceStateWithOneUpdate() {
+        Drone delivered = new Drone(2L, "SN2", Model.LIGHTWEIGHT, 300, 90, State.DELIVERED);
+        Drone returning = new Drone(3L, "SN3", Model.LIGHTWEIGHT, 300, 80, State.RETURNING);
+        Drone alsoDelivered = new Drone(4L, "SN4", Model.LIGHTWEIGHT, 300, 70, State.DELIVERED);
+        drone.setState(State.LOADED);
+        when(droneRepository.findForTransitionByIdIn(List.of(1L, 2L, 3L, 4L, 5L)))
+                .thenReturn(List.of(drone, delivered, returning, alsoDelivered));
+        when(droneRepository.transitionStates(List.of(2L, 4L), State.DELIVERED, State.IDLE)).thenReturn(2);
+        when(droneRepository.transitionStates(List.of(3L), State.RETURNING, State.IDLE)).thenReturn(1);
+
+        Map<Long, TransitionOutcome> outcomes = droneService.transitionDrones(List.of(1L, 2L, 3L, 4L, 5L, 2L), State.IDLE);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), List.copyOf(outcomes.keySet()));
+        assertEquals(List.of(TransitionOutcome.CONFLICT, TransitionOutcome.MOVED, TransitionOutcome.MOVED,
+                TransitionOutcome.MOVED, TransitionOutcome.NOT_FOUND), List.copyOf(outcomes.values()));
+        verify(droneRepository, never()).save(any(Drone.class));
+        ArgumentCaptor<List<DroneEvent>> events = ArgumentCaptor.captor();
+        verify(droneEventOutbox).appendAll(events.capture());
+        assertEquals(List.of(2L, 4L, 3L), events.getValue().stream().map(DroneEvent::droneId).toList());
+        assertEquals(List.of(State.DELIVERED, State.DELIVERED, State.RETURNING),
+                events.getValue().stream().map(DroneEvent::previousState).toList());
+        events.getValue().forEach(event -> verify(fleetStatusStream).publish(event));
+        assertEquals(3, dispatchIndex.size());
+        verify(droneQueryCache, times(1)).evictAvailableDrones();
+    }
+
+    @Test
+    void testTransitionDronesToDeliveredEmptiesPayload() {
+        drone.setState(State.DELIVERING);
+        drone.setLoadedWeight(300);
+        when(droneRepository.findForTransitionByIdIn(List.of(1L))).thenReturn(List.of(drone));
+        when(droneRepository.transitionStatesAndUnload(List.of(1L), State.DELIVERING, State.DELIVERED)).thenReturn(1);
+        when(droneMedicationRepository.findUndeliveredIdsByDroneIdIn(List.of(1L))).thenReturn(List.of(7L));
+
+        Map<Long, TransitionOutcome> outcomes = droneService.transitionDrones(List.of(1L), State.DELIVERED);
+
+        assertEquals(Map.of(1L, TransitionOutcome.MOVED), outcomes);
+        assertEquals(0, drone.getLoadedWeight());
+        verify(droneRepository, never()).transitionStates(any(), any(), any());
+        verify(droneMedicationRepository).markDelivered(List.of(7L));
+        verify(droneQueryCache).evictMedicationsByDrone(1L);
+        verify(droneQueryCache, never()).evictAvailableDrones();
+    }
+
+    @Test
+    void testTransitionDronesRejectsLoadingStates() {
+        assertThrows(IllegalArgumentException.class, () -> droneService.transitionDrones(List.of(1L), State.LOADING));
+        assertThrows(IllegalArgumentException.class, () -> droneService.transitionDrones(List.of(1L), State.LOADED));
+        assertThrows(IllegalArgumentException.class, () -> droneService.transitionDrones(List.of(1L), null));
+        verifyNoInteractions(droneRepository);
+    }
+
     @Test
     void testUpdateDroneState() throws Exception {
+        drone.setState(State.DELIVERED);
         // Mock the repository method to return the drone with CircuitBreaker
-        when(droneRepository.findById(drone.getId()))
+        when(droneRepository.findForTransitionById(drone.getId()))
                 .thenReturn(Optional.of(drone))
                 .thenThrow(new RuntimeException("Database unavailable"))
                 .thenReturn(Optional.of(drone));
+        when(droneRepository.transitionState(drone.getId(), State.DELIVERED, State.RETURNING)).thenReturn(1);
 
         // Use the CircuitBreaker for updateDroneState method directly
         Callable<ResponseEntity<Void>> callable = CircuitBreaker.decorateCallable(circuitBreaker, () -> {
-            droneService.updateDroneState(drone.getId(), State.LOADING);
+            droneService.updateDroneState(drone.getId(), State.RETURNING);
             return new ResponseEntity<Void>(HttpStatus.OK);
         });
 
@@ -253,7 +787,20 @@ class DroneServiceImplTest {
                 .get();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(State.LOADING, drone.getState());
+        assertEquals(State.RETURNING, drone.getState());
     }
 
+    /**
+     * Runs the given code with transaction synchronization active, then completes the transaction as rolled back.
+     */
+    private static void inRolledBackTransaction(Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.enums.TransitionOutcome;
+import com.ajua.Dromed.models.Drone;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneDispatchIndex;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs a shift through bulk state transitions against the real database.
+ */
+@SpringBootTest
+@DirtiesContext
+class DroneServiceImplTransitionTest {
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private MedicationCatalog medicationCatalog;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private DroneDispatchIndex dispatchIndex;
+
+    @MockBean
+    private BatteryLevelReader batteryLevelReader;
+
+    @BeforeEach
+    void setUp() {
+        when(batteryLevelReader.readBatteryLevel(any())).thenReturn(100);
+    }
+
+    @Test
+    void testShiftIsSentOutAndRecalledInBulk() {
+        medicationCatalog.register(new MedicationDTO(null, "Shift", 50, "SHIFT", null));
+        List<Long> shift = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            // Lighter than the seeded drones, so these are the ones claimed for loading
+            droneService.registerDrone("SHIFT" + i, Model.LIGHTWEIGHT, 60, 100, State.IDLE);
+            shift.add(droneService.loadDroneWithMedication(null, new MedicationDTO(null, null, 0, "SHIFT", null)).getDrone().getId());
+        }
+        Long idle = droneService.registerDrone("SHIFT_IDLE", Model.LIGHTWEIGHT, 100, 100, State.IDLE).getId();
+        List<Long> requested = new ArrayList<>(shift);
+        requested.add(idle);
+        requested.add(Long.MAX_VALUE);
+
+        Map<Long, TransitionOutcome> outcomes = droneService.transitionDrones(requested, State.DELIVERING);
+
+        assertEquals(requested, List.copyOf(outcomes.keySet()));
+        shift.forEach(id -> assertEquals(TransitionOutcome.MOVED, outcomes.get(id)));
+        assertEquals(TransitionOutcome.CONFLICT, outcomes.get(idle));
+        assertEquals(TransitionOutcome.NOT_FOUND, outcomes.get(Long.MAX_VALUE));
+        shift.forEach(id -> assertEquals(State.DELIVERING, state(id)));
+        assertEquals(State.IDLE, state(idle));
+
+        assertEquals(1, droneService.getMedicationsByDrone(shift.getFirst()).size());
+        droneService.transitionDrones(shift, State.DELIVERED);
+        shift.forEach(id -> {
+            Drone drone = droneRepository.findById(id).orElseThrow();
+            assertEquals(State.DELIVERED, drone.getState());
+            assertEquals(0, drone.getLoadedWeight());
+            assertEquals(0, drone.getLoadedItems());
+        });
+        // The delivered medications are no longer listed as loaded, in line with the emptied counters
+        assertEquals(List.of(), droneService.getMedicationsByDrone(shift.getFirst()));
+        droneService.getMedicationsByDrones(shift).values().forEach(medications -> assertEquals(List.of(), medications));
+
+        int idleBefore = dispatchIndex.size();
+        Map<Long, TransitionOutcome> recalled = droneService.transitionDrones(shift, State.IDLE);
+
+        shift.forEach(id -> assertEquals(TransitionOutcome.MOVED, recalled.get(id)));
+        shift.forEach(id -> assertEquals(State.IDLE, state(id)));
+        assertEquals(idleBefore + shift.size(), dispatchIndex.size());
+    }
+
+    private State state(Long droneId) {
+        return droneRepository.findById(droneId).orElseThrow().getState();
+    }
+}
@@ -0,0 +1,209 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.FleetRecord;
+import com.ajua.Dromed.dtos.FleetRecord.DroneImage;
+import com.ajua.Dromed.dtos.FleetRecord.DroneMedicationImage;
+import com.ajua.Dromed.dtos.FleetRecord.MedicationImage;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetLogTest {
+
+    @TempDir
+    Path directory;
+
+    private FleetLog log;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    @Test
+    void testReopenReplaysFramesInOrder() throws IOException {
+        List<FleetRecord> written = new ArrayList<>();
+        log = open(directory, 0, new ArrayList<>());
+        for (int i = 1; i <= 20; i++) {
+            List<FleetRecord> records = List.of(drone(i, State.IDLE), new MedicationImage(i, "Med" + i, i, "MED" + i, null),
+                    new DroneMedicationImage(i, i, i, i % 2 == 0));
+            log.append(records).written().join();
+            written.addAll(records);
+        }
+        log.close();
+
+        List<FleetRecord> replayed = new ArrayList<>();
+        log = open(directory, 0, replayed);
+
+        assertEquals(written, replayed);
+        assertEquals(20, log.lastSequence());
+        assertEquals(21, log.append(List.of(drone(21, State.IDLE))).sequence());
+    }
+
+    @Test
+    void testFramesCoveredBySnapshotAreSkipped() throws IOException {
+        log = open(directory, 0, new ArrayList<>());
+        for (int i = 1; i <= 10; i++) {
+            log.append(List.of(drone(i, State.IDLE))).written().join();
+        }
+        log.close();
+
+        List<FleetRecord> replayed = new ArrayList<>();
+        log = open(directory, 7, replayed);
+
+        assertEquals(List.of(drone(8, State.IDLE), drone(9, State.IDLE), drone(10, State.IDLE)), replayed);
+    }
+
+    @Test
+    void testCancelledFramesAreSkipped() throws IOException {
+        log = open(directory, 0, new ArrayList<>());
+        FleetLog.Append rolledBack = log.append(List.of(drone(1, State.LOADING)));
+        log.append(List.of(drone(2, State.IDLE))).written().join();
+        log.cancel(rolledBack.sequence());
+        log.close();
+
+        List<FleetRecord> replayed = new ArrayList<>();
+        log = open(directory, 0, replayed);
+
+        assertEquals(List.of(drone(2, State.IDLE)), replayed);
+    }
+
+    @Test
+    void testConcurrentCommitsShareSyncs() throws Exception {
+        log = open(directory, 0, new ArrayList<>());
+        int threads = 16;
+        int appendsPerThread = 200;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<CompletableFuture<Void>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        log.append(List.of(drone(thread * appendsPerThread + i + 1, State.IDLE))).written().join();
+                    }
+                }, executor));
+            }
+            writers.forEach(CompletableFuture::join);
+        }
+        log.close();
+
+        assertTrue(log.syncs() < threads * appendsPerThread, "Commits were not grouped: " + log.syncs() + " syncs");
+        List<FleetRecord> replayed = new ArrayList<>();
+        log = open(directory, 0, replayed);
+        assertEquals(threads * appendsPerThread, replayed.stream().mapToLong(FleetRecord::id).distinct().count());
+    }
+
+    @Test
+    void testRotatedSegmentsAreDeletedOnceCovered() throws IOException {
+        log = open(directory, 0, new ArrayList<>());
+        log.append(List.of(drone(1, State.IDLE))).written().join();
+        log.append(List.of(drone(2, State.IDLE))).written().join();
+        assertEquals(2, log.rotate());
+        log.append(List.of(drone(3, State.IDLE))).written().join();
+        assertEquals(2, segmentFiles(directory).size());
+
+        log.deleteUpTo(2);
+
+        assertEquals(1, segmentFiles(directory).size());
+        log.close();
+        List<FleetRecord> replayed = new ArrayList<>();
+        log = open(directory, 2, replayed);
+        assertEquals(List.of(drone(3, State.IDLE)), replayed);
+    }
+
+    /**
+     * Simulates a crash at every byte of the log, with and without garbage after the cut, and checks that
+     * recovery always keeps exactly the frames that were complete, cuts off the rest, and can append again.
+     */
+    @Test
+    void testCrashAtAnyPointRecoversCompleteFrames() throws IOException {
+        log = open(directory, 0, new ArrayList<>());
+        List<Long> frameEnds = new ArrayList<>();
+        Path segment = segmentFiles(directory).getFirst();
+        for (int i = 1; i <= 30; i++) {
+            log.append(List.of(drone(i, State.values()[i % State.values().length]))).written().join();
+            frameEnds.add(Files.size(segment));
+        }
+        log.close();
+        log = null;
+        byte[] complete = Files.readAllBytes(segment);
+
+        Random random = new Random(42);
+        for (int length = 0; length <= complete.length; length++) {
+            int cut = length;
+            for (boolean garbage : new boolean[]{false, true}) {
+                Path crashed = Files.createTempDirectory(directory, "crash");
+                byte[] tail = new byte[garbage ? 1 + random.nextInt(64) : 0];
+                random.nextBytes(tail);
+                Path copy = crashed.resolve(segment.getFileName());
+                Files.write(copy, Arrays.copyOf(complete, cut));
+                Files.write(copy, tail, StandardOpenOption.APPEND);
+
+                List<FleetRecord> replayed = new ArrayList<>();
+                try (FleetLog recovered = open(crashed, 0, replayed)) {
+                    int frames = (int) frameEnds.stream().filter(end -> end <= cut).count();
+                    assertEquals(frames, replayed.size(), "Crash at byte " + cut);
+                    for (int i = 0; i < frames; i++) {
+                        assertEquals(i + 1, replayed.get(i).id());
+                    }
+                    assertEquals(frames + 1, recovered.append(List.of(drone(99, State.IDLE))).sequence());
+                }
+                List<FleetRecord> reopened = new ArrayList<>();
+                try (FleetLog recovered = open(crashed, 0, reopened)) {
+                    assertEquals(drone(99, State.IDLE), reopened.getLast());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCorruptionBeforeTheLastSegmentIsAnError() throws IOException {
+        log = open(directory, 0, new ArrayList<>());
+        log.append(List.of(drone(1, State.IDLE))).written().join();
+        log.rotate();
+        log.append(List.of(drone(2, State.IDLE))).written().join();
+        log.close();
+        log = null;
+        Path first = segmentFiles(directory).getFirst();
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(first, bytes);
+
+        assertThrows(IllegalStateException.class, () -> open(directory, 0, new ArrayList<>()));
+    }
+
+    private static FleetLog open(Path directory, long afterSequence, List<FleetRecord> replayed) throws IOException {
+        FleetLog log = new FleetLog(directory, false);
+        log.open(afterSequence, replayed::add);
+        return log;
+    }
+
+    private static List<Path> segmentFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(FleetLog.SEGMENT_PREFIX)).sorted().toList();
+        }
+    }
+
+    private static DroneImage drone(long id, State state) {
+        return new DroneImage(id, "SN" + id, Model.LIGHTWEIGHT, 300, 80, state, 0, 0);
+    }
+}
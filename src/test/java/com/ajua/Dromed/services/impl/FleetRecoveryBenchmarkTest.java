@@ -0,0 +1,155 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.DromedApplication;
+import com.ajua.Dromed.dtos.FleetRecord.DroneImage;
+import com.ajua.Dromed.dtos.FleetRecord.DroneMedicationImage;
+import com.ajua.Dromed.dtos.FleetRecord.MedicationImage;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Restarts the application on a fleet journal holding a snapshot of one million drones, each loaded with a manifest
+ * of two medications, and a log tail of 100,000 loads made after the snapshot.
+ * Reports the time to decode the snapshot and replay the tail on their own, and the time until the restarted
+ * application is ready, next to a start with an empty journal.
+ * Run with {@code mvn test -Pbenchmark -Dtest=FleetRecoveryBenchmarkTest -DargLine=-Xmx4g}.
+ */
+@Tag("benchmark")
+class FleetRecoveryBenchmarkTest {
+
+    private static final int DRONES = 1_000_000;
+    private static final int MEDICATIONS = 1_000;
+    private static final int MANIFEST_SIZE = 2;
+    private static final int TAIL_LOADS = 100_000;
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRestartFromSnapshotAndLogTail() throws IOException {
+        Path journal = Files.createDirectory(directory.resolve("journal"));
+        writeSnapshot(journal);
+        writeTail(journal);
+        long rows = MEDICATIONS + DRONES + (long) DRONES * MANIFEST_SIZE + TAIL_LOADS;
+
+        long decodeStart = System.nanoTime();
+        AtomicLong decoded = new AtomicLong();
+        FleetSnapshot.latest(journal).orElseThrow().forEach(record -> decoded.incrementAndGet());
+        long decodeNanos = System.nanoTime() - decodeStart;
+
+        Path copy = Files.createDirectory(directory.resolve("copy"));
+        try (var files = Files.list(journal)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, copy.resolve(file.getFileName()));
+            }
+        }
+        long replayStart = System.nanoTime();
+        AtomicLong replayed = new AtomicLong();
+        try (FleetLog log = new FleetLog(copy, false)) {
+            log.open(0, record -> replayed.incrementAndGet());
+        }
+        long replayNanos = System.nanoTime() - replayStart;
+
+        long emptyStart = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(Files.createDirectory(directory.resolve("empty")))) {
+            assertEquals(2, context.getBean(JdbcTemplate.class).queryForObject("select count(*) from drone", Long.class));
+        }
+        long emptyNanos = System.nanoTime() - emptyStart;
+
+        long restartStart = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(journal)) {
+            long restartNanos = System.nanoTime() - restartStart;
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertEquals(DRONES, jdbcTemplate.queryForObject("select count(*) from drone", Long.class));
+            assertEquals((long) DRONES * MANIFEST_SIZE + TAIL_LOADS,
+                    jdbcTemplate.queryForObject("select count(*) from drone_medication", Long.class));
+            assertEquals(State.DELIVERING.name(), jdbcTemplate.queryForObject("select state from drone where id = 1", String.class));
+
+            System.out.printf("%-16s %14s %12s%n", "step", "records", "ms");
+            System.out.printf("%-16s %14d %12.0f%n", "decode snapshot", decoded.get(), decodeNanos / 1e6);
+            System.out.printf("%-16s %14d %12.0f%n", "replay log tail", replayed.get(), replayNanos / 1e6);
+            System.out.printf("%-16s %14d %12.0f%n", "restart", rows, restartNanos / 1e6);
+            System.out.printf("%-16s %14d %12.0f%n", "empty start", 0, emptyNanos / 1e6);
+        }
+    }
+
+    private static void writeSnapshot(Path journal) throws IOException {
+        try (FleetSnapshot.Writer writer = new FleetSnapshot.Writer(journal, 0)) {
+            for (int i = 1; i <= MEDICATIONS; i++) {
+                writer.add(new MedicationImage(i, "Medication-" + i, 1 + i % 50, "MED_" + i, "https://images.example.com/" + i + ".png"));
+            }
+            for (int i = 1; i <= DRONES; i++) {
+                writer.add(drone(i, State.LOADED, 2));
+            }
+            long id = 0;
+            for (int i = 1; i <= DRONES; i++) {
+                for (int m = 0; m < MANIFEST_SIZE; m++) {
+                    writer.add(new DroneMedicationImage(++id, i, 1 + (i + m) % MEDICATIONS, false));
+                }
+            }
+            writer.commit();
+        }
+    }
+
+    /**
+     * Appends one frame per load after the snapshot: a third medication for the drone, which then leaves for delivery.
+     */
+    private static void writeTail(Path journal) throws IOException {
+        try (FleetLog log = new FleetLog(journal, false)) {
+            log.open(0, record -> {
+            });
+            FleetLog.Append last = null;
+            for (int i = 1; i <= TAIL_LOADS; i++) {
+                last = log.append(List.of(drone(i, State.DELIVERING, 3),
+                        new DroneMedicationImage((long) DRONES * MANIFEST_SIZE + i, i, 1 + i % MEDICATIONS, false)));
+            }
+            last.written().join();
+        }
+    }
+
+    private static DroneImage drone(long id, State state, int loadedItems) {
+        return new DroneImage(id, "SN-" + id, Model.values()[(int) (id % Model.values().length)], 500, 100, state,
+                loadedItems * 50, loadedItems);
+    }
+
+    private static ConfigurableApplicationContext start(Path journal) {
+        return new SpringApplicationBuilder(DromedApplication.class, FullBattery.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:recovery" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1",
+                        "--dromed.fleet.journal.enabled=true",
+                        "--dromed.fleet.journal.directory=" + journal,
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.springdoc=WARN");
+    }
+
+    @TestConfiguration
+    static class FullBattery {
+
+        @Bean
+        @Primary
+        BatteryLevelReader fullBatteryLevelReader() {
+            return drone -> 100;
+        }
+    }
+}
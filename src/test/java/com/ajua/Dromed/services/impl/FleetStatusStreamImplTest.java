@@ -0,0 +1,300 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.repository.DroneRepository;
+import com.ajua.Dromed.services.interfaces.BatteryReadingRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FleetStatusStreamImplTest {
+
+    private static final Pattern EVENT_NAME = Pattern.compile("event:(\\w+)");
+
+    private final DroneRepository droneRepository = mock(DroneRepository.class);
+    private final BatteryReadingRegistry batteryReadingRegistry = mock(BatteryReadingRegistry.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FleetStatusStreamImpl stream = new FleetStatusStreamImpl(droneRepository, batteryReadingRegistry,
+            meterRegistry, Duration.ofMinutes(1), Duration.ofMillis(100));
+
+    @BeforeEach
+    void setUp() {
+        when(droneRepository.findPage(eq(0L), any())).thenReturn(List.of(drone(1L, 50), drone(2L, 90)));
+        when(batteryReadingRegistry.getLatestLevel(anyLong())).thenReturn(Optional.empty());
+        when(batteryReadingRegistry.getLatestLevel(1L)).thenReturn(Optional.of(45));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void testSnapshotIsFollowedByChanges() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter);
+
+        stream.publish(event(2L, State.LOADING, 90));
+        List<Sent> sent = emitter.await("drone", 1);
+
+        assertEquals("snapshot", sent.getFirst().name());
+        @SuppressWarnings("unchecked")
+        List<DroneDTO> snapshot = (List<DroneDTO>) sent.getFirst().data();
+        assertEquals(List.of(45, 90), snapshot.stream().map(DroneDTO::getBatteryCapacity).toList());
+        DroneEvent change = (DroneEvent) sent.stream().filter(event -> "drone".equals(event.name())).findFirst().orElseThrow().data();
+        assertEquals(State.LOADING, change.state());
+    }
+
+    @Test
+    void testSnapshotReadsEveryPage() throws Exception {
+        List<DroneDTO> firstPage = LongStream.rangeClosed(1, AbstractDroneService.MAX_PAGE_SIZE)
+                .mapToObj(id -> drone(id, 90)).toList();
+        long last = AbstractDroneService.MAX_PAGE_SIZE;
+        when(droneRepository.findPage(eq(0L), any())).thenReturn(firstPage);
+        when(droneRepository.findPage(eq(last), any())).thenReturn(List.of(drone(last + 1, 90)));
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter);
+
+        List<Sent> sent = emitter.await(null, 1);
+
+        // Each page goes out as soon as it is read, instead of the whole fleet in one event
+        assertEquals("snapshot", sent.get(0).name());
+        assertEquals("snapshot", sent.get(1).name());
+        @SuppressWarnings("unchecked")
+        List<DroneDTO> firstSent = (List<DroneDTO>) sent.get(0).data();
+        @SuppressWarnings("unchecked")
+        List<DroneDTO> lastSent = (List<DroneDTO>) sent.get(1).data();
+        assertEquals(AbstractDroneService.MAX_PAGE_SIZE, firstSent.size());
+        assertEquals(List.of(last + 1), lastSent.stream().map(DroneDTO::getId).toList());
+        assertNull(sent.get(2).name());
+    }
+
+    @Test
+    void testSlowClientReceivesLatestChangePerDroneWithoutBlockingPublisher() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.release = new CountDownLatch(1);
+        stream.subscribe(emitter);
+
+        try {
+            long start = System.nanoTime();
+            for (int level = 100; level > 0; level--) {
+                for (long droneId = 1; droneId <= 3; droneId++) {
+                    stream.publish(event(droneId, State.DELIVERING, level));
+                }
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMillis < 1_000, "Publishing took " + elapsedMillis + " ms");
+        } finally {
+            emitter.release.countDown();
+        }
+
+        List<DroneEvent> changes = emitter.await("drone", 3).stream()
+                .filter(sent -> "drone".equals(sent.name()))
+                .map(sent -> (DroneEvent) sent.data())
+                .toList();
+        assertEquals(List.of(1L, 2L, 3L), changes.stream().map(DroneEvent::droneId).toList());
+        changes.forEach(change -> assertEquals(1, change.batteryLevel()));
+        assertEquals(297, meterRegistry.counter("dromed.fleet.stream.coalesced").count());
+    }
+
+    @Test
+    void testEverySubscriberEndsOnLatestChangeWhenSomeAreSlow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<RecordingEmitter> emitters = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            RecordingEmitter emitter = new RecordingEmitter();
+            if (i % 10 == 0) {
+                emitter.release = release;
+            }
+            emitters.add(emitter);
+            stream.subscribe(emitter);
+        }
+
+        for (int level = 20; level > 0; level--) {
+            for (long droneId = 1; droneId <= 5; droneId++) {
+                stream.publish(event(droneId, State.DELIVERING, level));
+            }
+        }
+        release.countDown();
+
+        Map<Long, Integer> latest = LongStream.rangeClosed(1, 5).boxed().collect(Collectors.toMap(id -> id, id -> 1));
+        for (RecordingEmitter emitter : emitters) {
+            assertEquals(latest, emitter.awaitLatestLevels(latest));
+        }
+    }
+
+    @Test
+    void testBatteryUpdateDoesNotTakeStateBack() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.release = new CountDownLatch(1);
+        stream.subscribe(emitter);
+
+        try {
+            // The battery poll read the drone before it was loaded
+            stream.publish(event(2L, State.LOADING, 90));
+            stream.publish(batteryUpdate(2L, State.IDLE, 88));
+        } finally {
+            emitter.release.countDown();
+        }
+        DroneEvent merged = (DroneEvent) emitter.await("drone", 1).getLast().data();
+        stream.publish(batteryUpdate(2L, State.IDLE, 87));
+        DroneEvent later = (DroneEvent) emitter.await("drone", 2).getLast().data();
+
+        assertEquals(DroneEvent.Type.STATE_CHANGED, merged.type());
+        assertEquals(State.LOADING, merged.state());
+        assertEquals(State.IDLE, merged.previousState());
+        assertEquals(88, merged.batteryLevel());
+        assertEquals(DroneEvent.Type.BATTERY_UPDATED, later.type());
+        assertNull(later.state());
+        assertEquals(87, later.batteryLevel());
+    }
+
+    @Test
+    void testClientThatGoesAwayIsRemoved() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failOnChanges = true;
+        stream.subscribe(emitter);
+        assertEquals(1, meterRegistry.get("dromed.fleet.stream.subscribers").gauge().value());
+
+        stream.publish(event(1L, State.LOADING, 50));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (meterRegistry.get("dromed.fleet.stream.subscribers").gauge().value() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, meterRegistry.get("dromed.fleet.stream.subscribers").gauge().value());
+    }
+
+    @Test
+    void testIdleStreamGetsHeartbeats() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        stream.subscribe(emitter);
+
+        List<Sent> sent = emitter.await(null, 2);
+
+        assertEquals("snapshot", sent.getFirst().name());
+        assertNull(sent.get(1).name());
+    }
+
+    private static DroneDTO drone(Long id, int batteryLevel) {
+        return new DroneDTO(id, "SN" + id, Model.LIGHTWEIGHT, 100, batteryLevel, State.IDLE);
+    }
+
+    private static DroneEvent event(Long droneId, State state, int batteryLevel) {
+        return new DroneEvent(DroneEvent.Type.STATE_CHANGED, droneId, state, State.IDLE, batteryLevel,
+                System.currentTimeMillis());
+    }
+
+    private static DroneEvent batteryUpdate(Long droneId, State state, int batteryLevel) {
+        return new DroneEvent(DroneEvent.Type.BATTERY_UPDATED, droneId, state, null, batteryLevel,
+                System.currentTimeMillis());
+    }
+
+    /**
+     * An event as written to the client: its name, or null for a comment, and its payload.
+     */
+    private record Sent(String name, Object data) {
+    }
+
+    /**
+     * Emitter that records what would have been written to the client, optionally blocking or failing like a real connection.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<Sent> sent = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch release;
+        private volatile boolean failOnChanges;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            String name = null;
+            Object data = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    Matcher matcher = EVENT_NAME.matcher(text);
+                    if (matcher.find()) {
+                        name = matcher.group(1);
+                    }
+                } else {
+                    data = part.getData();
+                }
+            }
+            if (failOnChanges && "drone".equals(name)) {
+                throw new IOException("Broken pipe");
+            }
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sent.add(new Sent(name, data));
+        }
+
+        /**
+         * Waits until {@code count} events with the given name, or comments for null, have been written after the snapshot pages.
+         */
+        List<Sent> await(String name, int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (matching(name) < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(matching(name) >= count, "Written: " + sent);
+            return List.copyOf(sent);
+        }
+
+        /**
+         * Waits until the last change written for each drone carries the expected battery level.
+         */
+        Map<Long, Integer> awaitLatestLevels(Map<Long, Integer> expected) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!expected.equals(latestLevels()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            return latestLevels();
+        }
+
+        private Map<Long, Integer> latestLevels() {
+            Map<Long, Integer> levels = new HashMap<>();
+            sent.stream().filter(event -> "drone".equals(event.name()))
+                    .map(event -> (DroneEvent) event.data())
+                    .forEach(change -> levels.put(change.droneId(), change.batteryLevel()));
+            return levels;
+        }
+
+        private long matching(String name) {
+            return sent.stream().filter(event -> !"snapshot".equals(event.name()))
+                    .filter(event -> Objects.equals(name, event.name())).count();
+        }
+    }
+}
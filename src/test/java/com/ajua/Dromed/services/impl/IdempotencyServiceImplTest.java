@@ -0,0 +1,211 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.exceptions.DroneServiceTimeoutException;
+import com.ajua.Dromed.exceptions.IdempotencyKeyReusedException;
+import com.ajua.Dromed.models.IdempotencyRecord;
+import com.ajua.Dromed.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private IdempotencyServiceImpl idempotencyService;
+    private DroneDTO request;
+    private DroneDTO response;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(idempotencyRecordRepository, objectMapper, new SimpleMeterRegistry(),
+                100, Duration.ofHours(24));
+        request = new DroneDTO(null, "SN1", Model.LIGHTWEIGHT, 100, 100, State.IDLE);
+        response = new DroneDTO(1L, "SN1", Model.LIGHTWEIGHT, 100, 100, State.IDLE);
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    void testDuplicateIsAnsweredFromMemory() throws Exception {
+        when(idempotencyRecordRepository.findById("registerDrone:key")).thenReturn(Optional.empty());
+
+        DroneDTO first = execute("key", request, succeeding()).get();
+        DroneDTO second = execute("key", request, succeeding()).get();
+
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+        ArgumentCaptor<IdempotencyRecord> stored = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository).save(stored.capture());
+        assertEquals("registerDrone:key", stored.getValue().getKey());
+        assertEquals(response, objectMapper.readValue(stored.getValue().getResponse(), DroneDTO.class));
+        verify(idempotencyRecordRepository, times(1)).findById(any());
+    }
+
+    @Test
+    void testInFlightDuplicatesAreCoalesced() throws Exception {
+        when(idempotencyRecordRepository.findById("registerDrone:key")).thenReturn(Optional.empty());
+        CompletableFuture<DroneDTO> pending = new CompletableFuture<>();
+        Supplier<CompletableFuture<DroneDTO>> call = () -> {
+            calls.incrementAndGet();
+            return pending;
+        };
+
+        CompletableFuture<DroneDTO> first = execute("key", request, call);
+        CompletableFuture<DroneDTO> second = execute("key", request, call);
+        assertFalse(second.isDone());
+        second.cancel(false);
+        pending.complete(response);
+
+        assertSame(response, first.get());
+        assertEquals(1, calls.get());
+        assertSame(response, execute("key", request, call).get());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testStoredResponseIsReplayedAfterEviction() throws Exception {
+        String fingerprint = fingerprintOf("key", request);
+        when(idempotencyRecordRepository.findById("registerDrone:key")).thenReturn(Optional.of(new IdempotencyRecord(
+                "registerDrone:key", fingerprint, objectMapper.writeValueAsString(response), Instant.now())));
+
+        DroneDTO replayed = execute("key", request, succeeding()).get();
+
+        assertEquals(response, replayed);
+        assertEquals(0, calls.get());
+        verify(idempotencyRecordRepository, never()).save(any());
+    }
+
+    @Test
+    void testExpiredStoredResponseIsIgnored() throws Exception {
+        String fingerprint = fingerprintOf("key", request);
+        when(idempotencyRecordRepository.findById("registerDrone:key")).thenReturn(Optional.of(new IdempotencyRecord(
+                "registerDrone:key", fingerprint, "{}", Instant.now().minus(Duration.ofDays(2)))));
+
+        assertSame(response, execute("key", request, succeeding()).get());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testKeyReusedWithDifferentRequest() throws Exception {
+        when(idempotencyRecordRepository.findById("registerDrone:key")).thenReturn(Optional.empty());
+        execute("key", request, succeeding()).get();
+
+        DroneDTO other = new DroneDTO(null, "SN2", Model.LIGHTWEIGHT, 100, 100, State.IDLE);
+        assertThrows(IdempotencyKeyReusedException.class, () -> execute("key", other, succeeding()));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testFailuresAreNotKept() throws Exception {
+        when(idempotencyRecordRepository.findById("registerDrone:key")).thenReturn(Optional.empty());
+
+        CompletableFuture<DroneDTO> failed = execute("key", request, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid serial number"));
+        });
+        assertTrue(failed.isCompletedExceptionally());
+
+        assertSame(response, execute("key", request, succeeding()).get());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testTimedOutCallKeepsTheKeyUntilItFinishes() throws Exception {
+        when(idempotencyRecordRepository.findById("registerDrone:key")).thenReturn(Optional.empty());
+        CompletableFuture<DroneDTO> outcome = new CompletableFuture<>();
+
+        CompletableFuture<DroneDTO> timedOut = execute("key", request, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(new DroneServiceTimeoutException("Drone service timed out", outcome));
+        });
+        assertTrue(timedOut.isCompletedExceptionally());
+
+        // The retry waits for the call that timed out instead of running it again
+        CompletableFuture<DroneDTO> retry = execute("key", request, succeeding());
+        assertFalse(retry.isDone());
+        outcome.complete(response);
+
+        assertSame(response, retry.get());
+        assertSame(response, execute("key", request, succeeding()).get());
+        assertEquals(1, calls.get());
+        verify(idempotencyRecordRepository).save(any());
+    }
+
+    @Test
+    void testTimedOutCallThatFailsReleasesTheKey() throws Exception {
+        when(idempotencyRecordRepository.findById("registerDrone:key")).thenReturn(Optional.empty());
+        CompletableFuture<DroneDTO> outcome = new CompletableFuture<>();
+
+        execute("key", request, () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(new DroneServiceTimeoutException("Drone service timed out", outcome));
+        });
+        outcome.completeExceptionally(new IllegalStateException("Drone is not available"));
+
+        assertSame(response, execute("key", request, succeeding()).get());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testWithoutKeyEveryRequestRuns() throws Exception {
+        execute(null, request, succeeding()).get();
+        execute(null, request, succeeding()).get();
+
+        assertEquals(2, calls.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void testInvalidKey() {
+        assertThrows(IllegalArgumentException.class, () -> execute(" ", request, succeeding()));
+        assertThrows(IllegalArgumentException.class, () -> execute("k".repeat(IdempotencyServiceImpl.MAX_KEY_LENGTH + 1), request, succeeding()));
+        assertEquals(0, calls.get());
+    }
+
+    private CompletableFuture<DroneDTO> execute(String key, DroneDTO request, Supplier<CompletableFuture<DroneDTO>> call) {
+        return idempotencyService.execute("registerDrone", key, request, DroneDTO.class, call);
+    }
+
+    private Supplier<CompletableFuture<DroneDTO>> succeeding() {
+        return () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(response);
+        };
+    }
+
+    /**
+     * Runs a request on a scratch service and returns the fingerprint it stored.
+     */
+    private String fingerprintOf(String key, DroneDTO request) throws Exception {
+        IdempotencyRecordRepository scratchRepository = mock(IdempotencyRecordRepository.class);
+        new IdempotencyServiceImpl(scratchRepository, objectMapper, new SimpleMeterRegistry(), 1, Duration.ofHours(1))
+                .execute("registerDrone", key, request, DroneDTO.class, () -> CompletableFuture.completedFuture(response)).get();
+        ArgumentCaptor<IdempotencyRecord> stored = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(scratchRepository).save(stored.capture());
+        return stored.getValue().getFingerprint();
+    }
+}
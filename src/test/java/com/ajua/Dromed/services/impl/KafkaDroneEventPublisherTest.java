@@ -0,0 +1,90 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.DroneEvent;
+import com.ajua.Dromed.enums.State;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class KafkaDroneEventPublisherTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testPublishSendsEventKeyedByDrone() throws Exception {
+        when(kafkaTemplate.send(eq("drone-events"), eq("7"), any(byte[].class)))
+                .thenReturn(CompletableFuture.completedFuture(new SendResult<>(null, null)));
+        KafkaDroneEventPublisher publisher = publisher(16);
+
+        publisher.publish(event(7L));
+        publisher.shutdown();
+
+        verify(kafkaTemplate).send(eq("drone-events"), eq("7"), any(byte[].class));
+        verify(kafkaTemplate).flush();
+        assertEquals(1, meterRegistry.counter("dromed.events.published").count());
+    }
+
+    @Test
+    void testPublishDoesNotBlockWhenKafkaIsSlow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(kafkaTemplate.send(any(), any(), any(byte[].class))).thenAnswer(invocation -> {
+            release.await();
+            return CompletableFuture.completedFuture(new SendResult<>(null, null));
+        });
+        KafkaDroneEventPublisher publisher = publisher(4);
+
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                publisher.publish(event((long) i));
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(elapsedMillis < 1_000, "Publishing took " + elapsedMillis + " ms");
+            // One event is held by the sender, four wait in the queue, the rest are dropped
+            assertTrue(meterRegistry.counter("dromed.events.dropped").count() >= 95);
+        } finally {
+            release.countDown();
+            publisher.shutdown();
+        }
+    }
+
+    @Test
+    void testFailedSendIsCounted() {
+        when(kafkaTemplate.send(any(), any(), any(byte[].class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable")));
+        KafkaDroneEventPublisher publisher = publisher(16);
+
+        publisher.publish(event(1L));
+        publisher.shutdown();
+
+        assertEquals(1, meterRegistry.counter("dromed.events.failed").count());
+        assertEquals(0, meterRegistry.counter("dromed.events.published").count());
+    }
+
+    private KafkaDroneEventPublisher publisher(int bufferCapacity) {
+        return new KafkaDroneEventPublisher(kafkaTemplate, objectMapper, meterRegistry, "drone-events", bufferCapacity,
+                Duration.ofSeconds(5));
+    }
+
+    private static DroneEvent event(Long droneId) {
+        return new DroneEvent(DroneEvent.Type.STATE_CHANGED, droneId, State.LOADING, State.IDLE, 100,
+                System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,90 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.exceptions.ResourceNotFoundException;
+import com.ajua.Dromed.models.Medication;
+import com.ajua.Dromed.repository.MedicationRepository;
+import com.ajua.Dromed.services.interfaces.DroneQueryCache;
+import com.ajua.Dromed.services.interfaces.FleetJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MedicationCatalogImplTest {
+
+    @Mock
+    private MedicationRepository medicationRepository;
+
+    @Mock
+    private DroneQueryCache droneQueryCache;
+
+    @Mock
+    private FleetJournal fleetJournal;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MedicationCatalogImpl medicationCatalog;
+    private Medication medication;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        medicationCatalog = new MedicationCatalogImpl(medicationRepository, droneQueryCache, fleetJournal, meterRegistry, 100, Duration.ofMinutes(10));
+        medication = new Medication(1L, "Med1", 100, "MED123", null);
+    }
+
+    @Test
+    void testGetByCodeIsServedFromNearCache() {
+        when(medicationRepository.findByCode("MED123")).thenReturn(Optional.of(medication));
+
+        assertSame(medication, medicationCatalog.getByCode("MED123"));
+        assertSame(medication, medicationCatalog.getByCode("MED123"));
+
+        verify(medicationRepository, times(1)).findByCode("MED123");
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "medicationCatalog").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "medicationCatalog").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void testGetByCodeUnknownIsNotCached() {
+        when(medicationRepository.findByCode("MED123")).thenReturn(Optional.empty()).thenReturn(Optional.of(medication));
+
+        assertThrows(ResourceNotFoundException.class, () -> medicationCatalog.getByCode("MED123"));
+        assertSame(medication, medicationCatalog.getByCode("MED123"));
+    }
+
+    @Test
+    void testRegisterInvalidatesNearCache() {
+        Medication updated = new Medication(1L, "Med1", 200, "MED123", null);
+        when(medicationRepository.findByCode("MED123")).thenReturn(Optional.of(medication)).thenReturn(Optional.of(medication)).thenReturn(Optional.of(updated));
+        when(medicationRepository.save(any(Medication.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals(100, medicationCatalog.getByCode("MED123").getWeight());
+        MedicationDTO registered = medicationCatalog.register(new MedicationDTO(null, "Med1", 200, "MED123", null));
+
+        assertEquals(200, registered.getWeight());
+        assertEquals(200, medicationCatalog.getByCode("MED123").getWeight());
+        verify(medicationRepository, times(3)).findByCode("MED123");
+        verify(droneQueryCache).evictAllMedicationsByDrone();
+        verify(fleetJournal).medicationChanged(1L);
+    }
+
+    @Test
+    void testRegisterInvalidMedication() {
+        assertThrows(IllegalArgumentException.class, () ->
+                medicationCatalog.register(new MedicationDTO(null, "Med1", 100, "lower-case", null)));
+        assertThrows(IllegalArgumentException.class, () ->
+                medicationCatalog.register(new MedicationDTO(null, "Med1", 0, "MED123", null)));
+        verifyNoInteractions(medicationRepository);
+    }
+}
@@ -0,0 +1,139 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.dtos.BatteryReading;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentBatteryHistoryStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private SegmentBatteryHistoryStore store;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void testFindReadingsFromActiveLog() throws IOException {
+        store = open(Duration.ofHours(1));
+        store.append(minutes(1L, 0, 10));
+
+        List<BatteryReading> readings = store.findReadings(1L, START.plusMinutes(2), START.plusMinutes(5));
+
+        assertEquals(3, readings.size());
+        assertEquals(START.plusMinutes(2), readings.getFirst().timestamp());
+        assertEquals(level(4), readings.getLast().batteryLevel());
+        assertTrue(store.findReadings(2L, START, START.plusHours(1)).isEmpty());
+        assertEquals(0, segmentFiles().size());
+    }
+
+    @Test
+    void testFindReadingsAcrossSealedSegments() throws IOException {
+        store = open(Duration.ofHours(1));
+        for (int minute = 0; minute < 150; minute++) {
+            List<BatteryReading> batch = new ArrayList<>();
+            for (long droneId = 1; droneId <= 50; droneId++) {
+                batch.add(reading(droneId, minute));
+            }
+            store.append(batch);
+        }
+
+        assertEquals(2, segmentFiles().size());
+        List<BatteryReading> readings = store.findReadings(7L, START.plusMinutes(30), START.plusMinutes(130));
+        assertEquals(100, readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            assertEquals(START.plusMinutes(30 + i), readings.get(i).timestamp());
+            assertEquals(level(30 + i), readings.get(i).batteryLevel());
+            assertEquals(7L, readings.get(i).droneId());
+        }
+    }
+
+    @Test
+    void testReopenRestoresSegmentsAndActiveLog() throws IOException {
+        store = open(Duration.ofHours(1));
+        store.append(minutes(1L, 0, 90));
+        store.close();
+
+        store = open(Duration.ofHours(1));
+
+        assertEquals(90, store.findReadings(1L, START, START.plusHours(2)).size());
+    }
+
+    @Test
+    void testTornFrameAtEndOfActiveLogIsDiscarded() throws IOException {
+        store = open(Duration.ofHours(1));
+        store.append(minutes(1L, 0, 10));
+        store.close();
+        Files.write(directory.resolve("active.log"), new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        store = open(Duration.ofHours(1));
+        store.append(minutes(1L, 10, 5));
+
+        assertEquals(15, store.findReadings(1L, START, START.plusHours(1)).size());
+    }
+
+    @Test
+    void testSegmentsAreSmallerThanRawReadings() throws IOException {
+        store = open(Duration.ofHours(1));
+        for (int minute = 0; minute <= 60; minute++) {
+            List<BatteryReading> batch = new ArrayList<>();
+            for (long droneId = 1; droneId <= 1_000; droneId++) {
+                batch.add(reading(droneId, minute));
+            }
+            store.append(batch);
+        }
+
+        long segmentBytes = Files.size(segmentFiles().getFirst());
+        // A row of the history table holds at least an 8 byte id, an 8 byte drone ID, a 4 byte level and an 8 byte timestamp
+        assertTrue(segmentBytes < 61_000L * 28 / 10, "Segment takes " + segmentBytes + " bytes");
+    }
+
+    private SegmentBatteryHistoryStore open(Duration segmentDuration) throws IOException {
+        SegmentBatteryHistoryStore store = new SegmentBatteryHistoryStore(directory, segmentDuration, Duration.ofDays(90),
+                4_096, 3, false);
+        store.open();
+        return store;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private List<BatteryReading> minutes(Long droneId, int first, int count) {
+        List<BatteryReading> readings = new ArrayList<>();
+        for (int minute = first; minute < first + count; minute++) {
+            readings.add(reading(droneId, minute));
+        }
+        return readings;
+    }
+
+    private BatteryReading reading(Long droneId, int minute) {
+        return new BatteryReading(droneId, level(minute), START.plusMinutes(minute));
+    }
+
+    private int level(int minute) {
+        return 100 - minute % 80;
+    }
+}
@@ -0,0 +1,183 @@
+package com.ajua.Dromed.services.impl;
+
+import com.ajua.Dromed.DromedApplication;
+import com.ajua.Dromed.dtos.DroneDTO;
+import com.ajua.Dromed.dtos.FleetRecord.DroneImage;
+import com.ajua.Dromed.dtos.FleetRecord.DroneMedicationImage;
+import com.ajua.Dromed.dtos.FleetRecord.MedicationImage;
+import com.ajua.Dromed.dtos.MedicationDTO;
+import com.ajua.Dromed.enums.Model;
+import com.ajua.Dromed.enums.State;
+import com.ajua.Dromed.services.interfaces.BatteryLevelReader;
+import com.ajua.Dromed.services.interfaces.DroneService;
+import com.ajua.Dromed.services.interfaces.FleetJournal;
+import com.ajua.Dromed.services.interfaces.MedicationCatalog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restarts the application on the same fleet journal, each time with a fresh in-memory database,
+ * and checks that the fleet comes back exactly as it was committed, or not at all.
+ */
+class WalFleetJournalTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+    private static final String DRONES = "select * from drone order by id";
+    private static final String MEDICATIONS = "select * from medication order by id";
+    private static final String DRONE_MEDICATIONS = "select * from drone_medication order by id";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRestartRestoresSnapshotAndLogTail() throws IOException {
+        List<Map<String, Object>> drones;
+        List<Map<String, Object>> medications;
+        List<Map<String, Object>> droneMedications;
+        try (ConfigurableApplicationContext context = start()) {
+            DroneService droneService = context.getBean(DroneService.class);
+            MedicationCatalog medicationCatalog = context.getBean(MedicationCatalog.class);
+            medicationCatalog.register(new MedicationDTO(null, "Aspirin", 50, "ASPIRIN", null));
+            DroneDTO drone = droneService.registerDrone("JOURNAL1", Model.HEAVYWEIGHT, 500, 100, State.IDLE);
+            context.getBean(FleetJournal.class).snapshot();
+
+            // Changes after the snapshot are only in the log tail
+            droneService.registerDrone("JOURNAL2", Model.LIGHTWEIGHT, 200, 100, State.IDLE);
+            medicationCatalog.register(new MedicationDTO(null, "Aspirin", 60, "ASPIRIN", "aspirin.png"));
+            Long loaded = droneService.loadDroneWithManifest(null, List.of(medication("ASPIRIN"), medication("MED1")))
+                    .getDrone().getId();
+            droneService.transitionDrones(List.of(loaded, drone.getId()), State.DELIVERING);
+            assertThrows(IllegalStateException.class, () -> droneService.startDelivery(loaded));
+
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            drones = jdbcTemplate.queryForList(DRONES);
+            medications = jdbcTemplate.queryForList(MEDICATIONS);
+            droneMedications = jdbcTemplate.queryForList(DRONE_MEDICATIONS);
+        }
+        assertEquals(1, files(FleetSnapshot.SNAPSHOT_SUFFIX));
+
+        try (ConfigurableApplicationContext context = start()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertEquals(drones, jdbcTemplate.queryForList(DRONES));
+            assertEquals(medications, jdbcTemplate.queryForList(MEDICATIONS));
+            assertEquals(droneMedications, jdbcTemplate.queryForList(DRONE_MEDICATIONS));
+
+            // New rows continue after the restored IDs
+            DroneService droneService = context.getBean(DroneService.class);
+            DroneDTO drone = droneService.registerDrone("JOURNAL3", Model.LIGHTWEIGHT, 300, 100, State.IDLE);
+            assertTrue(drones.stream().allMatch(row -> ((Number) row.get("ID")).longValue() < drone.getId()));
+            droneService.loadDroneWithMedication(null, medication("MED2"));
+
+            context.getBean(FleetJournal.class).snapshot();
+            drones = jdbcTemplate.queryForList(DRONES);
+            droneMedications = jdbcTemplate.queryForList(DRONE_MEDICATIONS);
+        }
+        assertEquals(1, files(FleetSnapshot.SNAPSHOT_SUFFIX));
+        assertEquals(1, files(FleetLog.SEGMENT_SUFFIX));
+
+        try (ConfigurableApplicationContext context = start()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            assertEquals(drones, jdbcTemplate.queryForList(DRONES));
+            assertEquals(droneMedications, jdbcTemplate.queryForList(DRONE_MEDICATIONS));
+        }
+    }
+
+    @Test
+    void testConcurrentCommitsAreAllRestored() {
+        int loads = 40;
+        List<Map<String, Object>> droneMedications;
+        try (ConfigurableApplicationContext context = start()) {
+            DroneService droneService = context.getBean(DroneService.class);
+            for (int i = 0; i < loads; i++) {
+                droneService.registerDrone("CONCURRENT" + i, Model.HEAVYWEIGHT, 500, 100, State.IDLE);
+            }
+            List<CompletableFuture<Void>> futures = Stream.generate(() -> CompletableFuture.runAsync(() ->
+                            droneService.loadDroneWithMedication(null, medication("MED1"))))
+                    .limit(loads)
+                    .toList();
+            futures.forEach(CompletableFuture::join);
+            droneMedications = context.getBean(JdbcTemplate.class).queryForList(DRONE_MEDICATIONS);
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals(droneMedications, context.getBean(JdbcTemplate.class).queryForList(DRONE_MEDICATIONS));
+        }
+    }
+
+    @Test
+    void testFailedRestoreLeavesNothingBehind() throws Exception {
+        try (FleetLog log = new FleetLog(directory, false)) {
+            log.open(0, record -> {
+            });
+            // The drone medication refers to a medication that does not exist, so the last table cannot be loaded
+            log.append(List.of(new MedicationImage(1, "Aspirin", 50, "ASPIRIN", null),
+                    new DroneImage(1, "BROKEN1", Model.LIGHTWEIGHT, 200, 100, State.LOADED, 50, 1),
+                    new DroneMedicationImage(1, 1, 99, false))).written().join();
+        }
+
+        // Keeps the schema when the context that failed to start is closed
+        assertThrows(IllegalStateException.class, () -> start("--spring.jpa.hibernate.ddl-auto=create"));
+
+        try (Connection connection = DriverManager.getConnection(
+                "jdbc:h2:mem:journal" + DATABASES.get() + ";DB_CLOSE_DELAY=-1", "sa", "");
+             Statement statement = connection.createStatement()) {
+            for (String table : List.of("medication", "drone", "drone_medication")) {
+                ResultSet rows = statement.executeQuery("select count(*) from " + table);
+                rows.next();
+                assertEquals(0, rows.getInt(1), table);
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(String... args) {
+        // Arguments rather than default properties, which application.properties would override
+        return new SpringApplicationBuilder(DromedApplication.class, FullBattery.class)
+                .run(Stream.concat(Stream.of("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:journal" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1",
+                        "--dromed.fleet.journal.enabled=true",
+                        "--dromed.fleet.journal.directory=" + directory,
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.springdoc=WARN"), Stream.of(args)).toArray(String[]::new));
+    }
+
+    private long files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(suffix)).count();
+        }
+    }
+
+    private static MedicationDTO medication(String code) {
+        return new MedicationDTO(null, null, 0, code, null);
+    }
+
+    @TestConfiguration
+    static class FullBattery {
+
+        @Bean
+        @Primary
+        BatteryLevelReader fullBatteryLevelReader() {
+            return droneId -> 100;
+        }
+    }
+}